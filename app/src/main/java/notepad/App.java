@@ -0,0 +1,67 @@
+package notepad;
+
+import javax.swing.*;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+public class App {
+    // with -Dnotepad.startupBenchmark=true the notepad prints how long it took to start and exits as soon as the text
+    // area has been painted, see StartupBenchmark
+    private static final boolean STARTUP_BENCHMARK = Boolean.getBoolean("notepad.startupBenchmark");
+
+    public static void main(String[] args){
+        long mainStarted = System.currentTimeMillis();
+
+        // times the events of the edt from the start, so that the diagnostics can tell what froze the notepad
+        EdtMonitor.install();
+        SwingUtilities.invokeLater(new Runnable(){
+           @Override
+           public void run(){
+               try{
+                   UIManager.setLookAndFeel("com.jtattoo.plaf.acryl.AcrylLookAndFeel");
+                   NotepadGUI notepad = new NotepadGUI();
+                   notepad.setVisible(true);
+
+                   if(STARTUP_BENCHMARK){
+                       notepad.whenPainted(new Runnable() {
+                           @Override
+                           public void run() {
+                               long jvmStarted = ManagementFactory.getRuntimeMXBean().getStartTime();
+                               System.out.println(StartupBenchmark.RESULT_PREFIX + (System.currentTimeMillis() - jvmStarted) +
+                                       " " + (mainStarted - jvmStarted));
+                               System.exit(0);
+                           }
+                       });
+                       return;
+                   }
+
+                   // looking for documents that were not saved can wait until the window is up
+                   notepad.whenPainted(new Runnable() {
+                       @Override
+                       public void run() {
+                           offerRecovery(notepad);
+                       }
+                   });
+               }catch(Exception e){
+                   e.printStackTrace();
+               }
+           }
+        });
+    }
+
+    // documents that were not saved when the notepad closed or crashed the last time
+    private static void offerRecovery(NotepadGUI notepad){
+        List<File> sessions = AutosaveJournal.lockAbandonedSessions();
+        if(sessions.isEmpty()) return;
+
+        int choice = JOptionPane.showConfirmDialog(notepad,
+                "Some documents were not saved the last time Notepad closed.\nRecover them?",
+                "Recover Documents", JOptionPane.YES_NO_OPTION);
+        if(choice == JOptionPane.YES_OPTION){
+            notepad.recoverDocuments(sessions);
+        }else{
+            AutosaveJournal.deleteSessions(sessions);
+        }
+    }
+}
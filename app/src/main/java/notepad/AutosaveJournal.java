@@ -0,0 +1,696 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// keeps the unsaved text of a tab on disk so that it can be recovered after a crash. every change of the document is
+// appended to a journal, the edt only collects the changes and a background thread writes them in batches, so typing
+// never waits for the disk and each write costs as much as the edits it holds. once the journal has grown bigger
+// than the text it describes it is compacted into a snapshot of the text and a new, empty journal.
+//
+// the journals of one run of the notepad are kept in a session folder that is locked while the notepad runs, the
+// folders that are not locked belong to notepads that are gone and can be recovered
+public class AutosaveJournal {
+    // how long changes are collected before they are written
+    private static final int WRITE_DELAY = 500;
+
+    // more text than this is written right away
+    private static final int MAX_PENDING_CHARS = 64 * 1024;
+
+    // the journal is compacted once it has more bytes than this and than the text it describes
+    private static final long MIN_COMPACT_SIZE = 4L * 1024 * 1024;
+
+    private static final int MAGIC = 0x4e504a31;
+
+    // what the journal starts from
+    private static final byte BASE_EMPTY = 0;
+    private static final byte BASE_FILE = 1;
+    private static final byte BASE_SNAPSHOT = 2;
+
+    private static final byte RECORD_INSERT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_FILE = 3;
+    private static final byte RECORD_BATCH = 4;
+
+    private static final File RECOVERY_FOLDER = new File(System.getProperty("user.home"), ".notepad/recovery");
+
+    // all journals are written by one thread, in the order the edt handed their work over
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // the session folder of this notepad and the lock that keeps other notepads from recovering it
+    private static File sessionFolder;
+    private static FileLock sessionLock;
+    private static int journalCount;
+
+    // the session folders of notepads that are gone, locked until they are deleted
+    private static final Map<File, FileLock> abandonedSessions = new HashMap<>();
+
+    private final String name;
+    private final Timer writeTimer;
+
+    private Document document;
+    private File file;
+    private boolean clean;
+
+    // the size and time of the file when its text was last the same as the document, a journal that starts from the
+    // file is only recovered if the file is still like that
+    private long baseSize, baseLastModified;
+
+    // the journal has been started, every change from now on has to go into it
+    private boolean started;
+    private final List<Change> pendingChanges = new ArrayList<>();
+    private int pendingChars;
+
+    // bytes that went into the journal since the last snapshot
+    private long journalSize;
+
+    // only used by the writer thread
+    private DataOutputStream out;
+    private FileChannel channel;
+    private long generation;
+    private boolean failed;
+
+    private final DocumentListener documentListener = new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            if(addBatch(e)) return;
+            try{
+                addChange(new Change(RECORD_INSERT, e.getOffset(), e.getLength(),
+                        TextSnapshot.of(document, e.getOffset(), e.getLength()), null));
+            }catch(BadLocationException ex){
+                ex.printStackTrace();
+            }
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            if(addBatch(e)) return;
+            addChange(new Change(RECORD_REMOVE, e.getOffset(), e.getLength(), null, null));
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+
+        // a batch is recorded as its replacements instead of the remove and insert of its whole range, once its
+        // last event is in since a journal that only starts with it takes a snapshot of the text after it
+        private boolean addBatch(DocumentEvent e){
+            if(!(e instanceof PieceTableDocument.BatchEvent)) return false;
+
+            PieceTableDocument.BatchEvent event = (PieceTableDocument.BatchEvent) e;
+            if(event.isLast()) addChange(new Change(event.getBatch()));
+            return true;
+        }
+    };
+
+    public AutosaveJournal(){
+        synchronized(AutosaveJournal.class){
+            name = "document-" + (++journalCount);
+        }
+
+        writeTimer = new Timer(WRITE_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                flush();
+            }
+        });
+        writeTimer.setRepeats(false);
+    }
+
+    // one change of the document, or a new file for it
+    private static class Change {
+        private final byte type;
+        private final int offset, length;
+        private final TextSnapshot text;
+        private final String file;
+        private final EditBatch batch;
+
+        private Change(byte type, int offset, int length, TextSnapshot text, String file){
+            this.type = type;
+            this.offset = offset;
+            this.length = length;
+            this.text = text;
+            this.file = file;
+            this.batch = null;
+        }
+
+        // the length of a batch is the length of its new texts
+        private Change(EditBatch batch){
+            this.type = RECORD_BATCH;
+            this.offset = 0;
+            this.length = batch.getTextLength();
+            this.text = null;
+            this.file = null;
+            this.batch = batch;
+        }
+
+        private long size(){
+            if(type == RECORD_BATCH) return 5 + 12L * batch.size() + 2L * length;
+            return 9 + (type == RECORD_INSERT ? 2L * length : 0) + (file != null ? file.length() + 2 : 0);
+        }
+    }
+
+    // starts recording the changes of the document. clean means that the text is the same as the file (or empty if
+    // there is no file), the journal then only starts with the first change. text that is not in its file is
+    // written to a snapshot right away. a document that takes over from an evicted one carries on with its journal
+    public void attach(Document document, File file, boolean clean){
+        detach();
+        this.document = document;
+        this.file = file;
+        this.clean = clean;
+        if(clean) statBaseFile();
+        document.addDocumentListener(documentListener);
+
+        if(!started && !clean) start();
+    }
+
+    // stops recording, the changes so far are still written
+    public void detach(){
+        if(document == null) return;
+
+        flush();
+        document.removeDocumentListener(documentListener);
+        document = null;
+    }
+
+    // the text is now saved in the file, the journal is not needed any more until the next change
+    public void markClean(File file){
+        this.file = file;
+        this.clean = true;
+        statBaseFile();
+        reset();
+    }
+
+    private void statBaseFile(){
+        baseSize = file == null ? 0 : file.length();
+        baseLastModified = file == null ? 0 : file.lastModified();
+    }
+
+    // the text is saved under a new name while it still has changes that are not in the file
+    public void setFile(File file){
+        this.file = file;
+        if(started) addChange(new Change(RECORD_FILE, 0, 0, null, file == null ? "" : file.getAbsolutePath()));
+    }
+
+    // the tab is closed, its text is not kept
+    public void discard(){
+        detach();
+        reset();
+    }
+
+    private void reset(){
+        writeTimer.stop();
+        pendingChanges.clear();
+        pendingChars = 0;
+        journalSize = 0;
+
+        if(!started) return;
+        started = false;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                closeJournal();
+                deleteFiles();
+            }
+        });
+    }
+
+    private void start(){
+        started = true;
+        if(clean){
+            // the journal starts from the file as it is on disk right now, or from no text at all
+            File baseFile = file;
+            long size = baseSize;
+            long lastModified = baseLastModified;
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try{
+                        openJournal(baseFile == null ? BASE_EMPTY : BASE_FILE, baseFile, size, lastModified);
+                    }catch(IOException e){
+                        fail(e);
+                    }
+                }
+            });
+        }else{
+            writeSnapshot();
+        }
+    }
+
+    private void addChange(Change change){
+        if(!started){
+            start();
+
+            // the snapshot of text that is not clean already has this change in it
+            if(!clean) return;
+        }
+
+        pendingChanges.add(change);
+        pendingChars += change.length;
+        journalSize += change.size();
+
+        if(pendingChars > MAX_PENDING_CHARS){
+            flush();
+        }else if(!writeTimer.isRunning()){
+            writeTimer.start();
+        }
+    }
+
+    // hands the collected changes to the writer thread
+    public void flush(){
+        writeTimer.stop();
+        if(pendingChanges.isEmpty()) return;
+
+        List<Change> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+        pendingChars = 0;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeChanges(changes);
+            }
+        });
+
+        // compacting costs as much as the text, doing it only after that much has been journaled keeps the cost of
+        // the journal in line with the edits
+        if(document != null && journalSize > MIN_COMPACT_SIZE && journalSize > document.getLength() * 2L){
+            writeSnapshot();
+        }
+    }
+
+    // writes the whole text to a new snapshot that the next journal starts from
+    private void writeSnapshot(){
+        TextSnapshot text;
+        try{
+            text = TextSnapshot.of(document);
+        }catch(BadLocationException e){
+            e.printStackTrace();
+            return;
+        }
+
+        journalSize = 0;
+        File targetFile = file;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    long nextGeneration = generation + 1;
+                    Path snapshot = getSnapshotPath(getSessionFolder(), name, nextGeneration);
+                    Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+                    try(FileChannel snapshotChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                        DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(
+                                Channels.newOutputStream(snapshotChannel), 64 * 1024))){
+                        writeText(snapshotOut, text);
+                        snapshotOut.flush();
+                        snapshotChannel.force(false);
+                    }
+                    Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                    // the new journal replaces the old one in one step, a crash before that still finds the old
+                    // snapshot and journal
+                    closeJournal();
+                    Path oldSnapshot = getSnapshotPath(getSessionFolder(), name, generation);
+                    generation = nextGeneration;
+                    openJournal(BASE_SNAPSHOT, targetFile, generation, 0);
+                    Files.deleteIfExists(oldSnapshot);
+                }catch(IOException | BadLocationException e){
+                    fail(e);
+                }
+            }
+        });
+    }
+
+    // the following methods run on the writer thread
+
+    private void openJournal(byte base, File targetFile, long value1, long value2) throws IOException {
+        if(failed) return;
+
+        Path journal = getJournalPath(getSessionFolder(), name);
+        Path temp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+
+        out.writeInt(MAGIC);
+        out.writeUTF(targetFile == null ? "" : targetFile.getAbsolutePath());
+        out.writeByte(base);
+        if(base == BASE_FILE){
+            out.writeLong(value1);
+            out.writeLong(value2);
+        }else if(base == BASE_SNAPSHOT){
+            out.writeLong(value1);
+        }
+        out.flush();
+        channel.force(false);
+        Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeChanges(List<Change> changes){
+        if(out == null || failed) return;
+
+        try{
+            for(Change change : changes){
+                out.writeByte(change.type);
+                if(change.type == RECORD_FILE){
+                    out.writeUTF(change.file);
+                    continue;
+                }
+                if(change.type == RECORD_BATCH){
+                    out.writeInt(change.batch.size());
+                    for(int i = 0; i < change.batch.size(); i++){
+                        out.writeInt(change.batch.getOffset(i));
+                        out.writeInt(change.batch.getLength(i));
+                        out.writeInt(change.batch.getText(i).length());
+                        out.writeChars(change.batch.getText(i));
+                    }
+                    continue;
+                }
+
+                out.writeInt(change.offset);
+                if(change.type == RECORD_INSERT){
+                    writeText(out, change.text);
+                }else{
+                    out.writeInt(change.length);
+                }
+            }
+            out.flush();
+            channel.force(false);
+        }catch(IOException | BadLocationException e){
+            fail(e);
+        }
+    }
+
+    // text is stored as its length followed by its utf-16 chars, so that any text comes back exactly the same
+    private static void writeText(DataOutputStream out, TextSnapshot text) throws IOException, BadLocationException {
+        out.writeInt(text.getLength());
+        Segment segment = new Segment();
+        byte[] bytes = new byte[Math.min(text.getLength(), 32 * 1024) * 2];
+        for(int offset = 0; offset < text.getLength(); offset += segment.count){
+            text.getText(offset, Math.min(text.getLength() - offset, bytes.length / 2), segment);
+            for(int i = 0; i < segment.count; i++){
+                char c = segment.array[segment.offset + i];
+                bytes[2 * i] = (byte) (c >>> 8);
+                bytes[2 * i + 1] = (byte) c;
+            }
+            out.write(bytes, 0, segment.count * 2);
+        }
+    }
+
+    private void closeJournal(){
+        if(out == null) return;
+
+        try{
+            out.close();
+        }catch(IOException e){
+            e.printStackTrace();
+        }
+        out = null;
+        channel = null;
+    }
+
+    private void deleteFiles(){
+        try{
+            Files.deleteIfExists(getJournalPath(getSessionFolder(), name));
+            Files.deleteIfExists(getSnapshotPath(getSessionFolder(), name, generation));
+        }catch(IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    // a journal that can not be written is given up, the notepad keeps working without it
+    private void fail(Exception e){
+        e.printStackTrace();
+        failed = true;
+        closeJournal();
+    }
+
+    private static Path getJournalPath(File folder, String name){
+        return new File(folder, name + ".journal").toPath();
+    }
+
+    private static Path getSnapshotPath(File folder, String name, long generation){
+        return new File(folder, name + "." + generation + ".snapshot").toPath();
+    }
+
+    // the session folder is made and locked the first time it is needed
+    private static synchronized File getSessionFolder() throws IOException {
+        if(sessionFolder != null) return sessionFolder;
+
+        File folder = new File(RECOVERY_FOLDER, "session-" + System.currentTimeMillis() + "-" + ProcessHandle.current().pid());
+        if(!folder.mkdirs()) throw new IOException("could not create " + folder);
+        sessionLock = lockSession(folder);
+        if(sessionLock == null) throw new IOException("could not lock " + folder);
+
+        sessionFolder = folder;
+        return sessionFolder;
+    }
+
+    private static FileLock lockSession(File folder) throws IOException {
+        FileChannel lockChannel = FileChannel.open(new File(folder, "session.lock").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try{
+            lock = lockChannel.tryLock();
+        }catch(OverlappingFileLockException e){
+            lock = null;
+        }
+        if(lock == null) lockChannel.close();
+        return lock;
+    }
+
+    // waits until everything that was handed to the writer is on disk, when the notepad closes
+    public static void awaitWrites(){
+        try{
+            writer.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get(5, TimeUnit.SECONDS);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }catch(ExecutionException | TimeoutException e){
+            e.printStackTrace();
+        }
+    }
+
+    // the text of a document that was not saved when an earlier notepad went away
+    public static class RecoveredDocument {
+        private final File file;
+        private final PieceTableDocument document;
+        private final TextEncoding encoding;
+        private final Compression compression;
+
+        private RecoveredDocument(File file, PieceTableDocument document, TextEncoding encoding, Compression compression){
+            this.file = file;
+            this.document = document;
+            this.encoding = encoding;
+            this.compression = compression;
+        }
+
+        // the file the text belongs to, null if it was never saved
+        public File getFile(){return file;}
+        public PieceTableDocument getDocument(){return document;}
+
+        // how the file is encoded, or how new text is for text that was never saved
+        public TextEncoding getEncoding(){return encoding;}
+        public Compression getCompression(){return compression;}
+    }
+
+    // the session folders of notepads that are no longer running, they are locked until they have been recovered or
+    // deleted so that a notepad started at the same time does not recover them too
+    public static synchronized List<File> lockAbandonedSessions(){
+        List<File> sessions = new ArrayList<>();
+        File[] folders = RECOVERY_FOLDER.listFiles(File::isDirectory);
+        if(folders == null) return sessions;
+
+        for(File folder : folders){
+            try{
+                FileLock lock = lockSession(folder);
+                if(lock == null) continue;
+
+                abandonedSessions.put(folder, lock);
+                File[] journals = folder.listFiles((dir, fileName) -> fileName.endsWith(".journal"));
+                if(journals == null || journals.length == 0){
+                    deleteFolder(folder);
+                    continue;
+                }
+                sessions.add(folder);
+            }catch(IOException e){
+                e.printStackTrace();
+            }
+        }
+        return sessions;
+    }
+
+    // reads back the documents of the sessions, this reads every journal so it should be called off the edt
+    public static List<RecoveredDocument> recover(List<File> sessions){
+        List<RecoveredDocument> documents = new ArrayList<>();
+        for(File folder : sessions){
+            File[] journals = folder.listFiles((dir, fileName) -> fileName.endsWith(".journal"));
+            if(journals == null) continue;
+
+            for(File journal : journals){
+                try{
+                    RecoveredDocument document = recoverJournal(folder, journal);
+                    if(document != null) documents.add(document);
+                }catch(IOException | BadLocationException e){
+                    e.printStackTrace();
+                }
+            }
+        }
+        return documents;
+    }
+
+    private static RecoveredDocument recoverJournal(File folder, File journal) throws IOException, BadLocationException {
+        String name = journal.getName().substring(0, journal.getName().length() - ".journal".length());
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal), 64 * 1024))){
+            if(in.readInt() != MAGIC) return null;
+
+            String path = in.readUTF();
+            File file = path.isEmpty() ? null : new File(path);
+
+            PieceTableDocument document = new PieceTableDocument();
+            TextEncoding baseEncoding = null;
+            byte base = in.readByte();
+            if(base == BASE_FILE){
+                File baseFile = new File(path);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+
+                // the changes only make sense on the file they were made to
+                if(baseFile.length() != size || baseFile.lastModified() != lastModified) return null;
+                baseEncoding = readFile(baseFile, document);
+            }else if(base == BASE_SNAPSHOT){
+                long generation = in.readLong();
+                try(DataInputStream snapshot = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(getSnapshotPath(folder, name, generation).toFile()), 64 * 1024))){
+                    document.insertString(0, readText(snapshot), null);
+                }
+            }
+
+            // the last change may have been cut off by the crash, everything before it is kept
+            try{
+                while(true){
+                    byte type = in.readByte();
+                    if(type == RECORD_FILE){
+                        String newPath = in.readUTF();
+                        file = newPath.isEmpty() ? null : new File(newPath);
+                    }else if(type == RECORD_INSERT){
+                        int offset = in.readInt();
+                        document.insertString(offset, readText(in), null);
+                    }else if(type == RECORD_REMOVE){
+                        int offset = in.readInt();
+                        document.remove(offset, in.readInt());
+                    }else if(type == RECORD_BATCH){
+                        EditBatch batch = new EditBatch();
+                        int count = in.readInt();
+                        for(int i = 0; i < count; i++){
+                            int offset = in.readInt();
+                            int length = in.readInt();
+                            batch.replace(offset, length, readText(in));
+                        }
+                        document.apply(batch);
+                    }else{
+                        break;
+                    }
+                }
+            }catch(EOFException e){
+                // end of the journal
+            }
+
+            // the text is saved back to its file the way that file is encoded and compressed
+            TextEncoding encoding = TextEncoding.forNewText();
+            if(baseEncoding != null && file != null && file.equals(new File(path))){
+                encoding = baseEncoding;
+            }else if(file != null && file.isFile()){
+                encoding = TextEncoding.of(file);
+            }
+            Compression compression = file != null && file.isFile() ? Compression.of(file) : Compression.NONE;
+            return new RecoveredDocument(file, document, encoding, compression);
+        }
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        char[] text = new char[length];
+        byte[] bytes = new byte[Math.min(length, 32 * 1024) * 2];
+        for(int offset = 0; offset < length; ){
+            int count = Math.min(length - offset, bytes.length / 2);
+            in.readFully(bytes, 0, count * 2);
+            for(int i = 0; i < count; i++) text[offset + i] = (char) ((bytes[2 * i] << 8) | (bytes[2 * i + 1] & 0xff));
+            offset += count;
+        }
+        return new String(text);
+    }
+
+    // reads the file into the document like the file loader does, with its line endings turned into "\n"
+    private static TextEncoding readFile(File file, Document document) throws IOException, BadLocationException {
+        try(TextFileReader reader = new TextFileReader(file, null)){
+            char[] buffer = new char[TextFileReader.BLOCK_SIZE];
+            int length;
+            while((length = reader.read(buffer, buffer.length)) != -1){
+                document.insertString(document.getLength(), new String(buffer, 0, length), null);
+            }
+            return reader.getEncoding();
+        }
+    }
+
+    // removes the sessions once their documents have been recovered, or the user did not want them
+    public static void deleteSessions(List<File> sessions){
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                for(File folder : sessions) deleteFolder(folder);
+            }
+        });
+    }
+
+    private static void deleteFolder(File folder){
+        synchronized(AutosaveJournal.class){
+            FileLock lock = abandonedSessions.remove(folder);
+            if(lock != null){
+                try{
+                    lock.channel().close();
+                }catch(IOException e){
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        File[] files = folder.listFiles();
+        if(files != null){
+            for(File file : files) file.delete();
+        }
+        folder.delete();
+    }
+}
@@ -0,0 +1,489 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+// shows two files side by side with the lines that differ marked in both of them. the files are read in the
+// background like when they are opened (large files in large file mode, so they stay on the disk) and then diffed
+// by a LineDiff on another background thread, the changes show up from the top down while the rest of the files are
+// still being diffed. the two panes scroll together, the lines of the other pane are kept next to the same lines
+public class CompareDialog extends JDialog {
+    private static final Color REMOVED_COLOR = new Color(0xFFE0E0);
+    private static final Color ADDED_COLOR = new Color(0xDDF5DD);
+    private static final Color REMOVED_MARKER_COLOR = new Color(0xE05050);
+    private static final Color ADDED_MARKER_COLOR = new Color(0x40A040);
+
+    // lines of the files that are shown above a change that is jumped to
+    private static final int CONTEXT_LINES = 3;
+
+    private final Side left, right;
+    private JLabel statusLabel;
+
+    // the changes that were found so far, from the top down
+    private final List<LineDiff.Change> changes = new ArrayList<>();
+
+    // the diff that is running, null if there is none
+    private DiffWorker diffWorker;
+
+    // set while one pane is scrolled to follow the other, so that it does not make the first one follow it back
+    private boolean following;
+
+    public CompareDialog(NotepadGUI source, File leftFile, File rightFile){
+        super(source, "Compare " + leftFile.getName() + " with " + rightFile.getName());
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setSize(1000, 700);
+        setLocationRelativeTo(source);
+
+        Font font = source.getTextArea().getFont();
+        left = new Side(leftFile, true, font);
+        right = new Side(rightFile, false, font);
+        addDialogComponents();
+
+        // closing the dialog stops reading and diffing the files
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                left.stop();
+                right.stop();
+                if(diffWorker != null) diffWorker.stop();
+                diffWorker = null;
+            }
+        });
+
+        statusLabel.setText("Reading the files...");
+        left.load();
+        right.load();
+    }
+
+    private void addDialogComponents(){
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, left.panel, right.panel);
+        splitPane.setResizeWeight(0.5);
+        add(splitPane, BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+
+        JButton previousButton = new JButton("Previous Change");
+        previousButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showChange(false);
+            }
+        });
+        bottomPanel.add(previousButton);
+
+        JButton nextButton = new JButton("Next Change");
+        nextButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showChange(true);
+            }
+        });
+        bottomPanel.add(nextButton);
+
+        statusLabel = new JLabel();
+        bottomPanel.add(statusLabel);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    // both files have been read, they are diffed as they are now
+    private void startDiff(){
+        try{
+            diffWorker = new DiffWorker(TextSnapshot.of(left.area.getDocument()),
+                    TextSnapshot.of(right.area.getDocument()));
+        }catch(BadLocationException e){
+            statusLabel.setText("Could not compare the files: " + e);
+            return;
+        }
+
+        statusLabel.setText("Comparing...");
+        diffWorker.execute();
+    }
+
+    // runs the diff in the background and moves the changes it finds over to the panes
+    private class DiffWorker extends SwingWorker<Void, LineDiff.Change> {
+        private final LineDiff lineDiff;
+
+        private DiffWorker(TextSnapshot leftText, TextSnapshot rightText){
+            lineDiff = new LineDiff(leftText, rightText, this::found);
+        }
+
+        private void found(List<LineDiff.Change> found){
+            publish(found.toArray(new LineDiff.Change[0]));
+        }
+
+        private void stop(){
+            lineDiff.cancel();
+            cancel(true);
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            lineDiff.run();
+            return null;
+        }
+
+        @Override
+        protected void process(List<LineDiff.Change> chunks) {
+            if(diffWorker != this) return;
+
+            changes.addAll(chunks);
+            statusLabel.setText("Comparing... " + describeChanges());
+            left.changesFound();
+            right.changesFound();
+        }
+
+        @Override
+        protected void done() {
+            if(diffWorker != this) return;
+            diffWorker = null;
+
+            try{
+                get();
+                statusLabel.setText(changes.isEmpty() ? "The files are the same" : describeChanges());
+            }catch(InterruptedException | ExecutionException e){
+                statusLabel.setText("Could not compare the files: " + e.getCause());
+            }
+        }
+    }
+
+    private String describeChanges(){
+        int removed = 0, added = 0;
+        for(LineDiff.Change change : changes){
+            removed += change.getLeftCount();
+            added += change.getRightCount();
+        }
+        return changes.size() + (changes.size() == 1 ? " change, " : " changes, ") + removed + " lines removed, " +
+                added + " lines added";
+    }
+
+    // scrolls both panes to the next change below the top of the left pane, or the previous one above it
+    private void showChange(boolean next){
+        if(changes.isEmpty()) return;
+
+        int line = left.getTopLine() + CONTEXT_LINES;
+        int index = next ? firstChangeAfter(line, true) : lastChangeAt(line - 1, true);
+        if(index < 0 || index >= changes.size()) return;
+
+        left.scrollToLine(Math.max(0, changes.get(index).getLeftLine() - CONTEXT_LINES));
+    }
+
+    // the index of the first change that starts after the line
+    private int firstChangeAfter(int line, boolean onLeft){
+        return lastChangeAt(line, onLeft) + 1;
+    }
+
+    // the index of the last change that starts at or before the line on one side, or -1
+    private int lastChangeAt(int line, boolean onLeft){
+        int low = 0, high = changes.size() - 1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            if(startOf(changes.get(middle), onLeft) <= line){
+                low = middle + 1;
+            }else{
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    // the index of the first change that ends at or after the line on one side
+    private int firstChangeEndingAt(int line, boolean onLeft){
+        int low = 0, high = changes.size();
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            LineDiff.Change change = changes.get(middle);
+            if(startOf(change, onLeft) + countOf(change, onLeft) < line){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int startOf(LineDiff.Change change, boolean onLeft){
+        return onLeft ? change.getLeftLine() : change.getRightLine();
+    }
+
+    private static int countOf(LineDiff.Change change, boolean onLeft){
+        return onLeft ? change.getLeftCount() : change.getRightCount();
+    }
+
+    // the line on the other side that goes with a line of one side. lines in a change go with the lines of the
+    // change on the other side, the lines after the last change that was found so far are taken to be the same
+    private int otherLine(int line, boolean onLeft){
+        int index = lastChangeAt(line, onLeft);
+        if(index < 0) return line;
+
+        LineDiff.Change change = changes.get(index);
+        int intoChange = line - startOf(change, onLeft);
+        int otherCount = countOf(change, !onLeft);
+        if(intoChange < countOf(change, onLeft)) return startOf(change, !onLeft) + Math.min(intoChange, otherCount);
+        return startOf(change, !onLeft) + otherCount + intoChange - countOf(change, onLeft);
+    }
+
+    // one of the two files, with its pane and the bar next to it that shows where all of its changes are
+    private class Side {
+        private final File file;
+        private final boolean isLeft;
+
+        private final DiffTextArea area;
+        private final JScrollPane scrollPane;
+        private final ChangeBar changeBar;
+        private final JPanel panel;
+
+        private SwingWorker<?, ?> loader;
+        private boolean loaded;
+
+        private Side(File file, boolean isLeft, Font font){
+            this.file = file;
+            this.isLeft = isLeft;
+
+            area = new DiffTextArea(this);
+            area.setFont(font);
+            scrollPane = new JScrollPane(area);
+            changeBar = new ChangeBar(this);
+
+            // the other pane keeps the same lines next to the ones of this one
+            scrollPane.getViewport().addChangeListener(new ChangeListener() {
+                @Override
+                public void stateChanged(ChangeEvent e) {
+                    follow();
+                }
+            });
+
+            panel = new JPanel(new BorderLayout());
+            JLabel fileLabel = new JLabel(file.getAbsolutePath());
+            fileLabel.setBorder(BorderFactory.createEmptyBorder(2, 4, 2, 4));
+            panel.add(fileLabel, BorderLayout.NORTH);
+            panel.add(scrollPane, BorderLayout.CENTER);
+            panel.add(changeBar, BorderLayout.EAST);
+        }
+
+        private Side other(){
+            return isLeft ? right : left;
+        }
+
+        // reads the file into the pane, a large file is only indexed and read from the disk as it is shown
+        private void load(){
+            if(NotepadGUI.isLargeFile(file)){
+                loader = new SwingWorker<LargeFileDocument, Void>() {
+                    @Override
+                    protected LargeFileDocument doInBackground() throws Exception {
+                        return new LargeFileDocument(file, new IntConsumer() {
+                            @Override
+                            public void accept(int progress) {
+                                setProgress(progress);
+                            }
+                        });
+                    }
+
+                    @Override
+                    protected void done() {
+                        if(isCancelled()) return;
+
+                        try{
+                            area.setDocument(get());
+                            loaded();
+                        }catch(InterruptedException | ExecutionException e){
+                            failed(e.getCause());
+                        }
+                    }
+                };
+            }else{
+                PieceTableDocument document = new PieceTableDocument();
+                area.setDocument(document);
+                loader = new FileLoader(file, document){
+                    @Override
+                    protected void done() {
+                        if(isCancelled()) return;
+
+                        try{
+                            get();
+                            loaded();
+                        }catch(InterruptedException | ExecutionException e){
+                            failed(e.getCause());
+                        }
+                    }
+                };
+            }
+            loader.execute();
+        }
+
+        private void loaded(){
+            loaded = true;
+            if(other().loaded) startDiff();
+        }
+
+        private void failed(Throwable cause){
+            statusLabel.setText("Could not read " + file.getName() + ": " + cause);
+        }
+
+        private void stop(){
+            if(loader != null) loader.cancel(true);
+
+            Document document = area.getDocument();
+            area.setDocument(new PieceTableDocument());
+            if(document instanceof LargeFileDocument) ((LargeFileDocument) document).close();
+        }
+
+        private int getLineHeight(){
+            return area.getFontMetrics(area.getFont()).getHeight();
+        }
+
+        private int getLineCount(){
+            return area.getDocument().getDefaultRootElement().getElementCount();
+        }
+
+        private int getTopLine(){
+            return (scrollPane.getViewport().getViewPosition().y - area.getInsets().top) / getLineHeight();
+        }
+
+        private void scrollToLine(int line){
+            Point position = scrollPane.getViewport().getViewPosition();
+            scrollTo(position.x, area.getInsets().top + line * getLineHeight());
+        }
+
+        // the view is kept inside of the text, a file can be a lot shorter than the other one
+        private void scrollTo(int x, int y){
+            JViewport viewport = scrollPane.getViewport();
+            Dimension size = area.getPreferredSize();
+            Dimension extent = viewport.getExtentSize();
+            int maxX = Math.max(0, Math.max(size.width, extent.width) - extent.width);
+            int maxY = Math.max(0, Math.max(size.height, extent.height) - extent.height);
+            viewport.setViewPosition(new Point(Math.max(0, Math.min(x, maxX)), Math.max(0, Math.min(y, maxY))));
+        }
+
+        // scrolls the other pane to the line that goes with the top line of this one
+        private void follow(){
+            if(following) return;
+
+            following = true;
+            try{
+                Point position = scrollPane.getViewport().getViewPosition();
+                int lineHeight = getLineHeight();
+                int top = position.y - area.getInsets().top;
+                int otherLine = otherLine(Math.max(0, top / lineHeight), isLeft);
+                Side other = other();
+                other.scrollTo(position.x, other.area.getInsets().top + otherLine * lineHeight + top % lineHeight);
+            }finally{
+                following = false;
+            }
+        }
+
+        private void changesFound(){
+            area.repaint();
+            changeBar.repaint();
+        }
+
+        private Color getChangeColor(){
+            return isLeft ? REMOVED_COLOR : ADDED_COLOR;
+        }
+
+        private Color getMarkerColor(){
+            return isLeft ? REMOVED_MARKER_COLOR : ADDED_MARKER_COLOR;
+        }
+    }
+
+    // a text area that can not be edited, with the changed lines marked under the text. lines that were only added on
+    // the other side are marked with a line between the lines they would go between
+    private class DiffTextArea extends JTextArea {
+        private final Side side;
+
+        private DiffTextArea(Side side){
+            this.side = side;
+            setUI(new NotepadTextAreaUI());
+            setEditable(false);
+
+            // the background is painted here, under the marks
+            setOpaque(false);
+        }
+
+        @Override
+        public void updateUI() {
+            // the notepad's ui stays on when the look and feel changes, swing's views would measure every line
+            if(getUI() instanceof NotepadTextAreaUI) return;
+            super.updateUI();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            int top = getInsets().top;
+            int lineHeight = side.getLineHeight();
+            int firstLine = Math.max(0, (clip.y - top) / lineHeight);
+            int lastLine = (clip.y + clip.height - top) / lineHeight;
+
+            for(int i = firstChangeEndingAt(firstLine, side.isLeft); i < changes.size(); i++){
+                LineDiff.Change change = changes.get(i);
+                int line = startOf(change, side.isLeft);
+                if(line > lastLine) break;
+
+                int count = countOf(change, side.isLeft);
+                if(count == 0){
+                    g.setColor(side.getMarkerColor());
+                    g.fillRect(clip.x, top + line * lineHeight - 1, clip.width, 2);
+                }else{
+                    g.setColor(side.getChangeColor());
+                    g.fillRect(clip.x, top + line * lineHeight, clip.width, count * lineHeight);
+                }
+            }
+
+            super.paintComponent(g);
+        }
+    }
+
+    // a thin bar next to a pane with a mark where each change is in the whole file, clicking on it scrolls there
+    private class ChangeBar extends JComponent {
+        private static final int WIDTH = 12;
+
+        private final Side side;
+
+        private ChangeBar(Side side){
+            this.side = side;
+            setPreferredSize(new Dimension(WIDTH, 0));
+
+            addMouseListener(new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    int line = (int) ((long) e.getY() * side.getLineCount() / Math.max(1, getHeight()));
+                    int visibleLines = side.scrollPane.getViewport().getExtentSize().height / side.getLineHeight();
+                    side.scrollToLine(Math.max(0, line - visibleLines / 2));
+                }
+            });
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int height = getHeight();
+            int lineCount = Math.max(1, side.getLineCount());
+            g.setColor(side.getMarkerColor());
+
+            // changes that end up on the same pixels are drawn once, a file can have a lot more changes than pixels
+            int lastEnd = -1;
+            for(LineDiff.Change change : changes){
+                int y = (int) ((long) startOf(change, side.isLeft) * height / lineCount);
+                int end = Math.max(y + 2, (int) ((long) (startOf(change, side.isLeft) + countOf(change, side.isLeft)) *
+                        height / lineCount));
+                if(end <= lastEnd) continue;
+
+                int start = Math.max(y, lastEnd);
+                g.fillRect(2, start, WIDTH - 4, end - start);
+                lastEnd = end;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package notepad;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// how the bytes of a file are compressed: not at all, or with gzip at some level. compressed files are recognized by
+// their first bytes and not by their name, and are decompressed as they are read so they never have to be unpacked on
+// the disk. gzip is what rotated logs mostly use and the only format java reads and writes without a library
+public class Compression {
+    public static final Compression NONE = new Compression(false, 0);
+
+    public static final int FASTEST_LEVEL = 1;
+    public static final int DEFAULT_LEVEL = 6;
+    public static final int SMALLEST_LEVEL = 9;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    // the gzip header has a byte for how hard the data was compressed, it only tells the fastest and smallest apart.
+    // java leaves it at 0, files that it wrote come back at the default level
+    private static final int GZIP_HEADER_LENGTH = 10;
+    private static final int EXTRA_FLAGS = 8;
+    private static final int EXTRA_FLAGS_SMALLEST = 2;
+    private static final int EXTRA_FLAGS_FASTEST = 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final boolean gzip;
+    private final int level;
+
+    private Compression(boolean gzip, int level){
+        this.gzip = gzip;
+        this.level = level;
+    }
+
+    public static Compression gzip(int level){
+        return new Compression(true, level);
+    }
+
+    // looks at the start of the file to find out how it is compressed
+    public static Compression of(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            return of(channel);
+        }
+    }
+
+    // looks at the start of the channel's file without moving the channel
+    public static Compression of(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GZIP_HEADER_LENGTH);
+        while(header.hasRemaining() && channel.read(header, header.position()) != -1){
+            // keep reading, the header is needed in one piece
+        }
+        if(header.position() < GZIP_HEADER_LENGTH) return NONE;
+
+        int magic = (header.get(0) & 0xff) | (header.get(1) & 0xff) << 8;
+        if(magic != GZIP_MAGIC) return NONE;
+
+        switch(header.get(EXTRA_FLAGS)){
+            case EXTRA_FLAGS_SMALLEST:
+                return gzip(SMALLEST_LEVEL);
+            case EXTRA_FLAGS_FASTEST:
+                return gzip(FASTEST_LEVEL);
+            default:
+                return gzip(DEFAULT_LEVEL);
+        }
+    }
+
+    // gzip files are saved as gzip, and the others as they are
+    public static Compression forFileName(File file, Compression current){
+        boolean gzipName = file.getName().toLowerCase().endsWith(".gz");
+        if(gzipName == current.gzip) return current;
+        return gzipName ? gzip(DEFAULT_LEVEL) : NONE;
+    }
+
+    public boolean isCompressed(){return gzip;}
+    public int getLevel(){return level;}
+
+    // like "gzip -9", for the status bar
+    public String getName(){
+        return gzip ? "gzip -" + level : "";
+    }
+
+    // the decompressed bytes of the channel's file, read from where the channel is
+    public ReadableByteChannel decompress(FileChannel channel) throws IOException {
+        if(!gzip) return channel;
+
+        // a rotated log can be several gzip members in a row, they are read as one
+        InputStream in = new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+        return Channels.newChannel(in);
+    }
+
+    // compresses what is written to it into the stream. finish has to be called on it after the last bytes, which
+    // writes the end of the compressed data without closing the stream
+    public DeflaterOutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE){
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+}
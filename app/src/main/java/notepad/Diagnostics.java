@@ -0,0 +1,120 @@
+package notepad;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// timers and counters around the work of the notepad that can take a while, like reading and saving files, undo and
+// fonts. every operation is timed from begin to end and counted in a histogram per kind of operation, together with
+// how much it worked on. operations are also committed as jfr events so that they show up next to the edt stalls in
+// a flight recording
+public class Diagnostics {
+    private static final Map<String, Stats> operations = new LinkedHashMap<>();
+
+    // starts timing an operation, it is counted once end is called. operations that are cancelled are never ended
+    public static Operation begin(String name, String unit){
+        return new Operation(name, unit);
+    }
+
+    // copies of the stats of every kind of operation that happened so far, in the order they first happened
+    public static List<Stats> getOperations(){
+        List<Stats> copies = new ArrayList<>();
+        synchronized(operations){
+            for(Stats stats : operations.values()) copies.add(stats.copy());
+        }
+        return copies;
+    }
+
+    public static void reset(){
+        synchronized(operations){
+            operations.clear();
+        }
+    }
+
+    private static void record(String name, String unit, long nanos, long amount){
+        synchronized(operations){
+            Stats stats = operations.get(name);
+            if(stats == null){
+                stats = new Stats(name, unit);
+                operations.put(name, stats);
+            }
+            stats.times.record(nanos);
+            stats.amount += amount;
+        }
+    }
+
+    public static class Operation {
+        private final String name;
+        private final String unit;
+        private final long start = System.nanoTime();
+        private final OperationEvent event = new OperationEvent();
+
+        private Operation(String name, String unit){
+            this.name = name;
+            this.unit = unit;
+            event.begin();
+        }
+
+        // the operation is done, amount is how many of the unit it worked on (like the characters of a file)
+        public void end(long amount){
+            record(name, unit, System.nanoTime() - start, amount);
+
+            event.end();
+            if(event.shouldCommit()){
+                event.operation = name;
+                event.amount = amount;
+                event.unit = unit;
+                event.commit();
+            }
+        }
+    }
+
+    public static class Stats {
+        private final String name;
+        private final String unit;
+        private final Histogram times;
+        private long amount;
+
+        private Stats(String name, String unit){
+            this(name, unit, new Histogram(), 0);
+        }
+
+        private Stats(String name, String unit, Histogram times, long amount){
+            this.name = name;
+            this.unit = unit;
+            this.times = times;
+            this.amount = amount;
+        }
+
+        private Stats copy(){
+            return new Stats(name, unit, times.copy(), amount);
+        }
+
+        public String getName(){return name;}
+        public String getUnit(){return unit;}
+        public Histogram getTimes(){return times;}
+
+        // how much all the operations of this kind worked on together
+        public long getAmount(){return amount;}
+    }
+
+    @Name("notepad.Operation")
+    @Label("Notepad Operation")
+    @Category("Notepad")
+    static class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Amount")
+        long amount;
+
+        @Label("Unit")
+        String unit;
+    }
+}
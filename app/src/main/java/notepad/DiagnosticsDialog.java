@@ -0,0 +1,342 @@
+package notepad;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+// shows what the notepad has been spending its time on: how long the events of the edt took, the stalls the
+// EdtMonitor caught with their stacks, the timed operations, the heap and the size of the document. everything can be
+// exported as json, or recorded together with the jvm's own events in a jfr recording
+public class DiagnosticsDialog extends JDialog {
+    private static final int REFRESH_INTERVAL = 1000;
+
+    // the bars of the histograms are this many characters wide at most
+    private static final int BAR_WIDTH = 40;
+
+    private NotepadGUI source;
+
+    private JLabel heapLabel, documentLabel;
+    private JTextArea reportArea;
+    private JButton recordButton;
+    private final Timer refreshTimer;
+
+    // the jfr recording that is running, null if there is none
+    private Recording recording;
+
+    public DiagnosticsDialog(NotepadGUI source){
+        super(source, "Diagnostics");
+        this.source = source;
+        setDefaultCloseOperation(HIDE_ON_CLOSE);
+        setSize(640, 520);
+        setLocationRelativeTo(source);
+
+        // removes layout management, giving us more control on the placement of our gui components
+        setLayout(null);
+
+        addDialogComponents();
+
+        // the numbers are only kept up to date while they can be seen
+        refreshTimer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                refresh();
+                refreshTimer.start();
+            }
+
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                refreshTimer.stop();
+            }
+        });
+    }
+
+    private void addDialogComponents(){
+        heapLabel = new JLabel();
+        heapLabel.setBounds(10, 10, 600, 20);
+        add(heapLabel);
+
+        documentLabel = new JLabel();
+        documentLabel.setBounds(10, 30, 600, 20);
+        add(documentLabel);
+
+        reportArea = new JTextArea();
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        // refreshing the text must not scroll it back to the end
+        ((DefaultCaret) reportArea.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        JScrollPane reportScrollPane = new JScrollPane(reportArea);
+        reportScrollPane.setBounds(10, 55, 605, 375);
+        add(reportScrollPane);
+
+        JButton exportButton = new JButton("Export JSON...");
+        exportButton.setBounds(10, 440, 140, 25);
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportJson();
+            }
+        });
+        add(exportButton);
+
+        // starts a jfr recording, or stops the one that is running and saves it
+        recordButton = new JButton("Record JFR");
+        recordButton.setBounds(160, 440, 170, 25);
+        recordButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(recording == null){
+                    startRecording();
+                }else{
+                    stopRecording();
+                }
+            }
+        });
+        add(recordButton);
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.setBounds(340, 440, 90, 25);
+        resetButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                EdtMonitor monitor = EdtMonitor.get();
+                if(monitor != null) monitor.reset();
+                Diagnostics.reset();
+                refresh();
+            }
+        });
+        add(resetButton);
+    }
+
+    public void showDialog(){
+        setVisible(true);
+    }
+
+    private void refresh(){
+        Runtime runtime = Runtime.getRuntime();
+        long committed = runtime.totalMemory();
+        heapLabel.setText("Heap: " + formatMegabytes(committed - runtime.freeMemory()) + " used, " +
+                formatMegabytes(committed) + " committed, " + formatMegabytes(runtime.maxMemory()) + " max");
+
+        Document document = source.getTextArea().getDocument();
+        long tabMemory = 0;
+        List<DocumentTab> tabs = source.getTabs();
+        for(DocumentTab tab : tabs) tabMemory += tab.getMemoryUsage();
+        documentLabel.setText("Document: " + document.getLength() + " characters, " +
+                document.getDefaultRootElement().getElementCount() + " lines. " + tabs.size() + " tabs holding about " +
+                formatMegabytes(tabMemory));
+
+        reportArea.setText(createReport());
+    }
+
+    private static String formatMegabytes(long bytes){
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private static String createReport(){
+        StringBuilder report = new StringBuilder();
+
+        EdtMonitor monitor = EdtMonitor.get();
+        if(monitor == null){
+            report.append("The edt is not being monitored.\n");
+        }else{
+            report.append("EDT events\n");
+            appendHistogram(report, monitor.getEvents());
+        }
+
+        for(Diagnostics.Stats stats : Diagnostics.getOperations()){
+            Histogram times = stats.getTimes();
+            report.append('\n').append(stats.getName()).append(": ").append(times.getCount()).append(" times, ")
+                    .append(stats.getAmount()).append(' ').append(stats.getUnit()).append('\n');
+            appendHistogram(report, times);
+        }
+
+        if(monitor != null){
+            List<EdtMonitor.Stall> stalls = monitor.getStalls();
+            report.append("\nStalls longer than ").append(EdtMonitor.getStallThreshold()).append(" ms: ")
+                    .append(stalls.size()).append('\n');
+            SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+            for(int i = stalls.size() - 1; i >= 0; i--){
+                EdtMonitor.Stall stall = stalls.get(i);
+                long duration = stall.getDurationMillis();
+                report.append('\n').append(timeFormat.format(new Date(stall.getTime()))).append("  ")
+                        .append(duration < 0 ? "still running" : duration + " ms").append("  ").append(stall.getEvent())
+                        .append(stall.getStackText()).append('\n');
+            }
+        }
+
+        return report.toString();
+    }
+
+    private static void appendHistogram(StringBuilder report, Histogram histogram){
+        long count = histogram.getCount();
+        if(count == 0) return;
+
+        report.append(String.format("  average %.1f ms, longest %d ms%n",
+                histogram.getTotalNanos() / 1e6 / count, histogram.getMaxNanos() / 1_000_000));
+
+        long largest = 0;
+        for(int i = 0; i < histogram.getBucketCount(); i++) largest = Math.max(largest, histogram.getBucket(i));
+        for(int i = 0; i < histogram.getBucketCount(); i++){
+            long bucket = histogram.getBucket(i);
+            if(bucket == 0) continue;
+
+            // at least one mark so that rare slow events do not disappear next to the many fast ones
+            int bar = (int) Math.max(1, bucket * BAR_WIDTH / largest);
+            report.append(String.format("  %12s %-" + BAR_WIDTH + "s %d%n", Histogram.getBucketName(i), "#".repeat(bar),
+                    bucket));
+        }
+    }
+
+    private static String toJson(NotepadGUI source){
+        Runtime runtime = Runtime.getRuntime();
+        Document document = source.getTextArea().getDocument();
+
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"time\": ").append(System.currentTimeMillis()).append(",\n");
+        json.append("  \"heap\": {\"used\": ").append(runtime.totalMemory() - runtime.freeMemory())
+                .append(", \"committed\": ").append(runtime.totalMemory())
+                .append(", \"max\": ").append(runtime.maxMemory()).append("},\n");
+        json.append("  \"document\": {\"characters\": ").append(document.getLength())
+                .append(", \"lines\": ").append(document.getDefaultRootElement().getElementCount())
+                .append(", \"tabs\": ").append(source.getTabs().size()).append("},\n");
+
+        EdtMonitor monitor = EdtMonitor.get();
+        if(monitor != null){
+            json.append("  \"edt\": {\"stallThresholdMs\": ").append(EdtMonitor.getStallThreshold())
+                    .append(", \"events\": ").append(monitor.getEvents().toJson()).append(", \"stalls\": [");
+            List<EdtMonitor.Stall> stalls = monitor.getStalls();
+            for(int i = 0; i < stalls.size(); i++){
+                EdtMonitor.Stall stall = stalls.get(i);
+                json.append(i == 0 ? "\n" : ",\n").append("    {\"time\": ").append(stall.getTime())
+                        .append(", \"durationMs\": ").append(stall.getDurationMillis())
+                        .append(", \"event\": \"").append(escape(stall.getEvent()))
+                        .append("\", \"stack\": \"").append(escape(stall.getStackText().trim())).append("\"}");
+            }
+            json.append(stalls.isEmpty() ? "]},\n" : "\n  ]},\n");
+        }
+
+        json.append("  \"operations\": [");
+        List<Diagnostics.Stats> operations = Diagnostics.getOperations();
+        for(int i = 0; i < operations.size(); i++){
+            Diagnostics.Stats stats = operations.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"name\": \"").append(escape(stats.getName()))
+                    .append("\", \"unit\": \"").append(escape(stats.getUnit()))
+                    .append("\", \"amount\": ").append(stats.getAmount())
+                    .append(", \"times\": ").append(stats.getTimes().toJson()).append('}');
+        }
+        json.append(operations.isEmpty() ? "]\n" : "\n  ]\n");
+
+        return json.append("}\n").toString();
+    }
+
+    private static String escape(String text){
+        StringBuilder escaped = new StringBuilder();
+        for(char c : text.toCharArray()){
+            if(c == '"' || c == '\\') escaped.append('\\').append(c);
+            else if(c == '\n') escaped.append("\\n");
+            else if(c == '\t') escaped.append("\\t");
+            else if(c < ' ') escaped.append(String.format("\\u%04x", (int) c));
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private void exportJson(){
+        File file = chooseFile("JSON Files", "json");
+        if(file == null) return;
+
+        try{
+            Files.writeString(file.toPath(), toJson(source), StandardCharsets.UTF_8);
+        }catch(IOException e){
+            JOptionPane.showMessageDialog(this, "Could not export to " + file.getName() + ": " + e,
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // records the notepad's stalls and operations together with the jvm's own events (garbage collections, threads,
+    // allocations...) from now on until the recording is stopped
+    private void startRecording(){
+        try{
+            recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("Notepad Diagnostics");
+            recording.start();
+            recordButton.setText("Stop and Save JFR...");
+        }catch(IOException | ParseException | IllegalStateException | SecurityException e){
+            recording = null;
+            JOptionPane.showMessageDialog(this, "Could not start a flight recording: " + e,
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void stopRecording(){
+        Recording stopped = recording;
+        recording = null;
+        recordButton.setText("Record JFR");
+        stopped.stop();
+
+        File file = chooseFile("Flight Recordings", "jfr");
+        if(file == null){
+            stopped.close();
+            return;
+        }
+
+        // a recording can be many megabytes, it is written in the background
+        new SwingWorker<Void, Void>(){
+            @Override
+            protected Void doInBackground() throws Exception {
+                try{
+                    stopped.dump(file.toPath());
+                }finally{
+                    stopped.close();
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try{
+                    get();
+                }catch(InterruptedException | ExecutionException e){
+                    JOptionPane.showMessageDialog(DiagnosticsDialog.this, "Could not save " + file.getName() + ": " +
+                            e.getCause(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private File chooseFile(String description, String extension){
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter(description, extension));
+        fileChooser.setSelectedFile(new File("notepad-diagnostics." + extension));
+        if(fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return null;
+
+        File file = fileChooser.getSelectedFile();
+        if(!file.getName().toLowerCase().endsWith("." + extension)) file = new File(file.getPath() + "." + extension);
+        return file;
+    }
+}
@@ -0,0 +1,146 @@
+package notepad;
+
+import javax.swing.text.Document;
+import java.awt.*;
+import java.io.File;
+
+// one of the open documents. the text area only shows the document of the selected tab, the other tabs keep their
+// document, undo history and caret here until they are selected again. a tab whose text is not in memory (because it
+// has not been selected yet or was evicted to stay within the memory budget) has no document, it is read again from
+// its file, or from its swap file if it had changes that were not saved
+public class DocumentTab {
+    // rough amount of memory used by each line of a document apart from its text
+    private static final int LINE_OVERHEAD = 64;
+
+    // the file that the text is loaded from and saved to, null for text that has never been saved
+    private File file;
+
+    // the file is viewed read-only in large file mode
+    private boolean largeFile;
+
+    // shown instead of the name of the file for text that has no file
+    private String name = "Untitled";
+
+    private Document document;
+
+    // how the file is encoded, the text is saved back the same way
+    private TextEncoding encoding = TextEncoding.forNewText();
+
+    // how the file is compressed, the text is saved back the same way unless another level is picked
+    private Compression compression = Compression.NONE;
+
+    // how long the file was when the text was read from it or saved to it, following the file goes on from there
+    private long fileLength;
+    private final UndoHistory undoHistory = new UndoHistory();
+
+    // keeps the changes that are not saved on disk in case the notepad crashes
+    private final AutosaveJournal journal = new AutosaveJournal();
+
+    // the text has changes that are not in the file
+    private boolean modified;
+
+    // counts the edits of the document, to tell if it changed while it was being written out in the background
+    private long editCount;
+
+    // holds the text of an evicted tab that had changes, null if the text can be read from the file
+    private File swapFile;
+
+    // where the user was in the document when another tab was selected
+    private int caretPosition;
+    private Point viewPosition = new Point();
+
+    // when the tab was last selected, the tabs that were not used for the longest time are evicted first
+    private long lastUsed;
+
+    public DocumentTab(File file, boolean largeFile){
+        this.file = file;
+        this.largeFile = largeFile;
+    }
+
+    public File getFile(){return file;}
+    public void setFile(File file){this.file = file;}
+
+    public boolean isLargeFile(){return largeFile;}
+    public void setLargeFile(boolean largeFile){this.largeFile = largeFile;}
+
+    public void setName(String name){this.name = name;}
+
+    public Document getDocument(){return document;}
+    public void setDocument(Document document){this.document = document;}
+
+    public TextEncoding getEncoding(){return encoding;}
+    public void setEncoding(TextEncoding encoding){this.encoding = encoding;}
+
+    public Compression getCompression(){return compression;}
+    public void setCompression(Compression compression){this.compression = compression;}
+
+    public long getFileLength(){return fileLength;}
+    public void setFileLength(long fileLength){this.fileLength = fileLength;}
+
+    public UndoHistory getUndoHistory(){return undoHistory;}
+
+    public AutosaveJournal getJournal(){return journal;}
+
+    public boolean isModified(){return modified;}
+    public void setModified(boolean modified){this.modified = modified;}
+
+    public long getEditCount(){return editCount;}
+    public void addEdit(){editCount++;}
+
+    public File getSwapFile(){return swapFile;}
+    public void setSwapFile(File swapFile){
+        if(this.swapFile != null && !this.swapFile.equals(swapFile)) this.swapFile.delete();
+        this.swapFile = swapFile;
+    }
+
+    public int getCaretPosition(){return caretPosition;}
+    public void setCaretPosition(int caretPosition){this.caretPosition = caretPosition;}
+
+    public Point getViewPosition(){return viewPosition;}
+    public void setViewPosition(Point viewPosition){this.viewPosition = viewPosition;}
+
+    public long getLastUsed(){return lastUsed;}
+    public void setLastUsed(long lastUsed){this.lastUsed = lastUsed;}
+
+    // the file that save writes to, large files can only be looked at so they have to be saved under a new name
+    public File getSaveFile(){return largeFile ? null : file;}
+
+    public String getTitle(){
+        String title = file == null ? name : file.getName();
+        if(largeFile) title += " [read-only]";
+        if(document instanceof LargeFileDocument && ((LargeFileDocument) document).isTruncated()) title += " (truncated)";
+        return modified ? "*" + title : title;
+    }
+
+    // a new tab that nothing was typed into yet, opening a file replaces it instead of adding another tab
+    public boolean isUnused(){
+        return file == null && !modified && swapFile == null && document != null && document.getLength() == 0;
+    }
+
+    // estimated amount of memory held by the text and undo history of the tab
+    public long getMemoryUsage(){
+        long usage = undoHistory.getMemoryUsage();
+        if(document instanceof LargeFileDocument){
+            usage += ((LargeFileDocument) document).getMemoryUsage();
+        }else if(document != null){
+            usage += document.getLength() * 2L + (long) document.getDefaultRootElement().getElementCount() * LINE_OVERHEAD;
+        }
+        return usage;
+    }
+
+    // lets go of the text, it has to be in the file or the swap file by now. the undo history goes with it because
+    // its edits belong to the document
+    public void unload(){
+        if(document instanceof LargeFileDocument) ((LargeFileDocument) document).close();
+        document = null;
+        journal.detach();
+        undoHistory.discardAllEdits();
+    }
+
+    // the tab is closed, its changes that were not saved are gone
+    public void dispose(){
+        journal.discard();
+        unload();
+        setSwapFile(null);
+    }
+}
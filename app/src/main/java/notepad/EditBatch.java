@@ -0,0 +1,56 @@
+package notepad;
+
+import java.util.Arrays;
+
+// many replacements of text in one document that are applied at once by PieceTableDocument.apply, like typing at
+// every caret of a MultiCaret. the replacements are added from the top down and do not overlap, their offsets are
+// the ones from before the batch
+public class EditBatch {
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private String[] texts = new String[16];
+    private int count;
+
+    // replaces length characters at offset with the text, a replacement that changes nothing is left out
+    public void replace(int offset, int length, String text){
+        if(length == 0 && text.isEmpty()) return;
+        if(count > 0 && offset < offsets[count - 1] + lengths[count - 1]){
+            throw new IllegalArgumentException("replacements overlap or are out of order at " + offset);
+        }
+
+        if(count == offsets.length){
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+            texts = Arrays.copyOf(texts, count * 2);
+        }
+        offsets[count] = offset;
+        lengths[count] = length;
+        texts[count] = text;
+        count++;
+    }
+
+    public int size(){return count;}
+    public boolean isEmpty(){return count == 0;}
+
+    public int getOffset(int index){return offsets[index];}
+    public int getLength(int index){return lengths[index];}
+    public String getText(int index){return texts[index];}
+
+    // where the replaced text starts and ends, before the batch
+    public int getStart(){return offsets[0];}
+    public int getEnd(){return offsets[count - 1] + lengths[count - 1];}
+
+    // how much text the replacements put in
+    public int getTextLength(){
+        int length = 0;
+        for(int i = 0; i < count; i++) length += texts[i].length();
+        return length;
+    }
+
+    // how much longer the text of the range gets
+    public int getLengthChange(){
+        int change = 0;
+        for(int i = 0; i < count; i++) change += texts[i].length() - lengths[i];
+        return change;
+    }
+}
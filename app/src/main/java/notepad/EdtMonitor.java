@@ -0,0 +1,226 @@
+package notepad;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// times every event that the edt dispatches. when one of them keeps the edt busy for longer than the stall threshold a
+// watchdog thread takes the stack trace of the edt while it is still stuck, that stack tells what the notepad was
+// doing (reading a file, laying out text, undoing...). stalls are logged to stderr, kept for the diagnostics dialog
+// and committed as jfr events. set the threshold with -Dnotepad.stallThresholdMs=<milliseconds>
+public class EdtMonitor extends EventQueue {
+    private static final long STALL_THRESHOLD = Long.getLong("notepad.stallThresholdMs", 100);
+
+    // how many stalls are kept, the oldest ones are dropped first
+    private static final int MAX_STALLS = 50;
+
+    // how many frames of the stack of a stall are kept
+    private static final int MAX_FRAMES = 40;
+
+    private static EdtMonitor instance;
+
+    private final Histogram events = new Histogram();
+    private final Deque<Stall> stalls = new ArrayDeque<>();
+
+    // the event that is being dispatched and when it started, read by the watchdog. the start is 0 while the edt waits
+    private volatile long dispatchStart;
+    private volatile AWTEvent dispatching;
+    private volatile Thread dispatchThread;
+
+    // the stall the watchdog caught for the event that is being dispatched, it gets its duration when the event is done
+    private volatile Stall pendingStall;
+
+    // only used on the edt. a modal dialog dispatches events from within the event that opened it, that event was
+    // mostly waiting for the user so it is not counted
+    private int depth;
+    private boolean interrupted;
+
+    // starts monitoring the edt, the events dispatched before this are not seen
+    public static synchronized void install(){
+        if(instance != null) return;
+
+        instance = new EdtMonitor();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(instance);
+
+        Thread watchdog = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                registerEvents();
+                instance.watch();
+            }
+        }, "edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    // the first jfr event of a class registers the class with the flight recorder, which takes a few hundred
+    // milliseconds. the events of the notepad are registered up front, off the edt, so that this does not happen on the
+    // edt the first time an operation is timed or a stall is caught
+    public static void registerEvents(){
+        FlightRecorder.register(Diagnostics.OperationEvent.class);
+        FlightRecorder.register(StallEvent.class);
+    }
+
+    // null if the monitor was not installed
+    public static synchronized EdtMonitor get(){return instance;}
+
+    public static long getStallThreshold(){return STALL_THRESHOLD;}
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        boolean outerInterrupted = interrupted || depth > 0;
+        interrupted = false;
+        depth++;
+
+        long start = System.nanoTime();
+        dispatchThread = Thread.currentThread();
+        dispatching = event;
+        dispatchStart = start;
+        try{
+            super.dispatchEvent(event);
+        }finally{
+            long duration = System.nanoTime() - start;
+            dispatchStart = 0;
+            dispatching = null;
+            depth--;
+
+            Stall stall = pendingStall;
+            if(stall != null && stall.start == start){
+                pendingStall = null;
+                stall.finish(duration);
+            }
+
+            if(!interrupted) events.record(duration);
+            interrupted = outerInterrupted;
+        }
+    }
+
+    // looks at the edt a few times per threshold and takes its stack once per event that runs for too long
+    private void watch(){
+        long interval = Math.max(10, STALL_THRESHOLD / 4);
+        long reportedStart = 0;
+        while(true){
+            try{
+                Thread.sleep(interval);
+            }catch(InterruptedException e){
+                return;
+            }
+
+            long start = dispatchStart;
+            AWTEvent event = dispatching;
+            Thread thread = dispatchThread;
+            if(start == 0 || start == reportedStart || event == null || thread == null) continue;
+
+            long running = (System.nanoTime() - start) / 1_000_000;
+            if(running < STALL_THRESHOLD) continue;
+            reportedStart = start;
+
+            StackTraceElement[] stack = thread.getStackTrace();
+
+            // the event may have finished while the stack was taken, then the stack belongs to something else
+            if(dispatchStart != start) continue;
+
+            Stall stall = new Stall(start, describe(event), stack);
+            pendingStall = stall;
+            synchronized(stalls){
+                stalls.addLast(stall);
+                if(stalls.size() > MAX_STALLS) stalls.removeFirst();
+            }
+            System.err.println("edt stall: " + stall.event + " has been running for " + running + " ms" + stall.getStackText());
+        }
+    }
+
+    static String describe(AWTEvent event){
+        // the runnable of an invocation event tells more than the event itself
+        String description = event.paramString();
+        int runnable = description.indexOf("runnable=");
+        if(runnable >= 0){
+            int end = description.indexOf(',', runnable);
+            return description.substring(runnable + "runnable=".length(), end < 0 ? description.length() : end);
+        }
+
+        Object source = event.getSource();
+        return event.getClass().getSimpleName() + " " + description.split(",")[0] +
+                (source == null ? "" : " on " + source.getClass().getName());
+    }
+
+    public Histogram getEvents(){return events.copy();}
+
+    public List<Stall> getStalls(){
+        synchronized(stalls){
+            return new ArrayList<>(stalls);
+        }
+    }
+
+    public void reset(){
+        events.reset();
+        synchronized(stalls){
+            stalls.clear();
+        }
+    }
+
+    // an event that kept the edt busy for longer than the threshold
+    public static class Stall {
+        private final long start;
+        private final long time = System.currentTimeMillis();
+        private final String event;
+        private final StackTraceElement[] stack;
+
+        // -1 while the event is still running
+        private volatile long durationMillis = -1;
+
+        Stall(long start, String event, StackTraceElement[] stack){
+            this.start = start;
+            this.event = event;
+            this.stack = stack;
+        }
+
+        private void finish(long durationNanos){
+            durationMillis = durationNanos / 1_000_000;
+
+            StallEvent jfrEvent = new StallEvent();
+            if(jfrEvent.isEnabled()){
+                jfrEvent.event = event;
+                jfrEvent.durationMillis = durationMillis;
+                jfrEvent.stack = getStackText();
+                jfrEvent.commit();
+            }
+        }
+
+        // when the stall was caught, in milliseconds since the epoch
+        public long getTime(){return time;}
+        public String getEvent(){return event;}
+        public long getDurationMillis(){return durationMillis;}
+
+        public String getStackText(){
+            StringBuilder text = new StringBuilder();
+            for(int i = 0; i < Math.min(stack.length, MAX_FRAMES); i++){
+                text.append("\n\tat ").append(stack[i]);
+            }
+            if(stack.length > MAX_FRAMES) text.append("\n\t...");
+            return text.toString();
+        }
+    }
+
+    @Name("notepad.EdtStall")
+    @Label("EDT Stall")
+    @Category("Notepad")
+    static class StallEvent extends Event {
+        @Label("Event")
+        String event;
+
+        @Label("Duration (ms)")
+        long durationMillis;
+
+        @Label("Stack")
+        String stack;
+    }
+}
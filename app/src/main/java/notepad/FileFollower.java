@@ -0,0 +1,136 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+// follows a file that keeps growing, like a log that an application writes to. the size of the file is polled on a
+// background thread and only the bytes that were appended since the last look are decoded and appended to the
+// document, in one batch per look. a file that got shorter was truncated or rotated, it is read again from its start.
+// when a limit on the lines is set the oldest lines are dropped so that a tail that runs for days stays small
+public class FileFollower extends SwingWorker<Void, FileFollower.Chunk> {
+    // how often the file is looked at, in milliseconds
+    private static final long POLL_INTERVAL = 250;
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    // limits how many batches can be waiting on the edt, like when loading a file
+    private static final int MAX_PENDING_CHUNKS = 4;
+
+    private final File file;
+    private final Document document;
+    private final TextEncoding encoding;
+    private final int maxLines;
+    private final Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+
+    // the byte position of the file that has been read up to
+    private long position;
+
+    // the byte position that the text in the document goes up to, and if the document still holds the file as it is
+    // (it does not once lines were dropped or the file was truncated). only used on the edt
+    private long appendedPosition;
+    private boolean wholeFile = true;
+
+    // position is where the document's text ends in the file, maxLines is 0 to keep every line
+    public FileFollower(File file, Document document, TextEncoding encoding, long position, int maxLines){
+        this.file = file;
+        this.document = document;
+        this.encoding = encoding;
+        this.position = position;
+        this.maxLines = maxLines;
+        appendedPosition = position;
+    }
+
+    public File getFile(){return file;}
+
+    // how much of the file is in the document, on the edt
+    public long getAppendedPosition(){return appendedPosition;}
+    public boolean isWholeFile(){return wholeFile;}
+
+    @Override
+    protected Void doInBackground() throws Exception {
+        char[] buffer = new char[CHUNK_SIZE];
+
+        // kept open between looks so that a "\r\n" or a character that is split between two of them is read right
+        TextFileReader reader = null;
+        boolean restarted = false;
+        try{
+            while(!isCancelled()){
+                if(reader != null && file.length() < reader.getPosition()){
+                    reader.close();
+                    reader = null;
+                    position = 0;
+                    restarted = true;
+                }
+
+                // the file can be gone for a moment while it is being rotated
+                if(reader == null && file.isFile()){
+                    reader = new TextFileReader(file, encoding, position);
+                    reader.setFollowing(true);
+                }
+
+                if(reader != null){
+                    int length;
+                    while(!isCancelled() && (length = reader.read(buffer, buffer.length)) > 0){
+                        // wait for the edt to catch up before reading any further
+                        pendingChunks.acquire();
+                        publish(new Chunk(new String(buffer, 0, length), reader.getPosition(), restarted));
+                        restarted = false;
+                    }
+                    position = reader.getPosition();
+                }
+
+                Thread.sleep(POLL_INTERVAL);
+            }
+        }finally{
+            if(reader != null) reader.close();
+        }
+        return null;
+    }
+
+    @Override
+    protected void process(List<Chunk> chunks){
+        try{
+            // the text that was read after following was stopped is left out
+            if(isCancelled()) return;
+
+            for(Chunk chunk : chunks){
+                document.insertString(document.getLength(), chunk.text, null);
+                appendedPosition = chunk.end;
+                if(chunk.restarted) wholeFile = false;
+            }
+            if(maxLines > 0) dropOldLines();
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }finally{
+            pendingChunks.release(chunks.size());
+        }
+    }
+
+    private void dropOldLines() throws BadLocationException {
+        // the empty line after the last line break does not count
+        int lineCount = LineIndex.getLineCount(document);
+        if(document.getLength() > 0 && document.getText(document.getLength() - 1, 1).charAt(0) == '\n') lineCount--;
+        if(lineCount <= maxLines) return;
+
+        document.remove(0, LineIndex.getLineStartOffset(document, lineCount - maxLines));
+        wholeFile = false;
+    }
+
+    // text that was read from the file together with the byte position it ends at. restarted is set for the first
+    // text that was read after the file got shorter
+    static class Chunk {
+        private final String text;
+        private final long end;
+        private final boolean restarted;
+
+        private Chunk(String text, long end, boolean restarted){
+            this.text = text;
+            this.end = end;
+            this.restarted = restarted;
+        }
+    }
+}
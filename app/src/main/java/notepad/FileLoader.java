@@ -0,0 +1,149 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+// reads a file on a background thread and streams it into a document in large chunks, which the edt inserts in small
+// slices between its other events. this way the gui stays responsive and the start of the file can already be read
+// (and scrolled) while the rest is still loading. the file is decoded by a TextFileReader, which also finds out how the
+// file is encoded so that it can be saved back the same way. a compressed file is decompressed as it is read, it is
+// never unpacked on the disk
+public class FileLoader extends SwingWorker<Void, String> {
+    // the first chunk is kept small so that the first screen of text shows up almost at once
+    private static final int FIRST_CHUNK_SIZE = 16 * 1024;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    // limits how many chunks can be waiting on the edt, otherwise a fast disk would queue the whole file in memory
+    private static final int MAX_PENDING_CHUNKS = 4;
+
+    // the edt inserts the chunks a slice at a time and leaves the rest to a later event once it has been at it for this
+    // long, so that scrolling and painting get their turn while a big file streams in
+    private static final int INSERT_SLICE = 64 * 1024;
+    private static final long INSERT_TIME = 20_000_000;
+
+    private final File file;
+    private final Document document;
+    private final Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+
+    // only used on the edt: the chunks that are not in the document yet, how much of the first one is, and whether a
+    // later event is going to insert the rest
+    private final Deque<String> queuedChunks = new ArrayDeque<>();
+    private int queuedOffset;
+    private boolean insertScheduled;
+
+    // null until it has been detected, unless it was given
+    private volatile TextEncoding encoding;
+
+    // how many bytes of the file were read, the file can grow while it is being read
+    private volatile long bytesRead;
+
+    private volatile Compression compression = Compression.NONE;
+
+    public FileLoader(File file, Document document){
+        this(file, document, null);
+    }
+
+    // encoding can be null to detect it from the file
+    public FileLoader(File file, Document document, TextEncoding encoding){
+        this.file = file;
+        this.document = document;
+        this.encoding = encoding;
+    }
+
+    public File getFile(){return file;}
+
+    // how the file is encoded, complete once the file has been read
+    public TextEncoding getEncoding(){return encoding;}
+
+    public long getBytesRead(){return bytesRead;}
+
+    // how the file is compressed, known once the file has been read
+    public Compression getCompression(){return compression;}
+
+    @Override
+    protected Void doInBackground() throws Exception {
+        try(TextFileReader reader = new TextFileReader(file, encoding)){
+            long fileSize = Math.max(1, reader.getSize());
+
+            char[] buffer = new char[CHUNK_SIZE];
+            int chunkSize = FIRST_CHUNK_SIZE;
+
+            while(!isCancelled()){
+                int length = reader.read(buffer, chunkSize);
+                if(length == -1) break;
+                if(length == 0) continue;
+
+                // wait for the edt to catch up before reading any further
+                pendingChunks.acquire();
+                publish(new String(buffer, 0, length));
+
+                setProgress((int) Math.min(100, reader.getPosition() * 100 / fileSize));
+                chunkSize = CHUNK_SIZE;
+            }
+
+            encoding = reader.getEncoding();
+            bytesRead = reader.getPosition();
+            compression = reader.getCompression();
+        }
+
+        // the loader is only done once the edt has inserted all of the text
+        if(!isCancelled()) pendingChunks.acquire(MAX_PENDING_CHUNKS);
+
+        return null;
+    }
+
+    @Override
+    protected void process(List<String> chunks){
+        queuedChunks.addAll(chunks);
+        if(!insertScheduled) insertQueuedChunks();
+    }
+
+    private void insertQueuedChunks(){
+        insertScheduled = false;
+
+        // a cancelled load keeps what it has, the rest would end up after the text that done() works with
+        if(isCancelled()){
+            pendingChunks.release(queuedChunks.size());
+            queuedChunks.clear();
+            queuedOffset = 0;
+            return;
+        }
+
+        long start = System.nanoTime();
+        while(!queuedChunks.isEmpty()){
+            if(System.nanoTime() - start > INSERT_TIME){
+                insertScheduled = true;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        insertQueuedChunks();
+                    }
+                });
+                return;
+            }
+
+            // append the next slice of the chunk to the end of the document, without splitting a surrogate pair
+            String chunk = queuedChunks.peek();
+            int end = Math.min(chunk.length(), queuedOffset + INSERT_SLICE);
+            if(end < chunk.length() && Character.isHighSurrogate(chunk.charAt(end - 1))) end--;
+            try{
+                document.insertString(document.getLength(), chunk.substring(queuedOffset, end), null);
+            }catch(BadLocationException e){
+                e.printStackTrace();
+            }
+
+            queuedOffset = end;
+            if(queuedOffset == chunk.length()){
+                queuedChunks.poll();
+                queuedOffset = 0;
+                pendingChunks.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.*;
+import java.util.zip.DeflaterOutputStream;
+
+// writes a snapshot of the text to a file on a background thread. the text is encoded a segment at a time straight
+// from the document's buffers into a temporary file next to the target, which is synced to disk and then renamed over
+// the target. if anything goes wrong (or the save gets cancelled) the original file is left untouched. the text is
+// written in the encoding the file was read with, with its byte order mark and its line separator, and compressed the
+// way it was asked for on the way to the disk
+public class FileSaver extends SwingWorker<Void, Void> {
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final TextSnapshot snapshot;
+    private final File file;
+    private final TextEncoding encoding;
+    private final Compression compression;
+
+    public FileSaver(TextSnapshot snapshot, File file, TextEncoding encoding, Compression compression){
+        this.snapshot = snapshot;
+        this.file = file;
+        this.encoding = encoding;
+        this.compression = compression;
+    }
+
+    public File getFile(){return file;}
+
+    @Override
+    protected Void doInBackground() throws Exception {
+        // save through symbolic links instead of replacing them
+        Path target = file.toPath().toAbsolutePath();
+        if(Files.exists(target)) target = target.toRealPath();
+
+        // created like any other new file so that it gets the default permissions (unlike Files.createTempFile)
+        Path temp = Files.createFile(target.resolveSibling("." + target.getFileName() + "." + System.nanoTime() + ".tmp"));
+        try{
+            write(temp);
+            copyPermissions(target, temp);
+
+            try{
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }catch(AtomicMoveNotSupportedException e){
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }finally{
+            Files.deleteIfExists(temp);
+        }
+
+        return null;
+    }
+
+    private void write(Path temp) throws IOException, BadLocationException {
+        CharsetEncoder encoder = encoding.getCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        Segment segment = new Segment();
+
+        // a surrogate pair can be split between two segments, the first half waits here for the second one
+        CharBuffer carry = CharBuffer.allocate(2);
+
+        // the document only has "\n", other line separators are put in while the segments are copied to here
+        String separator = encoding.getLineSeparator();
+        char[] lines = separator.equals("\n") ? null : new char[CHUNK_SIZE * separator.length()];
+
+        try(FileChannel output = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            // the encoded bytes go through the compressor if there is one
+            DeflaterOutputStream compressor = compression.isCompressed() ?
+                    compression.compress(Channels.newOutputStream(output)) : null;
+            WritableByteChannel channel = compressor != null ? Channels.newChannel(compressor) : output;
+
+            if(encoding.hasByteOrderMark()) encode(encoder, CharBuffer.wrap("\uFEFF"), bytes, channel, false);
+
+            int length = snapshot.getLength();
+            int offset = 0;
+            int lastProgress = -1;
+
+            while(offset < length){
+                if(isCancelled()) throw new InterruptedIOException("saving " + file.getName() + " was cancelled");
+
+                snapshot.getText(offset, Math.min(CHUNK_SIZE, length - offset), segment);
+                offset += segment.count;
+                CharBuffer chars = lines == null ? CharBuffer.wrap(segment.array, segment.offset, segment.count)
+                        : separateLines(segment, separator, lines);
+
+                if(carry.position() > 0 && chars.hasRemaining()){
+                    carry.put(chars.get());
+                    carry.flip();
+                    encode(encoder, carry, bytes, channel, false);
+
+                    // the character that was taken is the first half of another pair, it goes back to its segment
+                    if(carry.hasRemaining()) chars.position(chars.position() - 1);
+                    carry.clear();
+                }
+
+                encode(encoder, chars, bytes, channel, false);
+                if(chars.hasRemaining()) carry.put(chars);
+
+                int progress = (int) ((long) offset * 100 / length);
+                if(progress != lastProgress){
+                    lastProgress = progress;
+                    setProgress(progress);
+                }
+            }
+
+            carry.flip();
+            encode(encoder, carry, bytes, channel, true);
+            while(encoder.flush(bytes) == CoderResult.OVERFLOW){
+                drain(bytes, channel);
+            }
+            drain(bytes, channel);
+            if(compressor != null) compressor.finish();
+
+            // make sure the text is on the disk before the original file gets replaced
+            output.force(true);
+
+            // lets go of the compressor's memory, this also closes the file
+            if(compressor != null) compressor.close();
+        }
+    }
+
+    private static CharBuffer separateLines(Segment segment, String separator, char[] lines){
+        int length = 0;
+        for(int i = segment.offset; i < segment.offset + segment.count; i++){
+            char c = segment.array[i];
+            if(c == '\n'){
+                for(int j = 0; j < separator.length(); j++) lines[length++] = separator.charAt(j);
+            }else{
+                lines[length++] = c;
+            }
+        }
+        return CharBuffer.wrap(lines, 0, length);
+    }
+
+    private static void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer bytes, WritableByteChannel channel,
+                               boolean endOfInput) throws IOException {
+        while(true){
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if(!result.isOverflow()) return;
+            drain(bytes, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer bytes, WritableByteChannel channel) throws IOException {
+        bytes.flip();
+        while(bytes.hasRemaining()){
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    // the file keeps its permissions when it gets replaced
+    private static void copyPermissions(Path from, Path to){
+        if(!Files.exists(from)) return;
+
+        try{
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        }catch(UnsupportedOperationException | IOException e){
+            // not a posix file system, the file keeps the default permissions
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package notepad;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// searches every file in a directory tree for the lines that contain a match. the tree is walked on the calling
+// thread while the files are searched in parallel on a fork join pool, each file is mapped into memory and decoded a
+// block at a time so big files never have to fit in memory as text. the charset of each file is detected from its
+// first block, like when a file is opened
+public class FileSearch {
+    // how many characters are decoded and searched at once
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    // how much of a file is mapped at once
+    private static final long MAX_REGION_SIZE = 1024L * 1024 * 1024;
+
+    // files with a zero byte at their start are taken to be binary and skipped, unless they are utf-16 or utf-32
+    private static final int BINARY_CHECK_SIZE = 8000;
+
+    // the text of a line that is kept for a hit
+    private static final int MAX_LINE_TEXT = 200;
+
+    private final Path root;
+    private final TextSearch search;
+
+    // gets the hits of each file, called by many threads at once
+    private final Consumer<List<Hit>> results;
+
+    private final AtomicInteger filesSearched = new AtomicInteger();
+    private volatile boolean cancelled;
+
+    public FileSearch(Path root, TextSearch search, Consumer<List<Hit>> results){
+        this.root = root;
+        this.search = search;
+        this.results = results;
+    }
+
+    public int getFilesSearched(){return filesSearched.get();}
+
+    // stops the search, files that are being searched stop at the next block
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled(){return cancelled;}
+
+    // searches the whole tree, returns once every file has been searched or the search was cancelled
+    public void run() throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try{
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if(cancelled) return FileVisitResult.TERMINATE;
+
+                    if(attributes.isRegularFile() && attributes.size() > 0){
+                        pool.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if(cancelled) return;
+
+                                try{
+                                    searchFile(file);
+                                }catch(IOException e){
+                                    // files that can not be read are left out, like the ones that can not be listed
+                                }
+                                filesSearched.incrementAndGet();
+                            }
+                        });
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+            });
+
+            pool.shutdown();
+            while(!pool.awaitTermination(50, TimeUnit.MILLISECONDS)){
+                if(cancelled) break;
+            }
+        }finally{
+            pool.shutdownNow();
+        }
+    }
+
+    private void searchFile(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long size = channel.size();
+            FileScanner scanner = null;
+
+            for(long position = 0; position < size && !cancelled; ){
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAX_REGION_SIZE, size - position));
+                if(position == 0){
+                    TextEncoding encoding = TextEncoding.detect(bytes.slice(0, Math.min(BLOCK_SIZE, bytes.limit())));
+                    if(!isWide(encoding.getCharset()) && isBinary(bytes)) return;
+
+                    // the byte order mark is not part of the first line
+                    if(encoding.hasByteOrderMark()) bytes.position(encoding.getByteOrderMarkLength());
+                    scanner = new FileScanner(path.toFile(), size, encoding.getCharset());
+                }
+
+                // a character that is cut off at the end of the region is decoded with the next region
+                boolean last = position + bytes.limit() == size;
+                scanner.decode(bytes, last);
+                position += bytes.position();
+            }
+
+            if(scanner == null) return;
+
+            if(!cancelled) scanner.finish();
+            if(!scanner.hits.isEmpty()) results.accept(scanner.hits);
+        }
+    }
+
+    // the zero bytes of utf-16 and utf-32 text do not make it binary
+    private static boolean isWide(Charset charset){
+        return charset.name().startsWith("UTF-16") || charset.name().startsWith("UTF-32");
+    }
+
+    private static boolean isBinary(MappedByteBuffer bytes){
+        for(int i = 0; i < Math.min(BINARY_CHECK_SIZE, bytes.limit()); i++){
+            if(bytes.get(i) == 0) return true;
+        }
+        return false;
+    }
+
+    // decodes one file and searches it a block of whole lines at a time
+    private class FileScanner {
+        private final File file;
+        private final CharsetDecoder decoder;
+        private final CharBuffer chars;
+        private final List<Hit> hits = new ArrayList<>();
+
+        // the line that the block starts at, and how much of that line came before the block when a line is too
+        // long for the buffer
+        private int line;
+        private int lineProgress;
+
+        private FileScanner(File file, long size, Charset charset){
+            this.file = file;
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            // most files are small, and they never decode to more characters than they have bytes
+            chars = CharBuffer.allocate((int) Math.min(BLOCK_SIZE, size + 16));
+        }
+
+        private void decode(MappedByteBuffer bytes, boolean endOfInput){
+            while(!cancelled && decoder.decode(bytes, chars, endOfInput).isOverflow()){
+                searchBlock(false);
+            }
+        }
+
+        private void finish(){
+            while(decoder.flush(chars).isOverflow()) searchBlock(false);
+            searchBlock(true);
+        }
+
+        // searches the whole lines in the buffer and moves the unfinished last line to the front of it
+        private void searchBlock(boolean endOfText){
+            chars.flip();
+
+            int end = chars.limit();
+            if(!endOfText){
+                while(end > 0 && chars.get(end - 1) != '\n') end--;
+
+                // a line longer than the whole buffer is searched in pieces
+                if(end == 0) end = chars.limit();
+            }
+
+            TextSearch.Finder finder = search.finder(chars);
+            int counted = 0;
+            for(int from = 0; from < end && finder.find(from, end); ){
+                int start = finder.start();
+                line += countLines(counted, start);
+                counted = start;
+
+                int lineStart = start;
+                while(lineStart > 0 && chars.get(lineStart - 1) != '\n') lineStart--;
+                int lineEnd = start;
+                while(lineEnd < end && chars.get(lineEnd) != '\n') lineEnd++;
+
+                String text = chars.subSequence(lineStart, Math.min(lineEnd, lineStart + MAX_LINE_TEXT)).toString();
+                int column = start - lineStart + (lineStart == 0 ? lineProgress : 0);
+                hits.add(new Hit(file, line, column, finder.end() - start, text.stripTrailing()));
+
+                // each line is listed once, no matter how many matches it has
+                from = lineEnd + 1;
+            }
+            line += countLines(counted, end);
+
+            int lastLineStart = end;
+            while(lastLineStart > 0 && chars.get(lastLineStart - 1) != '\n') lastLineStart--;
+            lineProgress = lastLineStart == 0 ? lineProgress + end : end - lastLineStart;
+
+            chars.position(end);
+            chars.compact();
+        }
+
+        private int countLines(int from, int to){
+            int lines = 0;
+            for(int i = from; i < to; i++){
+                if(chars.get(i) == '\n') lines++;
+            }
+            return lines;
+        }
+    }
+
+    // a line of a file that contains a match
+    public static class Hit {
+        private final File file;
+        private final int line;
+        private final int column;
+        private final int length;
+        private final String text;
+
+        public Hit(File file, int line, int column, int length, String text){
+            this.file = file;
+            this.line = line;
+            this.column = column;
+            this.length = length;
+            this.text = text;
+        }
+
+        public File getFile(){return file;}
+
+        // counted from 0
+        public int getLine(){return line;}
+        public int getColumn(){return column;}
+        public int getLength(){return length;}
+        public String getText(){return text;}
+    }
+}
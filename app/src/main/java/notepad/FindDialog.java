@@ -0,0 +1,488 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Highlighter;
+import java.awt.*;
+import java.awt.event.*;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.PatternSyntaxException;
+
+// find and replace. the searching is done on a worker thread over a snapshot of the text, so the text area stays
+// responsive while a big file is being searched, and the matches are highlighted only where the text is painted
+public class FindDialog extends JDialog {
+    // how long the text has to stay the same before the matches are counted again
+    private static final int RECOUNT_DELAY = 300;
+
+    // how often the count is updated while the matches are being counted
+    private static final long COUNT_UPDATE_INTERVAL = 100;
+
+    private NotepadGUI source;
+
+    private JTextField findField, replaceField;
+    private JCheckBox matchCaseBox, regexBox;
+    private JLabel statusLabel;
+
+    // the current search, null if there is nothing to search for
+    private TextSearch search;
+
+    private final SearchHighlightPainter highlightPainter = new SearchHighlightPainter(new Color(255, 225, 100));
+    private Object highlight;
+
+    // counts the matches of the current search, restarted whenever the search or the text changes
+    private SwingWorker<Integer, Integer> matchCounter;
+    private final Timer recountTimer;
+
+    // the find next or replace all that is running
+    private SwingWorker<?, ?> searchWorker;
+
+    // changes every time the text changes, results of a search that started before that are no good anymore
+    private int textVersion;
+
+    private final DocumentListener documentListener = new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            textChanged();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            textChanged();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+    };
+
+    public FindDialog(NotepadGUI source){
+        super(source, "Find and Replace");
+        this.source = source;
+        setDefaultCloseOperation(HIDE_ON_CLOSE);
+        setSize(420, 215);
+        setLocationRelativeTo(source);
+        setResizable(false);
+
+        // removes layout management, giving us more control on the placement of our gui components
+        setLayout(null);
+
+        recountTimer = new Timer(RECOUNT_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                countMatches();
+            }
+        });
+        recountTimer.setRepeats(false);
+
+        addDialogComponents();
+
+        // the text area gets a new document when a file is opened and a new highlighter when its ui changes
+        source.getTextArea().getDocument().addDocumentListener(documentListener);
+        source.getTextArea().addPropertyChangeListener(new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if("document".equals(evt.getPropertyName())){
+                    ((Document) evt.getOldValue()).removeDocumentListener(documentListener);
+                    ((Document) evt.getNewValue()).addDocumentListener(documentListener);
+                    textChanged();
+                }
+                if(isVisible() && source.getTextArea().getHighlighter() != null &&
+                        ("document".equals(evt.getPropertyName()) || "highlighter".equals(evt.getPropertyName()))){
+                    addHighlight();
+                }
+            }
+        });
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                stopSearching();
+            }
+        });
+    }
+
+    private void addDialogComponents(){
+        JLabel findLabel = new JLabel("Find what:");
+        findLabel.setBounds(10, 10, 90, 25);
+        add(findLabel);
+
+        findField = new JTextField();
+        findField.setBounds(100, 10, 180, 25);
+        findField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                findNext();
+            }
+        });
+        add(findField);
+
+        JLabel replaceLabel = new JLabel("Replace with:");
+        replaceLabel.setBounds(10, 45, 90, 25);
+        add(replaceLabel);
+
+        replaceField = new JTextField();
+        replaceField.setBounds(100, 45, 180, 25);
+        add(replaceField);
+
+        // the search changes as the user types
+        findField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                updateSearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                updateSearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        ActionListener optionListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateSearch();
+            }
+        };
+
+        matchCaseBox = new JCheckBox("Match Case");
+        matchCaseBox.setBounds(10, 80, 130, 25);
+        matchCaseBox.addActionListener(optionListener);
+        add(matchCaseBox);
+
+        regexBox = new JCheckBox("Regular Expression");
+        regexBox.setBounds(140, 80, 150, 25);
+        regexBox.addActionListener(optionListener);
+        add(regexBox);
+
+        statusLabel = new JLabel();
+        statusLabel.setBounds(10, 115, 280, 25);
+        add(statusLabel);
+
+        // action buttons
+
+        JButton findNextButton = new JButton("Find Next");
+        findNextButton.setBounds(295, 10, 105, 25);
+        findNextButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                findNext();
+            }
+        });
+        add(findNextButton);
+
+        JButton replaceButton = new JButton("Replace");
+        replaceButton.setBounds(295, 45, 105, 25);
+        replaceButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                replace();
+            }
+        });
+        add(replaceButton);
+
+        JButton replaceAllButton = new JButton("Replace All");
+        replaceAllButton.setBounds(295, 80, 105, 25);
+        replaceAllButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                replaceAll();
+            }
+        });
+        add(replaceAllButton);
+
+        JButton closeButton = new JButton("Close");
+        closeButton.setBounds(295, 145, 105, 25);
+        closeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setVisible(false);
+            }
+        });
+        add(closeButton);
+
+        getRootPane().registerKeyboardAction(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setVisible(false);
+            }
+        }, KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_IN_FOCUSED_WINDOW);
+    }
+
+    public void showDialog(){
+        // a short selection on one line is most likely what the user wants to find
+        String selection = source.getTextArea().getSelectedText();
+        if(selection != null && !selection.isEmpty() && selection.length() <= 256 && selection.indexOf('\n') < 0){
+            findField.setText(selection);
+        }
+
+        if(!isVisible()){
+            setVisible(true);
+            addHighlight();
+            updateSearch();
+        }
+
+        findField.requestFocusInWindow();
+        findField.selectAll();
+    }
+
+    private void stopSearching(){
+        recountTimer.stop();
+        if(matchCounter != null) matchCounter.cancel(true);
+        if(searchWorker != null) searchWorker.cancel(true);
+        matchCounter = null;
+        searchWorker = null;
+
+        if(highlight != null) source.getTextArea().getHighlighter().removeHighlight(highlight);
+        highlight = null;
+    }
+
+    private void addHighlight(){
+        Highlighter highlighter = source.getTextArea().getHighlighter();
+        try{
+            // the painter finds the matches itself, so the highlight does not need a range
+            if(highlight != null) highlighter.removeHighlight(highlight);
+            highlight = highlighter.addHighlight(0, 0, highlightPainter);
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }
+    }
+
+    private void updateSearch(){
+        search = null;
+        statusLabel.setText("");
+
+        String text = findField.getText();
+        if(!text.isEmpty()){
+            try{
+                search = new TextSearch(text, matchCaseBox.isSelected(), regexBox.isSelected());
+            }catch(PatternSyntaxException e){
+                statusLabel.setText("Invalid pattern: " + e.getDescription());
+            }
+        }
+
+        highlightPainter.setSearch(search);
+        source.getTextArea().repaint();
+        countMatches();
+    }
+
+    private void textChanged(){
+        textVersion++;
+        if(search != null && isVisible()) recountTimer.restart();
+    }
+
+    private TextSnapshot takeSnapshot(){
+        try{
+            return TextSnapshot.of(source.getTextArea().getDocument());
+        }catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void countMatches(){
+        recountTimer.stop();
+        if(matchCounter != null) matchCounter.cancel(true);
+        matchCounter = null;
+        if(search == null) return;
+
+        TextSnapshot text = takeSnapshot();
+        TextSearch counted = search;
+        matchCounter = new SwingWorker<Integer, Integer>() {
+            @Override
+            protected Integer doInBackground() {
+                int count = 0;
+                long lastUpdate = System.currentTimeMillis();
+
+                TextSearch.Finder finder = counted.finder(text.chars());
+                for(boolean found = finder.find(0, text.getLength()); found; found = finder.findNext()){
+                    count++;
+
+                    // the count goes up on the screen while a big file is searched
+                    if(System.currentTimeMillis() - lastUpdate > COUNT_UPDATE_INTERVAL){
+                        publish(count);
+                        lastUpdate = System.currentTimeMillis();
+                    }
+                }
+                return count;
+            }
+
+            @Override
+            protected void process(List<Integer> chunks) {
+                if(matchCounter == this) statusLabel.setText("Counting... " + chunks.get(chunks.size() - 1) + " matches");
+            }
+
+            @Override
+            protected void done() {
+                if(isCancelled() || matchCounter != this) return;
+
+                try{
+                    int count = get();
+                    statusLabel.setText(count == 1 ? "1 match" : count + " matches");
+                }catch(InterruptedException | ExecutionException e){
+                    e.printStackTrace();
+                }
+            }
+        };
+        matchCounter.execute();
+    }
+
+    // selects the next match after the caret, starting over at the top when there is none
+    public void findNext(){
+        if(search == null){
+            showDialog();
+            return;
+        }
+        if(searchWorker != null) searchWorker.cancel(true);
+
+        JTextArea textArea = source.getTextArea();
+        TextSnapshot text = takeSnapshot();
+        TextSearch searched = search;
+        int from = textArea.getSelectionEnd();
+        int version = textVersion;
+
+        SwingWorker<int[], Void> worker = new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() {
+                TextSearch.Finder finder = searched.finder(text.chars());
+                if(finder.find(from, text.getLength()) || finder.find(0, text.getLength())){
+                    return new int[]{finder.start(), finder.end()};
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                if(isCancelled() || searchWorker != this) return;
+                searchWorker = null;
+
+                try{
+                    int[] match = get();
+                    if(version != textVersion){
+                        statusLabel.setText("The text changed while searching, try again");
+                    }else if(match == null){
+                        statusLabel.setText("Cannot find \"" + searched.getText() + "\"");
+                    }else{
+                        textArea.select(match[0], match[1]);
+                        textArea.getCaret().setSelectionVisible(true);
+                    }
+                }catch(InterruptedException | ExecutionException e){
+                    e.printStackTrace();
+                }
+            }
+        };
+        searchWorker = worker;
+        worker.execute();
+    }
+
+    private boolean checkEditable(){
+        if(source.getTextArea().isEditable()) return true;
+
+        statusLabel.setText("The text can not be changed");
+        return false;
+    }
+
+    // replaces the selection if it is a match and moves on to the next one
+    private void replace(){
+        if(search == null || !checkEditable()) return;
+
+        JTextArea textArea = source.getTextArea();
+        int start = textArea.getSelectionStart();
+        int end = textArea.getSelectionEnd();
+
+        TextSearch.Finder finder = search.finder(takeSnapshot().chars());
+        if(start != end && finder.find(start, end) && finder.start() == start && finder.end() == end){
+            try{
+                String replacement = finder.replacement(replaceField.getText());
+                replaceText(start, end - start, replacement);
+                textArea.select(start + replacement.length(), start + replacement.length());
+            }catch(IllegalArgumentException e){
+                statusLabel.setText("Invalid replacement: " + e.getMessage());
+                return;
+            }
+        }
+
+        findNext();
+    }
+
+    // works out the new text for everything from the first to the last match in the background, then swaps it in
+    // with one change of the document that is undone in one step
+    private void replaceAll(){
+        if(search == null || !checkEditable()) return;
+        if(searchWorker != null) searchWorker.cancel(true);
+
+        TextSnapshot text = takeSnapshot();
+        TextSearch searched = search;
+        String replaceWith = replaceField.getText();
+        int version = textVersion;
+        statusLabel.setText("Replacing...");
+
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            private int first = -1, last, count;
+
+            @Override
+            protected String doInBackground() {
+                CharSequence chars = text.chars();
+                TextSearch.Finder finder = searched.finder(text.chars());
+                StringBuilder result = new StringBuilder();
+
+                for(boolean found = finder.find(0, text.getLength()); found; found = finder.findNext()){
+                    if(first < 0){
+                        first = finder.start();
+                    }else{
+                        result.append(chars, last, finder.start());
+                    }
+                    result.append(finder.replacement(replaceWith));
+                    last = finder.end();
+                    count++;
+                }
+                return result.toString();
+            }
+
+            @Override
+            protected void done() {
+                if(isCancelled() || searchWorker != this) return;
+                searchWorker = null;
+
+                try{
+                    String replacement = get();
+                    if(version != textVersion){
+                        statusLabel.setText("The text changed while replacing, try again");
+                    }else if(count == 0){
+                        statusLabel.setText("Cannot find \"" + searched.getText() + "\"");
+                    }else{
+                        replaceText(first, last - first, replacement);
+                        statusLabel.setText("Replaced " + (count == 1 ? "1 match" : count + " matches"));
+                    }
+                }catch(InterruptedException e){
+                    e.printStackTrace();
+                }catch(ExecutionException e){
+                    statusLabel.setText("Invalid replacement: " + e.getCause().getMessage());
+                }
+            }
+        };
+        searchWorker = worker;
+        worker.execute();
+    }
+
+    private void replaceText(int offset, int length, String text){
+        UndoHistory undoHistory = source.getUndoHistory();
+        undoHistory.beginCompoundEdit();
+        try{
+            ((AbstractDocument) source.getTextArea().getDocument()).replace(offset, length, text, null);
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }finally{
+            undoHistory.endCompoundEdit();
+        }
+    }
+}
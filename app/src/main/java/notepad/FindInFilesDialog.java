@@ -0,0 +1,280 @@
+package notepad;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.PatternSyntaxException;
+
+// searches all the files in a folder and its subfolders, the lines that contain a match show up in the list while
+// the search is still going and open the file at that line when they are double clicked
+public class FindInFilesDialog extends JDialog {
+    // the list stops growing after this many lines, a search that matches everything would fill up the memory
+    private static final int MAX_HITS = 100000;
+
+    private NotepadGUI source;
+
+    private JTextField findField, folderField;
+    private JCheckBox matchCaseBox, regexBox;
+    private JButton findButton;
+    private JLabel statusLabel;
+
+    private final DefaultListModel<FileSearch.Hit> hits = new DefaultListModel<>();
+    private JList<FileSearch.Hit> hitList;
+
+    // the search that is running, null if there is none
+    private SearchWorker searchWorker;
+
+    // the folder of the last search, the files in the list are shown relative to it
+    private Path searchedFolder;
+
+    public FindInFilesDialog(NotepadGUI source, File folder){
+        super(source, "Find in Files");
+        this.source = source;
+        setDefaultCloseOperation(HIDE_ON_CLOSE);
+        setSize(560, 440);
+        setLocationRelativeTo(source);
+
+        // removes layout management, giving us more control on the placement of our gui components
+        setLayout(null);
+
+        addDialogComponents();
+        folderField.setText(folder.getAbsolutePath());
+
+        // closing the dialog stops the search
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                stopSearch();
+            }
+        });
+    }
+
+    private void addDialogComponents(){
+        JLabel findLabel = new JLabel("Find what:");
+        findLabel.setBounds(10, 10, 80, 25);
+        add(findLabel);
+
+        findField = new JTextField();
+        findField.setBounds(90, 10, 330, 25);
+        findField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startSearch();
+            }
+        });
+        add(findField);
+
+        JLabel folderLabel = new JLabel("In folder:");
+        folderLabel.setBounds(10, 45, 80, 25);
+        add(folderLabel);
+
+        folderField = new JTextField();
+        folderField.setBounds(90, 45, 290, 25);
+        add(folderField);
+
+        // choose the folder with a file chooser
+        JButton browseButton = new JButton("...");
+        browseButton.setBounds(385, 45, 35, 25);
+        browseButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                JFileChooser folderChooser = new JFileChooser(folderField.getText());
+                folderChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+                if(folderChooser.showOpenDialog(FindInFilesDialog.this) == JFileChooser.APPROVE_OPTION){
+                    folderField.setText(folderChooser.getSelectedFile().getAbsolutePath());
+                }
+            }
+        });
+        add(browseButton);
+
+        matchCaseBox = new JCheckBox("Match Case");
+        matchCaseBox.setBounds(10, 80, 130, 25);
+        add(matchCaseBox);
+
+        regexBox = new JCheckBox("Regular Expression");
+        regexBox.setBounds(140, 80, 150, 25);
+        add(regexBox);
+
+        // starts a search, or stops the one that is running
+        findButton = new JButton("Find");
+        findButton.setBounds(430, 10, 105, 25);
+        findButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(searchWorker != null){
+                    stopSearch();
+                }else{
+                    startSearch();
+                }
+            }
+        });
+        add(findButton);
+
+        hitList = new JList<>(hits);
+        hitList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hitList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                          boolean cellHasFocus) {
+                FileSearch.Hit hit = (FileSearch.Hit) value;
+                return super.getListCellRendererComponent(list, describe(hit), index, isSelected, cellHasFocus);
+            }
+        });
+
+        // a prototype keeps the list from measuring every one of its lines
+        hitList.setPrototypeCellValue(new FileSearch.Hit(new File("prototype.txt"), 9999, 0, 0,
+                "x".repeat(80)));
+
+        // open the file of the chosen line with a double click or enter
+        hitList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if(e.getClickCount() == 2) openSelectedHit();
+            }
+        });
+        hitList.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "openHit");
+        hitList.getActionMap().put("openHit", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openSelectedHit();
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(hitList);
+        scrollPane.setBounds(10, 115, 525, 245);
+        add(scrollPane);
+
+        statusLabel = new JLabel();
+        statusLabel.setBounds(10, 370, 525, 25);
+        add(statusLabel);
+    }
+
+    // file name and line number, then the line itself
+    private String describe(FileSearch.Hit hit){
+        Path file = hit.getFile().toPath();
+        String name = searchedFolder != null && file.startsWith(searchedFolder) ?
+                searchedFolder.relativize(file).toString() : file.toString();
+        return name + ":" + (hit.getLine() + 1) + ": " + hit.getText();
+    }
+
+    public void showDialog(){
+        String selection = source.getTextArea().getSelectedText();
+        if(selection != null && !selection.isEmpty() && selection.length() <= 256 && selection.indexOf('\n') < 0){
+            findField.setText(selection);
+        }
+
+        setVisible(true);
+        findField.requestFocusInWindow();
+        findField.selectAll();
+    }
+
+    private void startSearch(){
+        stopSearch();
+        hits.clear();
+
+        if(findField.getText().isEmpty()) return;
+
+        File folder = new File(folderField.getText());
+        if(!folder.isDirectory()){
+            statusLabel.setText(folder + " is not a folder");
+            return;
+        }
+
+        TextSearch search;
+        try{
+            search = new TextSearch(findField.getText(), matchCaseBox.isSelected(), regexBox.isSelected());
+        }catch(PatternSyntaxException e){
+            statusLabel.setText("Invalid pattern: " + e.getDescription());
+            return;
+        }
+
+        searchedFolder = folder.toPath();
+        findButton.setText("Stop");
+        statusLabel.setText("Searching...");
+
+        searchWorker = new SearchWorker(folder, search);
+        searchWorker.execute();
+    }
+
+    private void stopSearch(){
+        if(searchWorker == null) return;
+
+        // the files that are being searched stop right away, the list keeps what was found so far
+        searchWorker.stop();
+        searchWorker = null;
+
+        findButton.setText("Find");
+        statusLabel.setText(hits.size() + " lines found, stopped");
+    }
+
+    // runs the search in the background and moves its hits over to the list
+    private class SearchWorker extends SwingWorker<Void, FileSearch.Hit> {
+        private final FileSearch fileSearch;
+        private int found;
+
+        private SearchWorker(File folder, TextSearch search){
+            fileSearch = new FileSearch(folder.toPath(), search, this::found);
+        }
+
+        // hits are handed over by all the threads of the search
+        private synchronized void found(List<FileSearch.Hit> fileHits){
+            if(found >= MAX_HITS) return;
+
+            List<FileSearch.Hit> kept = fileHits.subList(0, Math.min(fileHits.size(), MAX_HITS - found));
+            found += kept.size();
+            publish(kept.toArray(new FileSearch.Hit[0]));
+            if(found >= MAX_HITS) fileSearch.cancel();
+        }
+
+        private void stop(){
+            fileSearch.cancel();
+            cancel(true);
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            fileSearch.run();
+            return null;
+        }
+
+        @Override
+        protected void process(List<FileSearch.Hit> chunks) {
+            if(searchWorker != this) return;
+
+            // one update of the list for all the hits that came in since the last one
+            hits.addAll(chunks);
+            statusLabel.setText(hits.size() + " lines found in " + fileSearch.getFilesSearched() + " files searched");
+        }
+
+        @Override
+        protected void done() {
+            if(searchWorker != this) return;
+            searchWorker = null;
+            findButton.setText("Find");
+
+            String summary = hits.size() + " lines found in " + fileSearch.getFilesSearched() + " files";
+            if(hits.size() >= MAX_HITS){
+                statusLabel.setText(summary + ", stopped after " + MAX_HITS + " lines");
+                return;
+            }
+
+            try{
+                get();
+                statusLabel.setText(summary);
+            }catch(InterruptedException | ExecutionException e){
+                statusLabel.setText("Search failed: " + e.getCause());
+            }
+        }
+    }
+
+    private void openSelectedHit(){
+        FileSearch.Hit hit = hitList.getSelectedValue();
+        if(hit == null) return;
+
+        source.openFileAt(hit.getFile(), hit.getLine(), hit.getColumn(), hit.getLength());
+    }
+}
@@ -0,0 +1,113 @@
+package notepad;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// keeps the fonts that were created recently, creating a font and measuring its glyphs the first time is slow, and
+// the names of font families drawn in their own face for the font menu. both are kept in lru caches
+public class FontCache {
+    private static final int MAX_FONTS = 64;
+    private static final int MAX_PREVIEWS = 512;
+
+    // the size that font names are drawn at in the font menu
+    private static final int PREVIEW_SIZE = 13;
+
+    private static final Map<String, Font> fonts = new LinkedHashMap<String, Font>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Font> eldest) {
+            return size() > MAX_FONTS;
+        }
+    };
+
+    private static final Map<String, BufferedImage> previews = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+            return size() > MAX_PREVIEWS;
+        }
+    };
+
+    // font names that are being drawn right now
+    private static final Set<String> pendingPreviews = new HashSet<>();
+
+    private static final ExecutorService previewRenderer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "font-previews");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public static synchronized Font getFont(String name, int style, int size){
+        String key = name + "-" + style + "-" + size;
+        Font font = fonts.get(key);
+        if(font == null){
+            font = new Font(name, style, size);
+            fonts.put(key, font);
+        }
+        return font;
+    }
+
+    // the font in another size, the same font object is handed out for the same size every time
+    public static Font derive(Font font, int size){
+        if(font.getSize() == size) return font;
+        return getFont(font.getName(), font.getStyle(), size);
+    }
+
+    // the name of the font family drawn in its own face, or null if it has not been drawn yet. in that case it is
+    // drawn in the background and onReady is run on the edt once it is there
+    public static BufferedImage getPreview(String family, Runnable onReady){
+        synchronized(FontCache.class){
+            BufferedImage preview = previews.get(family);
+            if(preview != null || !pendingPreviews.add(family)) return preview;
+        }
+
+        previewRenderer.execute(new Runnable() {
+            @Override
+            public void run() {
+                BufferedImage preview = renderPreview(family);
+                synchronized(FontCache.class){
+                    previews.put(family, preview);
+                    pendingPreviews.remove(family);
+                }
+                SwingUtilities.invokeLater(onReady);
+            }
+        });
+        return null;
+    }
+
+    private static BufferedImage renderPreview(String family){
+        Font font = getFont(family, Font.PLAIN, PREVIEW_SIZE);
+
+        // symbol fonts can not show their own name, those are drawn in the default font
+        if(font.canDisplayUpTo(family) != -1) font = getFont(Font.DIALOG, Font.PLAIN, PREVIEW_SIZE);
+
+        FontRenderContext context = new FontRenderContext(null, true, true);
+        Rectangle2D bounds = font.getStringBounds(family, context);
+        int width = Math.max(1, (int) Math.ceil(bounds.getWidth()));
+        int height = Math.max(1, (int) Math.ceil(bounds.getHeight()));
+
+        BufferedImage preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = preview.createGraphics();
+        try{
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g.setFont(font);
+            g.setColor(Color.BLACK);
+            g.drawString(family, 0, (float) -bounds.getY());
+        }finally{
+            g.dispose();
+        }
+        return preview;
+    }
+}
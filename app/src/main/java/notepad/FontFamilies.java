@@ -0,0 +1,36 @@
+package notepad;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// the names of the installed font families. asking for them can take seconds on machines with thousands of fonts,
+// so they are looked up once in the background and kept for as long as the notepad runs
+public class FontFamilies {
+    private static CompletableFuture<String[]> families;
+
+    // starts looking up the font families if that has not happened yet
+    public static synchronized CompletableFuture<String[]> load(){
+        if(families == null){
+            families = CompletableFuture.supplyAsync(() -> {
+                Diagnostics.Operation operation = Diagnostics.begin("load font families", "families");
+                String[] names = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+                operation.end(names.length);
+                return names;
+            });
+        }
+        return families;
+    }
+
+    // gives the font families to the consumer on the edt, right away if they have been looked up already
+    public static void whenLoaded(Consumer<String[]> consumer){
+        CompletableFuture<String[]> families = load();
+        if(families.isDone() && SwingUtilities.isEventDispatchThread()){
+            consumer.accept(families.join());
+            return;
+        }
+
+        families.thenAccept(names -> SwingUtilities.invokeLater(() -> consumer.accept(names)));
+    }
+}
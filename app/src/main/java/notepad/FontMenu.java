@@ -0,0 +1,472 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+public class FontMenu extends JDialog {
+    // will need reference to our gui to make changes to the gui from this class
+    private NotepadGUI source;
+
+    private JTextField currentFontField, currentFontStyleField, currentFontSizeField;
+    private JPanel currentColorBox;
+    private JList<String> fontList;
+    private FilteredListModel fontListModel;
+    private JLabel sampleLabel;
+    private JButton applyButton;
+
+    // set while a font picked from the list is put into the font field
+    private boolean choosingFont;
+
+    public FontMenu(NotepadGUI source){
+        this.source = source;
+        setTitle("Font Settings");
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE); // disposes used resources once closed
+        setSize(425, 350);
+        setLocationRelativeTo(source); // launches the menu at center of our notepad gui
+        setModal(true);
+
+        // removes layout management, giving us more control on the placement of our gui components
+        setLayout(null);
+
+        addMenuComponents();
+    }
+
+    private void addMenuComponents(){
+        addFontChooser();
+        addFontStyleChooser();
+        addFontSizeChooser();
+        addFontColorChooser();
+        addSamplePane();
+
+        // action buttons
+
+        // apply the changes to the font
+        applyButton = new JButton("Apply");
+        applyButton.setBounds(230, 265, 75, 25);
+        applyButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Font newFont = getChosenFont();
+                if(newFont == null) return;
+
+                // get font color
+                Color fontColor = currentColorBox.getBackground();
+
+                // update text area font, a new font makes the text area lay out all of its text again so that only
+                // happens when the font is a different one
+                JTextArea textArea = source.getTextArea();
+                if(!newFont.equals(textArea.getFont())){
+                    Diagnostics.Operation operation = Diagnostics.begin("change font", "characters");
+                    textArea.setFont(newFont);
+                    operation.end(textArea.getDocument().getLength());
+                }
+
+                // update text area font color
+                if(!fontColor.equals(textArea.getForeground())) textArea.setForeground(fontColor);
+
+                // dispose menu
+                FontMenu.this.dispose();
+            }
+        });
+        add(applyButton);
+
+        // cancel button (exits menu)
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setBounds(315, 265, 75, 25);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // dispose menu
+                FontMenu.this.dispose();
+            }
+        });
+        add(cancelButton);
+
+        chosenFontChanged();
+    }
+
+    // shows the chosen font in the sample, apply is only possible while the fields make a font
+    private void chosenFontChanged(){
+        if(sampleLabel == null || applyButton == null) return;
+
+        Font font = getChosenFont();
+        if(font != null) sampleLabel.setFont(font);
+        applyButton.setEnabled(font != null);
+    }
+
+    // the family picked from the list, or the only one left in it. typed text is only a family when it is the whole
+    // name of one, anything else would quietly become the default font
+    private String getChosenFamily(){
+        String selected = fontList.getSelectedValue();
+        if(selected != null) return selected;
+        if(fontListModel.getSize() == 1) return fontListModel.getElementAt(0);
+
+        String typed = currentFontField.getText().trim();
+        String family = fontListModel.find(typed);
+        if(family != null) return family;
+
+        // the families may still be looked up, the font that is in use is known to be one
+        String current = source.getTextArea().getFont().getFamily();
+        return current.equalsIgnoreCase(typed) ? current : null;
+    }
+
+    // the font picked in the menu, fonts are taken from the cache so the same font is the same object. null while the
+    // fields do not make a font, like while the typed family is not one or while setting a field's text empties it
+    // for a moment before the new text goes in
+    private Font getChosenFont(){
+        // get current font type
+        String fontType = getChosenFamily();
+        if(fontType == null) return null;
+
+        // get font style
+        int fontStyle;
+        switch(currentFontStyleField.getText()){
+            case "Plain":
+                fontStyle = Font.PLAIN;
+                break;
+            case "Bold":
+                fontStyle = Font.BOLD;
+                break;
+            case "Italic":
+                fontStyle = Font.ITALIC;
+                break;
+            default: // bold italic
+                fontStyle = Font.BOLD | Font.ITALIC;
+                break;
+        }
+
+        // get font size
+        int fontSize;
+        try{
+            fontSize = Integer.parseInt(currentFontSizeField.getText());
+        }catch(NumberFormatException e){
+            return null;
+        }
+
+        return FontCache.getFont(fontType, fontStyle, fontSize);
+    }
+
+    // shows some text in the chosen font, updated whenever one of the fields changes
+    private void addSamplePane(){
+        sampleLabel = new JLabel("AaBbYyZz 123", SwingConstants.CENTER);
+        sampleLabel.setBounds(215, 190, 185, 65);
+        sampleLabel.setBorder(BorderFactory.createTitledBorder("Sample"));
+        sampleLabel.setForeground(currentColorBox.getBackground());
+        add(sampleLabel);
+
+        DocumentListener sampleUpdater = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                chosenFontChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                chosenFontChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        };
+        currentFontField.getDocument().addDocumentListener(sampleUpdater);
+        currentFontStyleField.getDocument().addDocumentListener(sampleUpdater);
+        currentFontSizeField.getDocument().addDocumentListener(sampleUpdater);
+
+        currentColorBox.addPropertyChangeListener("background", new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                sampleLabel.setForeground(currentColorBox.getBackground());
+            }
+        });
+    }
+
+    private void addFontChooser(){
+        JLabel fontLabel = new JLabel("Font:");
+        fontLabel.setBounds(10, 5, 125, 10);
+        add(fontLabel);
+
+        // font panel will display the current font and the list of fonts available to choose from
+        JPanel fontPanel = new JPanel();
+        fontPanel.setBounds(10, 15, 125, 160);
+
+        // display current font, typing into it narrows down the list of fonts
+        currentFontField = new JTextField(source.getTextArea().getFont().getFamily());
+        currentFontField.setPreferredSize(new Dimension(125, 25));
+        fontPanel.add(currentFontField);
+
+        // display list of available fonts, the list only creates what is needed to paint the rows on the screen
+        fontListModel = new FilteredListModel();
+        fontList = new JList<>(fontListModel);
+        fontList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        fontList.setPrototypeCellValue("Sample Font Family");
+        fontList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                          boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+
+                // each font is shown in its own face once it has been drawn in the background
+                BufferedImage preview = FontCache.getPreview((String) value, new Runnable() {
+                    @Override
+                    public void run() {
+                        list.repaint();
+                    }
+                });
+                if(preview != null){
+                    setIcon(new ImageIcon(preview));
+                    setText(null);
+                }
+                return this;
+            }
+        });
+        fontList.addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                // when clicked set currentFontField to font name
+                String fontName = fontList.getSelectedValue();
+                chosenFontChanged();
+                if(fontName == null || fontName.equals(currentFontField.getText())) return;
+
+                choosingFont = true;
+                currentFontField.setText(fontName);
+                choosingFont = false;
+            }
+        });
+
+        currentFontField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterFonts();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterFonts();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+
+            private void filterFonts(){
+                // picking a font from the list should not narrow the list down to that font
+                if(choosingFont) return;
+
+                fontList.clearSelection();
+                fontListModel.setFilter(currentFontField.getText());
+
+                // the family can only be chosen once the list is narrowed down
+                chosenFontChanged();
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(fontList);
+        scrollPane.setPreferredSize(new Dimension(125, 125));
+        fontPanel.add(scrollPane);
+
+        // the fonts are looked up in the background, the list fills up once they are there
+        fontList.setEnabled(false);
+        FontFamilies.whenLoaded(new Consumer<String[]>() {
+            @Override
+            public void accept(String[] fontNames) {
+                fontListModel.setItems(fontNames);
+                fontList.setEnabled(true);
+                fontList.setSelectedValue(source.getTextArea().getFont().getFamily(), true);
+                chosenFontChanged();
+            }
+        });
+
+        add(fontPanel);
+    }
+
+    private void addFontStyleChooser(){
+        JLabel fontStyleLabel = new JLabel("Font Style:");
+        fontStyleLabel.setBounds(145, 5, 125, 10);
+        add(fontStyleLabel);
+
+        // will display the current font style and all available font styles
+        JPanel fontStylePanel = new JPanel();
+        fontStylePanel.setBounds(145, 15, 125, 160);
+
+        // get current font style
+        int currentFontStyle = source.getTextArea().getFont().getStyle();
+        String currentFontStyleText;
+
+        switch(currentFontStyle){
+            case Font.PLAIN:
+                currentFontStyleText = "Plain";
+                break;
+            case Font.BOLD:
+                currentFontStyleText = "Bold";
+                break;
+            case Font.ITALIC:
+                currentFontStyleText = "Italic";
+                break;
+            default: // bold italic
+                currentFontStyleText = "Bold Italic";
+                break;
+        }
+
+        currentFontStyleField = new JTextField(currentFontStyleText);
+        currentFontStyleField.setPreferredSize(new Dimension(125, 25));
+        currentFontStyleField.setEditable(false);
+        fontStylePanel.add(currentFontStyleField);
+
+        // display list of all font style available, each one is shown in its own style
+        JList<String> fontStyleList = new JList<>(new String[]{"Plain", "Bold", "Italic", "Bold Italic"});
+        fontStyleList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        fontStyleList.setCellRenderer(new DefaultListCellRenderer() {
+            private final Font[] styleFonts = {
+                    new Font("Dialog", Font.PLAIN, 12),
+                    new Font("Dialog", Font.BOLD, 12),
+                    new Font("Dialog", Font.ITALIC, 12),
+                    new Font("Dialog", Font.BOLD | Font.ITALIC, 12)
+            };
+
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                          boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                setFont(styleFonts[index]);
+                return this;
+            }
+        });
+        fontStyleList.setSelectedValue(currentFontStyleText, false);
+        fontStyleList.addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                // update the current style field
+                if(fontStyleList.getSelectedValue() != null) currentFontStyleField.setText(fontStyleList.getSelectedValue());
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(fontStyleList);
+        scrollPane.setPreferredSize(new Dimension(125,125));
+        fontStylePanel.add(scrollPane);
+
+        add(fontStylePanel);
+    }
+
+    private void addFontSizeChooser(){
+        JLabel fontSizeLabel= new JLabel("Font Size: ");
+        fontSizeLabel.setBounds(275, 5, 125, 10);
+        add(fontSizeLabel);
+
+        // display the current font size and list of font sizes to choose from
+        JPanel fontSizePanel = new JPanel();
+        fontSizePanel.setBounds(275, 15, 125, 160);
+
+        currentFontSizeField = new JTextField(
+                Integer.toString(source.getTextArea().getFont().getSize())
+        );
+        currentFontSizeField.setPreferredSize(new Dimension(125, 25));
+        currentFontSizeField.setEditable(false);
+        fontSizePanel.add(currentFontSizeField);
+
+        // list of available font sizes will be from 8 -> 72 with increments of 2
+        DefaultListModel<String> fontSizes = new DefaultListModel<>();
+        for(int i = 8; i <= 72; i+= 2){
+            fontSizes.addElement(Integer.toString(i));
+        }
+
+        JList<String> fontSizeList = new JList<>(fontSizes);
+        fontSizeList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        fontSizeList.setSelectedValue(currentFontSizeField.getText(), false);
+        fontSizeList.addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                // update current font size field
+                if(fontSizeList.getSelectedValue() != null) currentFontSizeField.setText(fontSizeList.getSelectedValue());
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(fontSizeList);
+        scrollPane.setPreferredSize(new Dimension(125, 125));
+        fontSizePanel.add(scrollPane);
+
+        add(fontSizePanel);
+    }
+
+    private void addFontColorChooser(){
+        // display to the user the current color of the text
+        currentColorBox = new JPanel();
+        currentColorBox.setBounds(175, 200, 23, 23);
+        currentColorBox.setBackground(source.getTextArea().getForeground());
+        currentColorBox.setBorder(BorderFactory.createLineBorder(Color.BLACK));
+        add(currentColorBox);
+
+        JButton chooseColorButton = new JButton("Choose Color");
+        chooseColorButton.setBounds(10, 200, 150, 25);
+        chooseColorButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Color c = JColorChooser.showDialog(FontMenu.this, "Select a color", Color.BLACK);
+
+                // update color to selected color
+                currentColorBox.setBackground(c);
+            }
+        });
+        add(chooseColorButton);
+    }
+
+    // the font names that contain the text typed into the font field
+    private static class FilteredListModel extends AbstractListModel<String> {
+        private String[] items = new String[0];
+        private List<String> shown = new ArrayList<>();
+        private String filter = "";
+
+        private void setItems(String[] items){
+            this.items = items;
+            update();
+        }
+
+        // the family with this name, ignoring case, or null if there is none
+        private String find(String name){
+            for(String item : items){
+                if(item.equalsIgnoreCase(name)) return item;
+            }
+            return null;
+        }
+
+        private void setFilter(String filter){
+            this.filter = filter.trim().toLowerCase(Locale.ROOT);
+            update();
+        }
+
+        private void update(){
+            int oldSize = shown.size();
+            List<String> matching = new ArrayList<>();
+            for(String item : items){
+                if(item.toLowerCase(Locale.ROOT).contains(filter)) matching.add(item);
+            }
+            shown = matching;
+
+            if(oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+            if(!shown.isEmpty()) fireIntervalAdded(this, 0, shown.size() - 1);
+        }
+
+        @Override
+        public int getSize() {
+            return shown.size();
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return shown.get(index);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package notepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.ViewFactory;
+import java.awt.*;
+
+// view for text that is not wrapped, with the colors of the document's SyntaxHighlighter. swing's PlainView measures
+// every line to find the longest one, again for each view of the document, so this one paints like a LargeFileView
+// and takes its width from the longest line that the document's LineIndex keeps, which all views of it share. an edit
+// only repaints the line it changed, or the lines from there down when lines were added or removed
+public class HighlightedView extends LargeFileView {
+    public HighlightedView(Element elem) {
+        super(elem);
+    }
+
+    @Override
+    protected float drawText(Graphics2D g, float x, float y, int p0, int p1) throws BadLocationException {
+        SyntaxHighlighter highlighter = SyntaxHighlighter.of(getDocument());
+        Container host = getContainer();
+        if(highlighter == null || !host.isEnabled()) return super.drawText(g, x, y, p0, p1);
+
+        g.setColor(host.getForeground());
+        return highlighter.drawText(host, g, x, y, p0, p1, this);
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        documentChanged(e, a);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        documentChanged(e, a);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        documentChanged(e, a);
+    }
+
+    private void documentChanged(DocumentEvent e, Shape a){
+        Container host = getContainer();
+        if(host == null || a == null) return;
+
+        Rectangle alloc = a.getBounds();
+        Element root = getElement();
+        int lineHeight = getLineHeight();
+        int top = alloc.y + root.getElementIndex(e.getOffset()) * lineHeight;
+
+        if(e.getChange(root) != null){
+            preferenceChanged(null, true, true);
+            host.repaint(alloc.x, top, alloc.width, alloc.y + alloc.height - top);
+        }else{
+            // the lines may have become the longest one or stopped being it, a batch can change many of them at once
+            int lines = 1;
+            if(e.getType() == DocumentEvent.EventType.INSERT){
+                lines += root.getElementIndex(e.getOffset() + e.getLength()) - root.getElementIndex(e.getOffset());
+            }
+            preferenceChanged(null, true, false);
+            host.repaint(alloc.x, top, alloc.width, lines * lineHeight);
+        }
+    }
+}
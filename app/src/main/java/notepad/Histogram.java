@@ -0,0 +1,70 @@
+package notepad;
+
+import java.util.Arrays;
+
+// counts how long something took in buckets that are twice as wide as the one before, together with the total and
+// the longest time. it can be recorded to from any thread
+public class Histogram {
+    // the upper bounds of the buckets in milliseconds, the last bucket takes everything that is longer
+    private static final long[] BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048};
+
+    private final long[] counts = new long[BOUNDS.length + 1];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    public synchronized void record(long nanos){
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while(bucket < BOUNDS.length && millis >= BOUNDS[bucket]) bucket++;
+        counts[bucket]++;
+
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public synchronized void reset(){
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    // a copy that does not change while it is being looked at
+    public synchronized Histogram copy(){
+        Histogram copy = new Histogram();
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.count = count;
+        copy.totalNanos = totalNanos;
+        copy.maxNanos = maxNanos;
+        return copy;
+    }
+
+    public synchronized long getCount(){return count;}
+    public synchronized long getTotalNanos(){return totalNanos;}
+    public synchronized long getMaxNanos(){return maxNanos;}
+
+    public int getBucketCount(){return counts.length;}
+    public synchronized long getBucket(int bucket){return counts[bucket];}
+
+    // like "4-8 ms" or "2048+ ms"
+    public static String getBucketName(int bucket){
+        if(bucket == 0) return "<" + BOUNDS[0] + " ms";
+        if(bucket == BOUNDS.length) return BOUNDS[bucket - 1] + "+ ms";
+        return BOUNDS[bucket - 1] + "-" + BOUNDS[bucket] + " ms";
+    }
+
+    public synchronized String toJson(){
+        StringBuilder json = new StringBuilder();
+        json.append("{\"count\": ").append(count)
+                .append(", \"totalMs\": ").append(totalNanos / 1_000_000)
+                .append(", \"maxMs\": ").append(maxNanos / 1_000_000)
+                .append(", \"buckets\": {");
+        for(int i = 0; i < counts.length; i++){
+            if(i > 0) json.append(", ");
+            json.append('"').append(getBucketName(i)).append("\": ").append(counts[i]);
+        }
+        return json.append("}}").toString();
+    }
+}
@@ -0,0 +1,71 @@
+package notepad;
+
+// json, together with the // and /* */ comments that many json files (like settings files) have anyway. strings that
+// are followed by a colon are keys
+public class JsonLexer extends Lexer {
+    // the line starts inside of a /* */ comment
+    private static final int IN_COMMENT = 1;
+
+    @Override
+    public int lex(char[] text, int start, int end, int state, Tokens tokens){
+        int i = start;
+        if(state == IN_COMMENT){
+            i = comment(text, start, i, i, end, tokens);
+            if(i < 0) return IN_COMMENT;
+        }
+
+        while(i < end){
+            char c = text[i];
+            if(c == '"'){
+                int stringEnd = stringEnd(text, i, end, true);
+                int next = skipSpaces(text, stringEnd, end);
+                tokens.add(i - start, stringEnd - i, next < end && text[next] == ':' ? TokenType.KEY : TokenType.STRING);
+                i = stringEnd;
+            }else if(c == '-' || Character.isDigit(c)){
+                int wordEnd = wordEnd(text, i, end);
+                tokens.add(i - start, wordEnd - i, TokenType.NUMBER);
+                i = wordEnd;
+            }else if(Character.isLetter(c)){
+                int wordEnd = wordEnd(text, i, end);
+                if(isKeyword(text, i, wordEnd)) tokens.add(i - start, wordEnd - i, TokenType.KEYWORD);
+                i = wordEnd;
+            }else if(c == '/' && i + 1 < end && text[i + 1] == '/'){
+                tokens.add(i - start, end - i, TokenType.COMMENT);
+                return 0;
+            }else if(c == '/' && i + 1 < end && text[i + 1] == '*'){
+                i = comment(text, start, i, i + 2, end, tokens);
+                if(i < 0) return IN_COMMENT;
+            }else{
+                if(c == '{' || c == '}' || c == '[' || c == ']' || c == ':' || c == ','){
+                    tokens.add(i - start, 1, TokenType.PUNCTUATION);
+                }
+                i++;
+            }
+        }
+        return 0;
+    }
+
+    // adds the comment that starts at from and returns where it ends, or -1 if it goes on on the next line. the end of
+    // the comment is looked for from search on, after the "/*" that opened it
+    private static int comment(char[] text, int start, int from, int search, int end, Tokens tokens){
+        int close = indexOf(text, search, end, "*/");
+        if(close < 0){
+            tokens.add(from - start, end - from, TokenType.COMMENT);
+            return -1;
+        }
+        tokens.add(from - start, close + 2 - from, TokenType.COMMENT);
+        return close + 2;
+    }
+
+    private static int wordEnd(char[] text, int from, int end){
+        int i = from + 1;
+        while(i < end && (Character.isLetterOrDigit(text[i]) || text[i] == '.' || text[i] == '-' || text[i] == '+')) i++;
+        return i;
+    }
+
+    private static boolean isKeyword(char[] text, int from, int end){
+        int length = end - from;
+        return length == 4 && (startsWith(text, from, end, "true") || startsWith(text, from, end, "null"))
+                || length == 5 && startsWith(text, from, end, "false");
+    }
+}
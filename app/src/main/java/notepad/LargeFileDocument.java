@@ -0,0 +1,669 @@
+package notepad;
+
+import javax.swing.event.DocumentListener;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.text.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+// read-only document that is backed by a memory mapped file instead of a char array on the heap, the file is split
+// into pages and only the pages near the part of the file that is being looked at get decoded. the decoded pages are
+// kept in a small lru cache so the heap usage stays the same no matter how big the file is. like TextFileReader the
+// charset is detected from the start of the file and "\r\n" and "\r" line endings are turned into "\n"
+public class LargeFileDocument implements Document {
+    // amount of bytes in a page, pages are shortened a little so they never split a character or a "\r\n"
+    private static final int PAGE_SIZE = 64 * 1024;
+
+    // a single mapping can be at most 2 GB, so the file is mapped in regions
+    private static final long REGION_SIZE = 1L << 30;
+
+    private static final int MAX_CACHED_PAGES = 64;
+
+    // document offsets are ints, the rest of a file that is larger than this is not shown
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 2;
+
+    // the file is only ever shown with this tab size, the longest line is measured with it
+    private static final int TAB_SIZE = 8;
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+
+    // how the file is stored, the line separator is the one it uses the most
+    private TextEncoding encoding;
+
+    // where the text starts in the file, after the byte order mark
+    private final long textStart;
+
+    // the bytes of "\r" and "\n" in the charset of the file, and how many bytes its characters take up at least.
+    // utf-16 and utf-32 pages end on a whole code unit
+    private final byte[] carriageReturn;
+    private final byte[] lineFeed;
+    private final int unitSize;
+
+    // for every page: where it starts in the file, the offset of its first character in the document and the
+    // amount of lines that start before it. each array has one extra entry at the end for the end of the document
+    private long[] pageByteStart;
+    private int[] pageCharStart;
+    private int[] pageLineStart;
+    private int pageCount;
+
+    private int length;
+    private int lineCount;
+    private int longestLineLength;
+    private boolean truncated;
+
+    private final LinkedHashMap<Integer, Page> pageCache = new LinkedHashMap<Integer, Page>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    private final CharsetDecoder decoder;
+    private final byte[] pageBytes = new byte[PAGE_SIZE];
+
+    private final Element rootElement = new RootElement();
+    private final Dictionary<Object, Object> properties = new Hashtable<>();
+    private final List<DocumentListener> documentListeners = new ArrayList<>();
+    private final List<UndoableEditListener> undoableEditListeners = new ArrayList<>();
+
+    // maps the file and builds the page index, this reads through the whole file once so it should be called off
+    // the edt. progress is reported as a percentage and the indexing stops if the calling thread gets interrupted
+    public LargeFileDocument(File file, IntConsumer progress) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try{
+            long size = channel.size();
+            regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+            for(int i = 0; i < regions.length; i++){
+                long start = i * REGION_SIZE;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+            }
+
+            // the charset is detected from the first page, the byte order mark is not part of the text
+            int detectLength = (int) Math.min(PAGE_SIZE, size);
+            if(detectLength > 0) regions[0].get(0, pageBytes, 0, detectLength);
+            encoding = TextEncoding.detect(ByteBuffer.wrap(pageBytes, 0, detectLength));
+            textStart = encoding.getByteOrderMarkLength();
+
+            Charset charset = encoding.getCharset();
+            carriageReturn = "\r".getBytes(charset);
+            lineFeed = "\n".getBytes(charset);
+            unitSize = lineFeed.length;
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            buildIndex(size, progress);
+        }catch(IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+
+        putProperty(Document.StreamDescriptionProperty, file);
+        putProperty(Document.TitleProperty, file.getName());
+        putProperty(PlainDocument.tabSizeAttribute, TAB_SIZE);
+    }
+
+    public File getFile(){return file;}
+
+    // the detected charset and the line separator the file uses the most
+    public TextEncoding getEncoding(){return encoding;}
+
+    // the length of the longest line in columns with its tabs expanded, used by the view to work out its width without reading every line
+    public int getLongestLineLength(){return longestLineLength;}
+
+    // true when the file has more text than a document can hold and only the first part of it is shown
+    public boolean isTruncated(){return truncated;}
+
+    // estimated amount of heap held by the page index and the decoded pages, the mapped file itself is not on the heap
+    public long getMemoryUsage(){
+        synchronized(pageCache){
+            return pageCount * 20L + pageCache.size() * (PAGE_SIZE * 2L);
+        }
+    }
+
+    // releases the file, the mapped memory itself is released by the garbage collector
+    public void close(){
+        synchronized(pageCache){
+            pageCache.clear();
+        }
+
+        try{
+            channel.close();
+        }catch(IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    private void buildIndex(long size, IntConsumer progress) throws IOException {
+        int estimatedPages = (int) Math.min(Integer.MAX_VALUE - 1, size / PAGE_SIZE + 2);
+        pageByteStart = new long[estimatedPages + 1];
+        pageCharStart = new int[estimatedPages + 1];
+        pageLineStart = new int[estimatedPages + 1];
+
+        CharBuffer chars = CharBuffer.allocate(PAGE_SIZE);
+        long position = textStart;
+        int charCount = 0;
+        int lineBreaks = 0;
+        int currentLineLength = 0;
+        int lastProgress = -1;
+        long lineFeeds = 0;
+        long carriageReturns = 0;
+        long carriageReturnLineFeeds = 0;
+
+        while(position < size && !truncated){
+            if(Thread.interrupted()) throw new InterruptedIOException("indexing of " + file.getName() + " was cancelled");
+
+            long end = pageEnd(position, size);
+            chars.clear();
+            decodePage(position, end, chars);
+            chars.flip();
+
+            // counts the characters the way getPage leaves them, with a "\r\n" as one "\n"
+            addPage(position, charCount, lineBreaks);
+            char previous = 0;
+            while(chars.hasRemaining()){
+                char c = chars.get();
+                if(c == '\n' && previous == '\r'){
+                    carriageReturns--;
+                    carriageReturnLineFeeds++;
+                    previous = c;
+                    continue;
+                }
+                previous = c;
+
+                // stop at the largest amount of text a document can hold
+                if(charCount == MAX_LENGTH){
+                    truncated = true;
+                    break;
+                }
+                charCount++;
+
+                if(c == '\n' || c == '\r'){
+                    if(c == '\n') lineFeeds++; else carriageReturns++;
+                    lineBreaks++;
+                    longestLineLength = Math.max(longestLineLength, currentLineLength);
+                    currentLineLength = 0;
+                }else if(c == '\t'){
+                    currentLineLength += TAB_SIZE - currentLineLength % TAB_SIZE;
+                }else{
+                    currentLineLength++;
+                }
+            }
+            position = end;
+
+            int percent = (int) (position * 100 / size);
+            if(percent != lastProgress){
+                lastProgress = percent;
+                progress.accept(Math.min(100, percent));
+            }
+        }
+
+        longestLineLength = Math.max(longestLineLength, currentLineLength);
+        length = charCount;
+        lineCount = lineBreaks + 1;
+
+        if(carriageReturnLineFeeds > 0 || carriageReturns > 0 || lineFeeds > 0){
+            if(carriageReturnLineFeeds >= lineFeeds && carriageReturnLineFeeds >= carriageReturns){
+                encoding = encoding.withLineSeparator("\r\n");
+            }else{
+                encoding = encoding.withLineSeparator(carriageReturns > lineFeeds ? "\r" : "\n");
+            }
+        }
+
+        // closing entry that marks the end of the document
+        pageByteStart[pageCount] = position;
+        pageCharStart[pageCount] = charCount;
+        pageLineStart[pageCount] = lineBreaks;
+    }
+
+    private void addPage(long byteStart, int charStart, int lineStart){
+        if(pageCount + 1 >= pageByteStart.length){
+            int capacity = pageByteStart.length * 2;
+            pageByteStart = Arrays.copyOf(pageByteStart, capacity);
+            pageCharStart = Arrays.copyOf(pageCharStart, capacity);
+            pageLineStart = Arrays.copyOf(pageLineStart, capacity);
+        }
+
+        pageByteStart[pageCount] = byteStart;
+        pageCharStart[pageCount] = charStart;
+        pageLineStart[pageCount] = lineStart;
+        pageCount++;
+    }
+
+    // moves the end of a page back to the start of a character so that characters are never split between pages, and
+    // in front of the "\r" of a "\r\n" so that the pair is one line break on a single page
+    private long pageEnd(long start, long size){
+        long end = Math.min(start + PAGE_SIZE, size);
+        if(end == size) return end;
+
+        Charset charset = encoding.getCharset();
+        if(unitSize > 1){
+            // whole code units, and the two halves of a surrogate pair of utf-16 stay together
+            end -= (end - textStart) % unitSize;
+            if(unitSize == 2){
+                boolean littleEndian = charset.equals(StandardCharsets.UTF_16LE);
+                char last = (char) (littleEndian ? (byteAt(end - 1) & 0xFF) << 8 | byteAt(end - 2) & 0xFF :
+                        (byteAt(end - 2) & 0xFF) << 8 | byteAt(end - 1) & 0xFF);
+                if(Character.isHighSurrogate(last)) end -= 2;
+            }
+        }else if(charset.equals(StandardCharsets.UTF_8)){
+            long limit = Math.max(start + 1, end - 3);
+            while(end > limit && (byteAt(end) & 0xC0) == 0x80){
+                end--;
+            }
+        }else if(charset.newEncoder().maxBytesPerChar() > 1){
+            // the bytes of a character of a legacy multibyte charset can not be told apart from its start, but none
+            // of them is a line feed. a page without one is split where it is
+            long lineEnd = end;
+            while(lineEnd > start + 1 && byteAt(lineEnd - 1) != '\n') lineEnd--;
+            if(lineEnd > start + 1) end = lineEnd;
+        }
+
+        if(end - start > carriageReturn.length && endsWith(end, carriageReturn) && startsWith(end, lineFeed, size)){
+            end -= carriageReturn.length;
+        }
+        return end;
+    }
+
+    private boolean endsWith(long end, byte[] bytes){
+        for(int i = 0; i < bytes.length; i++){
+            if(byteAt(end - bytes.length + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean startsWith(long start, byte[] bytes, long size){
+        if(start + bytes.length > size) return false;
+        for(int i = 0; i < bytes.length; i++){
+            if(byteAt(start + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    private byte byteAt(long position){
+        return regions[(int) (position / REGION_SIZE)].get((int) (position % REGION_SIZE));
+    }
+
+    // decodes the bytes between start and end into the given buffer, must only be called by one thread at a time
+    private void decodePage(long start, long end, CharBuffer out){
+        int count = (int) (end - start);
+        int region = (int) (start / REGION_SIZE);
+        int offset = (int) (start % REGION_SIZE);
+
+        // a page can reach a few bytes into the next region
+        int firstPart = Math.min(count, regions[region].capacity() - offset);
+        regions[region].get(offset, pageBytes, 0, firstPart);
+        if(firstPart < count) regions[region + 1].get(0, pageBytes, firstPart, count - firstPart);
+
+        decoder.reset();
+        ByteBuffer in = ByteBuffer.wrap(pageBytes, 0, count);
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+    }
+
+    private Page getPage(int index){
+        synchronized(pageCache){
+            Page page = pageCache.get(index);
+            if(page != null) return page;
+
+            int charCount = pageCharStart[index + 1] - pageCharStart[index];
+            CharBuffer chars = CharBuffer.allocate(PAGE_SIZE);
+            decodePage(pageByteStart[index], pageByteStart[index + 1], chars);
+            normalizeLineBreaks(chars.array(), chars.position());
+
+            page = new Page(Arrays.copyOf(chars.array(), charCount));
+            pageCache.put(index, page);
+            return page;
+        }
+    }
+
+    // turns "\r\n" and "\r" into "\n" at the front of the array, a page never ends between the two
+    private static void normalizeLineBreaks(char[] chars, int count){
+        int length = 0;
+        for(int i = 0; i < count; i++){
+            char c = chars[i];
+            if(c == '\r'){
+                if(i + 1 < count && chars[i + 1] == '\n') i++;
+                c = '\n';
+            }
+            chars[length++] = c;
+        }
+    }
+
+    // finds the page that contains the character at the given offset
+    private int pageOfOffset(int offset){
+        int index = Arrays.binarySearch(pageCharStart, 0, pageCount + 1, offset);
+        if(index < 0) index = -index - 2;
+
+        // empty pages share their start with the next page
+        while(index + 1 < pageCount && pageCharStart[index + 1] == offset) index++;
+        return Math.max(0, Math.min(index, pageCount - 1));
+    }
+
+    public int getLineCount(){return lineCount;}
+
+    // returns the line that contains the given offset
+    int lineOfOffset(int offset){
+        if(pageCount == 0 || offset <= 0) return 0;
+        if(offset >= length) return lineCount - 1;
+
+        int pageIndex = pageOfOffset(offset);
+        Page page = getPage(pageIndex);
+        int index = Arrays.binarySearch(page.lineBreaks, offset - pageCharStart[pageIndex]);
+
+        // line breaks before the offset end the lines before it, a break at the offset belongs to this line
+        int breaksBefore = index < 0 ? -index - 1 : index;
+        return pageLineStart[pageIndex] + breaksBefore;
+    }
+
+    // returns the offset of the first character of the given line
+    int lineStartOffset(int line){
+        if(line <= 0) return 0;
+        if(line >= lineCount) return length + 1;
+
+        // the line starts right after the line-th line break, find the page that holds that break
+        int index = Arrays.binarySearch(pageLineStart, 0, pageCount + 1, line);
+        if(index < 0) index = -index - 2;
+        while(index > 0 && pageLineStart[index] >= line) index--;
+
+        Page page = getPage(index);
+        return pageCharStart[index] + page.lineBreaks[line - pageLineStart[index] - 1] + 1;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String getText(int offset, int length) throws BadLocationException {
+        Segment segment = new Segment();
+        getText(offset, length, segment);
+        return segment.toString();
+    }
+
+    @Override
+    public void getText(int offset, int length, Segment txt) throws BadLocationException {
+        if(length < 0 || offset < 0 || offset + length > this.length){
+            throw new BadLocationException("invalid range", offset);
+        }
+
+        if(length == 0){
+            txt.array = new char[0];
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+
+        int pageIndex = pageOfOffset(offset);
+        Page page = getPage(pageIndex);
+        int pageOffset = offset - pageCharStart[pageIndex];
+        int available = page.chars.length - pageOffset;
+
+        // text inside of a single page can be handed out without copying it
+        if(length <= available || txt.isPartialReturn()){
+            txt.array = page.chars;
+            txt.offset = pageOffset;
+            txt.count = Math.min(length, available);
+            return;
+        }
+
+        char[] chars = new char[length];
+        int copied = 0;
+        while(copied < length){
+            int count = Math.min(length - copied, page.chars.length - pageOffset);
+            System.arraycopy(page.chars, pageOffset, chars, copied, count);
+            copied += count;
+
+            if(copied < length){
+                page = getPage(++pageIndex);
+                pageOffset = 0;
+            }
+        }
+
+        txt.array = chars;
+        txt.offset = 0;
+        txt.count = length;
+    }
+
+    @Override
+    public void addDocumentListener(DocumentListener listener) {
+        documentListeners.add(listener);
+    }
+
+    @Override
+    public void removeDocumentListener(DocumentListener listener) {
+        documentListeners.remove(listener);
+    }
+
+    @Override
+    public void addUndoableEditListener(UndoableEditListener listener) {
+        undoableEditListeners.add(listener);
+    }
+
+    @Override
+    public void removeUndoableEditListener(UndoableEditListener listener) {
+        undoableEditListeners.remove(listener);
+    }
+
+    @Override
+    public Object getProperty(Object key) {
+        return properties.get(key);
+    }
+
+    @Override
+    public void putProperty(Object key, Object value) {
+        if(value == null){
+            properties.remove(key);
+        }else{
+            properties.put(key, value);
+        }
+    }
+
+    @Override
+    public void remove(int offs, int len) throws BadLocationException {
+        throw new BadLocationException("large files are opened read-only", offs);
+    }
+
+    @Override
+    public void insertString(int offset, String str, AttributeSet a) throws BadLocationException {
+        throw new BadLocationException("large files are opened read-only", offset);
+    }
+
+    @Override
+    public Position getStartPosition() {
+        return new FixedPosition(0);
+    }
+
+    @Override
+    public Position getEndPosition() {
+        return new FixedPosition(length + 1);
+    }
+
+    @Override
+    public Position createPosition(int offs) throws BadLocationException {
+        if(offs < 0 || offs > length + 1) throw new BadLocationException("invalid position", offs);
+
+        // the text never changes so positions never have to move
+        return new FixedPosition(offs);
+    }
+
+    @Override
+    public Element[] getRootElements() {
+        return new Element[]{rootElement};
+    }
+
+    @Override
+    public Element getDefaultRootElement() {
+        return rootElement;
+    }
+
+    @Override
+    public void render(Runnable r) {
+        // there are no writers so there is nothing to lock
+        r.run();
+    }
+
+    // a decoded page together with the positions of its line breaks
+    private static class Page {
+        private final char[] chars;
+        private final int[] lineBreaks;
+
+        private Page(char[] chars){
+            this.chars = chars;
+
+            int count = 0;
+            for(char c : chars){
+                if(c == '\n') count++;
+            }
+
+            lineBreaks = new int[count];
+            count = 0;
+            for(int i = 0; i < chars.length; i++){
+                if(chars[i] == '\n') lineBreaks[count++] = i;
+            }
+        }
+    }
+
+    private static class FixedPosition implements Position {
+        private final int offset;
+
+        private FixedPosition(int offset){
+            this.offset = offset;
+        }
+
+        @Override
+        public int getOffset() {
+            return offset;
+        }
+    }
+
+    // the lines of the document, line elements are created when they are asked for instead of being stored
+    private class RootElement implements Element {
+        @Override
+        public Document getDocument() {
+            return LargeFileDocument.this;
+        }
+
+        @Override
+        public Element getParentElement() {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return AbstractDocument.ParagraphElementName;
+        }
+
+        @Override
+        public AttributeSet getAttributes() {
+            return SimpleAttributeSet.EMPTY;
+        }
+
+        @Override
+        public int getStartOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getEndOffset() {
+            return length + 1;
+        }
+
+        @Override
+        public int getElementIndex(int offset) {
+            return lineOfOffset(offset);
+        }
+
+        @Override
+        public int getElementCount() {
+            return lineCount;
+        }
+
+        @Override
+        public Element getElement(int index) {
+            if(index < 0 || index >= lineCount) return null;
+            return new LineElement(lineStartOffset(index), lineStartOffset(index + 1));
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+    }
+
+    private class LineElement implements Element {
+        private final int startOffset, endOffset;
+
+        private LineElement(int startOffset, int endOffset){
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+        }
+
+        @Override
+        public Document getDocument() {
+            return LargeFileDocument.this;
+        }
+
+        @Override
+        public Element getParentElement() {
+            return rootElement;
+        }
+
+        @Override
+        public String getName() {
+            return AbstractDocument.ContentElementName;
+        }
+
+        @Override
+        public AttributeSet getAttributes() {
+            return SimpleAttributeSet.EMPTY;
+        }
+
+        @Override
+        public int getStartOffset() {
+            return startOffset;
+        }
+
+        @Override
+        public int getEndOffset() {
+            return endOffset;
+        }
+
+        @Override
+        public int getElementIndex(int offset) {
+            return -1;
+        }
+
+        @Override
+        public int getElementCount() {
+            return 0;
+        }
+
+        @Override
+        public Element getElement(int index) {
+            return null;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package notepad;
+
+import javax.swing.text.*;
+import java.awt.*;
+
+// view for a LargeFileDocument. swing's PlainView measures every line of the document to find the longest one,
+// which would read the whole file, so this view only ever touches the lines that are on the screen and uses the
+// line count and the longest line length that the document worked out while indexing the file. other documents get
+// the longest line from their LineIndex, see HighlightedView
+public class LargeFileView extends View implements TabExpander {
+    // lines are painted in slices so that a very long line stops being read once it reaches the edge of the screen
+    private static final int PAINT_SLICE = 1024;
+
+    private final Segment lineSegment = new Segment();
+
+    // tab stops are measured from the left edge of the view
+    private int tabBase;
+
+    // while the view paints: the selection and the color its text is drawn in, null while no selection is shown
+    private int selectionStart, selectionEnd;
+    private Color selectedColor;
+
+    public LargeFileView(Element element){
+        super(element);
+    }
+
+    private FontMetrics getFontMetrics(){
+        Container host = getContainer();
+        return host.getFontMetrics(host.getFont());
+    }
+
+    protected int getLineHeight(){
+        return getFontMetrics().getHeight();
+    }
+
+    private int getTabSize(){
+        Object tabSize = getDocument().getProperty(PlainDocument.tabSizeAttribute);
+        return tabSize instanceof Integer ? (Integer) tabSize : 8;
+    }
+
+    private void loadLine(Element line, int endOffset) throws BadLocationException {
+        int start = line.getStartOffset();
+        getDocument().getText(start, Math.max(0, endOffset - start), lineSegment);
+    }
+
+    // the end of the line without its line break
+    private int getLineEnd(Element line){
+        return Math.min(line.getEndOffset() - 1, getDocument().getLength());
+    }
+
+    @Override
+    public float getPreferredSpan(int axis) {
+        Element root = getElement();
+        if(axis == X_AXIS){
+            // the longest line is counted in columns with its tabs expanded, like nextTabStop lays them out
+            int longestLine = LineIndex.getLongestLineLength(root.getDocument());
+            return (float) Math.min(Integer.MAX_VALUE / 2, (long) longestLine * getFontMetrics().charWidth('m'));
+        }
+
+        // a component can not be taller than the largest int
+        return (float) Math.min(Integer.MAX_VALUE / 2, (long) root.getElementCount() * getLineHeight());
+    }
+
+    @Override
+    public void paint(Graphics g, Shape allocation) {
+        Rectangle alloc = allocation.getBounds();
+        Rectangle clip = g.getClipBounds();
+        if(clip == null) clip = alloc;
+
+        FontMetrics metrics = getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        Element root = getElement();
+
+        int firstLine = Math.max(0, (clip.y - alloc.y) / lineHeight);
+        int lastLine = Math.min(root.getElementCount() - 1, (clip.y + clip.height - alloc.y) / lineHeight);
+        int rightEdge = clip.x + clip.width;
+
+        Container host = getContainer();
+        g.setFont(host.getFont());
+        g.setColor(host.isEnabled() || !(host instanceof JTextComponent) ?
+                host.getForeground() : ((JTextComponent) host).getDisabledTextColor());
+        tabBase = alloc.x;
+
+        // like PlainView the selected text is drawn in the selection's own color while the caret shows the selection
+        selectedColor = null;
+        if(host instanceof JTextComponent){
+            JTextComponent text = (JTextComponent) host;
+            Caret caret = text.getCaret();
+            if(caret != null && caret.isSelectionVisible() && text.getSelectionStart() < text.getSelectionEnd()){
+                selectionStart = text.getSelectionStart();
+                selectionEnd = text.getSelectionEnd();
+                selectedColor = text.getSelectedTextColor();
+            }
+        }
+
+        try{
+            for(int i = firstLine; i <= lastLine; i++){
+                Element line = root.getElement(i);
+                int start = line.getStartOffset();
+                int end = getLineEnd(line);
+                float x = alloc.x;
+                float y = alloc.y + i * lineHeight + metrics.getAscent();
+
+                // draw the line a slice at a time until the rest of it is off the screen
+                for(int offset = start; offset < end && x < rightEdge; offset += PAINT_SLICE){
+                    x = drawSlice((Graphics2D) g, x, y, offset, Math.min(offset + PAINT_SLICE, end));
+                }
+            }
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }
+    }
+
+    // draws the text in [p0, p1) of one line with the part of it that is selected in the selection's color
+    private float drawSlice(Graphics2D g, float x, float y, int p0, int p1) throws BadLocationException {
+        if(selectedColor == null || p1 <= selectionStart || p0 >= selectionEnd) return drawText(g, x, y, p0, p1);
+
+        int start = Math.max(p0, selectionStart);
+        int end = Math.min(p1, selectionEnd);
+        if(p0 < start) x = drawText(g, x, y, p0, start);
+
+        Color color = g.getColor();
+        g.setColor(selectedColor);
+        getDocument().getText(start, end - start, lineSegment);
+        x = Utilities.drawTabbedText(lineSegment, x, y, g, this, start);
+        g.setColor(color);
+
+        return end < p1 ? drawText(g, x, y, end, p1) : x;
+    }
+
+    // draws the text in [p0, p1) of one line and returns where it ended
+    protected float drawText(Graphics2D g, float x, float y, int p0, int p1) throws BadLocationException {
+        getDocument().getText(p0, p1 - p0, lineSegment);
+        return Utilities.drawTabbedText(lineSegment, x, y, g, this, p0);
+    }
+
+    @Override
+    public Shape modelToView(int pos, Shape a, Position.Bias b) throws BadLocationException {
+        Rectangle alloc = a.getBounds();
+        tabBase = alloc.x;
+        Element root = getElement();
+        int lineIndex = root.getElementIndex(pos);
+        Element line = root.getElement(lineIndex);
+
+        loadLine(line, Math.min(pos, getLineEnd(line)));
+        float x = alloc.x + Utilities.getTabbedTextWidth(lineSegment, getFontMetrics(), (float) alloc.x, this,
+                line.getStartOffset());
+
+        return new Rectangle((int) x, alloc.y + lineIndex * getLineHeight(), 1, getLineHeight());
+    }
+
+    @Override
+    public int viewToModel(float x, float y, Shape a, Position.Bias[] biasReturn) {
+        biasReturn[0] = Position.Bias.Forward;
+
+        Rectangle alloc = a.getBounds();
+        tabBase = alloc.x;
+        Element root = getElement();
+        int lineIndex = (int) Math.max(0, Math.min(root.getElementCount() - 1, (y - alloc.y) / getLineHeight()));
+        Element line = root.getElement(lineIndex);
+
+        try{
+            loadLine(line, getLineEnd(line));
+            return line.getStartOffset() + Utilities.getTabbedTextOffset(lineSegment, getFontMetrics(), (float) alloc.x,
+                    x, this, line.getStartOffset(), true);
+        }catch(BadLocationException e){
+            return line.getStartOffset();
+        }
+    }
+
+    @Override
+    public float nextTabStop(float x, int tabOffset) {
+        int tabWidth = getTabSize() * getFontMetrics().charWidth('m');
+        if(tabWidth == 0) return x;
+
+        int position = (int) x - tabBase;
+        return tabBase + ((position / tabWidth) + 1) * tabWidth;
+    }
+}
@@ -0,0 +1,147 @@
+package notepad;
+
+import java.awt.*;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+
+// splits the text of a line into tokens for the SyntaxHighlighter. a lexer only ever sees one line at a time, what it
+// needs to know about the lines before it (like that a comment is still open) is handed from line to line as an int
+// state, a line that does not continue anything starts in state 0. lexers keep nothing else, so the same lexer can be
+// used on the edt and on the highlighting thread at once
+public abstract class Lexer {
+    public enum TokenType {
+        KEY(new Color(0x871094)),
+        STRING(new Color(0x067D17)),
+        NUMBER(new Color(0x1750EB)),
+        KEYWORD(new Color(0x0033B3)),
+        COMMENT(new Color(0x8C8C8C)),
+        TAG(new Color(0x0033B3)),
+        ATTRIBUTE(new Color(0x174AD4)),
+        PUNCTUATION(new Color(0x808080));
+
+        private final Color color;
+
+        TokenType(Color color){
+            this.color = color;
+        }
+
+        public Color getColor(){return color;}
+    }
+
+    // lexes the line in text[start, end), without its line break, that starts in the given state. the tokens are added
+    // with offsets from the start of the line, the returned state is the one the next line starts in
+    public abstract int lex(char[] text, int start, int end, int state, Tokens tokens);
+
+    // the lexer for the type of the file, going by its extension, or null if there is none for it
+    public static Lexer forFile(File file){
+        if(file == null) return null;
+
+        // a compressed file is highlighted like what is in it
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if(name.endsWith(".gz")) name = name.substring(0, name.length() - ".gz".length());
+        int dot = name.lastIndexOf('.');
+        switch(dot < 0 ? "" : name.substring(dot + 1)){
+            case "json":
+                return new JsonLexer();
+            case "yaml":
+            case "yml":
+                return new YamlLexer();
+            case "xml":
+            case "xsd":
+            case "xsl":
+            case "svg":
+                return new XmlLexer();
+            case "properties":
+                return new PropertiesLexer();
+            default:
+                return null;
+        }
+    }
+
+    // where the string s is in text[from, end), or -1
+    protected static int indexOf(char[] text, int from, int end, String s){
+        for(int i = from; i <= end - s.length(); i++){
+            if(startsWith(text, i, end, s)) return i;
+        }
+        return -1;
+    }
+
+    protected static boolean startsWith(char[] text, int from, int end, String s){
+        if(end - from < s.length()) return false;
+        for(int i = 0; i < s.length(); i++){
+            if(text[from + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // the end of the string that starts with the quote at from, right after its closing quote. a string that is not
+    // closed goes to the end of the line. backslashes escape the next character when escapes is set
+    protected static int stringEnd(char[] text, int from, int end, boolean escapes){
+        char quote = text[from];
+        for(int i = from + 1; i < end; i++){
+            if(escapes && text[i] == '\\'){
+                i++;
+            }else if(text[i] == quote){
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    protected static int skipSpaces(char[] text, int from, int end){
+        while(from < end && (text[from] == ' ' || text[from] == '\t')) from++;
+        return from;
+    }
+
+    protected static boolean isNumber(char[] text, int from, int end){
+        int i = from;
+        if(i < end && (text[i] == '-' || text[i] == '+')) i++;
+        if(i == end || !(Character.isDigit(text[i]) || text[i] == '.')) return false;
+
+        boolean digits = false;
+        for(; i < end; i++){
+            char c = text[i];
+            if(Character.isDigit(c)){
+                digits = true;
+            }else if(c != '.' && c != 'e' && c != 'E' && c != '-' && c != '+' && c != '_'){
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    // the tokens of one line, three ints for each: where it starts in the line, its length and its type
+    public static class Tokens {
+        private int[] tokens = new int[3 * 32];
+        private int count;
+
+        public void add(int start, int length, TokenType type){
+            if(length <= 0) return;
+
+            // tokens of the same type that touch are drawn as one
+            int last = (count - 1) * 3;
+            if(count > 0 && tokens[last + 2] == type.ordinal() && tokens[last] + tokens[last + 1] == start){
+                tokens[last + 1] += length;
+                return;
+            }
+
+            if(count * 3 == tokens.length) tokens = Arrays.copyOf(tokens, tokens.length * 2);
+            tokens[count * 3] = start;
+            tokens[count * 3 + 1] = length;
+            tokens[count * 3 + 2] = type.ordinal();
+            count++;
+        }
+
+        public void clear(){
+            count = 0;
+        }
+
+        public int size(){return count;}
+
+        // the tokens packed the same way, for keeping them
+        public int[] toArray(){
+            return Arrays.copyOf(tokens, count * 3);
+        }
+    }
+}
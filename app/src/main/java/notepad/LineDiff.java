@@ -0,0 +1,406 @@
+package notepad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// finds the lines that differ between two texts with myers' diff algorithm, in the form that needs memory linear in
+// the number of lines: it looks for the middle of the shortest edit script from both ends at once and then diffs the
+// halves before and after it. every line is first interned into an int id (lines with the same text get the same id)
+// so the algorithm only ever compares ints, the texts are read once for that and never copied. lines that are only on
+// one side can not be the same as anything, like gnu diff they are left out before diffing and put back in between
+// the lines that are the same afterwards, which makes files that were mostly rewritten cheap. the changes are found
+// from the top down and handed over in batches while the rest is still being diffed. texts that differ a lot would
+// take O(n * d) steps, so once the search for a middle goes past MAX_COST edits it splits at the furthest it got
+// instead, the changes can then be a little longer than they have to be
+public class LineDiff {
+    private static final int MAX_COST = 1024;
+
+    // changes are handed over at most this often, and all of them at the end
+    private static final long BATCH_INTERVAL = 100;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TextSnapshot left, right;
+
+    // gets the changes in order from the top down, called on the thread that runs the diff
+    private final Consumer<List<Change>> results;
+
+    private volatile boolean cancelled;
+
+    private int leftLineCount, rightLineCount;
+
+    // the ids of the lines that are on both sides, and where each of them is in its text
+    private int[] leftLines, rightLines;
+    private int[] leftIndex, rightIndex;
+
+    // the forward and backward furthest points of each diagonal, reused by all the middle searches
+    private int[] forward, backward;
+
+    // how many of the lines that are on both sides have been handed over as changes or as the same on both sides,
+    // and the lines of the texts up to which that reaches
+    private int leftDiffed, rightDiffed;
+    private int leftDone, rightDone;
+
+    private List<Change> batch = new ArrayList<>();
+    private long lastBatchTime;
+
+    public LineDiff(TextSnapshot left, TextSnapshot right, Consumer<List<Change>> results){
+        this.left = left;
+        this.right = right;
+        this.results = results;
+    }
+
+    // stops the diff, it returns at the next middle search
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled(){return cancelled;}
+
+    // diffs the texts, returns once every change has been handed over or the diff was cancelled
+    public void run(){
+        Interner interner = new Interner();
+        int[] leftIds = interner.intern(left);
+        int[] rightIds = interner.intern(right);
+        if(cancelled) return;
+
+        leftLineCount = leftIds.length;
+        rightLineCount = rightIds.length;
+        boolean[] onLeft = interner.isOn(leftIds);
+        boolean[] onRight = interner.isOn(rightIds);
+        interner = null;
+
+        leftIndex = linesIn(leftIds, onRight);
+        rightIndex = linesIn(rightIds, onLeft);
+        leftLines = idsAt(leftIds, leftIndex);
+        rightLines = idsAt(rightIds, rightIndex);
+
+        int size = 2 * Math.min(MAX_COST, (leftLines.length + rightLines.length + 1) / 2) + 3;
+        forward = new int[size];
+        backward = new int[size];
+
+        lastBatchTime = System.currentTimeMillis();
+        diff(0, leftLines.length, 0, rightLines.length);
+        if(cancelled) return;
+
+        sameUpTo(leftLines.length, rightLines.length);
+        if(leftDone < leftLineCount || rightDone < rightLineCount){
+            batch.add(new Change(leftDone, leftLineCount - leftDone, rightDone, rightLineCount - rightDone));
+        }
+        if(!batch.isEmpty()) results.accept(batch);
+    }
+
+    public int getLeftLineCount(){return leftLineCount;}
+    public int getRightLineCount(){return rightLineCount;}
+
+    // the lines whose id is also on the other side
+    private static int[] linesIn(int[] ids, boolean[] onOtherSide){
+        int count = 0;
+        for(int id : ids) if(onOtherSide[id]) count++;
+
+        int[] lines = new int[count];
+        for(int line = 0, i = 0; line < ids.length; line++){
+            if(onOtherSide[ids[line]]) lines[i++] = line;
+        }
+        return lines;
+    }
+
+    private static int[] idsAt(int[] ids, int[] lines){
+        int[] kept = new int[lines.length];
+        for(int i = 0; i < lines.length; i++) kept[i] = ids[lines[i]];
+        return kept;
+    }
+
+    // diffs the lines [leftStart, leftEnd) with [rightStart, rightEnd). the part before the middle is diffed
+    // recursively and the part after it in the loop, a split that was cut short is always near the start so the
+    // recursion stays shallow
+    private void diff(int leftStart, int leftEnd, int rightStart, int rightEnd){
+        while(!cancelled){
+            // lines that are the same at both ends are not part of any change
+            while(leftStart < leftEnd && rightStart < rightEnd && leftLines[leftStart] == rightLines[rightStart]){
+                leftStart++;
+                rightStart++;
+            }
+            while(leftStart < leftEnd && rightStart < rightEnd && leftLines[leftEnd - 1] == rightLines[rightEnd - 1]){
+                leftEnd--;
+                rightEnd--;
+            }
+
+            if(leftStart == leftEnd || rightStart == rightEnd){
+                if(leftStart < leftEnd || rightStart < rightEnd){
+                    found(leftStart, leftEnd - leftStart, rightStart, rightEnd - rightStart);
+                }
+                return;
+            }
+
+            long middle = findMiddle(leftStart, leftEnd, rightStart, rightEnd);
+            int leftMiddle = (int) (middle >>> 32);
+            int rightMiddle = (int) middle;
+            if(middle < 0 || leftMiddle + rightMiddle == leftStart + rightStart
+                    || leftMiddle + rightMiddle == leftEnd + rightEnd){
+                // nothing in common at all
+                found(leftStart, leftEnd - leftStart, rightStart, rightEnd - rightStart);
+                return;
+            }
+
+            diff(leftStart, leftMiddle, rightStart, rightMiddle);
+            leftStart = leftMiddle;
+            rightStart = rightMiddle;
+        }
+    }
+
+    // the point the shortest edit script goes through halfway, as the left line in the high and the right line in
+    // the low half of a long, or -1 if the lines have nothing in common. both ranges are not empty and their first
+    // and last lines differ
+    private long findMiddle(int leftStart, int leftEnd, int rightStart, int rightEnd){
+        int n = leftEnd - leftStart;
+        int m = rightEnd - rightStart;
+        int maxCost = Math.min(MAX_COST, (n + m + 1) / 2);
+
+        // diagonal k is where x - y == k, it is stored at k + offset. the backward search counts from the ends
+        int offset = maxCost + 1;
+        Arrays.fill(forward, 0, 2 * offset + 1, -1);
+        Arrays.fill(backward, 0, 2 * offset + 1, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+
+        // diagonals that ran off the edge of the grid are not looked at again
+        int forwardStart = 0, forwardEnd = 0, backwardStart = 0, backwardEnd = 0;
+
+        for(int d = 0; d < maxCost; d++){
+            if(cancelled) return -1;
+
+            for(int k = -d + forwardStart; k <= d - forwardEnd; k += 2){
+                int x = k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1]) ?
+                        forward[offset + k + 1] : forward[offset + k - 1] + 1;
+                int y = x - k;
+                while(x < n && y < m && leftLines[leftStart + x] == rightLines[rightStart + y]){
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+
+                if(x > n){
+                    forwardEnd += 2;
+                }else if(y > m){
+                    forwardStart += 2;
+                }else if(odd){
+                    int backwardIndex = offset + delta - k;
+                    if(backwardIndex >= 0 && backwardIndex <= 2 * offset && backward[backwardIndex] != -1
+                            && x >= n - backward[backwardIndex]){
+                        return point(leftStart + x, rightStart + y);
+                    }
+                }
+            }
+
+            for(int k = -d + backwardStart; k <= d - backwardEnd; k += 2){
+                int x = k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1]) ?
+                        backward[offset + k + 1] : backward[offset + k - 1] + 1;
+                int y = x - k;
+                while(x < n && y < m && leftLines[leftEnd - x - 1] == rightLines[rightEnd - y - 1]){
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+
+                if(x > n){
+                    backwardEnd += 2;
+                }else if(y > m){
+                    backwardStart += 2;
+                }else if(!odd){
+                    int forwardIndex = offset + delta - k;
+                    if(forwardIndex >= 0 && forwardIndex <= 2 * offset && forward[forwardIndex] != -1){
+                        int forwardX = forward[forwardIndex];
+                        if(forwardX >= n - x){
+                            return point(leftStart + forwardX, rightStart + forwardX - (forwardIndex - offset));
+                        }
+                    }
+                }
+            }
+        }
+
+        if(maxCost < (n + m + 1) / 2) return furthestPoint(leftStart, rightStart, n, m, offset, maxCost);
+        return -1;
+    }
+
+    // the point the forward search got the furthest to, for a middle search that was cut short. it has to be inside
+    // the grid and not at its start, or the diff would make no progress
+    private long furthestPoint(int leftStart, int rightStart, int n, int m, int offset, int maxCost){
+        int bestX = -1, bestY = -1;
+        for(int k = -maxCost + 1; k <= maxCost - 1; k++){
+            int x = forward[offset + k];
+            int y = x - k;
+            if(x < 0 || x > n || y < 0 || y > m || x + y == 0 || (x == n && y == m)) continue;
+            if(x + y > bestX + bestY){
+                bestX = x;
+                bestY = y;
+            }
+        }
+        return bestX < 0 ? -1 : point(leftStart + bestX, rightStart + bestY);
+    }
+
+    private static long point(int leftLine, int rightLine){
+        return (long) leftLine << 32 | rightLine;
+    }
+
+    // the lines that were diffed are found to differ, the lines before them are the same on both sides
+    private void found(int leftLine, int leftCount, int rightLine, int rightCount){
+        sameUpTo(leftLine, rightLine);
+        leftDiffed = leftLine + leftCount;
+        rightDiffed = rightLine + rightCount;
+    }
+
+    // the diffed lines up to these are the same on both sides. the lines of the texts in between them were left out
+    // of the diff or were diffed to be different, they make up the changes
+    private void sameUpTo(int leftLine, int rightLine){
+        for(; leftDiffed < leftLine; leftDiffed++, rightDiffed++){
+            int leftSame = leftIndex[leftDiffed];
+            int rightSame = rightIndex[rightDiffed];
+            if(leftSame > leftDone || rightSame > rightDone){
+                batch.add(new Change(leftDone, leftSame - leftDone, rightDone, rightSame - rightDone));
+            }
+            leftDone = leftSame + 1;
+            rightDone = rightSame + 1;
+        }
+
+        long now = System.currentTimeMillis();
+        if(!batch.isEmpty() && now - lastBatchTime >= BATCH_INTERVAL){
+            results.accept(batch);
+            batch = new ArrayList<>();
+            lastBatchTime = now;
+        }
+    }
+
+    // lines that differ: leftCount lines from leftLine on the left were replaced by rightCount lines from rightLine on
+    // the right. lines that were only added or only removed have a count of 0 on the other side
+    public static class Change {
+        private final int leftLine, leftCount, rightLine, rightCount;
+
+        public Change(int leftLine, int leftCount, int rightLine, int rightCount){
+            this.leftLine = leftLine;
+            this.leftCount = leftCount;
+            this.rightLine = rightLine;
+            this.rightCount = rightCount;
+        }
+
+        public int getLeftLine(){return leftLine;}
+        public int getLeftCount(){return leftCount;}
+        public int getLeftEnd(){return leftLine + leftCount;}
+        public int getRightLine(){return rightLine;}
+        public int getRightCount(){return rightCount;}
+        public int getRightEnd(){return rightLine + rightCount;}
+    }
+
+    // gives every distinct line an id. the table holds the ids together with the hash of their line and only keeps
+    // where the first line with each id is, lines with the same hash are compared with it character by character
+    private class Interner {
+        // the hash in the high and the id + 1 in the low half, 0 for a free slot
+        private long[] table = new long[INITIAL_CAPACITY];
+        private int count;
+
+        // for each id: which side its first line is on and where it is
+        private boolean[] onLeft = new boolean[INITIAL_CAPACITY];
+        private int[] starts = new int[INITIAL_CAPACITY];
+        private int[] lengths = new int[INITIAL_CAPACITY];
+
+        // the text that is being interned, and both texts once more for the first lines of the ids. a line and the
+        // first line with its text are usually far apart, each of them keeps the part of its text that it read last
+        private CharSequence chars;
+        private CharSequence leftFirsts, rightFirsts;
+
+        // which of the ids are used by the lines
+        private boolean[] isOn(int[] lines){
+            boolean[] used = new boolean[count];
+            for(int id : lines) used[id] = true;
+            return used;
+        }
+
+        // the ids of the lines of the text, like a document it has one more line than it has line breaks
+        private int[] intern(TextSnapshot text){
+            boolean isLeft = text == left;
+            chars = text.chars();
+            if(isLeft) leftFirsts = text.chars();
+            else rightFirsts = text.chars();
+
+            int[] lines = new int[INITIAL_CAPACITY];
+            int lineCount = 0;
+            int lineStart = 0;
+            int hash = 0;
+            for(int i = 0, length = chars.length(); i <= length && !cancelled; i++){
+                char c = i < length ? chars.charAt(i) : '\n';
+                if(c != '\n'){
+                    hash = 31 * hash + c;
+                    continue;
+                }
+
+                if(lineCount == lines.length) lines = Arrays.copyOf(lines, lineCount * 2);
+                lines[lineCount++] = idOf(hash, isLeft, lineStart, i - lineStart);
+                lineStart = i + 1;
+                hash = 0;
+            }
+            return Arrays.copyOf(lines, lineCount);
+        }
+
+        private int idOf(int hash, boolean isLeft, int start, int length){
+            int mask = table.length - 1;
+            for(int slot = slotOf(hash); ; slot = (slot + 1) & mask){
+                long entry = table[slot];
+                if(entry == 0){
+                    int id = add(isLeft, start, length);
+                    table[slot] = (long) hash << 32 | (id + 1);
+                    if(count * 2 > table.length) grow();
+                    return id;
+                }
+
+                int id = (int) entry - 1;
+                if((int) (entry >>> 32) == hash && sameLine(id, start, length)) return id;
+            }
+        }
+
+        private boolean sameLine(int id, int start, int length){
+            if(lengths[id] != length) return false;
+
+            CharSequence first = onLeft[id] ? leftFirsts : rightFirsts;
+            for(int i = 0; i < length; i++){
+                if(chars.charAt(start + i) != first.charAt(starts[id] + i)) return false;
+            }
+            return true;
+        }
+
+        private int add(boolean isLeft, int start, int length){
+            if(count == starts.length){
+                onLeft = Arrays.copyOf(onLeft, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            onLeft[count] = isLeft;
+            starts[count] = start;
+            lengths[count] = length;
+            return count++;
+        }
+
+        private void grow(){
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for(long entry : old){
+                if(entry == 0) continue;
+
+                int slot = slotOf((int) (entry >>> 32));
+                while(table[slot] != 0) slot = (slot + 1) & mask;
+                table[slot] = entry;
+            }
+        }
+
+        // the high bits of the hash times the golden ratio, string hashes of lines that only differ at their end are
+        // close to each other and would end up in one long run of slots
+        private int slotOf(int hash){
+            return (int) ((hash * 0x9E3779B9L & 0xffffffffL) >>> (32 - Integer.numberOfTrailingZeros(table.length)));
+        }
+    }
+}
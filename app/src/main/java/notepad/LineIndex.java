@@ -0,0 +1,369 @@
+package notepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Segment;
+import java.util.Arrays;
+
+// where every line of a document starts, kept as a fenwick tree over the lengths of the lines so that the line of an
+// offset and the start of a line are both found in O(log n) steps, even in a file with millions of lines. the index
+// follows the document's events, typing within a line only updates O(log n) entries of the tree. edits that add or
+// remove lines shift the lines after them and rebuild the tree from there in linear time, which is cheap near the end
+// of the document (where a file that is loading gets appended to) and a few milliseconds at the top of a huge file.
+// the index also knows how wide the longest line is with its tabs expanded, which is all that the views of the
+// document need for their width. only lines with tabs in them have to be read again to measure them after an edit
+public class LineIndex implements DocumentListener {
+    private static final Object PROPERTY = LineIndex.class;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // the length of every line including its line break, the last line has none
+    private int[] lengths = new int[INITIAL_CAPACITY];
+
+    // tree[i] holds the total length of the lines (i - lowestBit(i), i], counted from 1
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    private int lineCount = 1;
+
+    // the width in columns of every line that has tabs, without its line break. lines without tabs are -1, they are as
+    // wide as they are long. a line that lost its tabs may still be measured, which is only slower
+    private int[] tabbedWidths = new int[INITIAL_CAPACITY];
+
+    // the width of the longest line, worked out again only when it is asked for after the longest line got narrower
+    private int longestLine;
+    private boolean longestLineKnown = true;
+
+    private final Segment segment = new Segment();
+
+    private LineIndex(Document document){
+        segment.setPartialReturn(true);
+        tabbedWidths[0] = -1;
+        document.addDocumentListener(this);
+        if(document.getLength() > 0) insert(document, 0, document.getLength());
+    }
+
+    // the index of the document, it is made the first time it is asked for and then kept up to date with the document.
+    // large files are not indexed here, they have an index of their own
+    public static LineIndex of(Document document){
+        LineIndex index = (LineIndex) document.getProperty(PROPERTY);
+        if(index == null){
+            index = new LineIndex(document);
+            document.putProperty(PROPERTY, index);
+        }
+        return index;
+    }
+
+    public static int getLineCount(Document document){
+        if(document instanceof LargeFileDocument) return ((LargeFileDocument) document).getLineCount();
+        return of(document).getLineCount();
+    }
+
+    public static int getLineOfOffset(Document document, int offset){
+        if(document instanceof LargeFileDocument) return ((LargeFileDocument) document).lineOfOffset(offset);
+        return of(document).getLineOfOffset(offset);
+    }
+
+    public static int getLineStartOffset(Document document, int line){
+        if(document instanceof LargeFileDocument){
+            LargeFileDocument largeFile = (LargeFileDocument) document;
+            return Math.min(largeFile.lineStartOffset(line), largeFile.getLength());
+        }
+        return of(document).getLineStartOffset(line);
+    }
+
+    // in columns with the tabs expanded, for the width of a view
+    public static int getLongestLineLength(Document document){
+        if(document instanceof LargeFileDocument) return ((LargeFileDocument) document).getLongestLineLength();
+        return of(document).getLongestLineLength();
+    }
+
+    public int getLineCount(){return lineCount;}
+
+    // the line that contains the offset, a line break belongs to the line it ends
+    public int getLineOfOffset(int offset){
+        // walks down the tree to the last line that ends at or before the offset
+        int line = 0;
+        int remaining = offset;
+        for(int step = Integer.highestOneBit(lineCount); step > 0; step >>= 1){
+            int next = line + step;
+            if(next <= lineCount && tree[next] <= remaining){
+                line = next;
+                remaining -= tree[next];
+            }
+        }
+        return Math.min(line, lineCount - 1);
+    }
+
+    // the offset of the first character of the line, the end of the document for lines after the last one
+    public int getLineStartOffset(int line){
+        return prefixSum(Math.max(0, Math.min(line, lineCount)));
+    }
+
+    // the length of the line without its line break, in O(1) so that views can go through all the lines quickly
+    public int getLineLength(int line){
+        return line < lineCount - 1 ? lengths[line] - 1 : lengths[line];
+    }
+
+    // the width of the longest line in columns, with its tabs expanded to the document's tab size
+    public int getLongestLineLength(){
+        if(!longestLineKnown){
+            longestLine = 0;
+            for(int i = 0; i < lineCount; i++) longestLine = Math.max(longestLine, getWidth(i));
+            longestLineKnown = true;
+        }
+        return longestLine;
+    }
+
+    // estimated amount of memory held by the index
+    public long getMemoryUsage(){
+        return (lengths.length + tree.length + tabbedWidths.length) * 4L;
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        if(batchUpdate(e)) return;
+        insert(e.getDocument(), e.getOffset(), e.getLength());
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        if(batchUpdate(e)) return;
+        remove(e.getDocument(), e.getOffset(), e.getLength());
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+    }
+
+    // a batch that keeps the lines is gone through one replacement at a time once all of its text is in, instead of
+    // as the remove and insert of its whole range. each replacement only changes the length of its line
+    private boolean batchUpdate(DocumentEvent e){
+        if(!(e instanceof PieceTableDocument.BatchEvent)) return false;
+
+        PieceTableDocument.BatchEvent event = (PieceTableDocument.BatchEvent) e;
+        if(!event.keepsLines()) return false;
+        if(event.isLast()) apply(e.getDocument(), event.getBatch());
+        return true;
+    }
+
+    private void apply(Document document, EditBatch batch){
+        int tabSize = getTabSize(document);
+        int line = -1;
+        int lineStart = 0;
+        int lineChange = 0;
+        int oldWidth = 0;
+        boolean tabbed = false;
+
+        // the offsets of the batch are from before it, the replacements before this one moved the text
+        int shift = 0;
+        for(int i = 0; i < batch.size(); i++){
+            String text = batch.getText(i);
+            int offset = batch.getOffset(i) + shift;
+            int change = text.length() - batch.getLength(i);
+            shift += change;
+
+            if(line < 0 || offset >= lineStart + lengths[line] && line < lineCount - 1){
+                if(line >= 0) finishLine(document, line, lineStart, lineChange, oldWidth, tabbed, tabSize);
+
+                // the replacements often go down the lines one by one, which needs no search
+                if(line >= 0 && line < lineCount - 2 && offset < lineStart + lengths[line] + lengths[line + 1]){
+                    lineStart += lengths[line];
+                    line++;
+                }else{
+                    line = getLineOfOffset(offset);
+                    lineStart = getLineStartOffset(line);
+                }
+                lineChange = 0;
+                oldWidth = getWidth(line);
+                tabbed = tabbedWidths[line] >= 0;
+            }
+            tabbed |= text.indexOf('\t') >= 0;
+            lengths[line] += change;
+            lineChange += change;
+        }
+        finishLine(document, line, lineStart, lineChange, oldWidth, tabbed, tabSize);
+    }
+
+    // puts the change of a line that a batch is done with into the tree, measures the line if it has tabs and keeps
+    // the longest line up to date
+    private void finishLine(Document document, int line, int lineStart, int change, int oldWidth, boolean tabbed,
+                            int tabSize){
+        for(int i = line + 1; i <= lineCount; i += i & -i) tree[i] += change;
+        if(tabbed){
+            int textEnd = line < lineCount - 1 ? lineStart + lengths[line] - 1 : lineStart + lengths[line];
+            tabbedWidths[line] = measure(document, lineStart, textEnd, 0, tabSize);
+        }
+
+        int width = getWidth(line);
+        if(width < oldWidth && oldWidth == longestLine) longestLineKnown = false;
+        longestLine = Math.max(longestLine, width);
+    }
+
+    private void insert(Document document, int offset, int length){
+        int tabSize = getTabSize(document);
+        int line = getLineOfOffset(offset);
+        int lineStart = getLineStartOffset(line);
+        int before = offset - lineStart;
+        int after = lengths[line] - before;
+        int afterText = line < lineCount - 1 ? after - 1 : after;
+
+        // the part of the line in front of the text only has to be measured when it may have tabs
+        boolean tabbed = tabbedWidths[line] >= 0;
+        int column = tabbed ? measure(document, lineStart, offset, 0, tabSize) : before;
+
+        // the lengths and widths of the lines the inserted text adds, the first one still needs the part of the line
+        // before it. the width is -1 for lines without tabs
+        int[] added = null;
+        int[] addedWidths = null;
+        int addedCount = 0;
+        int current = before;
+        try{
+            int position = offset;
+            int end = offset + length;
+            while(position < end){
+                document.getText(position, end - position, segment);
+                for(int i = segment.offset; i < segment.offset + segment.count; i++){
+                    char c = segment.array[i];
+                    current++;
+                    if(c == '\n'){
+                        if(added == null){
+                            added = new int[Math.max(16, length / 64)];
+                            addedWidths = new int[added.length];
+                        }
+                        if(addedCount == added.length){
+                            added = Arrays.copyOf(added, addedCount * 2);
+                            addedWidths = Arrays.copyOf(addedWidths, addedCount * 2);
+                        }
+                        added[addedCount] = current;
+                        addedWidths[addedCount++] = tabbed ? column : -1;
+                        current = 0;
+                        column = 0;
+                        tabbed = false;
+                    }else if(c == '\t'){
+                        column += tabSize - column % tabSize;
+                        tabbed = true;
+                    }else{
+                        column++;
+                    }
+                }
+                position += segment.count;
+            }
+        }catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+
+        // the rest of the line follows the inserted text, its tabs may now end at other columns
+        boolean restTabbed = tabbedWidths[line] >= 0;
+        int end = offset + length;
+        column = restTabbed ? measure(document, end, end + afterText, column, tabSize) : column + afterText;
+        int lastWidth = tabbed || restTabbed ? column : -1;
+
+        // text without line breaks only makes its line longer
+        if(addedCount == 0){
+            lengths[line] += length;
+            tabbedWidths[line] = lastWidth;
+            longestLine = Math.max(longestLine, getWidth(line));
+            for(int i = line + 1; i <= lineCount; i += i & -i) tree[i] += length;
+            return;
+        }
+
+        // the line is split up, the last part goes in front of the rest of the line. the parts may all be narrower
+        if(getWidth(line) == longestLine) longestLineKnown = false;
+        ensureCapacity(lineCount + addedCount);
+        System.arraycopy(lengths, line + 1, lengths, line + 1 + addedCount, lineCount - line - 1);
+        System.arraycopy(tabbedWidths, line + 1, tabbedWidths, line + 1 + addedCount, lineCount - line - 1);
+        System.arraycopy(added, 0, lengths, line, addedCount);
+        System.arraycopy(addedWidths, 0, tabbedWidths, line, addedCount);
+        lengths[line + addedCount] = current + after;
+        tabbedWidths[line + addedCount] = lastWidth;
+        lineCount += addedCount;
+        for(int i = line; i <= line + addedCount; i++) longestLine = Math.max(longestLine, getWidth(i));
+        rebuild(line);
+    }
+
+    private void remove(Document document, int offset, int length){
+        int firstLine = getLineOfOffset(offset);
+        int lastLine = getLineOfOffset(offset + length);
+
+        // what is left of the lines is joined into the first one
+        int start = getLineStartOffset(firstLine);
+        int end = getLineStartOffset(lastLine) + lengths[lastLine];
+        int joined = end - start - length;
+
+        // the longest one has to be looked for again if it is one of the lines
+        for(int i = firstLine; i <= lastLine && longestLineKnown; i++){
+            if(getWidth(i) == longestLine) longestLineKnown = false;
+        }
+
+        // a joined line with tabs is measured again, the tabs of its end may now be at other columns
+        boolean tabbed = tabbedWidths[firstLine] >= 0 || tabbedWidths[lastLine] >= 0;
+        lengths[firstLine] = joined;
+        if(firstLine == lastLine){
+            for(int i = firstLine + 1; i <= lineCount; i += i & -i) tree[i] -= length;
+        }else{
+            System.arraycopy(lengths, lastLine + 1, lengths, firstLine + 1, lineCount - lastLine - 1);
+            System.arraycopy(tabbedWidths, lastLine + 1, tabbedWidths, firstLine + 1, lineCount - lastLine - 1);
+            lineCount -= lastLine - firstLine;
+            rebuild(firstLine);
+        }
+
+        int textEnd = firstLine < lineCount - 1 ? start + joined - 1 : start + joined;
+        tabbedWidths[firstLine] = tabbed ? measure(document, start, textEnd, 0, getTabSize(document)) : -1;
+        longestLine = Math.max(longestLine, getWidth(firstLine));
+    }
+
+    private int getWidth(int line){
+        if(tabbedWidths[line] >= 0) return tabbedWidths[line];
+        return line < lineCount - 1 ? lengths[line] - 1 : lengths[line];
+    }
+
+    private static int getTabSize(Document document){
+        Object tabSize = document.getProperty(PlainDocument.tabSizeAttribute);
+        return tabSize instanceof Integer ? (Integer) tabSize : 8;
+    }
+
+    // the column that the text in [start, end) of a line ends at when it starts at the given column
+    private int measure(Document document, int start, int end, int column, int tabSize){
+        try{
+            int position = start;
+            while(position < end){
+                document.getText(position, end - position, segment);
+                for(int i = segment.offset; i < segment.offset + segment.count; i++){
+                    column = segment.array[i] == '\t' ? column + tabSize - column % tabSize : column + 1;
+                }
+                position += segment.count;
+            }
+        }catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+        return column;
+    }
+
+    private int prefixSum(int lines){
+        int sum = 0;
+        for(int i = lines; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    // works out the tree again for the line and the ones after it. a node only adds up nodes below it, and the ones
+    // before the line did not change
+    private void rebuild(int fromLine){
+        for(int i = fromLine + 1; i <= lineCount; i++){
+            int sum = lengths[i - 1];
+            int lowestBit = i & -i;
+            for(int step = 1; step < lowestBit; step <<= 1) sum += tree[i - step];
+            tree[i] = sum;
+        }
+    }
+
+    private void ensureCapacity(int capacity){
+        if(capacity <= lengths.length) return;
+
+        int newCapacity = Math.max(capacity, lengths.length * 2);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        tree = Arrays.copyOf(tree, newCapacity + 1);
+        tabbedWidths = Arrays.copyOf(tabbedWidths, newCapacity);
+    }
+}
@@ -0,0 +1,604 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.CaretEvent;
+import javax.swing.event.CaretListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.*;
+import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.util.Arrays;
+
+// more than one caret in the text area, made by dragging a block with alt held down or by adding carets from the
+// edit menu. the carets are only offsets in two sorted arrays, and whatever is typed is made into one EditBatch for
+// all of them, so typing at 100,000 carets changes the document once and is undone in one step. the carets are
+// painted by a highlight that only looks at the ones on the screen. moving the caret of the text area or changing the
+// text in any other way goes back to a single caret
+public class MultiCaret {
+    private final NotepadGUI source;
+    private final JTextArea textArea;
+
+    // where each caret is and where its selection starts, sorted by offset and not overlapping
+    private int[] dots = new int[0];
+    private int[] marks = new int[0];
+    private int count;
+
+    // the caret that the caret of the text area is at, the one that was added last
+    private int primary;
+
+    // set while the carets change the document or the caret of the text area themselves
+    private boolean changing;
+
+    // where a block that is being dragged with the mouse started
+    private Point blockStart;
+
+    private Object highlight;
+
+    private final DocumentListener documentListener = new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            if(!changing) clear();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            if(!changing) clear();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+    };
+
+    // paints the selections and the carets that are on the screen, the caret of the text area paints itself
+    private final Highlighter.HighlightPainter painter = new Highlighter.HighlightPainter() {
+        @Override
+        public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+            if(count == 0) return;
+
+            Rectangle clip = g.getClipBounds();
+            if(clip == null) clip = c.getVisibleRect();
+            Rectangle alloc = bounds.getBounds();
+            try{
+                int first = c.viewToModel2D(new Point(clip.x, clip.y));
+                int last = c.viewToModel2D(new Point(clip.x + clip.width, clip.y + clip.height));
+                first = LineIndex.getLineStartOffset(c.getDocument(), LineIndex.getLineOfOffset(c.getDocument(), first));
+
+                g.setColor(c.getSelectionColor());
+                for(int i = firstCaretFrom(first); i < count && getStart(i) <= last; i++){
+                    if(dots[i] != marks[i]) SearchHighlightPainter.paintMatch(g, c, alloc, getStart(i), getEnd(i));
+                }
+
+                g.setColor(c.getCaretColor());
+                for(int i = firstCaretFrom(first); i < count && getStart(i) <= last; i++){
+                    if(i == primary) continue;
+                    Rectangle2D r = c.modelToView2D(dots[i]);
+                    if(r != null) g.fillRect((int) r.getX(), (int) r.getY(), 1, (int) r.getHeight());
+                }
+            }catch(BadLocationException e){
+                e.printStackTrace();
+            }
+        }
+    };
+
+    public MultiCaret(NotepadGUI source){
+        this.source = source;
+        this.textArea = source.getTextArea();
+
+        // the caret is not one that came with the ui, so it stays when the ui of the text area changes
+        int blinkRate = textArea.getCaret().getBlinkRate();
+        textArea.setCaret(new BlockCaret());
+        textArea.getCaret().setBlinkRate(blinkRate);
+
+        textArea.getDocument().addDocumentListener(documentListener);
+        textArea.addCaretListener(new CaretListener() {
+            @Override
+            public void caretUpdate(CaretEvent e) {
+                // the text area holds back its caret events while the mouse is pressed, the ones of a block come
+                // when it is released
+                if(!changing && blockStart == null) clear();
+            }
+        });
+        textArea.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if(count > 0 && handleKey(e)) e.consume();
+            }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                if(count == 0) return;
+
+                // the same keys the text area would type, control characters are left to the key bindings
+                char c = e.getKeyChar();
+                boolean shortcut = e.isControlDown() != e.isAltDown() || e.isMetaDown();
+                if(c < ' ' || c == KeyEvent.CHAR_UNDEFINED || c == 127 || shortcut) return;
+
+                type(String.valueOf(c));
+                e.consume();
+            }
+        });
+
+        // the text area gets a new document when a tab is shown and a new highlighter when its ui changes
+        textArea.addPropertyChangeListener(new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if("document".equals(evt.getPropertyName())){
+                    ((Document) evt.getOldValue()).removeDocumentListener(documentListener);
+                    ((Document) evt.getNewValue()).addDocumentListener(documentListener);
+                    clear();
+                }else if("highlighter".equals(evt.getPropertyName())){
+                    // the old ui takes its highlighter away before the new one puts its own in
+                    highlight = null;
+                    if(count > 0 && evt.getNewValue() != null) addHighlight();
+                }
+            }
+        });
+    }
+
+    public boolean isActive(){return count > 0;}
+
+    // goes back to the caret of the text area
+    public void clear(){
+        if(count == 0) return;
+
+        count = 0;
+        dots = new int[0];
+        marks = new int[0];
+        if(highlight != null) textArea.getHighlighter().removeHighlight(highlight);
+        highlight = null;
+        source.updateTextAreaUI();
+        textArea.repaint();
+    }
+
+    // adds a caret on the line above the topmost caret, or below the bottommost one, as far to the right as the caret
+    // it was added for
+    public void addCaret(boolean above){
+        // the caret of the text area is the first one
+        int[] oldDots = count > 0 ? dots : new int[]{textArea.getCaret().getDot()};
+        int[] oldMarks = count > 0 ? marks : new int[]{textArea.getCaret().getMark()};
+        int oldCount = oldDots.length;
+
+        int from = above ? 0 : oldCount - 1;
+        int dot = verticalMove(oldDots[from], above);
+        if(dot == oldDots[from]) return;
+
+        int[] newDots = new int[oldCount + 1];
+        int[] newMarks = new int[oldCount + 1];
+        int index = above ? 0 : oldCount;
+        System.arraycopy(oldDots, 0, newDots, above ? 1 : 0, oldCount);
+        System.arraycopy(oldMarks, 0, newMarks, above ? 1 : 0, oldCount);
+        newDots[index] = dot;
+        newMarks[index] = dot;
+        setCarets(newDots, newMarks, index);
+
+        try{
+            Rectangle2D r = textArea.modelToView2D(dot);
+            if(r != null) textArea.scrollRectToVisible(r.getBounds());
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }
+    }
+
+    // puts a caret at the end of every line of the selection, or of every line when nothing is selected, which
+    // together with Home is how every line of a file gets the same prefix
+    public void addCaretsToLineEnds(){
+        Document document = textArea.getDocument();
+        int start = textArea.getSelectionStart();
+        int end = textArea.getSelectionEnd();
+        int firstLine = 0;
+        int lastLine = LineIndex.getLineCount(document) - 1;
+        if(start != end){
+            firstLine = LineIndex.getLineOfOffset(document, start);
+            lastLine = LineIndex.getLineOfOffset(document, end);
+
+            // a selection of whole lines ends at the start of the line after them
+            if(lastLine > firstLine && end == LineIndex.getLineStartOffset(document, lastLine)) lastLine--;
+        }else if(lastLine > 0 && LineIndex.getLineStartOffset(document, lastLine) == document.getLength()){
+            // the empty line after the last line break of a file is not a line of its own
+            lastLine--;
+        }
+
+        int[] lineEnds = new int[lastLine - firstLine + 1];
+        for(int i = 0; i < lineEnds.length; i++) lineEnds[i] = getLineEnd(document, firstLine + i);
+        setCarets(lineEnds, lineEnds.clone(), lineEnds.length - 1);
+    }
+
+    private void setCarets(int[] newDots, int[] newMarks, int newPrimary){
+        dots = newDots;
+        marks = newMarks;
+        count = newDots.length;
+        primary = newPrimary;
+        merge();
+
+        if(count == 1){
+            // one caret is the caret of the text area again
+            int dot = dots[0], mark = marks[0];
+            clear();
+            changing = true;
+            try{
+                textArea.setCaretPosition(mark);
+                textArea.moveCaretPosition(dot);
+            }finally{
+                changing = false;
+            }
+            return;
+        }
+
+        // swing's own views would measure every line that an edit at the carets touches
+        if(highlight == null){
+            source.updateTextAreaUI();
+            addHighlight();
+        }
+        changing = true;
+        try{
+            textArea.setCaretPosition(dots[primary]);
+        }finally{
+            changing = false;
+        }
+        textArea.repaint();
+    }
+
+    private void addHighlight(){
+        try{
+            // the painter finds the carets on the screen itself, so the highlight does not need a range
+            highlight = textArea.getHighlighter().addHighlight(0, 0, painter);
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }
+    }
+
+    // returns whether the key was handled for all of the carets
+    private boolean handleKey(KeyEvent e){
+        boolean shift = e.isShiftDown();
+        boolean control = e.isControlDown() || e.isMetaDown();
+        if(e.isAltDown()) return false;
+
+        switch(e.getKeyCode()){
+            case KeyEvent.VK_ESCAPE:
+                int dot = dots[primary];
+                clear();
+                textArea.setCaretPosition(dot);
+                return true;
+            case KeyEvent.VK_ENTER:
+                if(control) return false;
+                type("\n");
+                return true;
+            case KeyEvent.VK_TAB:
+                if(control || shift) return false;
+                type("\t");
+                return true;
+            case KeyEvent.VK_BACK_SPACE:
+                if(control) return false;
+                delete(1, 0);
+                return true;
+            case KeyEvent.VK_DELETE:
+                if(control) return false;
+                delete(0, 1);
+                return true;
+            case KeyEvent.VK_LEFT:
+            case KeyEvent.VK_RIGHT:
+            case KeyEvent.VK_UP:
+            case KeyEvent.VK_DOWN:
+            case KeyEvent.VK_HOME:
+            case KeyEvent.VK_END:
+                move(e.getKeyCode(), control, shift);
+                return true;
+            case KeyEvent.VK_C:
+            case KeyEvent.VK_X:
+            case KeyEvent.VK_V:
+                if(!control || shift) return false;
+                if(e.getKeyCode() == KeyEvent.VK_V) paste();
+                else copy(e.getKeyCode() == KeyEvent.VK_X);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void type(String text){
+        String[] texts = new String[count];
+        Arrays.fill(texts, text);
+        replace(texts, 0, 0);
+    }
+
+    // removes the selections, or the given number of characters before and after the carets that have none
+    private void delete(int before, int after){
+        String[] texts = new String[count];
+        Arrays.fill(texts, "");
+        replace(texts, before, after);
+    }
+
+    // replaces the selection of every caret with its text all at once, carets without a selection replace the
+    // characters around them instead. the carets end up after their texts
+    private void replace(String[] texts, int before, int after){
+        if(!textArea.isEditable()){
+            UIManager.getLookAndFeel().provideErrorFeedback(textArea);
+            return;
+        }
+
+        Document document = textArea.getDocument();
+        int length = document.getLength();
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        EditBatch batch = new EditBatch();
+        int previousEnd = 0;
+        for(int i = 0; i < count; i++){
+            int start = getStart(i), end = getEnd(i);
+            if(start == end){
+                start = Math.max(0, start - before);
+                end = Math.min(length, end + after);
+            }
+
+            // carets next to each other can not both remove the character between them
+            start = Math.max(start, previousEnd);
+            end = Math.max(end, start);
+            batch.replace(start, end - start, texts[i]);
+            starts[i] = start;
+            ends[i] = end;
+            previousEnd = end;
+        }
+
+        UndoHistory undoHistory = source.getUndoHistory();
+        undoHistory.beginCompoundEdit();
+        changing = true;
+        try{
+            apply(document, batch);
+
+            int shift = 0;
+            for(int i = 0; i < count; i++){
+                dots[i] = starts[i] + shift + texts[i].length();
+                marks[i] = dots[i];
+                shift += texts[i].length() - (ends[i] - starts[i]);
+            }
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }finally{
+            changing = false;
+            undoHistory.endCompoundEdit();
+        }
+        setCarets(dots, marks, primary);
+    }
+
+    private static void apply(Document document, EditBatch batch) throws BadLocationException {
+        if(document instanceof PieceTableDocument){
+            ((PieceTableDocument) document).apply(batch);
+            return;
+        }
+
+        // other documents get the replacements one by one, from the bottom up so the offsets stay right
+        for(int i = batch.size() - 1; i >= 0; i--){
+            ((AbstractDocument) document).replace(batch.getOffset(i), batch.getLength(i), batch.getText(i), null);
+        }
+    }
+
+    private void move(int keyCode, boolean word, boolean select){
+        Document document = textArea.getDocument();
+        for(int i = 0; i < count; i++){
+            int dot = dots[i];
+            boolean selected = dots[i] != marks[i];
+            switch(keyCode){
+                case KeyEvent.VK_LEFT:
+                    if(selected && !select) dot = getStart(i);
+                    else if(word) dot = nextWord(dot, false);
+                    else dot = Math.max(0, dot - 1);
+                    break;
+                case KeyEvent.VK_RIGHT:
+                    if(selected && !select) dot = getEnd(i);
+                    else if(word) dot = nextWord(dot, true);
+                    else dot = Math.min(document.getLength(), dot + 1);
+                    break;
+                case KeyEvent.VK_UP:
+                case KeyEvent.VK_DOWN:
+                    dot = verticalMove(dot, keyCode == KeyEvent.VK_UP);
+                    break;
+                case KeyEvent.VK_HOME:
+                    dot = LineIndex.getLineStartOffset(document, LineIndex.getLineOfOffset(document, dot));
+                    break;
+                default:
+                    dot = getLineEnd(document, LineIndex.getLineOfOffset(document, dot));
+                    break;
+            }
+
+            dots[i] = dot;
+            if(!select) marks[i] = dot;
+        }
+        setCarets(dots, marks, primary);
+    }
+
+    private int nextWord(int offset, boolean forward){
+        try{
+            return forward ? Utilities.getNextWord(textArea, offset) : Utilities.getPreviousWord(textArea, offset);
+        }catch(BadLocationException e){
+            // there is no word before the start or after the end of the text
+            return forward ? textArea.getDocument().getLength() : 0;
+        }
+    }
+
+    // the offset on the line shown above or below the offset that is closest to it on the screen, or the offset itself
+    // on the first and last line
+    private int verticalMove(int offset, boolean up){
+        try{
+            Rectangle2D r = textArea.modelToView2D(offset);
+            if(r == null) return offset;
+
+            double y = up ? r.getY() - 1 : r.getY() + r.getHeight() + 1;
+            if(y < 0) return offset;
+
+            int moved = textArea.viewToModel2D(new Point2D.Double(r.getX(), y));
+            Rectangle2D movedRect = textArea.modelToView2D(moved);
+            return movedRect == null || movedRect.getY() == r.getY() ? offset : moved;
+        }catch(BadLocationException e){
+            return offset;
+        }
+    }
+
+    private void copy(boolean cut){
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < count; i++){
+            if(dots[i] == marks[i]) continue;
+            try{
+                if(text.length() > 0) text.append('\n');
+                text.append(textArea.getDocument().getText(getStart(i), getEnd(i) - getStart(i)));
+            }catch(BadLocationException e){
+                e.printStackTrace();
+            }
+        }
+        if(text.length() == 0) return;
+
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text.toString()), null);
+        if(cut) delete(0, 0);
+    }
+
+    // pastes a line at each caret when there are as many lines as carets, like text that was copied from them.
+    // otherwise every caret gets all of the text
+    private void paste(){
+        String text;
+        try{
+            text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+        }catch(UnsupportedFlavorException | IOException | IllegalStateException e){
+            return;
+        }
+        text = text.replace("\r\n", "\n");
+
+        String[] lines = text.split("\n", -1);
+        if(lines.length == count + 1 && lines[count].isEmpty()) lines = Arrays.copyOf(lines, count);
+        if(lines.length != count){
+            lines = new String[count];
+            Arrays.fill(lines, text);
+        }
+        replace(lines, 0, 0);
+    }
+
+    // joins carets that ended up at the same offset and selections that overlap
+    private void merge(){
+        int merged = 0;
+        for(int i = 0; i < count; i++){
+            if(merged > 0){
+                int previous = merged - 1;
+                int previousEnd = Math.max(dots[previous], marks[previous]);
+                int start = getStart(i);
+                boolean overlaps = start < previousEnd || start == previousEnd && dots[i] == marks[i] &&
+                        dots[previous] == marks[previous];
+                if(overlaps){
+                    // the joined selection keeps the direction of the later caret
+                    int joinedStart = Math.min(Math.min(dots[previous], marks[previous]), start);
+                    int joinedEnd = Math.max(previousEnd, getEnd(i));
+                    boolean forward = dots[i] >= marks[i];
+                    dots[previous] = forward ? joinedEnd : joinedStart;
+                    marks[previous] = forward ? joinedStart : joinedEnd;
+                    if(primary >= i) primary--;
+                    continue;
+                }
+            }
+
+            dots[merged] = dots[i];
+            marks[merged] = marks[i];
+            merged++;
+        }
+
+        if(merged < count){
+            dots = Arrays.copyOf(dots, merged);
+            marks = Arrays.copyOf(marks, merged);
+            count = merged;
+        }
+        primary = Math.max(0, Math.min(primary, count - 1));
+    }
+
+    private int getStart(int index){return Math.min(dots[index], marks[index]);}
+    private int getEnd(int index){return Math.max(dots[index], marks[index]);}
+
+    // the first caret whose selection ends at or after the offset, found by a binary search over the sorted carets
+    private int firstCaretFrom(int offset){
+        int low = 0, high = count;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(getEnd(middle) < offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    // the offset of the line break at the end of the line, or the end of the text for the last line
+    private static int getLineEnd(Document document, int line){
+        if(line + 1 >= LineIndex.getLineCount(document)) return document.getLength();
+        return LineIndex.getLineStartOffset(document, line + 1) - 1;
+    }
+
+    // selects a block of text with the mouse while alt is held down, a caret on each line from the column the drag
+    // started at to the one it is at now. word wrap has no columns to speak of, so there it is a normal selection
+    private class BlockCaret extends DefaultCaret {
+        @Override
+        public void mousePressed(MouseEvent e) {
+            if(!e.isAltDown() || !SwingUtilities.isLeftMouseButton(e) || textArea.getLineWrap()){
+                super.mousePressed(e);
+                return;
+            }
+
+            textArea.requestFocusInWindow();
+            blockStart = e.getPoint();
+            selectBlock(blockStart, blockStart);
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            if(blockStart == null){
+                super.mouseDragged(e);
+                return;
+            }
+
+            selectBlock(blockStart, e.getPoint());
+            textArea.scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            if(blockStart == null){
+                super.mouseReleased(e);
+                return;
+            }
+            blockStart = null;
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            // a click ends a block without selecting a word or a line
+            if(!e.isAltDown()) super.mouseClicked(e);
+        }
+    }
+
+    private void selectBlock(Point from, Point to){
+        Document document = textArea.getDocument();
+        int fromLine = LineIndex.getLineOfOffset(document, textArea.viewToModel2D(from));
+        int toLine = LineIndex.getLineOfOffset(document, textArea.viewToModel2D(to));
+        int firstLine = Math.min(fromLine, toLine);
+        int lineCount = Math.abs(toLine - fromLine) + 1;
+
+        int[] newDots = new int[lineCount];
+        int[] newMarks = new int[lineCount];
+        try{
+            for(int i = 0; i < lineCount; i++){
+                Rectangle2D line = textArea.modelToView2D(LineIndex.getLineStartOffset(document, firstLine + i));
+                double y = line.getY() + line.getHeight() / 2;
+                newMarks[i] = textArea.viewToModel2D(new Point2D.Double(from.x, y));
+                newDots[i] = textArea.viewToModel2D(new Point2D.Double(to.x, y));
+            }
+        }catch(BadLocationException e){
+            e.printStackTrace();
+            return;
+        }
+
+        setCarets(newDots, newMarks, toLine - firstLine);
+    }
+}
@@ -0,0 +1,1587 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+public class NotepadGUI extends JFrame {
+    // the text of evicted tabs is written to their swap files in this encoding so that none of it gets lost, the tab
+    // keeps the encoding of its file for when it is saved
+    private static final TextEncoding SWAP_ENCODING = new TextEncoding(StandardCharsets.UTF_8, false, "\n");
+
+    // files bigger than this are offered to be opened read-only in large file mode
+    private static final long LARGE_FILE_THRESHOLD = 256L * 1024 * 1024;
+
+    // how much memory the text and undo histories of the open tabs may take up before the tabs that were not used for
+    // the longest time are evicted to disk. set with -Dnotepad.tabMemoryMB=<megabytes>, defaults to half of the heap
+    private static final long TAB_MEMORY_BUDGET = Long.getLong("notepad.tabMemoryMB",
+            Runtime.getRuntime().maxMemory() / 2 / (1024 * 1024)) * 1024 * 1024;
+
+    // the most lines that following a file keeps, the oldest ones are dropped beyond that. set with
+    // -Dnotepad.followMaxLines=<lines>, 0 (the default) keeps every line
+    private static final int FOLLOW_MAX_LINES = Integer.getInteger("notepad.followMaxLines", 0);
+
+    // file explorer, created the first time a file is opened or saved because setting it up reads the file system
+    private JFileChooser fileChooser;
+
+    // the folder the file chooser starts in
+    private static final File DEFAULT_FOLDER = new File("src/assets");
+
+    // run once the text area has been painted for the first time, null after that
+    private List<Runnable> firstPaintTasks = new ArrayList<>();
+
+    private JTextArea textArea;
+    public JTextArea getTextArea(){return textArea;}
+
+    // zooms the text area, quick zoom steps are merged into one change of the font
+    private TextZoom textZoom;
+    private JScrollPane scrollPane;
+
+    // a second view of the same document below the text area while the view is split, null otherwise
+    private JPanel editorPanel;
+    private JSplitPane splitPane;
+    private SplitTextArea splitTextArea;
+
+    // the open documents, all of them are shown in the one text area and the selected tab decides which one
+    private final List<DocumentTab> tabs = new ArrayList<>();
+    public List<DocumentTab> getTabs(){return Collections.unmodifiableList(tabs);}
+    private JTabbedPane tabbedPane;
+    private DocumentTab activeTab;
+
+    // tabs whose text is being written to a swap file so that it can be let go
+    private final Set<DocumentTab> evictingTabs = new HashSet<>();
+
+    // manages undo and redo functionalities, keeps its memory use bounded by moving old edits to disk. every tab has
+    // its own, this is the one of the selected tab
+    private UndoHistory undoHistory;
+    private UndoableEditListener undoableEditListener;
+    public UndoHistory getUndoHistory(){return undoHistory;}
+
+    // created the first time find is used
+    private FindDialog findDialog;
+
+    // the carets besides the one of the text area, for editing many lines at once
+    private MultiCaret multiCaret;
+    private FindInFilesDialog findInFilesDialog;
+    private DiagnosticsDialog diagnosticsDialog;
+
+    // loads the opened file in the background, null when no file is being loaded
+    private SwingWorker<?, ?> fileLoader;
+    private DocumentTab loadingTab;
+
+    // saves the text in the background, null when no file is being saved
+    private FileSaver fileSaver;
+
+    // appends what gets written to the file of the selected tab, null when the file is not being followed
+    private FileFollower fileFollower;
+    private JCheckBoxMenuItem followMenuItem;
+
+    // displays the progress of the file that is being loaded or saved
+    private JPanel progressPanel;
+    private JLabel progressLabel;
+    private JProgressBar progressBar;
+    private PropertyChangeListener progressListener;
+
+    // shows where the caret is and how the file is encoded
+    private StatusBar statusBar;
+
+    public NotepadGUI(){
+        super("Notepad");
+        setSize(400, 500);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+
+        addGuiComponents();
+
+        // the font menu needs the installed fonts, looking them up can take a while so it is started as soon as the
+        // window is up, not before so that it does not compete with the first paint
+        whenPainted(FontFamilies::load);
+
+        // the changes that are still waiting to be written to the autosave journals go to disk before the notepad closes
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                flushJournals();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                flushJournals();
+            }
+        });
+    }
+
+    // runs the task on the edt after the text area has been painted for the first time, work that the first look at the
+    // window does not need is put off until then
+    public void whenPainted(Runnable task){
+        if(firstPaintTasks != null){
+            firstPaintTasks.add(task);
+        }else{
+            SwingUtilities.invokeLater(task);
+        }
+    }
+
+    private void firstPainted(){
+        if(firstPaintTasks == null) return;
+        for(Runnable task : firstPaintTasks) SwingUtilities.invokeLater(task);
+        firstPaintTasks = null;
+    }
+
+    private JFileChooser getFileChooser(){
+        if(fileChooser == null){
+            fileChooser = new JFileChooser();
+            fileChooser.setCurrentDirectory(DEFAULT_FOLDER);
+            fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("Compressed Files", "gz"));
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Text Files", "txt"));
+        }
+        return fileChooser;
+    }
+
+    private void flushJournals(){
+        for(DocumentTab tab : tabs) tab.getJournal().flush();
+        AutosaveJournal.awaitWrites();
+    }
+
+    // opens the documents that an earlier notepad did not save in tabs of their own, they are read in the background
+    public void recoverDocuments(List<File> sessions){
+        new SwingWorker<List<AutosaveJournal.RecoveredDocument>, Void>(){
+            @Override
+            protected List<AutosaveJournal.RecoveredDocument> doInBackground() throws Exception {
+                return AutosaveJournal.recover(sessions);
+            }
+
+            @Override
+            protected void done() {
+                List<AutosaveJournal.RecoveredDocument> documents;
+                try{
+                    documents = get();
+                }catch(InterruptedException | ExecutionException e){
+                    JOptionPane.showMessageDialog(NotepadGUI.this, "Could not recover the documents: " + e.getCause(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                DocumentTab lastTab = null;
+                for(AutosaveJournal.RecoveredDocument recovered : documents){
+                    DocumentTab tab = new DocumentTab(recovered.getFile(), false);
+                    tab.setName("Recovered");
+                    tab.setDocument(recovered.getDocument());
+                    tab.setEncoding(recovered.getEncoding());
+                    tab.setCompression(recovered.getCompression());
+                    SyntaxHighlighter.setLexer(recovered.getDocument(), Lexer.forFile(recovered.getFile()));
+                    tab.setModified(true);
+
+                    // the recovered text goes into a journal of this notepad before the old one is deleted
+                    tab.getJournal().attach(recovered.getDocument(), recovered.getFile(), false);
+                    addTab(tab);
+                    lastTab = tab;
+                }
+                AutosaveJournal.deleteSessions(sessions);
+
+                if(lastTab != null) showFileTab(lastTab, null);
+            }
+        }.execute();
+    }
+
+    private void addGuiComponents(){
+        addToolbar();
+
+        // area to type text into
+        textArea = new JTextArea(){
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                firstPainted();
+            }
+        };
+        undoableEditListener = new UndoableEditListener() {
+            @Override
+            public void undoableEditHappened(UndoableEditEvent e) {
+                // adds each edit that we do in the text area (either adding or removing text)
+                undoHistory.addEdit(e.getEdit());
+
+                activeTab.addEdit();
+                if(!activeTab.isModified()){
+                    activeTab.setModified(true);
+                    updateTabTitle(activeTab);
+                }
+            }
+        };
+
+        multiCaret = new MultiCaret(this);
+        textZoom = new TextZoom(textArea);
+        scrollPane = new JScrollPane(textZoom.getLayer());
+
+        // the tabs only hold an empty placeholder each, the text area below them shows the selected one
+        tabbedPane = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+        tabbedPane.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                int index = tabbedPane.getSelectedIndex();
+                if(index >= 0) showTab(tabs.get(index), null);
+            }
+        });
+
+        editorPanel = new JPanel(new BorderLayout());
+        editorPanel.add(tabbedPane, BorderLayout.NORTH);
+        editorPanel.add(scrollPane, BorderLayout.CENTER);
+        add(editorPanel, BorderLayout.CENTER);
+
+        statusBar = new StatusBar(textArea);
+        textArea.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                statusBar.setTextArea(textArea);
+            }
+        });
+        newTab();
+
+        addProgressPanel();
+
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(progressPanel, BorderLayout.NORTH);
+        southPanel.add(statusBar, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
+    }
+
+    private void addProgressPanel(){
+        progressPanel = new JPanel(new BorderLayout(5, 0));
+        progressPanel.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+
+        progressLabel = new JLabel();
+        progressPanel.add(progressLabel, BorderLayout.WEST);
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+
+        // stops loading the file (the text that has already been loaded stays in the text area) or stops
+        // saving it (the file on disk stays the way it was)
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(fileLoader != null){
+                    fileLoader.cancel(true);
+                }else if(fileSaver != null){
+                    fileSaver.cancel(true);
+                }
+            }
+        });
+        progressPanel.add(cancelButton, BorderLayout.EAST);
+
+        progressListener = new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if("progress".equals(evt.getPropertyName())){
+                    progressBar.setValue((Integer) evt.getNewValue());
+                }
+            }
+        };
+
+        // only shown while a file is being loaded or saved
+        progressPanel.setVisible(false);
+    }
+
+    private void showProgress(String text){
+        progressLabel.setText(text);
+        progressBar.setValue(0);
+        progressPanel.setVisible(true);
+    }
+
+    private void hideProgress(){
+        if(fileLoader == null && fileSaver == null) progressPanel.setVisible(false);
+    }
+
+    // creates an empty editable document, its text is kept in a piece table so that edits stay fast in large files.
+    // its lines are indexed from the start, so a file that is loaded into it is indexed chunk by chunk
+    private static Document createDocument(){
+        Document document = new PieceTableDocument();
+        LineIndex.of(document);
+        return document;
+    }
+
+    // shows the document in the text area, it stays in its tab (together with its undo history) when another tab is
+    // selected
+    private void setDocument(Document document){
+        Document oldDocument = textArea.getDocument();
+        oldDocument.removeUndoableEditListener(undoableEditListener);
+
+        // large files need their own ui, it has to be installed before the document so that swing's default views
+        // never get to see a large file, and it can only be taken off once the large file is gone
+        boolean largeFile = document instanceof LargeFileDocument;
+        if(largeFile) installTextAreaUI(true);
+        textArea.setDocument(document);
+        if(!largeFile) updateTextAreaUI();
+
+        // large files can only be looked at
+        textArea.setEditable(!largeFile);
+    }
+
+    // puts the notepad's own text area ui on or takes it off again, it shows large files, wrapped text, highlighted
+    // text and split views
+    private void installTextAreaUI(boolean install){
+        boolean installed = textArea.getUI() instanceof NotepadTextAreaUI;
+        if(install && !installed) textArea.setUI(new NotepadTextAreaUI());
+        if(!install && installed) textArea.updateUI();
+    }
+
+    // the ui is needed for whatever swing's own views cannot show, or would measure again for every view (or for
+    // every line that an edit at many carets touches)
+    void updateTextAreaUI(){
+        Document document = textArea.getDocument();
+        installTextAreaUI(textArea.getLineWrap() || isLargeFileOpen() || SyntaxHighlighter.of(document) != null
+                || splitTextArea != null || multiCaret.isActive() || NotepadTextAreaUI.hasManyLines(document));
+    }
+
+    // highlights the document the way files of its type are written, or not if there is no lexer for them
+    private void highlightDocument(Document document, File file){
+        SyntaxHighlighter.setLexer(document, Lexer.forFile(file));
+        if(textArea.getDocument() != document) return;
+
+        updateTextAreaUI();
+        textArea.repaint();
+    }
+
+    // files this big are offered to be opened in large file mode, which can not read compressed files
+    static boolean isLargeFile(File file){
+        return file.length() > LARGE_FILE_THRESHOLD && !isCompressed(file);
+    }
+
+    private static boolean isCompressed(File file){
+        try{
+            return Compression.of(file).isCompressed();
+        }catch(IOException e){
+            return false;
+        }
+    }
+
+    private boolean isLargeFileOpen(){
+        return textArea.getDocument() instanceof LargeFileDocument;
+    }
+
+    private void cancelFileLoader(){
+        if(fileLoader == null) return;
+
+        fileLoader.cancel(true);
+        finishLoading();
+    }
+
+    // restores the text area after a file has finished loading (or was cancelled)
+    private void finishLoading(){
+        fileLoader = null;
+        loadingTab = null;
+        hideProgress();
+        textArea.setEditable(!isLargeFileOpen());
+
+        if(textArea.getCaret() instanceof DefaultCaret){
+            ((DefaultCaret) textArea.getCaret()).setUpdatePolicy(DefaultCaret.UPDATE_WHEN_ON_EDT);
+        }
+
+        // from now on the edits that the user makes can be undone
+        textArea.getDocument().removeUndoableEditListener(undoableEditListener);
+        textArea.getDocument().addUndoableEditListener(undoableEditListener);
+    }
+
+    // adds an empty tab for new text and selects it
+    private void newTab(){
+        DocumentTab tab = new DocumentTab(null, false);
+        tab.setDocument(createDocument());
+        tab.getJournal().attach(tab.getDocument(), null, true);
+        addTab(tab);
+        showTab(tab, null);
+    }
+
+    private void addTab(DocumentTab tab){
+        tabs.add(tab);
+        tabbedPane.addTab(tab.getTitle(), new JPanel());
+        updateTabTitle(tab);
+    }
+
+    private DocumentTab findTab(File file){
+        for(DocumentTab tab : tabs){
+            if(file.equals(tab.getFile())) return tab;
+        }
+        return null;
+    }
+
+    private void updateTabTitle(DocumentTab tab){
+        int index = tabs.indexOf(tab);
+        if(index < 0) return;
+
+        tabbedPane.setTitleAt(index, tab.getTitle());
+        tabbedPane.setToolTipTextAt(index, tab.getFile() == null ? null : tab.getFile().getAbsolutePath());
+        if(tab == activeTab) setTitle(tab.getTitle());
+    }
+
+    // shows the tab in the text area, reading its text first if it is not in memory. onLoaded is run once its text
+    // is there
+    private void showTab(DocumentTab tab, Runnable onLoaded){
+        if(tab == activeTab){
+            if(onLoaded != null && fileLoader == null) onLoaded.run();
+            return;
+        }
+
+        if(activeTab != null){
+            stopFollowing();
+
+            // a tab that is left while it is loading is read again from the start when it comes back
+            if(fileLoader != null && loadingTab == activeTab){
+                cancelFileLoader();
+                activeTab.unload();
+            }
+
+            // remember where the user was
+            activeTab.setCaretPosition(textArea.getCaretPosition());
+            activeTab.setViewPosition(scrollPane.getViewport().getViewPosition());
+        }
+
+        activeTab = tab;
+        undoHistory = tab.getUndoHistory();
+        statusBar.setEncoding(tab.getEncoding());
+        statusBar.setCompression(tab.getCompression());
+        tab.setLastUsed(System.nanoTime());
+        tabbedPane.setSelectedIndex(tabs.indexOf(tab));
+        setTitle(tab.getTitle());
+
+        if(tab.getDocument() == null){
+            loadTab(tab, onLoaded);
+        }else{
+            // a tab that was being evicted is needed again, so it keeps its text
+            evictingTabs.remove(tab);
+
+            setDocument(tab.getDocument());
+            tab.getDocument().addUndoableEditListener(undoableEditListener);
+            textArea.setCaretPosition(Math.min(tab.getCaretPosition(), tab.getDocument().getLength()));
+
+            // the text area has to be laid out for the new document before it can be scrolled
+            Point viewPosition = tab.getViewPosition();
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if(activeTab == tab) scrollPane.getViewport().setViewPosition(viewPosition);
+                }
+            });
+            if(onLoaded != null) onLoaded.run();
+        }
+
+        enforceMemoryBudget();
+    }
+
+    // closes the selected tab. its autosave journal is deleted with it, so changes that were not saved are asked about
+    // first: they are saved and the tab is closed once they are in the file, thrown away, or the tab stays open
+    private void closeActiveTab(){
+        DocumentTab tab = activeTab;
+        if(tab.isModified()){
+            int choice = JOptionPane.showConfirmDialog(this, "Save the changes to " + tab.getTitle().substring(1) +
+                    " before closing it?", "Close Tab", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
+            if(choice == JOptionPane.CANCEL_OPTION || choice == JOptionPane.CLOSED_OPTION) return;
+            if(choice == JOptionPane.YES_OPTION){
+                save(new Runnable() {
+                    @Override
+                    public void run() {
+                        closeTab(tab);
+                    }
+                });
+                return;
+            }
+        }
+        closeTab(tab);
+    }
+
+    private void closeTab(DocumentTab tab){
+        if(fileLoader != null && loadingTab == tab) cancelFileLoader();
+
+        // there is always a tab to type into
+        if(tabs.size() == 1) newTab();
+
+        int index = tabs.indexOf(tab);
+        if(tab == activeTab) showTab(tabs.get(index + 1 < tabs.size() ? index + 1 : index - 1), null);
+
+        tabs.remove(index);
+        tabbedPane.removeTabAt(index);
+        evictingTabs.remove(tab);
+        tab.dispose();
+    }
+
+    // reads the text of the tab from its swap file or its file, in large file mode if it is a large file
+    private void loadTab(DocumentTab tab, Runnable onLoaded){
+        if(tab.isLargeFile()){
+            openLargeFile(tab, onLoaded);
+        }else{
+            openFile(tab, onLoaded);
+        }
+    }
+
+    // adds a tab for the file, its text is only read once the tab is selected
+    private DocumentTab addFileTab(File file, boolean largeFile){
+        DocumentTab tab = new DocumentTab(file, largeFile);
+        addTab(tab);
+        return tab;
+    }
+
+    // selects the tab of a file, an empty tab that was never used is replaced by it
+    private void showFileTab(DocumentTab tab, Runnable onLoaded){
+        DocumentTab previousTab = activeTab;
+        showTab(tab, onLoaded);
+        if(previousTab != null && previousTab != tab && previousTab.isUnused()) closeTab(previousTab);
+    }
+
+    // onLoaded is run once the whole file has been loaded
+    private void openFile(DocumentTab tab, Runnable onLoaded){
+        // stop loading the previous file if it has not finished yet
+        cancelFileLoader();
+
+        // the text of a tab that was evicted with changes is in its swap file
+        File swapFile = tab.getSwapFile();
+        File selectedFile = swapFile != null ? swapFile : tab.getFile();
+
+        // the file is loaded into a new document without an undo listener, that way the chunks being
+        // appended are not recorded as edits
+        Document document = createDocument();
+        SyntaxHighlighter.setLexer(document, Lexer.forFile(tab.getFile()));
+        setDocument(document);
+        tab.setDocument(document);
+
+        // keep the caret (and the view) at the top of the file while text gets appended below it
+        if(textArea.getCaret() instanceof DefaultCaret){
+            ((DefaultCaret) textArea.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        }
+        textArea.setEditable(false);
+
+        showProgress("Loading...");
+
+        loadingTab = tab;
+        Diagnostics.Operation operation = Diagnostics.begin("open file", "characters");
+        fileLoader = new FileLoader(selectedFile, document, swapFile != null ? SWAP_ENCODING : null){
+            @Override
+            protected void done() {
+                // ignore loaders that have been replaced by another file
+                if(fileLoader != this) return;
+                finishLoading();
+
+                if(isCancelled()){
+                    if(swapFile != null){
+                        // the rest of the changes are still in the swap file, they are read again next time
+                        tab.unload();
+                        setDocument(createDocument());
+                        textArea.setEditable(false);
+                        setTitle(tab.getTitle() + " (not loaded)");
+                        return;
+                    }
+
+                    // the file was only partially loaded, saving it would cut off the rest of the file
+                    tab.setName(getFile().getName() + " (partially loaded)");
+                    tab.setFile(null);
+                    tab.setModified(true);
+                    tab.getJournal().attach(document, null, false);
+                    updateTabTitle(tab);
+                    return;
+                }
+
+                try{
+                    get();
+                    operation.end(document.getLength());
+                    // the document was empty when it was shown, now it may have too many lines for swing's views
+                    updateTextAreaUI();
+                    textArea.setCaretPosition(Math.min(tab.getCaretPosition(), document.getLength()));
+                    if(swapFile == null){
+                        tab.setEncoding(getEncoding());
+                        tab.setCompression(getCompression());
+                        tab.setFileLength(getBytesRead());
+                        statusBar.setEncoding(tab.getEncoding());
+                        statusBar.setCompression(tab.getCompression());
+                    }
+                    tab.setSwapFile(null);
+                    tab.getJournal().attach(document, tab.getFile(), !tab.isModified());
+                    if(onLoaded != null) onLoaded.run();
+                }catch(InterruptedException | ExecutionException e){
+                    JOptionPane.showMessageDialog(NotepadGUI.this, "Could not open " + getFile().getName() + ": " +
+                            e.getCause(), "Error", JOptionPane.ERROR_MESSAGE);
+                    closeTab(tab);
+                }
+
+                enforceMemoryBudget();
+            }
+        };
+        fileLoader.addPropertyChangeListener(progressListener);
+        fileLoader.execute();
+    }
+
+    // opens the file, unless it is already open, and selects part of one of its lines
+    public void openFileAt(File file, int line, int column, int length){
+        Runnable select = new Runnable() {
+            @Override
+            public void run() {
+                selectInLine(line, column, length);
+            }
+        };
+
+        DocumentTab tab = findTab(file);
+        if(tab == null) tab = addFileTab(file, isLargeFile(file));
+
+        if(tab == activeTab && fileLoader != null){
+            // the file is still loading, it is read again so that the line can be selected once it is there
+            loadTab(tab, select);
+        }else{
+            showFileTab(tab, select);
+        }
+    }
+
+    private void selectInLine(int line, int column, int length){
+        Document document = textArea.getDocument();
+        line = Math.min(line, LineIndex.getLineCount(document) - 1);
+        int lineEnd = line + 1 < LineIndex.getLineCount(document) ?
+                LineIndex.getLineStartOffset(document, line + 1) - 1 : document.getLength();
+        int start = Math.min(LineIndex.getLineStartOffset(document, line) + column, lineEnd);
+        int end = Math.min(start + length, document.getLength());
+
+        textArea.select(start, end);
+        textArea.requestFocusInWindow();
+    }
+
+    // appends what gets written to the file of the selected tab from now on, the text can not be edited meanwhile
+    private void startFollowing(){
+        DocumentTab tab = activeTab;
+        String problem = tab.getFile() == null ? "The text has no file to follow" :
+                tab.isLargeFile() ? "Files in large file mode can not be followed" :
+                tab.getCompression().isCompressed() ? "Compressed files can not be followed" :
+                fileLoader != null ? "The file is still loading" :
+                tab.isModified() ? "Save the changes first, following the file would mix them with the file" : null;
+        if(problem != null){
+            followMenuItem.setSelected(false);
+            JOptionPane.showMessageDialog(this, problem, "Follow File", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // the appended text is neither an edit that can be undone nor a change that needs to be autosaved. the edits
+        // from before are let go too, dropped lines would shift the text under them and undo them in the wrong place
+        Document document = textArea.getDocument();
+        document.removeUndoableEditListener(undoableEditListener);
+        tab.getUndoHistory().discardAllEdits();
+        tab.getJournal().detach();
+        textArea.setEditable(false);
+
+        // the view only moves along with the new text when it is at the end, see scrollWithFile
+        if(textArea.getCaret() instanceof DefaultCaret){
+            ((DefaultCaret) textArea.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        }
+
+        fileFollower = new FileFollower(tab.getFile(), document, tab.getEncoding(), tab.getFileLength(),
+                FOLLOW_MAX_LINES){
+            @Override
+            protected void process(List<Chunk> chunks) {
+                boolean scroll = isScrolledToEnd();
+                super.process(chunks);
+                if(scroll && fileFollower == this) scrollToEnd();
+            }
+        };
+        fileFollower.execute();
+        scrollToEnd();
+    }
+
+    private void stopFollowing(){
+        if(fileFollower == null) return;
+
+        FileFollower follower = fileFollower;
+        fileFollower = null;
+        follower.cancel(true);
+        followMenuItem.setSelected(false);
+
+        DocumentTab tab = activeTab;
+        Document document = textArea.getDocument();
+        if(follower.isWholeFile()){
+            tab.setFileLength(follower.getAppendedPosition());
+            tab.getJournal().attach(document, tab.getFile(), true);
+        }else{
+            // lines were dropped or the file started over, saving the text would cut off the file
+            tab.setName(tab.getFile().getName() + " (followed)");
+            tab.setFile(null);
+            tab.setModified(true);
+            tab.getJournal().attach(document, null, false);
+            updateTabTitle(tab);
+        }
+
+        textArea.setEditable(true);
+        if(textArea.getCaret() instanceof DefaultCaret){
+            ((DefaultCaret) textArea.getCaret()).setUpdatePolicy(DefaultCaret.UPDATE_WHEN_ON_EDT);
+        }
+        document.removeUndoableEditListener(undoableEditListener);
+        document.addUndoableEditListener(undoableEditListener);
+    }
+
+    // the user did not scroll up to read something, give or take a line
+    private boolean isScrolledToEnd(){
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        return scrollBar.getValue() + scrollBar.getVisibleAmount() >=
+                scrollBar.getMaximum() - textArea.getFontMetrics(textArea.getFont()).getHeight();
+    }
+
+    // the text area has to be laid out for the new text before it can be scrolled to its end
+    private void scrollToEnd(){
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+                scrollBar.setValue(scrollBar.getMaximum());
+            }
+        });
+    }
+
+    // lets go of the text of the tabs that were not used for the longest time, until the open tabs fit in the memory
+    // budget again. text that is not in its file is written to a swap file first
+    private void enforceMemoryBudget(){
+        long usage = 0;
+        List<DocumentTab> candidates = new ArrayList<>();
+        for(DocumentTab tab : tabs){
+            usage += tab.getMemoryUsage();
+            if(tab != activeTab && tab.getDocument() != null && !evictingTabs.contains(tab)) candidates.add(tab);
+        }
+        if(usage <= TAB_MEMORY_BUDGET) return;
+
+        candidates.sort(new Comparator<DocumentTab>() {
+            @Override
+            public int compare(DocumentTab tab1, DocumentTab tab2) {
+                return Long.compare(tab1.getLastUsed(), tab2.getLastUsed());
+            }
+        });
+
+        for(DocumentTab tab : candidates){
+            if(usage <= TAB_MEMORY_BUDGET) break;
+            usage -= tab.getMemoryUsage();
+            evictTab(tab);
+        }
+    }
+
+    private void evictTab(DocumentTab tab){
+        // text that is in its file can simply be read again
+        if(!tab.isModified() && tab.getFile() != null){
+            tab.unload();
+            return;
+        }
+
+        Document document = tab.getDocument();
+        TextSnapshot snapshot;
+        File swapFile;
+        try{
+            snapshot = TextSnapshot.of(document);
+            swapFile = File.createTempFile("notepad-", ".swap");
+            swapFile.deleteOnExit();
+        }catch(BadLocationException | IOException e){
+            e.printStackTrace();
+            return;
+        }
+
+        long editCount = tab.getEditCount();
+        evictingTabs.add(tab);
+        Diagnostics.Operation operation = Diagnostics.begin("write swap file", "characters");
+        new FileSaver(snapshot, swapFile, SWAP_ENCODING, Compression.NONE){
+            @Override
+            protected void done() {
+                // the tab was selected or closed in the meantime, it keeps its text
+                boolean evict = evictingTabs.remove(tab) && tab.getDocument() == document &&
+                        tab.getEditCount() == editCount && tab != activeTab;
+
+                try{
+                    get();
+                    operation.end(snapshot.getLength());
+                }catch(InterruptedException | ExecutionException e){
+                    e.printStackTrace();
+                    evict = false;
+                }
+
+                if(!evict){
+                    swapFile.delete();
+                    return;
+                }
+                tab.unload();
+                tab.setSwapFile(swapFile);
+            }
+        }.execute();
+    }
+
+    private void addToolbar(){
+        JToolBar toolBar = new JToolBar();
+        toolBar.setFloatable(false);
+
+        // menu bar
+        JMenuBar menuBar = new JMenuBar();
+        toolBar.add(menuBar);
+
+        // add menus
+        menuBar.add(addFileMenu());
+        menuBar.add(addEditMenu());
+        menuBar.add(addFormatMenu());
+        menuBar.add(addViewMenu());
+
+        add(toolBar, BorderLayout.NORTH);
+    }
+
+    // opens the file read-only through a memory mapped document in its own tab, so that files that do not fit in
+    // memory can be viewed
+    private void openLargeFile(File selectedFile){
+        // the text of a compressed file is not in the file the way it is shown, it can only be read as a stream
+        boolean compressed = isCompressed(selectedFile);
+        if(compressed){
+            JOptionPane.showMessageDialog(this, selectedFile.getName() + " is compressed, it is opened as a normal file",
+                    "Open Large File", JOptionPane.INFORMATION_MESSAGE);
+        }
+
+        DocumentTab tab = findTab(selectedFile);
+        if(tab == null) tab = addFileTab(selectedFile, !compressed);
+        showFileTab(tab, null);
+    }
+
+    private void openLargeFile(DocumentTab tab, Runnable onLoaded){
+        cancelFileLoader();
+        File selectedFile = tab.getFile();
+
+        // nothing can be typed while the file is being indexed
+        setDocument(createDocument());
+        textArea.setEditable(false);
+
+        showProgress("Loading...");
+
+        loadingTab = tab;
+        Diagnostics.Operation operation = Diagnostics.begin("open large file", "bytes");
+        fileLoader = new SwingWorker<LargeFileDocument, Void>(){
+            @Override
+            protected LargeFileDocument doInBackground() throws Exception {
+                // indexes the whole file once without keeping its text in memory
+                return new LargeFileDocument(selectedFile, new IntConsumer() {
+                    @Override
+                    public void accept(int progress) {
+                        setProgress(progress);
+                    }
+                });
+            }
+
+            @Override
+            protected void done() {
+                // ignore loaders that have been replaced by another file
+                if(fileLoader != this) return;
+
+                try{
+                    if(isCancelled()) return;
+                    LargeFileDocument document = get();
+                    operation.end(selectedFile.length());
+                    setDocument(document);
+                    tab.setDocument(document);
+                    tab.setEncoding(document.getEncoding());
+                    statusBar.setEncoding(tab.getEncoding());
+                    updateTabTitle(tab);
+                }catch(InterruptedException | ExecutionException e){
+                    finishLoading();
+                    JOptionPane.showMessageDialog(NotepadGUI.this, "Could not open " + selectedFile.getName() + ": " +
+                            e.getCause(), "Error", JOptionPane.ERROR_MESSAGE);
+                    closeTab(tab);
+                    return;
+                }finally{
+                    if(fileLoader == this) finishLoading();
+                }
+
+                if(onLoaded != null) onLoaded.run();
+            }
+        };
+        fileLoader.addPropertyChangeListener(progressListener);
+        fileLoader.execute();
+    }
+
+    // compares the file of the selected tab (as it was saved) with another file, or two files that are chosen if the
+    // tab has no file
+    private void compareFiles(){
+        JFileChooser fileChooser = getFileChooser();
+        File leftFile = activeTab.getFile();
+        if(leftFile == null){
+            fileChooser.setDialogTitle("Compare");
+            int result = fileChooser.showOpenDialog(this);
+            fileChooser.setDialogTitle(null);
+            if(result != JFileChooser.APPROVE_OPTION) return;
+            leftFile = fileChooser.getSelectedFile();
+        }
+
+        fileChooser.setDialogTitle("Compare " + leftFile.getName() + " With");
+        int result = fileChooser.showOpenDialog(this);
+        fileChooser.setDialogTitle(null);
+        if(result != JFileChooser.APPROVE_OPTION) return;
+
+        new CompareDialog(this, leftFile, fileChooser.getSelectedFile()).setVisible(true);
+    }
+
+    // lets the user pick how the file of the selected tab is compressed the next time it is saved
+    private void chooseCompression(){
+        if(activeTab.isLargeFile()) return;
+
+        Compression[] compressions = {Compression.NONE, Compression.gzip(Compression.FASTEST_LEVEL),
+                Compression.gzip(Compression.DEFAULT_LEVEL), Compression.gzip(Compression.SMALLEST_LEVEL)};
+        String[] choices = {"None", "gzip, fastest", "gzip", "gzip, smallest"};
+
+        Compression current = activeTab.getCompression();
+        int selected = 0;
+        for(int i = 1; i < compressions.length; i++){
+            if(current.isCompressed() && current.getLevel() >= compressions[i].getLevel()) selected = i;
+        }
+
+        Object choice = JOptionPane.showInputDialog(this, "Compress the file when it is saved with:", "Compression",
+                JOptionPane.PLAIN_MESSAGE, null, choices, choices[selected]);
+        if(choice == null) return;
+
+        Compression compression = compressions[Arrays.asList(choices).indexOf(choice)];
+        activeTab.setCompression(compression);
+        statusBar.setCompression(compression);
+    }
+
+    // writes the text as it is right now to the file, the user can keep typing while it is being saved. onSaved is
+    // only run when nothing was typed meanwhile, so that the tab has no changes left that are not in the file
+    private void saveFile(File file, Compression compression, boolean showSavedMessage, Runnable onSaved){
+        DocumentTab tab = activeTab;
+        Document document = textArea.getDocument();
+        TextSnapshot snapshot;
+        try{
+            snapshot = TextSnapshot.of(document);
+        }catch(BadLocationException e){
+            e.printStackTrace();
+            return;
+        }
+
+        long editCount = tab.getEditCount();
+        showProgress("Saving...");
+
+        Diagnostics.Operation operation = Diagnostics.begin("save file", "characters");
+        fileSaver = new FileSaver(snapshot, file, tab.getEncoding(), compression){
+            @Override
+            protected void done() {
+                fileSaver = null;
+                hideProgress();
+                if(isCancelled()) return;
+
+                try{
+                    get();
+                    operation.end(snapshot.getLength());
+                }catch(InterruptedException | ExecutionException e){
+                    JOptionPane.showMessageDialog(NotepadGUI.this, "Could not save " + file.getName() + ": " +
+                            e.getCause(), "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                // the tab now belongs to the saved file, unless it shows a large file that is still mapped
+                if(tabs.contains(tab) && tab.getDocument() == document && !tab.isLargeFile()){
+                    tab.setFile(file);
+                    tab.setCompression(compression);
+                    if(tab == activeTab) statusBar.setCompression(compression);
+                    highlightDocument(document, file);
+
+                    // text that was typed while saving is still not in the file
+                    if(tab.getEditCount() == editCount){
+                        tab.setModified(false);
+                        tab.setFileLength(file.length());
+                        tab.getJournal().markClean(file);
+                    }else{
+                        tab.getJournal().setFile(file);
+                    }
+                    updateTabTitle(tab);
+                }
+
+                // show display dialog
+                if(showSavedMessage) JOptionPane.showMessageDialog(NotepadGUI.this, "Saved File!");
+                if(onSaved != null && tabs.contains(tab) && !tab.isModified()) onSaved.run();
+            }
+        };
+        fileSaver.addPropertyChangeListener(progressListener);
+        fileSaver.execute();
+    }
+
+    // saves the selected tab to its file, or asks for one if it has none. onSaved is run once the text is in the file
+    private void save(Runnable onSaved){
+        // saving while the file is still being loaded would only save part of it
+        if(fileLoader != null || fileSaver != null) return;
+
+        // if the current file is null then we have to perform save as functionality
+        File currentFile = activeTab.getSaveFile();
+        if(currentFile == null){
+            saveAs(onSaved);
+            return;
+        }
+
+        // write to current file
+        saveFile(currentFile, activeTab.getCompression(), false, onSaved);
+    }
+
+    // asks for a file and saves the selected tab to it
+    private void saveAs(Runnable onSaved){
+        // saving while the file is still being loaded would only save part of it
+        if(fileLoader != null || fileSaver != null) return;
+
+        // open save dialog
+        JFileChooser fileChooser = getFileChooser();
+        int result = fileChooser.showSaveDialog(NotepadGUI.this);
+
+        // continue to execute code only if the user pressed the save button
+        if(result != JFileChooser.APPROVE_OPTION) return;
+        File selectedFile = fileChooser.getSelectedFile();
+
+        // we will need to append .txt to the file if it does not have the txt extension yet, files that end
+        // with .gz are compressed
+        String name = selectedFile.getName().toLowerCase();
+        if(!name.endsWith(".txt") && !name.endsWith(".gz")){
+            selectedFile = new File(selectedFile.getAbsoluteFile() + ".txt");
+        }
+
+        // write the user's text into the file in the background
+        saveFile(selectedFile, Compression.forFileName(selectedFile, activeTab.getCompression()), true, onSaved);
+    }
+
+    private JMenu addFileMenu(){
+        JMenu fileMenu = new JMenu("File");
+
+        // "new" functionality - opens a tab with empty text
+        JMenuItem newMenuItem = new JMenuItem("New");
+        newMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                newTab();
+            }
+        });
+        fileMenu.add(newMenuItem);
+
+        // "open" functionality - open a text file
+        JMenuItem openMenuItem = new JMenuItem("Open");
+        openMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // open file explorer, several files can be opened at once
+                JFileChooser fileChooser = getFileChooser();
+                fileChooser.setMultiSelectionEnabled(true);
+                int result = fileChooser.showOpenDialog(NotepadGUI.this);
+                fileChooser.setMultiSelectionEnabled(false);
+
+                if(result != JFileChooser.APPROVE_OPTION) return;
+
+                // every file gets a tab, only the last one is read right away and the others once they are selected
+                DocumentTab lastTab = null;
+                for(File selectedFile : fileChooser.getSelectedFiles()){
+                    DocumentTab tab = findTab(selectedFile);
+                    if(tab == null){
+                        // a file this big would take up a lot of memory, so offer to only view it
+                        boolean largeFile = false;
+                        if(isLargeFile(selectedFile)){
+                            int choice = JOptionPane.showConfirmDialog(NotepadGUI.this,
+                                    selectedFile.getName() + " is " + (selectedFile.length() / (1024 * 1024)) + " MB.\n" +
+                                            "Open it read-only in large file mode?", "Large File", JOptionPane.YES_NO_CANCEL_OPTION);
+                            if(choice == JOptionPane.CANCEL_OPTION || choice == JOptionPane.CLOSED_OPTION) continue;
+                            largeFile = choice == JOptionPane.YES_OPTION;
+                        }
+                        tab = addFileTab(selectedFile, largeFile);
+                    }
+                    lastTab = tab;
+                }
+
+                // read the selected file in the background
+                if(lastTab != null) showFileTab(lastTab, null);
+            }
+        });
+        fileMenu.add(openMenuItem);
+
+        // "open large file" functionality - views a file of any size read-only
+        JMenuItem openLargeFileMenuItem = new JMenuItem("Open Large File (Read-Only)");
+        openLargeFileMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                JFileChooser fileChooser = getFileChooser();
+                int result = fileChooser.showOpenDialog(NotepadGUI.this);
+                if(result != JFileChooser.APPROVE_OPTION) return;
+
+                openLargeFile(fileChooser.getSelectedFile());
+            }
+        });
+        fileMenu.add(openLargeFileMenuItem);
+
+        // "compare files" functionality - shows two files side by side with the lines that differ marked
+        JMenuItem compareMenuItem = new JMenuItem("Compare Files...");
+        compareMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                compareFiles();
+            }
+        });
+        fileMenu.add(compareMenuItem);
+
+        // "save as" functionality - creates a new text file and saves user text
+        JMenuItem saveAsMenuItem = new JMenuItem("Save As");
+        saveAsMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveAs(null);
+            }
+        });
+        fileMenu.add(saveAsMenuItem);
+
+        // "save" functionalty - saves text into current text file
+        JMenuItem saveMenuItem = new JMenuItem("Save");
+        saveMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                save(null);
+            }
+        });
+        fileMenu.add(saveMenuItem);
+
+        // "compression" functionality - picks how the file is compressed when it is saved
+        JMenuItem compressionMenuItem = new JMenuItem("Compression...");
+        compressionMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                chooseCompression();
+            }
+        });
+        fileMenu.add(compressionMenuItem);
+
+        // "close" functionality - closes the selected tab, after asking about changes that were not saved
+        JMenuItem closeMenuItem = new JMenuItem("Close Tab");
+        closeMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_W, InputEvent.CTRL_DOWN_MASK));
+        closeMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                closeActiveTab();
+            }
+        });
+        fileMenu.add(closeMenuItem);
+
+        // "exit" functionality - ends program process
+        JMenuItem exitMenuItem = new JMenuItem("Exit");
+        exitMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // dispose of this gui
+                NotepadGUI.this.dispose();
+            }
+        });
+        fileMenu.add(exitMenuItem);
+
+        return fileMenu;
+    }
+
+    private JMenu addEditMenu(){
+        JMenu editMenu = new JMenu("Edit");
+
+        JMenuItem undoMenuItem = new JMenuItem("Undo");
+        undoMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // means that if there are any edits that we can undo, then we undo them. not while a file is being
+                // followed, the text is not edited then
+                if(fileFollower == null && undoHistory.canUndo()){
+                    Diagnostics.Operation operation = Diagnostics.begin("undo", "steps");
+                    undoHistory.undo();
+                    operation.end(1);
+                }
+            }
+        });
+        editMenu.add(undoMenuItem);
+
+        JMenuItem redoMenuItem = new JMenuItem("Redo");
+        redoMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // means if there is an edit that we can redo then we redo it
+                if(fileFollower == null && undoHistory.canRedo()) {
+                    Diagnostics.Operation operation = Diagnostics.begin("redo", "steps");
+                    undoHistory.redo();
+                    operation.end(1);
+                }
+            }
+        });
+        editMenu.add(redoMenuItem);
+
+        editMenu.addSeparator();
+
+        JMenuItem findMenuItem = new JMenuItem("Find and Replace...");
+        findMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.CTRL_DOWN_MASK));
+        findMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getFindDialog().showDialog();
+            }
+        });
+        editMenu.add(findMenuItem);
+
+        JMenuItem findNextMenuItem = new JMenuItem("Find Next");
+        findNextMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0));
+        findNextMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getFindDialog().findNext();
+            }
+        });
+        editMenu.add(findNextMenuItem);
+
+        JMenuItem findInFilesMenuItem = new JMenuItem("Find in Files...");
+        findInFilesMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F,
+                InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        findInFilesMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(findInFilesDialog == null){
+                    // search the folder of the open file, or the one the file chooser was last in
+                    File currentFile = activeTab.getFile();
+                    File folder = currentFile != null && currentFile.getAbsoluteFile().getParentFile() != null ?
+                            currentFile.getAbsoluteFile().getParentFile() :
+                            fileChooser != null ? fileChooser.getCurrentDirectory() : DEFAULT_FOLDER;
+                    findInFilesDialog = new FindInFilesDialog(NotepadGUI.this, folder);
+                }
+                findInFilesDialog.showDialog();
+            }
+        });
+        editMenu.add(findInFilesMenuItem);
+
+        JMenuItem goToLineMenuItem = new JMenuItem("Go To Line...");
+        goToLineMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G, InputEvent.CTRL_DOWN_MASK));
+        goToLineMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                goToLine();
+            }
+        });
+        editMenu.add(goToLineMenuItem);
+
+        editMenu.addSeparator();
+
+        // typing at many carets changes the document once, however many carets there are
+        JMenuItem caretAboveMenuItem = new JMenuItem("Add Caret Above");
+        caretAboveMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_UP,
+                InputEvent.CTRL_DOWN_MASK | InputEvent.ALT_DOWN_MASK));
+        caretAboveMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                multiCaret.addCaret(true);
+            }
+        });
+        editMenu.add(caretAboveMenuItem);
+
+        JMenuItem caretBelowMenuItem = new JMenuItem("Add Caret Below");
+        caretBelowMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN,
+                InputEvent.CTRL_DOWN_MASK | InputEvent.ALT_DOWN_MASK));
+        caretBelowMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                multiCaret.addCaret(false);
+            }
+        });
+        editMenu.add(caretBelowMenuItem);
+
+        JMenuItem lineEndCaretsMenuItem = new JMenuItem("Add Carets to Line Ends");
+        lineEndCaretsMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L,
+                InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        lineEndCaretsMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                multiCaret.addCaretsToLineEnds();
+            }
+        });
+        editMenu.add(lineEndCaretsMenuItem);
+
+        editMenu.addSeparator();
+
+        // shows how much memory and disk space the undo history takes up
+        JMenuItem undoHistoryMenuItem = new JMenuItem();
+        undoHistoryMenuItem.setEnabled(false);
+        editMenu.add(undoHistoryMenuItem);
+        editMenu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                undoMenuItem.setEnabled(fileFollower == null);
+                redoMenuItem.setEnabled(fileFollower == null);
+                undoHistoryMenuItem.setText("Undo History: " + formatSize(undoHistory.getMemoryUsage()) +
+                        " in memory, " + formatSize(undoHistory.getJournalSize()) + " on disk");
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+            }
+        });
+
+        return editMenu;
+    }
+
+    // asks for a line and puts the caret at its start, the line is looked up in the line index so this is instant even
+    // in files with millions of lines
+    private void goToLine(){
+        Document document = textArea.getDocument();
+        int lineCount = LineIndex.getLineCount(document);
+        int currentLine = LineIndex.getLineOfOffset(document, textArea.getCaretPosition());
+
+        Object input = JOptionPane.showInputDialog(this, "Line number (1 - " + lineCount + "):", "Go To Line",
+                JOptionPane.PLAIN_MESSAGE, null, null, String.valueOf(currentLine + 1));
+        if(input == null) return;
+
+        int line;
+        try{
+            line = Integer.parseInt(input.toString().trim().replace(",", ""));
+        }catch(NumberFormatException e){
+            JOptionPane.showMessageDialog(this, "\"" + input + "\" is not a line number", "Go To Line",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if(line < 1 || line > lineCount){
+            JOptionPane.showMessageDialog(this, "The document has " + lineCount + " lines", "Go To Line",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        selectInLine(line - 1, 0, 0);
+    }
+
+    private FindDialog getFindDialog(){
+        if(findDialog == null) findDialog = new FindDialog(this);
+        return findDialog;
+    }
+
+    private static String formatSize(long bytes){
+        if(bytes < 1024) return bytes + " B";
+        if(bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    // fills the menu the first time it is opened instead of while the window is being built. only for menus without
+    // keyboard shortcuts, a shortcut does nothing until its menu item exists
+    private static void fillWhenOpened(JMenu menu, Runnable fill){
+        menu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                menu.removeMenuListener(this);
+                fill.run();
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+            }
+        });
+    }
+
+    private JMenu addFormatMenu(){
+        JMenu formatMenu = new JMenu("Format");
+        fillWhenOpened(formatMenu, () -> fillFormatMenu(formatMenu));
+        return formatMenu;
+    }
+
+    private void fillFormatMenu(JMenu formatMenu){
+
+        // wrap word functionality
+        JCheckBoxMenuItem wordWrapMenuItem = new JCheckBoxMenuItem("Word Wrap");
+        wordWrapMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                boolean isChecked = wordWrapMenuItem.getState();
+                if(isChecked){
+                    // wrap words, the ui goes on first so that swing never wraps the whole document on the edt
+                    installTextAreaUI(true);
+                    textArea.setLineWrap(true);
+                    textArea.setWrapStyleWord(true);
+                }else{
+                    // unwrap words
+                    textArea.setLineWrap(false);
+                    textArea.setWrapStyleWord(false);
+                    updateTextAreaUI();
+                }
+            }
+        });
+        formatMenu.add(wordWrapMenuItem);
+
+        // aligning text
+        JMenu alignTextMenu = new JMenu("Align Text");
+
+        // align text to the left
+        JMenuItem alignTextLeftMenuItem = new JMenuItem("Left");
+        alignTextLeftMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                 textArea.setComponentOrientation(ComponentOrientation.LEFT_TO_RIGHT);
+            }
+        });
+        alignTextMenu.add(alignTextLeftMenuItem);
+
+        // align text to the right
+        JMenuItem alignTextRightMenuItem = new JMenuItem("Right");
+        alignTextRightMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                textArea.setComponentOrientation(ComponentOrientation.RIGHT_TO_LEFT);
+            }
+        });
+        alignTextMenu.add(alignTextRightMenuItem);
+
+        formatMenu.add(alignTextMenu);
+
+        // font format
+        JMenuItem fontMenuItem = new JMenuItem("Font...");
+        fontMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // launch font menu
+                new FontMenu(NotepadGUI.this).setVisible(true);
+            }
+        });
+        formatMenu.add(fontMenuItem);
+    }
+
+    // puts a second view of the document below the text area or takes it away again. the second view starts out
+    // where the text area is, it keeps its own caret and scroll position from then on
+    private void setSplitView(boolean split){
+        if(split == (splitTextArea != null)) return;
+
+        if(split){
+            // the views of the notepad's ui share the longest line of the document, so the second view does not
+            // measure all of its lines again
+            installTextAreaUI(true);
+            splitTextArea = new SplitTextArea(textArea);
+            splitTextArea.addFocusListener(new FocusAdapter() {
+                @Override
+                public void focusGained(FocusEvent e) {
+                    statusBar.setTextArea((JTextArea) e.getComponent());
+                }
+            });
+            JScrollPane splitScrollPane = new JScrollPane(splitTextArea);
+
+            editorPanel.remove(scrollPane);
+            splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, scrollPane, splitScrollPane);
+            splitPane.setResizeWeight(0.5);
+            editorPanel.add(splitPane, BorderLayout.CENTER);
+            editorPanel.validate();
+            splitPane.setDividerLocation(0.5);
+
+            splitTextArea.setCaretPosition(Math.min(textArea.getCaretPosition(), textArea.getDocument().getLength()));
+            splitScrollPane.getViewport().setViewPosition(scrollPane.getViewport().getViewPosition());
+        }else{
+            splitTextArea.detach();
+            statusBar.setTextArea(textArea);
+            editorPanel.remove(splitPane);
+            editorPanel.add(scrollPane, BorderLayout.CENTER);
+            splitPane = null;
+            splitTextArea = null;
+            updateTextAreaUI();
+            editorPanel.revalidate();
+        }
+        editorPanel.repaint();
+    }
+
+    private JMenu addViewMenu(){
+        JMenu viewMenu = new JMenu("View");
+
+        JMenu zoomMenu = new JMenu("Zoom");
+
+        // zoom in functionality
+        JMenuItem zoomInMenuItem = new JMenuItem("Zoom in");
+        zoomInMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, InputEvent.CTRL_DOWN_MASK));
+        zoomInMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                textZoom.zoomBy(1);
+            }
+        });
+        zoomMenu.add(zoomInMenuItem);
+
+        // zoom out functionality
+        JMenuItem zoomOutMenuItem = new JMenuItem("Zoom out");
+        zoomOutMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, InputEvent.CTRL_DOWN_MASK));
+        zoomOutMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                textZoom.zoomBy(-1);
+            }
+        });
+        zoomMenu.add(zoomOutMenuItem);
+
+        // restore default zoom
+        JMenuItem zoomRestoreMenuItem = new JMenuItem("Restore Default Zoom");
+        zoomRestoreMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, InputEvent.CTRL_DOWN_MASK));
+        zoomRestoreMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                textZoom.zoomTo(12);
+            }
+        });
+        zoomMenu.add(zoomRestoreMenuItem);
+
+        viewMenu.add(zoomMenu);
+
+        // shows what gets appended to the file as it is written, like tail -f
+        followMenuItem = new JCheckBoxMenuItem("Follow File");
+        followMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(followMenuItem.isSelected()){
+                    startFollowing();
+                }else{
+                    stopFollowing();
+                }
+            }
+        });
+        viewMenu.add(followMenuItem);
+
+        // shows the document twice, one view above the other, to look at two places of it at once
+        JCheckBoxMenuItem splitViewMenuItem = new JCheckBoxMenuItem("Split View");
+        splitViewMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setSplitView(splitViewMenuItem.isSelected());
+            }
+        });
+        viewMenu.add(splitViewMenuItem);
+
+        // shows where the time goes, like edt stalls and how long files took to open
+        JMenuItem diagnosticsMenuItem = new JMenuItem("Diagnostics...");
+        diagnosticsMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(diagnosticsDialog == null) diagnosticsDialog = new DiagnosticsDialog(NotepadGUI.this);
+                diagnosticsDialog.showDialog();
+            }
+        });
+        viewMenu.add(diagnosticsMenuItem);
+
+        return viewMenu;
+    }
+}
+
+
+
+
+
+
+
+
+
@@ -0,0 +1,33 @@
+package notepad;
+
+import javax.swing.JTextArea;
+import javax.swing.plaf.basic.BasicTextAreaUI;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.View;
+
+// text area ui for the views that swing's own would be too slow with: a LargeFileDocument is shown with a
+// LargeFileView, and wrapped text with a WrappedTextView. text that is not wrapped is shown with a HighlightedView,
+// which draws the colors of a SyntaxHighlighter. the text area only uses this ui while a large file is open, word
+// wrap is on, the text is highlighted or has many lines, and goes back to the ui of the look and feel afterwards
+public class NotepadTextAreaUI extends BasicTextAreaUI {
+    // swing's PlainView measures every line again whenever it is made or the font changes, which blocks the edt for
+    // more than a second with a 100 MB file. documents with more lines than this are shown with a HighlightedView
+    private static final int MANY_LINES = 100_000;
+
+    public static boolean hasManyLines(Document document){
+        return LineIndex.getLineCount(document) > MANY_LINES;
+    }
+
+    @Override
+    public View create(Element elem) {
+        if(elem.getDocument() instanceof LargeFileDocument) return new LargeFileView(elem);
+
+        JTextArea textArea = (JTextArea) getComponent();
+        if(textArea.getLineWrap()) return new WrappedTextView(elem, textArea.getWrapStyleWord());
+
+        // text with bidirectional parts needs swing's views for it
+        if(elem.getDocument().getProperty("i18n") == Boolean.TRUE) return super.create(elem);
+        return new HighlightedView(elem);
+    }
+}
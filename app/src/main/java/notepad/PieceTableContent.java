@@ -0,0 +1,742 @@
+package notepad;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+// document content that keeps the text as a piece table instead of one big gap buffer. the text is a sequence of
+// pieces that point into buffers which never change once written, and the pieces are kept in a balanced tree
+// (a treap) that knows the amount of text below each node. this makes inserting and removing text O(log n) no matter
+// where in the document it happens, and undoing a removal puts the removed pieces back without copying any text.
+// it is used as the content of a PlainDocument so the text area and the undo manager work on it like before
+public class PieceTableContent implements AbstractDocument.Content {
+    // small inserts (typing) are copied into a shared block, larger ones (pasting, loading a file) keep their own buffer
+    private static final int ADD_BLOCK_SIZE = 64 * 1024;
+    private static final int LARGE_INSERT = 1024;
+
+    // dead positions are only removed from the tree once there are enough of them to be worth rebuilding it
+    private static final int MIN_DEAD_MARKS = 1024;
+
+    private static final char[] EMPTY = new char[0];
+
+    private final Random random = new Random();
+
+    private Piece root;
+    private char[] addBlock = new char[ADD_BLOCK_SIZE];
+    private int addBlockUsed;
+
+    // the positions that have been handed out, kept in a second treap ordered by offset
+    private final Object markLock = new Object();
+    private final ReferenceQueue<MarkPosition> deadMarks = new ReferenceQueue<>();
+    private Mark marks;
+    private int markCount, deadMarkCount;
+
+    // the positions that a batch took out of its range, until it puts them back
+    private MarkRecord batchMarks;
+    private Mark batchMarkTree;
+
+    public PieceTableContent(){
+        // like swing's own contents, the text always ends with an implied line break
+        root = new Piece(new char[]{'\n'}, 0, 1, random.nextInt());
+    }
+
+    @Override
+    public int length() {
+        return root.size;
+    }
+
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException {
+        if(where < 0 || where > length()) throw new BadLocationException("Invalid insert", length());
+        if(str.isEmpty()) return null;
+
+        insertText(where, str);
+        synchronized(markLock){
+            shiftMarks(where, str.length());
+        }
+
+        return new InsertEdit(where, str.length());
+    }
+
+    // puts the text of a snapshot into the table without copying it, the new pieces point into the same buffers as
+    // the ones of the snapshot
+    public UndoableEdit insertSnapshot(int where, TextSnapshot text) throws BadLocationException {
+        if(where < 0 || where > length()) throw new BadLocationException("Invalid insert", length());
+        int length = text.getLength();
+        if(length == 0) return null;
+
+        paste(where, build(text));
+        synchronized(markLock){
+            shiftMarks(where, length);
+        }
+
+        return new InsertEdit(where, length);
+    }
+
+    // the first half of a batch that keeps the lines (see PieceTableDocument.apply): takes the text of the range out
+    // and keeps the positions inside of it aside, until insertBatch moves them they report the start of the range
+    public void removeBatch(int where, int length) throws BadLocationException {
+        if(where < 0 || length < 0 || where + length >= length()){
+            throw new BadLocationException("Invalid remove", length() + 1);
+        }
+
+        if(length > 0) cut(where, length);
+        synchronized(markLock){
+            Mark[] head = splitMarks(marks, where);
+            Mark[] tail = splitMarks(head[1], where + length + 1);
+
+            List<Mark> taken = new ArrayList<>();
+            collect(tail[0], taken);
+            batchMarks = new MarkRecord(taken.size());
+            for(Mark mark : taken){
+                batchMarks.add(mark, mark.value);
+                mark.value = where;
+            }
+            batchMarkTree = tail[0];
+
+            if(tail[1] != null) tail[1].add(-length);
+            marks = mergeMarks(head[0], tail[1]);
+            if(marks != null) marks.parent = null;
+        }
+    }
+
+    // the second half: puts the new text of the range in and moves each position that removeBatch kept aside to
+    // where the batch moved its text. a position inside of replaced text goes to the start of the replacement and
+    // one where text is only inserted stays in front of it, which keeps the lines starting where they did. the
+    // positions stay in the same order, so their part of the tree is put back as it is
+    public void insertBatch(int where, TextSnapshot text, EditBatch batch) throws BadLocationException {
+        int length = text.getLength();
+        if(length > 0) paste(where, build(text));
+
+        synchronized(markLock){
+            int site = 0;
+            int shift = 0;
+            for(int i = 0; i < batchMarks.count; i++){
+                int offset = batchMarks.offsets[i];
+                while(site < batch.size() && batch.getOffset(site) < offset
+                        && batch.getOffset(site) + batch.getLength(site) <= offset){
+                    shift += batch.getText(site).length() - batch.getLength(site);
+                    site++;
+                }
+
+                boolean inside = site < batch.size() && batch.getOffset(site) < offset;
+                batchMarks.marks[i].value = (inside ? batch.getOffset(site) : offset) + shift;
+            }
+
+            Mark[] parts = splitMarks(marks, where);
+            if(parts[1] != null) parts[1].add(length);
+            marks = mergeMarks(mergeMarks(parts[0], batchMarkTree), parts[1]);
+            if(marks != null) marks.parent = null;
+
+            batchMarks = null;
+            batchMarkTree = null;
+        }
+    }
+
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+        if(where < 0 || nitems < 0 || where + nitems >= length()){
+            throw new BadLocationException("Invalid remove", length() + 1);
+        }
+        if(nitems == 0) return null;
+
+        Piece removed = cut(where, nitems);
+        MarkRecord markRecord;
+        synchronized(markLock){
+            markRecord = collapseMarks(where, nitems);
+        }
+
+        return new RemoveEdit(where, nitems, removed, markRecord);
+    }
+
+    @Override
+    public String getString(int where, int len) throws BadLocationException {
+        Segment segment = new Segment();
+        getChars(where, len, segment);
+        return segment.toString();
+    }
+
+    @Override
+    public void getChars(int where, int len, Segment chars) throws BadLocationException {
+        if(where < 0 || len < 0 || where + len > length()) throw new BadLocationException("Invalid location", length() + 1);
+
+        if(len == 0){
+            chars.array = EMPTY;
+            chars.offset = 0;
+            chars.count = 0;
+            return;
+        }
+
+        // find the piece where the requested text starts
+        Piece piece = root;
+        int offset = where;
+        while(true){
+            int leftSize = size(piece.left);
+            if(offset < leftSize){
+                piece = piece.left;
+            }else if(offset < leftSize + piece.length){
+                offset -= leftSize;
+                break;
+            }else{
+                offset -= leftSize + piece.length;
+                piece = piece.right;
+            }
+        }
+
+        // text that is inside of a single piece is handed out straight from its buffer
+        if(offset + len <= piece.length || chars.isPartialReturn()){
+            chars.array = piece.buffer;
+            chars.offset = piece.start + offset;
+            chars.count = Math.min(len, piece.length - offset);
+            return;
+        }
+
+        char[] text = new char[len];
+        copy(root, 0, where, where + len, text);
+        chars.array = text;
+        chars.offset = 0;
+        chars.count = len;
+    }
+
+    @Override
+    public Position createPosition(int offset) throws BadLocationException {
+        synchronized(markLock){
+            purgeDeadMarks();
+
+            // positions at the same offset behave the same, so an existing one is handed out when possible
+            Mark mark = marks;
+            int pending = 0;
+            while(mark != null){
+                int value = mark.value + pending;
+                if(value == offset){
+                    MarkPosition position = mark.get();
+                    if(position != null) return position;
+                    break;
+                }
+
+                pending += mark.tag;
+                mark = offset < value ? mark.left : mark.right;
+            }
+
+            MarkPosition position = new MarkPosition();
+            Mark newMark = new Mark(position, deadMarks, offset, random.nextInt());
+            position.mark = newMark;
+
+            Mark[] parts = splitMarks(marks, offset);
+            marks = mergeMarks(mergeMarks(parts[0], newMark), parts[1]);
+            marks.parent = null;
+            markCount++;
+
+            return position;
+        }
+    }
+
+    // returns the text of the given range as a snapshot. only the pieces are copied since the buffers that they
+    // point into are never changed, this also makes it cheap to keep removed text around for undoing
+    public TextSnapshot snapshot(int where, int length){
+        List<Piece> pieces = new ArrayList<>();
+        int firstPieceStart = collect(root, 0, where, where + length, pieces);
+
+        char[][] arrays = new char[pieces.size()][];
+        int[] arrayOffsets = new int[pieces.size()];
+        int[] starts = new int[pieces.size() + 1];
+
+        // the first and last piece can reach outside of the range
+        int skip = where - firstPieceStart;
+        int offset = 0;
+        for(int i = 0; i < pieces.size(); i++){
+            Piece piece = pieces.get(i);
+            int pieceSkip = i == 0 ? skip : 0;
+
+            arrays[i] = piece.buffer;
+            arrayOffsets[i] = piece.start + pieceSkip;
+            starts[i] = offset;
+            offset += Math.min(piece.length - pieceSkip, length - offset);
+        }
+        starts[pieces.size()] = offset;
+
+        return new TextSnapshot(arrays, arrayOffsets, starts);
+    }
+
+    // adds the pieces below the given piece that overlap the range to the list in order and returns the document
+    // offset of the first one
+    private static int collect(Piece piece, int pieceOffset, int from, int to, List<Piece> out){
+        if(piece == null || from >= to) return from;
+
+        int start = pieceOffset + size(piece.left);
+        int end = start + piece.length;
+        int firstStart = -1;
+        if(from < start) firstStart = collect(piece.left, pieceOffset, from, to, out);
+
+        if(from < end && to > start){
+            if(firstStart == -1) firstStart = start;
+            out.add(piece);
+        }
+
+        if(to > end){
+            int rightStart = collect(piece.right, end, from, to, out);
+            if(firstStart == -1) firstStart = rightStart;
+        }
+
+        return firstStart;
+    }
+
+    // puts the text into the piece table
+    private void insertText(int where, String str){
+        int length = str.length();
+        if(length >= LARGE_INSERT){
+            paste(where, new Piece(str.toCharArray(), 0, length, random.nextInt()));
+            return;
+        }
+
+        if(addBlockUsed + length > addBlock.length){
+            addBlock = new char[ADD_BLOCK_SIZE];
+            addBlockUsed = 0;
+        }
+
+        int start = addBlockUsed;
+        str.getChars(0, length, addBlock, start);
+        addBlockUsed += length;
+
+        // typing adds text right after the text that was added last, so the piece that holds it can simply grow
+        if(start > 0 && extend(root, where, start, length)) return;
+
+        paste(where, new Piece(addBlock, start, length, random.nextInt()));
+    }
+
+    // grows the piece that ends at the given offset if it ends where the add block was before this insert
+    private boolean extend(Piece piece, int where, int blockEnd, int length){
+        if(piece == null) return false;
+
+        int leftSize = size(piece.left);
+        boolean extended;
+        if(where <= leftSize){
+            extended = extend(piece.left, where, blockEnd, length);
+        }else if(where <= leftSize + piece.length){
+            extended = where == leftSize + piece.length && piece.buffer == addBlock &&
+                    piece.start + piece.length == blockEnd;
+            if(extended) piece.length += length;
+        }else{
+            extended = extend(piece.right, where - leftSize - piece.length, blockEnd, length);
+        }
+
+        if(extended) piece.size += length;
+        return extended;
+    }
+
+    // turns the text of a snapshot into a tree of pieces that point into the same buffers. the pieces come in order,
+    // so the tree is built in one pass with a stack of its right edge instead of merging them in one by one
+    private Piece build(TextSnapshot text) throws BadLocationException {
+        Piece[] edge = new Piece[16];
+        int edgeSize = 0;
+        Segment segment = new Segment();
+        for(int offset = 0; offset < text.getLength(); offset += segment.count){
+            text.getText(offset, text.getLength() - offset, segment);
+            Piece piece = new Piece(segment.array, segment.offset, segment.count, random.nextInt());
+
+            Piece below = null;
+            while(edgeSize > 0 && edge[edgeSize - 1].priority <= piece.priority){
+                below = edge[--edgeSize];
+                below.update();
+            }
+            piece.left = below;
+            if(edgeSize > 0) edge[edgeSize - 1].right = piece;
+
+            if(edgeSize == edge.length) edge = Arrays.copyOf(edge, edgeSize * 2);
+            edge[edgeSize++] = piece;
+        }
+        while(edgeSize > 0) edge[--edgeSize].update();
+
+        return edge[0];
+    }
+
+    // takes the pieces of the given range out of the table and returns them as a tree of their own
+    private Piece cut(int where, int length){
+        Piece[] head = split(root, where);
+        Piece[] tail = split(head[1], length);
+        root = merge(head[0], tail[1]);
+        return tail[0];
+    }
+
+    // puts a tree of pieces back into the table
+    private void paste(int where, Piece pieces){
+        Piece[] parts = split(root, where);
+        root = merge(merge(parts[0], pieces), parts[1]);
+    }
+
+    private static int size(Piece piece){
+        return piece == null ? 0 : piece.size;
+    }
+
+    // splits the tree into the pieces before and after the given offset, cutting a piece in two if needed
+    private static Piece[] split(Piece piece, int offset){
+        if(piece == null) return new Piece[2];
+
+        int leftSize = size(piece.left);
+        if(offset <= leftSize){
+            Piece[] parts = split(piece.left, offset);
+            piece.left = parts[1];
+            piece.update();
+            parts[1] = piece;
+            return parts;
+        }
+
+        int pieceEnd = leftSize + piece.length;
+        if(offset >= pieceEnd){
+            Piece[] parts = split(piece.right, offset - pieceEnd);
+            piece.right = parts[0];
+            piece.update();
+            parts[0] = piece;
+            return parts;
+        }
+
+        // both halves point into the same buffer, the text itself is not copied
+        int cut = offset - leftSize;
+        Piece tail = new Piece(piece.buffer, piece.start + cut, piece.length - cut, piece.priority);
+        tail.right = piece.right;
+        tail.update();
+
+        piece.length = cut;
+        piece.right = null;
+        piece.update();
+        return new Piece[]{piece, tail};
+    }
+
+    private static Piece merge(Piece left, Piece right){
+        if(left == null) return right;
+        if(right == null) return left;
+
+        if(left.priority > right.priority){
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    // copies the text between from and to out of the pieces below the given piece
+    private static void copy(Piece piece, int pieceOffset, int from, int to, char[] out){
+        if(piece == null) return;
+
+        int start = pieceOffset + size(piece.left);
+        int end = start + piece.length;
+        if(from < start) copy(piece.left, pieceOffset, from, to, out);
+
+        int copyStart = Math.max(from, start);
+        int copyEnd = Math.min(to, end);
+        if(copyStart < copyEnd){
+            System.arraycopy(piece.buffer, piece.start + copyStart - start, out, copyStart - from, copyEnd - copyStart);
+        }
+
+        if(to > end) copy(piece.right, end, from, to, out);
+    }
+
+    // moves the positions after an insert, positions at offset 0 stay at the start of the document
+    private void shiftMarks(int where, int length){
+        Mark[] parts = splitMarks(marks, Math.max(where, 1));
+        if(parts[1] != null) parts[1].add(length);
+
+        marks = mergeMarks(parts[0], parts[1]);
+        if(marks != null) marks.parent = null;
+    }
+
+    // moves the positions inside of a removed range to its start and remembers where they were, so that undoing the
+    // remove can put them back
+    private MarkRecord collapseMarks(int where, int length){
+        Mark[] head = splitMarks(marks, where);
+        Mark[] tail = splitMarks(head[1], where + length + 1);
+
+        List<Mark> collapsed = new ArrayList<>();
+        collect(tail[0], collapsed);
+
+        MarkRecord record = new MarkRecord(collapsed.size());
+        for(Mark mark : collapsed){
+            record.add(mark, mark.value);
+            mark.value = where;
+        }
+
+        if(tail[1] != null) tail[1].add(-length);
+        marks = mergeMarks(mergeMarks(head[0], tail[0]), tail[1]);
+        if(marks != null) marks.parent = null;
+        return record;
+    }
+
+    // puts the positions that were collapsed by a remove back to where they were
+    private void restoreMarks(int where, int length, MarkRecord record){
+        if(record.count == 0) return;
+
+        Mark[] head = splitMarks(marks, where);
+        Mark[] tail = splitMarks(head[1], where + length + 1);
+
+        List<Mark> range = new ArrayList<>();
+        collect(tail[0], range);
+
+        Map<Mark, Integer> offsets = new IdentityHashMap<>();
+        for(int i = 0; i < record.count; i++) offsets.put(record.marks[i], record.offsets[i]);
+
+        for(Mark mark : range){
+            Integer offset = offsets.get(mark);
+            if(offset != null) mark.value = offset;
+        }
+
+        // the restored positions can be in a different order now so this part of the tree is built again
+        range.sort(Comparator.comparingInt(mark -> mark.value));
+        Mark rebuilt = null;
+        for(Mark mark : range){
+            mark.left = mark.right = mark.parent = null;
+            rebuilt = mergeMarks(rebuilt, mark);
+        }
+
+        marks = mergeMarks(mergeMarks(head[0], rebuilt), tail[1]);
+        if(marks != null) marks.parent = null;
+    }
+
+    // removes the positions that are no longer used by anyone from the tree
+    private void purgeDeadMarks(){
+        while(deadMarks.poll() != null) deadMarkCount++;
+        if(batchMarks != null) return;
+        if(deadMarkCount < MIN_DEAD_MARKS || deadMarkCount < markCount / 2) return;
+
+        List<Mark> all = new ArrayList<>(markCount);
+        collect(marks, all);
+
+        marks = null;
+        markCount = 0;
+        for(Mark mark : all){
+            if(mark.get() == null) continue;
+
+            mark.left = mark.right = mark.parent = null;
+            marks = mergeMarks(marks, mark);
+            markCount++;
+        }
+        if(marks != null) marks.parent = null;
+        deadMarkCount = 0;
+    }
+
+    // adds the marks below the given mark to the list in order, with their pending shifts applied
+    private static void collect(Mark mark, List<Mark> out){
+        if(mark == null) return;
+
+        mark.push();
+        collect(mark.left, out);
+        out.add(mark);
+        collect(mark.right, out);
+    }
+
+    // splits the marks into the ones before the given offset and the ones at or after it
+    private static Mark[] splitMarks(Mark mark, int offset){
+        if(mark == null) return new Mark[2];
+
+        mark.push();
+        Mark[] parts;
+        if(mark.value < offset){
+            parts = splitMarks(mark.right, offset);
+            mark.setRight(parts[0]);
+            parts[0] = mark;
+        }else{
+            parts = splitMarks(mark.left, offset);
+            mark.setLeft(parts[1]);
+            parts[1] = mark;
+        }
+
+        if(parts[0] != null) parts[0].parent = null;
+        if(parts[1] != null) parts[1].parent = null;
+        return parts;
+    }
+
+    private static Mark mergeMarks(Mark left, Mark right){
+        if(left == null) return right;
+        if(right == null) return left;
+
+        if(left.priority > right.priority){
+            left.push();
+            left.setRight(mergeMarks(left.right, right));
+            return left;
+        }
+
+        right.push();
+        right.setLeft(mergeMarks(left, right.left));
+        return right;
+    }
+
+    // a run of text inside of a buffer, and a node of the piece tree
+    private static class Piece {
+        private final char[] buffer;
+        private final int start;
+        private final int priority;
+        private int length;
+
+        // the amount of text in this piece and all of the pieces below it
+        private int size;
+        private Piece left, right;
+
+        private Piece(char[] buffer, int start, int length, int priority){
+            this.buffer = buffer;
+            this.start = start;
+            this.length = length;
+            this.priority = priority;
+            this.size = length;
+        }
+
+        private void update(){
+            size = length + size(left) + size(right);
+        }
+    }
+
+    // the tree node behind a position. a shift of the offsets of a whole subtree is stored on its root as a tag
+    // and only pushed down to the children when the tree is changed. the node only weakly refers to its position
+    // so that positions that are no longer used can be cleaned up
+    private static class Mark extends WeakReference<MarkPosition> {
+        private final int priority;
+        private int value;
+        private int tag;
+        private Mark left, right, parent;
+
+        private Mark(MarkPosition position, ReferenceQueue<MarkPosition> queue, int value, int priority){
+            super(position, queue);
+            this.value = value;
+            this.priority = priority;
+        }
+
+        private void add(int amount){
+            value += amount;
+            tag += amount;
+        }
+
+        private void push(){
+            if(tag == 0) return;
+
+            if(left != null) left.add(tag);
+            if(right != null) right.add(tag);
+            tag = 0;
+        }
+
+        private void setLeft(Mark mark){
+            left = mark;
+            if(mark != null) mark.parent = this;
+        }
+
+        private void setRight(Mark mark){
+            right = mark;
+            if(mark != null) mark.parent = this;
+        }
+    }
+
+    private class MarkPosition implements Position {
+        private Mark mark;
+
+        @Override
+        public int getOffset() {
+            synchronized(markLock){
+                // the shifts that have not been pushed down yet are still stored on the parents
+                int offset = mark.value;
+                for(Mark parent = mark.parent; parent != null; parent = parent.parent){
+                    offset += parent.tag;
+                }
+
+                return offset;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getOffset());
+        }
+    }
+
+    private static class MarkRecord {
+        private final Mark[] marks;
+        private final int[] offsets;
+        private int count;
+
+        private MarkRecord(int capacity){
+            marks = new Mark[capacity];
+            offsets = new int[capacity];
+        }
+
+        private void add(Mark mark, int offset){
+            marks[count] = mark;
+            offsets[count] = offset;
+            count++;
+        }
+    }
+
+    // undoing an insert cuts its pieces back out and keeps them for a redo
+    private class InsertEdit extends AbstractUndoableEdit {
+        private final int offset, length;
+        private Piece removed;
+        private MarkRecord markRecord;
+
+        private InsertEdit(int offset, int length){
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            removed = cut(offset, length);
+            synchronized(markLock){
+                markRecord = collapseMarks(offset, length);
+            }
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            paste(offset, removed);
+            synchronized(markLock){
+                shiftMarks(offset, length);
+                restoreMarks(offset, length, markRecord);
+            }
+            removed = null;
+            markRecord = null;
+        }
+    }
+
+    // undoing a remove puts the removed pieces back, the text is never copied
+    private class RemoveEdit extends AbstractUndoableEdit {
+        private final int offset, length;
+        private Piece removed;
+        private MarkRecord markRecord;
+
+        private RemoveEdit(int offset, int length, Piece removed, MarkRecord markRecord){
+            this.offset = offset;
+            this.length = length;
+            this.removed = removed;
+            this.markRecord = markRecord;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            paste(offset, removed);
+            synchronized(markLock){
+                shiftMarks(offset, length);
+                restoreMarks(offset, length, markRecord);
+            }
+            removed = null;
+            markRecord = null;
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            removed = cut(offset, length);
+            synchronized(markLock){
+                markRecord = collapseMarks(offset, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package notepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Segment;
+import javax.swing.tree.TreeNode;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.text.Bidi;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+// plain document whose text is stored in a PieceTableContent, it can hand out snapshots of its text that
+// background threads can read while the user keeps typing
+public class PieceTableDocument extends PlainDocument {
+    private final PieceTableContent content;
+
+    // the text that is about to be removed, picked up when the edit for the remove gets fired
+    private TextSnapshot removedText;
+
+    public PieceTableDocument(){
+        this(new PieceTableContent());
+    }
+
+    private PieceTableDocument(PieceTableContent content){
+        super(content);
+        this.content = content;
+    }
+
+    public TextSnapshot snapshot(){
+        readLock();
+        try{
+            return content.snapshot(0, getLength());
+        }finally{
+            readUnlock();
+        }
+    }
+
+    public TextSnapshot snapshot(int offset, int length){
+        readLock();
+        try{
+            return content.snapshot(offset, length);
+        }finally{
+            readUnlock();
+        }
+    }
+
+    // makes all the replacements of the batch at once. the listeners are told about it like about a replace, with one
+    // remove of the range from the first to the last replacement and one insert of the new text of the range, no matter
+    // how many replacements there are. both events are BatchEvents, so listeners that care can go through the
+    // replacements instead of the whole range. the undoable edit is a BatchEdit that only keeps the replacements and
+    // the text they replaced
+    public void apply(EditBatch batch) throws BadLocationException {
+        writeLock();
+        try{
+            TextSnapshot changes = applyBatch(batch, true);
+            if(changes != null) fireUndoableEditUpdate(new UndoableEditEvent(this, new BatchEdit(this, changes)));
+        }finally{
+            writeUnlock();
+        }
+    }
+
+    // undoing and redoing a batch edit applies a batch too, but that is no new edit
+    private void replay(EditBatch batch) throws BadLocationException {
+        writeLock();
+        try{
+            applyBatch(batch, false);
+        }finally{
+            writeUnlock();
+        }
+    }
+
+    // returns the replacements and the text they replaced written down for a BatchEdit, if asked for
+    private TextSnapshot applyBatch(EditBatch batch, boolean undoable) throws BadLocationException {
+        if(batch.isEmpty()) return null;
+
+        int start = batch.getStart();
+        int end = batch.getEnd();
+        if(start < 0 || end > getLength()) throw new BadLocationException("Invalid batch", end);
+        int newLength = end - start + batch.getLengthChange();
+
+        // the text that is replaced is read before anything changes
+        StringBuilder changes = undoable ? new StringBuilder() : null;
+        if(undoable) BatchEdit.writeNumber(changes, batch.size());
+        boolean lineBreaks = false;
+        boolean bidi = false;
+        Segment segment = new Segment();
+        for(int i = 0, previousEnd = 0; i < batch.size(); i++){
+            String text = batch.getText(i);
+            lineBreaks |= text.indexOf('\n') >= 0;
+            bidi |= requiresBidi(text);
+
+            content.getChars(batch.getOffset(i), batch.getLength(i), segment);
+            for(int j = 0; j < segment.count && !lineBreaks; j++) lineBreaks = segment.array[segment.offset + j] == '\n';
+            if(!undoable) continue;
+
+            BatchEdit.writeNumber(changes, batch.getOffset(i) - previousEnd);
+            BatchEdit.writeNumber(changes, batch.getLength(i));
+            BatchEdit.writeNumber(changes, text.length());
+            changes.append(text).append(segment.array, segment.offset, segment.count);
+            previousEnd = batch.getOffset(i) + batch.getLength(i);
+        }
+
+        // the new text of the range, put together from the old one and the replacements
+        TextSnapshot old = content.snapshot(start, end - start);
+        Pieces pieces = new Pieces(batch.size() * 2 + 1, newLength);
+        int position = start;
+        for(int i = 0; i <= batch.size(); i++){
+            // the old text up to the replacement
+            int until = i < batch.size() ? batch.getOffset(i) : end;
+            boolean copy = until - position < Pieces.SHORT_RUN;
+            while(position < until){
+                old.getText(position - start, until - position, segment);
+                if(copy) pieces.copy(segment.array, segment.offset, segment.count);
+                else pieces.add(segment.array, segment.offset, segment.count);
+                position += segment.count;
+            }
+            if(i == batch.size()) break;
+
+            pieces.copy(batch.getText(i));
+            position += batch.getLength(i);
+        }
+        TextSnapshot text = pieces.toSnapshot();
+
+        // without line breaks in the replacements the lines stay the same lines, the content moves the positions
+        // they start at along with their text, so the elements need no updates at all. right to left text needs
+        // its own elements updated, so it always takes the long way
+        boolean keepsLines = !lineBreaks && !bidi && !Boolean.TRUE.equals(getProperty("i18n"));
+        if(keepsLines) content.removeBatch(start, end - start);
+        if(end > start){
+            BatchEvent event = new BatchEvent(start, end - start, DocumentEvent.EventType.REMOVE, batch, keepsLines,
+                    true, newLength == 0);
+            if(!keepsLines){
+                removeUpdate(event);
+                content.remove(start, end - start);
+                postRemoveUpdate(event);
+            }
+            event.end();
+            fireRemoveUpdate(event);
+        }
+
+        if(keepsLines) content.insertBatch(start, text, batch);
+        if(newLength > 0){
+            BatchEvent event = new BatchEvent(start, newLength, DocumentEvent.EventType.INSERT, batch, keepsLines,
+                    end == start, true);
+            if(!keepsLines){
+                content.insertSnapshot(start, text);
+                // right to left text needs the views that can lay it out
+                if(bidi) putProperty("i18n", Boolean.TRUE);
+                insertUpdate(event, null);
+            }
+            event.end();
+            fireInsertUpdate(event);
+        }
+
+        if(!undoable) return null;
+        char[] chars = new char[changes.length()];
+        changes.getChars(0, chars.length, chars, 0);
+        return new TextSnapshot(new char[][]{chars}, new int[]{0}, new int[]{0, chars.length});
+    }
+
+    // the same as Bidi.requiresBidi, without copying text that has no characters that could be right to left
+    private static boolean requiresBidi(String text){
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) >= '\u0590') return Bidi.requiresBidi(text.toCharArray(), 0, text.length());
+        }
+        return false;
+    }
+
+    // the lines are kept in a LineRoot instead of the one array of a BranchElement, which gets copied whole every time
+    // a line break is typed or removed. this is called by the constructor of PlainDocument, before the fields are set
+    @Override
+    protected AbstractElement createDefaultRoot() {
+        LineRoot root = new LineRoot();
+        root.replace(0, 0, new Element[]{createLeafElement(root, null, 0, 1)});
+        return root;
+    }
+
+    @Override
+    protected void removeUpdate(DefaultDocumentEvent chng) {
+        // the text is still there at this point, only its pieces are kept so nothing gets copied. a batch keeps the
+        // text it replaces itself
+        if(!(chng instanceof BatchEvent)) removedText = content.snapshot(chng.getOffset(), chng.getLength());
+        super.removeUpdate(chng);
+    }
+
+    @Override
+    protected void fireUndoableEditUpdate(UndoableEditEvent e) {
+        if(!(e.getEdit() instanceof DocumentEvent)){
+            super.fireUndoableEditUpdate(e);
+            return;
+        }
+
+        // tells the listeners which text the edit changed, so that an undo history can keep it somewhere else
+        DocumentEvent change = (DocumentEvent) e.getEdit();
+        boolean insert = change.getType() == DocumentEvent.EventType.INSERT;
+        TextSnapshot text = !insert ? removedText : content.snapshot(change.getOffset(), change.getLength());
+        removedText = null;
+
+        super.fireUndoableEditUpdate(new UndoableEditEvent(this,
+                new TextEdit(this, e.getEdit(), insert, change.getOffset(), text)));
+    }
+
+    // the root element with the lines of the document. the lines are split up into blocks of at most 2 * BLOCK_SIZE
+    // lines and the index of the first line of every block is kept, so replacing lines only copies the blocks it
+    // touches and the block index instead of all the lines, which made every line break typed into a file with
+    // millions of lines take milliseconds. finding the line of an offset is a binary search over the blocks and then
+    // over the lines of one block
+    private class LineRoot extends BranchElement {
+        private static final int BLOCK_SIZE = 512;
+
+        private Element[][] blocks = {new Element[0]};
+        // firstLines[i] is the index of the first line of blocks[i], firstLines[blockCount] the number of lines
+        private int[] firstLines = new int[2];
+        private int blockCount = 1;
+
+        private LineRoot(){
+            super(null, null);
+        }
+
+        @Override
+        public void replace(int offset, int length, Element[] elems) {
+            int lineCount = getElementCount();
+            if(offset < 0 || length < 0 || offset + length > lineCount) throw new IndexOutOfBoundsException(offset);
+            if(length == 0 && elems.length == 0) return;
+
+            // the lines of the blocks the replacement touches are put together with the new ones and split up again
+            int first = blockOf(offset);
+            int last = length == 0 ? first : blockOf(offset + length - 1);
+            int before = offset - firstLines[first];
+            int after = firstLines[last + 1] - (offset + length);
+            Element[] lines = new Element[before + elems.length + after];
+            System.arraycopy(blocks[first], 0, lines, 0, before);
+            System.arraycopy(elems, 0, lines, before, elems.length);
+            System.arraycopy(blocks[last], blocks[last].length - after, lines, before + elems.length, after);
+
+            int newBlocks = lines.length == 0 ? (blockCount == last - first + 1 ? 1 : 0)
+                    : lines.length <= 2 * BLOCK_SIZE ? 1 : (lines.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            int newBlockCount = blockCount - (last - first + 1) + newBlocks;
+            if(newBlockCount + 1 > firstLines.length || newBlocks != last - first + 1){
+                Element[][] newBlockArray = newBlockCount > blocks.length ? new Element[newBlockCount * 3 / 2][] : blocks;
+                int[] newFirstLines = newBlockCount + 1 > firstLines.length ? new int[newBlockArray.length + 1] : firstLines;
+                System.arraycopy(blocks, 0, newBlockArray, 0, first);
+                System.arraycopy(firstLines, 0, newFirstLines, 0, first + 1);
+                System.arraycopy(blocks, last + 1, newBlockArray, first + newBlocks, blockCount - last - 1);
+                if(newBlockCount < blockCount) Arrays.fill(newBlockArray, newBlockCount, blockCount, null);
+                blocks = newBlockArray;
+                firstLines = newFirstLines;
+                blockCount = newBlockCount;
+            }
+            for(int i = 0; i < newBlocks; i++){
+                int from = (int) ((long) lines.length * i / newBlocks);
+                int to = (int) ((long) lines.length * (i + 1) / newBlocks);
+                blocks[first + i] = Arrays.copyOfRange(lines, from, to);
+            }
+            for(int i = first; i < blockCount; i++) firstLines[i + 1] = firstLines[i] + blocks[i].length;
+        }
+
+        // the block with the line at index, or the last block for the index just past the last line
+        private int blockOf(int index){
+            int low = 0;
+            int high = blockCount - 1;
+            while(low < high){
+                int mid = (low + high + 1) >>> 1;
+                if(firstLines[mid] <= index) low = mid;
+                else high = mid - 1;
+            }
+            return low;
+        }
+
+        @Override
+        public Element getElement(int index) {
+            if(index < 0 || index >= getElementCount()) return null;
+            int block = blockOf(index);
+            return blocks[block][index - firstLines[block]];
+        }
+
+        @Override
+        public int getElementCount() {
+            return firstLines[blockCount];
+        }
+
+        // the same answers as the one of BranchElement: the first line for offsets before the text, the last one
+        // for offsets after it
+        @Override
+        public int getElementIndex(int offset) {
+            if(getElementCount() == 0) return 0;
+            if(offset >= getEndOffset()) return getElementCount() - 1;
+
+            int low = 0;
+            int high = blockCount - 1;
+            while(low < high){
+                int mid = (low + high + 1) >>> 1;
+                if(blocks[mid].length > 0 && blocks[mid][0].getStartOffset() <= offset) low = mid;
+                else high = mid - 1;
+            }
+            Element[] lines = blocks[low];
+            int lowLine = 0;
+            int highLine = lines.length - 1;
+            while(lowLine < highLine){
+                int mid = (lowLine + highLine + 1) >>> 1;
+                if(lines[mid].getStartOffset() <= offset) lowLine = mid;
+                else highLine = mid - 1;
+            }
+            return firstLines[low] + lowLine;
+        }
+
+        @Override
+        public int getStartOffset() {
+            return getElement(0).getStartOffset();
+        }
+
+        @Override
+        public int getEndOffset() {
+            return getElement(Math.max(getElementCount() - 1, 0)).getEndOffset();
+        }
+
+        @Override
+        public Element positionToElement(int pos) {
+            Element line = getElement(getElementIndex(pos));
+            return line != null && pos >= line.getStartOffset() && pos < line.getEndOffset() ? line : null;
+        }
+
+        @Override
+        public Enumeration<TreeNode> children() {
+            List<TreeNode> lines = new ArrayList<>();
+            for(int i = 0; i < blockCount; i++){
+                for(Element line : blocks[i]) lines.add((TreeNode) line);
+            }
+            return Collections.enumeration(lines);
+        }
+    }
+
+    // the pieces of the new text of a batch, in the form a TextSnapshot wants them. the replacements and the short runs
+    // of old text between them are copied together into blocks, longer runs keep pointing into the old pieces. reusing
+    // the short runs too would break the range up into more and more pieces every time a batch is applied to it
+    private static class Pieces {
+        private static final int BLOCK_SIZE = 64 * 1024;
+        private static final int SHORT_RUN = 1024;
+
+        private char[][] arrays;
+        private int[] arrayOffsets;
+        private int[] starts;
+        private int count;
+
+        // the block that is being copied into and the part of it that is not a piece yet
+        private char[] block;
+        private int blockStart, blockEnd;
+
+        // how much of the text is still to come, no block has to be larger than that
+        private int remaining;
+
+        private Pieces(int capacity, int length){
+            arrays = new char[capacity][];
+            arrayOffsets = new int[capacity];
+            starts = new int[capacity + 1];
+            remaining = length;
+        }
+
+        private void add(char[] array, int offset, int length){
+            if(length == 0) return;
+            finishBlock();
+            addPiece(array, offset, length);
+            remaining -= length;
+        }
+
+        private void copy(char[] array, int offset, int length){
+            while(length > 0){
+                int count = Math.min(length, reserve());
+                System.arraycopy(array, offset, block, blockEnd, count);
+                blockEnd += count;
+                remaining -= count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private void copy(String text){
+            for(int offset = 0; offset < text.length(); ){
+                int count = Math.min(text.length() - offset, reserve());
+                text.getChars(offset, offset + count, block, blockEnd);
+                blockEnd += count;
+                remaining -= count;
+                offset += count;
+            }
+        }
+
+        // makes sure that the block has room and returns how much
+        private int reserve(){
+            if(block == null || blockEnd == block.length){
+                finishBlock();
+                block = new char[Math.min(BLOCK_SIZE, remaining)];
+                blockStart = blockEnd = 0;
+            }
+
+            return block.length - blockEnd;
+        }
+
+        private void finishBlock(){
+            if(blockEnd == blockStart) return;
+            addPiece(block, blockStart, blockEnd - blockStart);
+            blockStart = blockEnd;
+        }
+
+        private void addPiece(char[] array, int offset, int length){
+            if(count == arrays.length){
+                arrays = Arrays.copyOf(arrays, count * 2);
+                arrayOffsets = Arrays.copyOf(arrayOffsets, count * 2);
+                starts = Arrays.copyOf(starts, count * 2 + 1);
+            }
+            arrays[count] = array;
+            arrayOffsets[count] = offset;
+            starts[count + 1] = starts[count] + length;
+            count++;
+        }
+
+        private TextSnapshot toSnapshot(){
+            finishBlock();
+            return new TextSnapshot(Arrays.copyOf(arrays, count), Arrays.copyOf(arrayOffsets, count),
+                    Arrays.copyOf(starts, count + 1));
+        }
+    }
+
+    // the remove and the insert that a batch is told to the listeners as. keepsLines means that no line breaks were
+    // replaced or inserted, so that the lines only got longer or shorter, first and last tell which event of the
+    // batch this is since a batch that removes or inserts nothing only has one
+    public class BatchEvent extends DefaultDocumentEvent {
+        private final EditBatch batch;
+        private final boolean keepsLines, first, last;
+
+        private BatchEvent(int offset, int length, DocumentEvent.EventType type, EditBatch batch, boolean keepsLines,
+                           boolean first, boolean last){
+            super(offset, length, type);
+            this.batch = batch;
+            this.keepsLines = keepsLines;
+            this.first = first;
+            this.last = last;
+        }
+
+        public EditBatch getBatch(){return batch;}
+        public boolean keepsLines(){return keepsLines;}
+        public boolean isFirst(){return first;}
+        public boolean isLast(){return last;}
+    }
+
+    // the edit of a batch. it keeps the replacements and the text they replaced written down as chars, not the text
+    // of the whole range, and undoes the batch by applying the one that puts the replaced text back. an offset is
+    // written as the distance from the end of the replaced text before it, and a number takes one char when it is
+    // below 32768 and two when it is not
+    public static class BatchEdit extends AbstractUndoableEdit {
+        private final PieceTableDocument document;
+        private final TextSnapshot changes;
+
+        private BatchEdit(PieceTableDocument document, TextSnapshot changes){
+            this.document = document;
+            this.changes = changes;
+        }
+
+        public PieceTableDocument getDocument(){return document;}
+        public TextSnapshot getChanges(){return changes;}
+
+        // the batch from its changes, or the one that undoes it
+        public static EditBatch read(CharSequence changes, boolean undo){
+            int[] position = new int[1];
+            int count = readNumber(changes, position);
+
+            EditBatch batch = new EditBatch();
+            int previousEnd = 0;
+            int shift = 0;
+            for(int i = 0; i < count; i++){
+                int offset = previousEnd + readNumber(changes, position);
+                int length = readNumber(changes, position);
+                int textLength = readNumber(changes, position);
+                int textStart = position[0];
+                position[0] += textLength + length;
+
+                if(undo){
+                    String replaced = changes.subSequence(textStart + textLength, position[0]).toString();
+                    batch.replace(offset + shift, textLength, replaced);
+                }else{
+                    batch.replace(offset, length, changes.subSequence(textStart, textStart + textLength).toString());
+                }
+                shift += textLength - length;
+                previousEnd = offset + length;
+            }
+            return batch;
+        }
+
+        private static void writeNumber(StringBuilder out, int number){
+            if(number >= 0x8000) out.append((char) (0x8000 | number >>> 16));
+            out.append((char) number);
+        }
+
+        private static int readNumber(CharSequence in, int[] position){
+            int number = in.charAt(position[0]++);
+            if(number < 0x8000) return number;
+            return (number & 0x7fff) << 16 | in.charAt(position[0]++);
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            try{
+                document.replay(read(changes.getString(), true));
+            }catch(BadLocationException e){
+                throw new CannotUndoException();
+            }
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            try{
+                document.replay(read(changes.getString(), false));
+            }catch(BadLocationException e){
+                throw new CannotRedoException();
+            }
+        }
+    }
+
+    // an edit of the document together with the text that was inserted or removed by it
+    public static class TextEdit extends AbstractUndoableEdit {
+        private final PieceTableDocument document;
+        private final UndoableEdit edit;
+        private final boolean insert;
+        private final int offset;
+        private final TextSnapshot text;
+
+        private TextEdit(PieceTableDocument document, UndoableEdit edit, boolean insert, int offset, TextSnapshot text){
+            this.document = document;
+            this.edit = edit;
+            this.insert = insert;
+            this.offset = offset;
+            this.text = text;
+        }
+
+        public PieceTableDocument getDocument(){return document;}
+        public boolean isInsert(){return insert;}
+        public int getOffset(){return offset;}
+        public int getLength(){return text.getLength();}
+        public TextSnapshot getText(){return text;}
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            edit.undo();
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            edit.redo();
+        }
+
+        @Override
+        public String getPresentationName() {
+            return edit.getPresentationName();
+        }
+    }
+}
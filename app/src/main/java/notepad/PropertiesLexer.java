@@ -0,0 +1,57 @@
+package notepad;
+
+// java .properties files: comments, keys, the separator after them and their values. a value that ends with an odd
+// number of backslashes goes on on the next line, which starts in state 1
+public class PropertiesLexer extends Lexer {
+    private static final int CONTINUED = 1;
+
+    @Override
+    public int lex(char[] text, int start, int end, int state, Tokens tokens){
+        int i = skipWhitespace(text, start, end);
+        if(state == CONTINUED){
+            tokens.add(i - start, end - i, TokenType.STRING);
+            return isContinued(text, i, end) ? CONTINUED : 0;
+        }
+
+        if(i == end) return 0;
+        if(text[i] == '#' || text[i] == '!'){
+            tokens.add(i - start, end - i, TokenType.COMMENT);
+            return 0;
+        }
+
+        // the key goes up to the first separator that is not escaped
+        int keyEnd = i;
+        while(keyEnd < end){
+            char c = text[keyEnd];
+            if(c == '\\'){
+                keyEnd += 2;
+            }else if(c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f'){
+                break;
+            }else{
+                keyEnd++;
+            }
+        }
+        keyEnd = Math.min(keyEnd, end);
+        tokens.add(i - start, keyEnd - i, TokenType.KEY);
+
+        int value = skipWhitespace(text, keyEnd, end);
+        if(value < end && (text[value] == '=' || text[value] == ':')){
+            tokens.add(value - start, 1, TokenType.PUNCTUATION);
+            value = skipWhitespace(text, value + 1, end);
+        }
+        tokens.add(value - start, end - value, TokenType.STRING);
+
+        return isContinued(text, i, end) ? CONTINUED : 0;
+    }
+
+    private static int skipWhitespace(char[] text, int from, int end){
+        while(from < end && (text[from] == ' ' || text[from] == '\t' || text[from] == '\f')) from++;
+        return from;
+    }
+
+    private static boolean isContinued(char[] text, int from, int end){
+        int backslashes = 0;
+        for(int i = end - 1; i >= from && text[i] == '\\'; i--) backslashes++;
+        return backslashes % 2 == 1;
+    }
+}
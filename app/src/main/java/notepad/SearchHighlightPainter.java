@@ -0,0 +1,83 @@
+package notepad;
+
+import javax.swing.text.*;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+
+// paints the matches of a search behind the text. the matches are not remembered anywhere, every time the text area
+// paints this searches the lines that are being painted again, so a search with millions of matches costs nothing
+// for the parts of the text that are not on the screen
+public class SearchHighlightPainter implements Highlighter.HighlightPainter {
+    // matches can start a little before the painted part of a very long line
+    private static final int MAX_LOOK_BEHIND = 4096;
+
+    // the most matches painted at once, a pattern like "." on a big screen should not stall the edt
+    private static final int MAX_PAINTED_MATCHES = 10000;
+
+    private final Color color;
+    private TextSearch search;
+
+    public SearchHighlightPainter(Color color){
+        this.color = color;
+    }
+
+    public void setSearch(TextSearch search){
+        this.search = search;
+    }
+
+    @Override
+    public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+        if(search == null) return;
+
+        Rectangle clip = g.getClipBounds();
+        if(clip == null) clip = c.getVisibleRect();
+
+        Document document = c.getDocument();
+        Element root = document.getDefaultRootElement();
+        try{
+            // the whole lines that are painted, but not all of a line that is much wider than the screen
+            int first = c.viewToModel2D(new Point(clip.x, clip.y));
+            int last = c.viewToModel2D(new Point(clip.x + clip.width, clip.y + clip.height));
+            int start = Math.max(root.getElement(root.getElementIndex(first)).getStartOffset(),
+                    first - MAX_LOOK_BEHIND);
+            int end = Math.min(Math.min(root.getElement(root.getElementIndex(last)).getEndOffset(),
+                    last + MAX_LOOK_BEHIND), document.getLength());
+            if(start >= end) return;
+
+            TextSnapshot text = TextSnapshot.of(document, start, end - start);
+            TextSearch.Finder finder = search.finder(text.chars());
+            Rectangle alloc = bounds.getBounds();
+            g.setColor(color);
+
+            int painted = 0;
+            for(boolean found = finder.find(0, text.getLength()); found && painted < MAX_PAINTED_MATCHES;
+                found = finder.findNext()){
+                if(finder.end() > finder.start()){
+                    paintMatch(g, c, alloc, start + finder.start(), start + finder.end());
+                    painted++;
+                }
+            }
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }
+    }
+
+    // fills the match the same way a selection is filled, matches over several lines fill to the edge of the area
+    static void paintMatch(Graphics g, JTextComponent c, Rectangle alloc, int start, int end)
+            throws BadLocationException {
+        Rectangle2D r0 = c.modelToView2D(start);
+        Rectangle2D r1 = c.modelToView2D(end);
+        if(r0 == null || r1 == null) return;
+
+        int x0 = (int) r0.getX(), y0 = (int) r0.getY(), h0 = (int) r0.getHeight();
+        int x1 = (int) r1.getX(), y1 = (int) r1.getY(), h1 = (int) r1.getHeight();
+        if(y0 == y1){
+            g.fillRect(Math.min(x0, x1), y0, Math.max(1, Math.abs(x1 - x0)), h0);
+            return;
+        }
+
+        g.fillRect(x0, y0, alloc.x + alloc.width - x0, h0);
+        if(y0 + h0 < y1) g.fillRect(alloc.x, y0 + h0, alloc.width, y1 - y0 - h0);
+        g.fillRect(alloc.x, y1, x1 - alloc.x, h1);
+    }
+}
@@ -0,0 +1,81 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.text.PlainDocument;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+// a second view of the text in a text area, for when the view is split. it shows the same document with a caret and a
+// scroll position of its own, and takes over whatever is changed on the text area it was made for: the document
+// when another tab is selected, the font, word wrap, whether it can be edited and the notepad's own ui. both views
+// listen to the one document, so an edit in one only repaints the lines it changed in the other, and everything that
+// is kept per document (its LineIndex, the states of its SyntaxHighlighter) is shared by them
+public class SplitTextArea extends JTextArea {
+    private final JTextArea source;
+
+    private final PropertyChangeListener sourceListener = new PropertyChangeListener() {
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            switch(evt.getPropertyName()){
+                case "UI":
+                    updateUI();
+                    break;
+                case "document":
+                    setDocument(source.getDocument());
+                    break;
+                case "font":
+                    setFont(source.getFont());
+                    break;
+                case "foreground":
+                    setForeground(source.getForeground());
+                    break;
+                case "editable":
+                    setEditable(source.isEditable());
+                    break;
+                case "lineWrap":
+                    setLineWrap(source.getLineWrap());
+                    break;
+                case "wrapStyleWord":
+                    setWrapStyleWord(source.getWrapStyleWord());
+                    break;
+                case "componentOrientation":
+                    setComponentOrientation(source.getComponentOrientation());
+                    break;
+            }
+        }
+    };
+
+    public SplitTextArea(JTextArea source){
+        this.source = source;
+
+        // the ui goes on before word wrap and the document, so that swing's own views never get to see a large file
+        // or wrap the whole document
+        updateUI();
+        setFont(source.getFont());
+        setForeground(source.getForeground());
+        setEditable(source.isEditable());
+        setLineWrap(source.getLineWrap());
+        setWrapStyleWord(source.getWrapStyleWord());
+        setComponentOrientation(source.getComponentOrientation());
+        setDocument(source.getDocument());
+
+        source.addPropertyChangeListener(sourceListener);
+    }
+
+    // stops following the text area once the view is no longer split, and lets go of the document
+    public void detach(){
+        source.removePropertyChangeListener(sourceListener);
+        setDocument(new PlainDocument());
+    }
+
+    // the same kind of ui as the text area, the notepad's own one while it has that
+    @Override
+    public void updateUI() {
+        // called by the constructor of JTextArea before there is a source
+        if(source != null && source.getUI() instanceof NotepadTextAreaUI){
+            if(!(getUI() instanceof NotepadTextAreaUI)) setUI(new NotepadTextAreaUI());
+            return;
+        }
+        super.updateUI();
+    }
+}
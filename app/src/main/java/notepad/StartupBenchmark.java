@@ -0,0 +1,103 @@
+package notepad;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// measures how long it takes from starting the jvm until the text area of the notepad is painted. every run starts a new
+// jvm with -Dnotepad.startupBenchmark=true, which makes App print its timings and exit after the first paint. the runs
+// are done without class data sharing, with the archive of the jdk classes that comes with the jdk, and with an
+// archive of the classes of the notepad that is dumped by a training run first.
+//
+// run it on the same class path as the notepad, the notepad classes have to be in a jar for them to be archived:
+//   java -cp build/notepad.jar:lib/JTattoo-1.6.13.jar notepad.StartupBenchmark [runs]
+// or ./notepad.sh --benchmark [runs]
+public class StartupBenchmark {
+    // the line App prints, followed by the milliseconds until the first paint and until main was called
+    static final String RESULT_PREFIX = "startup: ";
+
+    private static final int DEFAULT_RUNS = 10;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+
+        String classPath = System.getProperty("java.class.path");
+        for(String entry : classPath.split(File.pathSeparator)){
+            if(new File(entry).isDirectory()){
+                System.out.println("warning: " + entry + " is a directory, its classes can not be archived");
+            }
+        }
+
+        File archive = File.createTempFile("notepad-startup", ".jsa");
+        archive.delete();
+        try{
+            // the training run, the classes loaded until the first paint go into the archive when it exits
+            run(classPath, "-XX:ArchiveClassesAtExit=" + archive.getPath());
+            if(!archive.isFile()) System.out.println("warning: the training run did not create an archive");
+
+            System.out.println("                 first paint (ms)    main (ms)");
+            report("no sharing", classPath, runs, "-Xshare:off");
+            report("jdk archive", classPath, runs, "-Xshare:auto");
+            report("app archive", classPath, runs, "-XX:SharedArchiveFile=" + archive.getPath());
+        }finally{
+            Files.deleteIfExists(archive.toPath());
+        }
+    }
+
+    private static void report(String name, String classPath, int runs, String option)
+            throws IOException, InterruptedException {
+        long[] firstPaint = new long[runs];
+        long[] main = new long[runs];
+        for(int i = 0; i < runs; i++){
+            long[] times = run(classPath, option);
+            firstPaint[i] = times[0];
+            main[i] = times[1];
+        }
+        System.out.printf("%-14s %8d median %5d min %6d median%n", name, median(firstPaint), min(firstPaint), median(main));
+    }
+
+    // starts the notepad in a new jvm and returns the milliseconds until its first paint and until main was called
+    private static long[] run(String classPath, String option) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add(option);
+        command.add("-Dnotepad.startupBenchmark=true");
+        command.add("-cp");
+        command.add(classPath);
+        command.add("notepad.App");
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] times = null;
+        try(BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))){
+            String line;
+            while((line = reader.readLine()) != null){
+                if(line.startsWith(RESULT_PREFIX)){
+                    String[] parts = line.substring(RESULT_PREFIX.length()).split(" ");
+                    times = new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+                }else{
+                    System.out.println("  " + line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if(times == null) throw new IOException("the notepad exited with " + exitCode + " before it was painted");
+        return times;
+    }
+
+    private static long median(long[] values){
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long min(long[] values){
+        return Arrays.stream(values).min().orElse(0);
+    }
+}
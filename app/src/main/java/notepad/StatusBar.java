@@ -0,0 +1,124 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.CaretEvent;
+import javax.swing.event.CaretListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import java.awt.*;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+// shows the line and column of the caret, how many lines the document has and how its file is encoded and compressed.
+// the lines are looked up in the LineIndex of the document, and the labels are updated once per event no matter how
+// many caret moves and edits happened in it, so a file that is loading in chunks does not update them for every chunk
+// twice
+public class StatusBar extends JPanel {
+    // the text area whose caret is shown, the one the user is in when the view is split
+    private JTextArea textArea;
+    private final JLabel positionLabel = new JLabel();
+    private final JLabel linesLabel = new JLabel();
+    private final JLabel encodingLabel = new JLabel();
+
+    private TextEncoding encoding = TextEncoding.forNewText();
+    private Compression compression = Compression.NONE;
+    private boolean updatePending;
+
+    private final DocumentListener documentListener = new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            scheduleUpdate();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            scheduleUpdate();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+    };
+
+    private final CaretListener caretListener = new CaretListener() {
+        @Override
+        public void caretUpdate(CaretEvent e) {
+            scheduleUpdate();
+        }
+    };
+
+    private final PropertyChangeListener documentChangeListener = new PropertyChangeListener() {
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            ((Document) evt.getOldValue()).removeDocumentListener(documentListener);
+            ((Document) evt.getNewValue()).addDocumentListener(documentListener);
+            scheduleUpdate();
+        }
+    };
+
+    public StatusBar(JTextArea textArea){
+        super(new FlowLayout(FlowLayout.RIGHT, 15, 2));
+
+        add(positionLabel);
+        add(linesLabel);
+        add(encodingLabel);
+
+        setTextArea(textArea);
+        update();
+    }
+
+    // shows the caret of another text area
+    public void setTextArea(JTextArea textArea){
+        if(this.textArea == textArea) return;
+
+        if(this.textArea != null){
+            this.textArea.removeCaretListener(caretListener);
+            this.textArea.getDocument().removeDocumentListener(documentListener);
+            this.textArea.removePropertyChangeListener("document", documentChangeListener);
+        }
+        this.textArea = textArea;
+
+        // the line count changes while a file is loading even though the caret stays where it is
+        textArea.addCaretListener(caretListener);
+        textArea.getDocument().addDocumentListener(documentListener);
+        textArea.addPropertyChangeListener("document", documentChangeListener);
+        scheduleUpdate();
+    }
+
+    // how the file of the document that is shown is encoded
+    public void setEncoding(TextEncoding encoding){
+        this.encoding = encoding;
+        scheduleUpdate();
+    }
+
+    public void setCompression(Compression compression){
+        this.compression = compression;
+        scheduleUpdate();
+    }
+
+    private void scheduleUpdate(){
+        if(updatePending) return;
+        updatePending = true;
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                updatePending = false;
+                update();
+            }
+        });
+    }
+
+    private void update(){
+        Document document = textArea.getDocument();
+        int caret = Math.min(textArea.getCaretPosition(), document.getLength());
+        int line = LineIndex.getLineOfOffset(document, caret);
+        int column = caret - LineIndex.getLineStartOffset(document, line);
+
+        positionLabel.setText("Ln " + (line + 1) + ", Col " + (column + 1));
+        linesLabel.setText(String.format("%,d lines", LineIndex.getLineCount(document)));
+        String format = encoding.getCharsetName() + "  " + encoding.getLineSeparatorName();
+        encodingLabel.setText(compression.isCompressed() ? format + "  " + compression.getName() : format);
+    }
+}
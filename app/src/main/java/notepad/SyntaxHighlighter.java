@@ -0,0 +1,383 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// colors the text of a document the way its type of file is written, with a Lexer. the lexer goes through the text a
+// line at a time, and all that a line needs from the lines before it is the state it starts in, so that is all that
+// is kept for every line. after an edit the lines from the edited one on are lexed again on a background thread from a
+// snapshot of the text, only until their states come out the same as before. the tokens themselves are only worked
+// out for the lines that get painted, from the state the line starts in, and kept until the line or its state changes.
+// until a pass has caught up with an edit the lines after it are painted with the states they had before it
+public class SyntaxHighlighter implements DocumentListener {
+    private static final Object PROPERTY = SyntaxHighlighter.class;
+
+    // how long after the last edit the lines after it are lexed again
+    private static final int PASS_DELAY = 30;
+
+    // how often the background thread hands over the states it has worked out
+    private static final long RESULT_INTERVAL = 50;
+
+    // longer lines (like minified json) are drawn without colors and do not change the state, lexing them every time
+    // they are painted would make typing in them slow
+    private static final int MAX_LINE_LENGTH = 20 * 1024;
+
+    // the painted lines whose tokens are kept, far more than fit on a screen
+    private static final int MAX_CACHED_LINES = 1024;
+
+    private static final Lexer.TokenType[] TOKEN_TYPES = Lexer.TokenType.values();
+
+    private static final ExecutorService backgroundLexer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "syntax-highlighting");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Document document;
+    private final Lexer lexer;
+    private final Timer passTimer;
+    private final Segment segment = new Segment();
+    private final Lexer.Tokens tokens = new Lexer.Tokens();
+
+    // the state every line starts in. the states of the lines before validLines are right, the ones after it are left
+    // from before the edits that the last pass has not caught up with yet (they move along with their lines)
+    private int[] states = new int[1024];
+    private int lineCount;
+    private int validLines = 1;
+
+    // the last line that was edited since the last pass went through, or -1. the states after it were worked out
+    // from the lines before them as they are now, once a pass gets past it and finds a state that it already has
+    // the rest of them are right as well
+    private int dirtyEnd;
+
+    private int editCount;
+    private volatile int pass;
+
+    // the tokens of the lines that were painted
+    private final Map<Element, LineTokens> lineTokens = new WeakHashMap<>();
+
+    // the components that painted the text, they are painted again when states change
+    private final Map<Component, Boolean> hosts = new WeakHashMap<>();
+
+    private SyntaxHighlighter(Document document, Lexer lexer){
+        this.document = document;
+        this.lexer = lexer;
+
+        passTimer = new Timer(PASS_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startPass();
+            }
+        });
+        passTimer.setRepeats(false);
+
+        lineCount = document.getDefaultRootElement().getElementCount();
+        ensureCapacity(lineCount);
+        dirtyEnd = lineCount - 1;
+        document.addDocumentListener(this);
+        passTimer.restart();
+    }
+
+    // the highlighter of the document, or null if it is not highlighted
+    public static SyntaxHighlighter of(Document document){
+        return (SyntaxHighlighter) document.getProperty(PROPERTY);
+    }
+
+    // highlights the document with the lexer, or stops highlighting it if the lexer is null. large files are never
+    // highlighted, their lines are not kept in elements
+    public static void setLexer(Document document, Lexer lexer){
+        SyntaxHighlighter highlighter = of(document);
+        if(highlighter != null){
+            if(lexer != null && highlighter.lexer.getClass() == lexer.getClass()) return;
+
+            document.removeDocumentListener(highlighter);
+            highlighter.passTimer.stop();
+            highlighter.pass++;
+            highlighter.repaintHosts();
+            document.putProperty(PROPERTY, null);
+        }
+
+        if(lexer != null && !(document instanceof LargeFileDocument)){
+            document.putProperty(PROPERTY, new SyntaxHighlighter(document, lexer));
+        }
+    }
+
+    public Lexer getLexer(){return lexer;}
+
+    // draws the text in [p0, p1), which has to be within one line, with the colors of its tokens and the rest in the
+    // color the graphics has. returns the x where the text ends, like Utilities.drawTabbedText
+    public float drawText(Component host, Graphics2D g, float x, float y, int p0, int p1, TabExpander expander)
+            throws BadLocationException {
+        hosts.put(host, Boolean.TRUE);
+
+        Element root = document.getDefaultRootElement();
+        int index = root.getElementIndex(p0);
+        Element line = root.getElement(index);
+        int lineStart = line.getStartOffset();
+        int[] tokens = getTokens(line, index);
+
+        Color plain = g.getColor();
+        int position = p0;
+        for(int i = 0; tokens != null && i < tokens.length && position < p1; i += 3){
+            int start = lineStart + tokens[i];
+            int end = Math.min(start + tokens[i + 1], p1);
+            if(end <= position) continue;
+
+            if(start > position){
+                x = drawText(g, x, y, position, Math.min(start, p1), expander, plain);
+                position = Math.min(start, p1);
+            }
+            if(position < end){
+                x = drawText(g, x, y, position, end, expander, TOKEN_TYPES[tokens[i + 2]].getColor());
+                position = end;
+            }
+        }
+        if(position < p1) x = drawText(g, x, y, position, p1, expander, plain);
+
+        g.setColor(plain);
+        return x;
+    }
+
+    private float drawText(Graphics2D g, float x, float y, int p0, int p1, TabExpander expander, Color color)
+            throws BadLocationException {
+        document.getText(p0, p1 - p0, segment);
+        g.setColor(color);
+        return Utilities.drawTabbedText(segment, x, y, g, expander, p0);
+    }
+
+    // the tokens of the line, lexed from the state it starts in as far as it is known. null for lines that are too
+    // long to be highlighted
+    private int[] getTokens(Element line, int index) throws BadLocationException {
+        int start = line.getStartOffset();
+        int length = line.getEndOffset() - start - 1;
+        if(length > MAX_LINE_LENGTH) return null;
+
+        int state = states[Math.min(index, lineCount - 1)];
+        LineTokens cached = lineTokens.get(line);
+        if(cached != null && cached.state == state) return cached.tokens;
+
+        document.getText(start, length, segment);
+        tokens.clear();
+        lexer.lex(segment.array, segment.offset, segment.offset + segment.count, state, tokens);
+
+        if(lineTokens.size() >= MAX_CACHED_LINES) lineTokens.clear();
+        cached = new LineTokens(state, tokens.toArray());
+        lineTokens.put(line, cached);
+        return cached.tokens;
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        edited(e);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        edited(e);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+    }
+
+    private void edited(DocumentEvent e){
+        editCount++;
+
+        Element root = document.getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        int line;
+        if(change != null){
+            // lines were split up or joined, the states of the lines after them move along
+            line = change.getIndex();
+            int removed = change.getChildrenRemoved().length;
+            int added = change.getChildrenAdded().length;
+            replaceLines(line, removed, added);
+
+            if(dirtyEnd >= line + removed) dirtyEnd += added - removed;
+            dirtyEnd = Math.max(dirtyEnd, line + added - 1);
+        }else{
+            // text changed inside of lines, a batch can change many of them at once
+            line = root.getElementIndex(e.getOffset());
+            int lastLine = e.getType() == DocumentEvent.EventType.INSERT ?
+                    root.getElementIndex(e.getOffset() + e.getLength()) : line;
+            dirtyEnd = Math.max(dirtyEnd, lastLine);
+
+            // lines that were typed in keep their elements, their tokens are no good anymore
+            if(lastLine - line >= MAX_CACHED_LINES){
+                lineTokens.clear();
+            }else{
+                for(int i = line; i <= lastLine; i++) lineTokens.remove(root.getElement(i));
+            }
+        }
+
+        // the state of the edited line itself only depends on the lines before it
+        validLines = Math.min(validLines, line + 1);
+
+        // the line that was typed in keeps its element, its tokens are no good anymore
+        if(change != null) lineTokens.remove(root.getElement(root.getElementIndex(e.getOffset())));
+
+        passTimer.restart();
+    }
+
+    private void replaceLines(int index, int removed, int added){
+        int newLineCount = lineCount + added - removed;
+        ensureCapacity(newLineCount);
+        System.arraycopy(states, index + removed, states, index + added, lineCount - index - removed);
+
+        // until the pass gets to them, the new lines start in the state of the line they were split off from
+        if(added > 1) Arrays.fill(states, index + 1, index + added, states[index]);
+        lineCount = newLineCount;
+    }
+
+    private void ensureCapacity(int capacity){
+        if(capacity > states.length) states = Arrays.copyOf(states, Math.max(capacity, states.length * 2));
+    }
+
+    // lexes the lines from the first one that may have changed on the background thread, from a snapshot of the text
+    private void startPass(){
+        if(dirtyEnd < 0) return;
+
+        int from = validLines - 1;
+        int fromOffset = document.getDefaultRootElement().getElement(from).getStartOffset();
+        TextSnapshot text;
+        try{
+            text = TextSnapshot.of(document);
+        }catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+
+        // the pass stops at the first line after the edits whose state stays the same
+        int[] oldStates = Arrays.copyOfRange(states, from, lineCount);
+        int passDirtyEnd = dirtyEnd;
+        int passNumber = ++pass;
+        int passEdit = editCount;
+        backgroundLexer.execute(new Runnable() {
+            @Override
+            public void run() {
+                Lexer.Tokens passTokens = new Lexer.Tokens();
+                Segment passSegment = new Segment();
+                char[] line = new char[1024];
+                int lineLength = 0;
+
+                // the states worked out since the last hand over, for the lines from firstLine on
+                int[] done = new int[1024];
+                int doneCount = 0;
+                int firstLine = from + 1;
+                long lastResult = System.currentTimeMillis();
+
+                int index = from;
+                int state = oldStates[0];
+                int offset = fromOffset;
+                int length = text.getLength();
+                try{
+                    while(offset < length){
+                        if(pass != passNumber) return;
+
+                        text.getText(offset, length - offset, passSegment);
+                        int segmentEnd = passSegment.offset + passSegment.count;
+                        for(int i = passSegment.offset; i < segmentEnd; i++){
+                            char c = passSegment.array[i];
+                            if(c != '\n'){
+                                // only the length of lines that are too long to be lexed matters
+                                if(lineLength < line.length){
+                                    line[lineLength] = c;
+                                }else if(lineLength <= MAX_LINE_LENGTH){
+                                    line = Arrays.copyOf(line, line.length * 2);
+                                    line[lineLength] = c;
+                                }
+                                lineLength++;
+                                continue;
+                            }
+
+                            if(lineLength <= MAX_LINE_LENGTH){
+                                passTokens.clear();
+                                state = lexer.lex(line, 0, lineLength, state, passTokens);
+                            }
+                            lineLength = 0;
+                            index++;
+
+                            if(doneCount == done.length) done = Arrays.copyOf(done, doneCount * 2);
+                            done[doneCount++] = state;
+
+                            if(index > passDirtyEnd && index - from < oldStates.length && state == oldStates[index - from]){
+                                handOver(passNumber, passEdit, firstLine, Arrays.copyOf(done, doneCount), true);
+                                return;
+                            }
+                        }
+                        offset += passSegment.count;
+
+                        if(System.currentTimeMillis() - lastResult > RESULT_INTERVAL){
+                            handOver(passNumber, passEdit, firstLine, Arrays.copyOf(done, doneCount), false);
+                            firstLine += doneCount;
+                            doneCount = 0;
+                            lastResult = System.currentTimeMillis();
+                        }
+                    }
+                }catch(BadLocationException e){
+                    throw new IllegalStateException(e);
+                }
+                handOver(passNumber, passEdit, firstLine, Arrays.copyOf(done, doneCount), true);
+            }
+        });
+    }
+
+    // puts the states worked out in the background in, unless the text was edited in the meantime. the pass that the
+    // edit started does them again
+    private void handOver(int passNumber, int passEdit, int firstLine, int[] passStates, boolean finished){
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if(pass != passNumber || editCount != passEdit) return;
+
+                boolean changed = false;
+                for(int i = 0; i < passStates.length; i++){
+                    changed |= states[firstLine + i] != passStates[i];
+                    states[firstLine + i] = passStates[i];
+                }
+                validLines = Math.max(validLines, firstLine + passStates.length);
+
+                if(finished){
+                    validLines = lineCount;
+                    dirtyEnd = -1;
+                }
+                if(changed) repaintHosts();
+            }
+        });
+    }
+
+    private void repaintHosts(){
+        for(Component host : new ArrayList<>(hosts.keySet())){
+            if(host instanceof JTextComponent && ((JTextComponent) host).getDocument() != document){
+                hosts.remove(host);
+            }else{
+                host.repaint();
+            }
+        }
+    }
+
+    // the tokens of a line and the state they were lexed from
+    private static class LineTokens {
+        private final int state;
+        private final int[] tokens;
+
+        private LineTokens(int state, int[] tokens){
+            this.state = state;
+            this.tokens = tokens;
+        }
+    }
+}
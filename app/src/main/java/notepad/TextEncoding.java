@@ -0,0 +1,138 @@
+package notepad;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// how the text of a file is stored: its charset, whether it starts with a byte order mark and which line separator it
+// uses. the document always holds "\n", files are saved back the way they were read
+public class TextEncoding {
+    // tells utf-32 apart from utf-16, they start the same way
+    private static final byte[] UTF_32LE_BOM = {(byte) 0xFF, (byte) 0xFE, 0, 0};
+    private static final byte[] UTF_32BE_BOM = {0, 0, (byte) 0xFE, (byte) 0xFF};
+    private static final byte[] UTF_8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] UTF_16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+    private static final byte[] UTF_16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+
+    private final Charset charset;
+    private final boolean byteOrderMark;
+    private final String lineSeparator;
+
+    public TextEncoding(Charset charset, boolean byteOrderMark, String lineSeparator){
+        this.charset = charset;
+        this.byteOrderMark = byteOrderMark;
+        this.lineSeparator = lineSeparator;
+    }
+
+    // how text that was typed into a new document is saved
+    public static TextEncoding forNewText(){
+        return new TextEncoding(StandardCharsets.UTF_8, false, System.lineSeparator());
+    }
+
+    // reads the start of the file to find out how it is stored, the line separator is the one it uses most in there
+    public static TextEncoding of(File file) throws IOException {
+        try(TextFileReader reader = new TextFileReader(file, null)){
+            reader.read(new char[TextFileReader.BLOCK_SIZE], TextFileReader.BLOCK_SIZE);
+            return reader.getEncoding();
+        }
+    }
+
+    public Charset getCharset(){return charset;}
+    public boolean hasByteOrderMark(){return byteOrderMark;}
+    public String getLineSeparator(){return lineSeparator;}
+
+    // how many bytes the byte order mark takes up at the start of the file, 0 without one
+    public int getByteOrderMarkLength(){
+        return byteOrderMark ? charset.encode("\uFEFF").remaining() : 0;
+    }
+
+    public TextEncoding withLineSeparator(String lineSeparator){
+        return new TextEncoding(charset, byteOrderMark, lineSeparator);
+    }
+
+    // like "UTF-8 BOM" or "windows-1252"
+    public String getCharsetName(){
+        return charset.name() + (byteOrderMark ? " BOM" : "");
+    }
+
+    // like "CRLF"
+    public String getLineSeparatorName(){
+        switch(lineSeparator){
+            case "\r\n":
+                return "CRLF";
+            case "\r":
+                return "CR";
+            default:
+                return "LF";
+        }
+    }
+
+    // works out the charset from the first block of a file: a byte order mark says it right away, without one the
+    // zero bytes of mostly ascii text tell utf-16, then text that is valid utf-8 is read as utf-8 and anything else in
+    // a charset that can read every byte. the block is not moved, the byte order mark is decoded with the text
+    public static TextEncoding detect(ByteBuffer block){
+        String separator = System.lineSeparator();
+        if(startsWith(block, UTF_32LE_BOM)) return new TextEncoding(Charset.forName("UTF-32LE"), true, separator);
+        if(startsWith(block, UTF_32BE_BOM)) return new TextEncoding(Charset.forName("UTF-32BE"), true, separator);
+        if(startsWith(block, UTF_8_BOM)) return new TextEncoding(StandardCharsets.UTF_8, true, separator);
+        if(startsWith(block, UTF_16LE_BOM)) return new TextEncoding(StandardCharsets.UTF_16LE, true, separator);
+        if(startsWith(block, UTF_16BE_BOM)) return new TextEncoding(StandardCharsets.UTF_16BE, true, separator);
+
+        // every other byte of ascii text in utf-16 is zero, on the odd bytes for little endian
+        int pairs = block.remaining() / 2;
+        if(pairs > 0){
+            int evenZeros = 0;
+            int oddZeros = 0;
+            for(int i = 0; i < pairs; i++){
+                if(block.get(block.position() + 2 * i) == 0) evenZeros++;
+                if(block.get(block.position() + 2 * i + 1) == 0) oddZeros++;
+            }
+            if(oddZeros * 5 > pairs * 2 && evenZeros * 20 < pairs){
+                return new TextEncoding(StandardCharsets.UTF_16LE, false, separator);
+            }
+            if(evenZeros * 5 > pairs * 2 && oddZeros * 20 < pairs){
+                return new TextEncoding(StandardCharsets.UTF_16BE, false, separator);
+            }
+        }
+
+        if(isUtf8(block)) return new TextEncoding(StandardCharsets.UTF_8, false, separator);
+        return new TextEncoding(fallbackCharset(), false, separator);
+    }
+
+    private static boolean startsWith(ByteBuffer block, byte[] prefix){
+        if(block.remaining() < prefix.length) return false;
+        for(int i = 0; i < prefix.length; i++){
+            if(block.get(block.position() + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    // the block can end in the middle of a character, that last character does not count
+    private static boolean isUtf8(ByteBuffer block){
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer bytes = block.duplicate();
+        CoderResult result = decoder.decode(bytes, CharBuffer.allocate(bytes.remaining()), false);
+        if(result.isError()) return false;
+
+        // what is left over is the start of a character that was cut off at the end of the block
+        return bytes.remaining() < 4;
+    }
+
+    // reads every byte as some character so that saving the file again gives back the same bytes, the platform's
+    // charset when it is a legacy one, latin-1 when the platform uses utf-8 (which the text was not) or plain ascii
+    private static Charset fallbackCharset(){
+        Charset platform = Charset.defaultCharset();
+        if(platform.equals(StandardCharsets.UTF_8) || platform.equals(StandardCharsets.US_ASCII)){
+            return StandardCharsets.ISO_8859_1;
+        }
+        return platform;
+    }
+}
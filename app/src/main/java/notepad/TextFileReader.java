@@ -0,0 +1,209 @@
+package notepad;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+// decodes a text file straight from its channel into the caller's char array, with "\r\n" and "\r" line endings turned
+// into "\n" on the way. the charset is detected from the first block of the file unless it is given, the line
+// separator is the one the file uses the most. the byte buffer and the decoder are kept per thread and reused by the
+// next file that is read on that thread, reading a file does not allocate anything that grows with the file. a reader
+// that follows its file does not stop at the end, it picks up whatever gets appended to the file after that. a
+// compressed file is decompressed on the way in, the rest of the reader only ever sees the decompressed bytes
+public class TextFileReader implements Closeable {
+    // how much of the file is read from the disk at a time, the first block is also what the charset is detected from
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private final FileChannel channel;
+    private final Compression compression;
+
+    // the channel, or what it decompresses to
+    private final ReadableByteChannel input;
+
+    private final Buffers ownBuffers;
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private final TextEncoding encoding;
+    private final boolean detected;
+
+    private boolean endOfInput;
+    private boolean finished;
+    private boolean started;
+    private boolean following;
+
+    // a "\r\n" pair can be split between two reads so we need to remember if the last read ended with "\r"
+    private boolean skipLineFeed;
+    private long lineFeeds;
+    private long carriageReturns;
+    private long carriageReturnLineFeeds;
+
+    // encoding can be null to detect it from the file
+    public TextFileReader(File file, TextEncoding encoding) throws IOException {
+        this(file, encoding, 0);
+    }
+
+    // starts reading at a byte position of the file, which has to be the start of a character. only files that are
+    // not compressed can be read from a position
+    public TextFileReader(File file, TextEncoding encoding, long position) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try{
+            channel.position(position);
+            compression = position == 0 ? Compression.of(channel) : Compression.NONE;
+            input = compression.decompress(channel);
+
+            // only the start of the file has a byte order mark
+            started = position > 0;
+
+            // a reader that is opened while another one is reading on the same thread gets buffers of its own
+            Buffers threadBuffers = buffers.get();
+            ownBuffers = threadBuffers.inUse ? new Buffers() : threadBuffers;
+            ownBuffers.inUse = true;
+
+            bytes = ownBuffers.bytes;
+            bytes.clear();
+            while(bytes.hasRemaining() && input.read(bytes) != -1){
+                // keep reading, the first block should be full for the detection
+            }
+            bytes.flip();
+
+            detected = encoding == null;
+            this.encoding = detected ? TextEncoding.detect(bytes) : encoding;
+            decoder = ownBuffers.getDecoder(this.encoding.getCharset());
+        }catch(IOException | RuntimeException e){
+            close();
+            throw e;
+        }
+    }
+
+    // reads up to length characters into the start of the buffer, returns how many there are after the line endings
+    // have been normalized (which can be 0) or -1 once the whole file has been read
+    public int read(char[] buffer, int length) throws IOException {
+        if(finished) return -1;
+
+        CharBuffer chars = CharBuffer.wrap(buffer, 0, length);
+        while(chars.hasRemaining() && !finished){
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if(result.isOverflow()) break;
+
+            // everything has been decoded, the decoder may still hold on to a few characters
+            if(endOfInput){
+                if(decoder.flush(chars).isOverflow()) break;
+                finished = true;
+                break;
+            }
+
+            // the bytes that were left over are the start of a character, they go in front of the next block
+            bytes.compact();
+            int read = input.read(bytes);
+            bytes.flip();
+            if(read == -1){
+                // a character that was cut off waits for the rest of it to be appended
+                if(following) break;
+                endOfInput = true;
+            }
+        }
+
+        int decoded = chars.position();
+        if(decoded == 0 && finished) return -1;
+        return normalize(buffer, decoded);
+    }
+
+    private int normalize(char[] buffer, int decoded){
+        int start = 0;
+        if(!started && decoded > 0){
+            started = true;
+
+            // the byte order mark is not part of the text
+            if(encoding.hasByteOrderMark() && buffer[0] == '\uFEFF') start = 1;
+        }
+
+        int length = 0;
+        for(int i = start; i < decoded; i++){
+            char c = buffer[i];
+            if(c == '\n'){
+                if(skipLineFeed){
+                    skipLineFeed = false;
+                    carriageReturns--;
+                    carriageReturnLineFeeds++;
+                    continue;
+                }
+                lineFeeds++;
+            }
+
+            skipLineFeed = c == '\r';
+            if(skipLineFeed) carriageReturns++;
+            buffer[length++] = skipLineFeed ? '\n' : c;
+        }
+
+        return length;
+    }
+
+    // the given encoding, or the detected one with the line separator the file uses the most in what was read so far
+    public TextEncoding getEncoding(){
+        if(!detected) return encoding;
+
+        if(carriageReturnLineFeeds == 0 && carriageReturns == 0 && lineFeeds == 0) return encoding;
+        if(carriageReturnLineFeeds >= lineFeeds && carriageReturnLineFeeds >= carriageReturns){
+            return encoding.withLineSeparator("\r\n");
+        }
+        return encoding.withLineSeparator(carriageReturns > lineFeeds ? "\r" : "\n");
+    }
+
+    // the reader does not stop at the end of the file, read returns 0 until more has been appended to it
+    public void setFollowing(boolean following){this.following = following;}
+
+    public Compression getCompression(){return compression;}
+
+    // how many bytes of the file have been decoded so far. for a compressed file it is how much of the compressed file
+    // has been read, which is a little ahead of what has been decoded
+    public long getPosition() throws IOException {
+        if(compression.isCompressed()) return channel.position();
+        return channel.position() - bytes.remaining();
+    }
+
+    public long getSize() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(ownBuffers != null) ownBuffers.inUse = false;
+        try{
+            if(input != null) input.close();
+        }finally{
+            channel.close();
+        }
+    }
+
+    private static class Buffers {
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        private CharsetDecoder decoder;
+        private boolean inUse;
+
+        private CharsetDecoder getDecoder(Charset charset){
+            if(decoder == null || !decoder.charset().equals(charset)){
+                // broken bytes become replacement characters instead of failing the whole file
+                decoder = charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+            return decoder.reset();
+        }
+    }
+}
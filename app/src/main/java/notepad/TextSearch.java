@@ -0,0 +1,206 @@
+package notepad;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// what the user is searching for. plain text is found with boyer-moore-horspool, which looks at the last character
+// of the window first and can skip ahead by the whole length of the searched text when it does not occur in it,
+// patterns are found with java's regex
+public class TextSearch {
+    // how many characters are read between checks whether the search was cancelled
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+
+    private final String text;
+    private final boolean matchCase;
+    private final boolean regex;
+
+    // only for regex searches
+    private final Pattern pattern;
+
+    // only for plain text searches, the searched text (in lower case if the case does not matter) and how far the
+    // window can move on for the character at its end. the table is indexed by the low byte of the character, so
+    // characters that share it get the smallest of their skips
+    private final char[] needle;
+    private final int[] skip;
+
+    public TextSearch(String text, boolean matchCase, boolean regex) throws PatternSyntaxException {
+        if(text.isEmpty()) throw new IllegalArgumentException("nothing to search for");
+
+        this.text = text;
+        this.matchCase = matchCase;
+        this.regex = regex;
+
+        if(regex){
+            int flags = Pattern.MULTILINE;
+            if(!matchCase) flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+            pattern = Pattern.compile(text, flags);
+            needle = null;
+            skip = null;
+            return;
+        }
+
+        pattern = null;
+        needle = new char[text.length()];
+        for(int i = 0; i < needle.length; i++){
+            needle[i] = matchCase ? text.charAt(i) : fold(text.charAt(i));
+        }
+
+        skip = new int[256];
+        Arrays.fill(skip, needle.length);
+        for(int i = 0; i < needle.length - 1; i++){
+            skip[needle[i] & 0xFF] = needle.length - 1 - i;
+        }
+    }
+
+    public String getText(){return text;}
+    public boolean isMatchCase(){return matchCase;}
+    public boolean isRegex(){return regex;}
+
+    private static char fold(char c){
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    // finds the matches in the given text, a finder can only be used by one thread
+    public Finder finder(CharSequence chars){
+        return new Finder(chars);
+    }
+
+    public class Finder {
+        private final CharSequence chars;
+        private final Matcher matcher;
+
+        private int start = -1;
+        private int end = -1;
+        private int limit;
+
+        private Finder(CharSequence chars){
+            this.chars = new CancellableChars(chars);
+            this.matcher = pattern == null ? null : pattern.matcher(this.chars);
+            if(matcher != null){
+                // lookarounds and anchors see the text outside of the range that is searched
+                matcher.useTransparentBounds(true);
+                matcher.useAnchoringBounds(false);
+            }
+        }
+
+        // finds the first match that lies between from and to. a search that is running on a worker can be
+        // stopped by interrupting it, which throws a CancellationException
+        public boolean find(int from, int to){
+            limit = to;
+            if(from > to) return false;
+
+            if(matcher != null){
+                matcher.region(from, to);
+                if(!matcher.find()) return false;
+                start = matcher.start();
+                end = matcher.end();
+                return true;
+            }
+
+            int last = needle.length - 1;
+            for(int window = from; window + needle.length <= to; ){
+                char tail = charAt(window + last);
+                char c = tail;
+                int i = last;
+                while(c == needle[i]){
+                    if(i == 0){
+                        start = window;
+                        end = window + needle.length;
+                        return true;
+                    }
+                    c = charAt(window + --i);
+                }
+                window += skip[tail & 0xFF];
+            }
+            return false;
+        }
+
+        // finds the match after the last one, up to the same end
+        public boolean findNext(){
+            // an empty match would be found over and over again
+            int from = end == start ? end + 1 : end;
+            return find(from, limit);
+        }
+
+        private char charAt(int index){
+            char c = chars.charAt(index);
+            return matchCase ? c : fold(c);
+        }
+
+        public int start(){return start;}
+        public int end(){return end;}
+
+        // the text that replaces the last match. for a regex, $1 or ${name} stand for the text of a group and a
+        // backslash takes the next character as it is
+        public String replacement(String replaceWith){
+            if(matcher == null) return replaceWith;
+
+            StringBuilder result = new StringBuilder();
+            for(int i = 0; i < replaceWith.length(); i++){
+                char c = replaceWith.charAt(i);
+                if(c == '\\' && i + 1 < replaceWith.length()){
+                    result.append(replaceWith.charAt(++i));
+                }else if(c == '$' && i + 2 < replaceWith.length() && replaceWith.charAt(i + 1) == '{'){
+                    int close = replaceWith.indexOf('}', i + 2);
+                    if(close < 0) throw new IllegalArgumentException("missing } in the replacement");
+
+                    String group = matcher.group(replaceWith.substring(i + 2, close));
+                    if(group != null) result.append(group);
+                    i = close;
+                }else if(c == '$' && i + 1 < replaceWith.length() && Character.isDigit(replaceWith.charAt(i + 1))){
+                    // takes as many digits as still name an existing group
+                    int group = replaceWith.charAt(++i) - '0';
+                    while(i + 1 < replaceWith.length() && Character.isDigit(replaceWith.charAt(i + 1)) &&
+                            group * 10 + replaceWith.charAt(i + 1) - '0' <= matcher.groupCount()){
+                        group = group * 10 + replaceWith.charAt(++i) - '0';
+                    }
+                    if(group > matcher.groupCount()) throw new IllegalArgumentException("no group " + group);
+
+                    String text = matcher.group(group);
+                    if(text != null) result.append(text);
+                }else{
+                    result.append(c);
+                }
+            }
+            return result.toString();
+        }
+    }
+
+    // checks every now and then whether the thread doing the search has been interrupted, a regex search can not be
+    // stopped otherwise
+    private static class CancellableChars implements CharSequence {
+        private final CharSequence chars;
+        private int reads;
+
+        private CancellableChars(CharSequence chars){
+            this.chars = chars;
+        }
+
+        @Override
+        public int length() {
+            return chars.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if(++reads == CANCEL_CHECK_INTERVAL){
+                reads = 0;
+                if(Thread.currentThread().isInterrupted()) throw new CancellationException();
+            }
+            return chars.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return chars.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return chars.toString();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package notepad;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+// the text of a document at one moment in time that can be read from any thread while the user keeps editing the
+// document. for a piece table document this only copies the list of pieces, the text itself is shared with the
+// document since the buffers behind the pieces never change
+public class TextSnapshot {
+    private final char[][] arrays;
+    private final int[] arrayOffsets;
+
+    // document offset where each piece starts, with one extra entry for the end of the text
+    private final int[] starts;
+
+    // documents that never change are read directly
+    private final Document document;
+
+    TextSnapshot(char[][] arrays, int[] arrayOffsets, int[] starts){
+        this.arrays = arrays;
+        this.arrayOffsets = arrayOffsets;
+        this.starts = starts;
+        this.document = null;
+    }
+
+    private TextSnapshot(Document document){
+        this.arrays = null;
+        this.arrayOffsets = null;
+        this.starts = null;
+        this.document = document;
+    }
+
+    // takes a snapshot of the document, this has to be called on the edt (or while no one is editing the document)
+    public static TextSnapshot of(Document document) throws BadLocationException {
+        if(document instanceof PieceTableDocument) return ((PieceTableDocument) document).snapshot();
+        if(document instanceof LargeFileDocument) return new TextSnapshot(document);
+
+        // other documents reuse their buffers, so their text has to be copied
+        char[] text = document.getText(0, document.getLength()).toCharArray();
+        return new TextSnapshot(new char[][]{text}, new int[]{0}, new int[]{0, text.length});
+    }
+
+    // takes a snapshot of part of the document, offsets in the snapshot start at 0 for the first character
+    public static TextSnapshot of(Document document, int offset, int length) throws BadLocationException {
+        if(offset < 0 || length < 0 || offset + length > document.getLength()){
+            throw new BadLocationException("invalid range", offset);
+        }
+        if(document instanceof PieceTableDocument) return ((PieceTableDocument) document).snapshot(offset, length);
+        if(offset == 0 && length == document.getLength()) return of(document);
+
+        char[] text = document.getText(offset, length).toCharArray();
+        return new TextSnapshot(new char[][]{text}, new int[]{0}, new int[]{0, text.length});
+    }
+
+    public int getLength(){
+        return document != null ? document.getLength() : starts[starts.length - 1];
+    }
+
+    // copies the whole text into a string
+    public String getString(){
+        StringBuilder text = new StringBuilder(getLength());
+        Segment segment = new Segment();
+        try{
+            for(int offset = 0; offset < getLength(); offset += segment.count){
+                getText(offset, getLength() - offset, segment);
+                text.append(segment.array, segment.offset, segment.count);
+            }
+        }catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+        return text.toString();
+    }
+
+    // the text as a char sequence, for searching it with a regex. it remembers the piece it last read from so
+    // reading the text from start to end is fast, which also means that each thread needs its own
+    public CharSequence chars(){
+        return new Chars(0, getLength());
+    }
+
+    private class Chars implements CharSequence {
+        private final Segment segment = new Segment();
+        private final int start;
+        private final int end;
+
+        // the document offset of the first character in the segment
+        private int segmentStart;
+
+        private Chars(int start, int end){
+            this.start = start;
+            this.end = end;
+            segment.setPartialReturn(true);
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if(index < 0 || index >= end - start) throw new IndexOutOfBoundsException(index);
+
+            int offset = start + index;
+            if(offset < segmentStart || offset >= segmentStart + segment.count){
+                try{
+                    getText(offset, getLength() - offset, segment);
+                }catch(BadLocationException e){
+                    throw new IndexOutOfBoundsException(index);
+                }
+                segmentStart = offset;
+            }
+            return segment.array[segment.offset + offset - segmentStart];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if(from < 0 || to > end - start || from > to) throw new IndexOutOfBoundsException(from);
+            return new Chars(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(length());
+            Segment part = new Segment();
+            part.setPartialReturn(true);
+            try{
+                for(int offset = start; offset < end; offset += part.count){
+                    getText(offset, end - offset, part);
+                    text.append(part.array, part.offset, part.count);
+                }
+            }catch(BadLocationException e){
+                throw new IllegalStateException(e);
+            }
+            return text.toString();
+        }
+    }
+
+    // points the segment at the text that starts at the given offset without copying it. the segment can hold less
+    // than the requested length, in that case the rest of the text has to be asked for again
+    public void getText(int offset, int length, Segment txt) throws BadLocationException {
+        if(offset < 0 || length < 0 || offset + length > getLength()) throw new BadLocationException("invalid range", offset);
+
+        if(length == 0){
+            txt.array = new char[0];
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+
+        if(document != null){
+            txt.setPartialReturn(true);
+            document.getText(offset, length, txt);
+            return;
+        }
+
+        // find the piece that contains the offset
+        int low = 0, high = arrays.length - 1;
+        while(low < high){
+            int middle = (low + high + 1) >>> 1;
+            if(starts[middle] <= offset){
+                low = middle;
+            }else{
+                high = middle - 1;
+            }
+        }
+
+        int pieceOffset = offset - starts[low];
+        txt.array = arrays[low];
+        txt.offset = arrayOffsets[low] + pieceOffset;
+        txt.count = Math.min(length, starts[low + 1] - offset);
+    }
+}
@@ -0,0 +1,115 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.plaf.LayerUI;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+
+// zooms the text area by changing the size of its font. a new font makes the text area lay out all of its text
+// again, so while the user keeps zooming the text is only painted scaled and the font is set once the zooming stops
+public class TextZoom extends LayerUI<JTextArea> {
+    // how long after the last zoom step the font is set
+    private static final int RELAYOUT_DELAY = 150;
+
+    private static final int MIN_SIZE = 4;
+    private static final int MAX_SIZE = 200;
+
+    private final JTextArea textArea;
+    private final JLayer<JTextArea> layer;
+    private final Timer relayoutTimer;
+
+    // the size that is shown, it differs from the size of the font while zoom steps are waiting to be applied
+    private int size;
+
+    // ctrl + wheel on a touchpad comes in fractions of a step
+    private double wheelRotation;
+
+    public TextZoom(JTextArea textArea){
+        this.textArea = textArea;
+        this.layer = new JLayer<>(textArea, this);
+
+        relayoutTimer = new Timer(RELAYOUT_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                applySize();
+            }
+        });
+        relayoutTimer.setRepeats(false);
+
+        // ctrl + mouse wheel zooms, the wheel on its own scrolls the text like before
+        textArea.addMouseWheelListener(new MouseWheelListener() {
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if(!e.isControlDown()){
+                    Container scrollPane = SwingUtilities.getAncestorOfClass(JScrollPane.class, textArea);
+                    if(scrollPane != null) scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(textArea, e, scrollPane));
+                    return;
+                }
+
+                wheelRotation -= e.getPreciseWheelRotation();
+                int steps = (int) wheelRotation;
+                wheelRotation -= steps;
+                if(steps != 0) zoomBy(steps);
+            }
+        });
+    }
+
+    // the text area as it has to be added to the scroll pane
+    public JLayer<JTextArea> getLayer(){return layer;}
+
+    private int getShownSize(){
+        return relayoutTimer.isRunning() ? size : textArea.getFont().getSize();
+    }
+
+    public void zoomBy(int steps){
+        zoomTo(getShownSize() + steps);
+    }
+
+    public void zoomTo(int newSize){
+        newSize = Math.max(MIN_SIZE, Math.min(MAX_SIZE, newSize));
+        if(newSize == getShownSize()) return;
+
+        size = newSize;
+        relayoutTimer.restart();
+        layer.repaint();
+    }
+
+    // sets the font once, for all the zoom steps that were made
+    private void applySize(){
+        Font font = textArea.getFont();
+        if(size != font.getSize()){
+            Diagnostics.Operation operation = Diagnostics.begin("zoom", "characters");
+            textArea.setFont(FontCache.derive(font, size));
+            operation.end(textArea.getDocument().getLength());
+        }
+        layer.repaint();
+    }
+
+    @Override
+    public void paint(Graphics g, JComponent c) {
+        int fontSize = textArea.getFont().getSize();
+        if(!relayoutTimer.isRunning() || size == fontSize){
+            super.paint(g, c);
+            return;
+        }
+
+        // paints the text as it is laid out now but scaled to the new size, keeping the top left corner in place
+        Rectangle visible = textArea.getVisibleRect();
+        Graphics2D scaled = (Graphics2D) g.create();
+        try{
+            scaled.setColor(textArea.getBackground());
+            scaled.fillRect(visible.x, visible.y, visible.width, visible.height);
+
+            double scale = (double) size / fontSize;
+            scaled.translate(visible.x, visible.y);
+            scaled.scale(scale, scale);
+            scaled.translate(-visible.x, -visible.y);
+            super.paint(scaled, c);
+        }finally{
+            scaled.dispose();
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// undo and redo history that replaces swing's UndoManager. consecutive typing is grouped into one undo step per word
+// (or per pause in typing) and the history is limited by the amount of text it holds instead of the number of edits.
+// once the limit is reached the oldest steps are compressed into a journal file on disk and their text is let go,
+// undoing that far back reads the text back from the journal
+public class UndoHistory {
+    private static final long DEFAULT_MEMORY_LIMIT = 8L * 1024 * 1024;
+
+    // steps that go past this much journal are forgotten
+    private static final long MAX_JOURNAL_SIZE = 256L * 1024 * 1024;
+
+    // edits this close together are one step, like the remove and insert of typing over a selection
+    private static final long SAME_ACTION_TIME = 50;
+
+    // typing pauses longer than this start a new step
+    private static final long TYPING_PAUSE_TIME = 1000;
+
+    // rough amount of memory used by an edit apart from its text
+    private static final int EDIT_OVERHEAD = 96;
+
+    private final long memoryLimit;
+    private final List<Step> steps = new ArrayList<>();
+
+    // steps before this index can be undone, the ones from this index on can be redone
+    private int nextAdd;
+
+    private long memoryUsage;
+    private UndoJournal journal;
+
+    // writes the journals without holding up the edt, one thread is shared by the undo histories of all tabs
+    private static final ExecutorService journalWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "undo-journal");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // set while the history changes the document itself, those changes must not be recorded as new edits
+    private boolean replaying;
+
+    // set between beginCompoundEdit and endCompoundEdit, every edit made in between goes into one step
+    private boolean compound;
+    private Step compoundStep;
+
+    public UndoHistory(){
+        this(DEFAULT_MEMORY_LIMIT);
+    }
+
+    public UndoHistory(long memoryLimit){
+        this.memoryLimit = memoryLimit;
+    }
+
+    // amount of memory that is held by the text of the undo steps (estimated)
+    public long getMemoryUsage(){return memoryUsage;}
+
+    public long getJournalSize(){return journal == null ? 0 : journal.size();}
+
+    public void addEdit(UndoableEdit edit){
+        if(replaying) return;
+
+        // a new edit throws away everything that could have been redone
+        while(steps.size() > nextAdd) removeStep(steps.size() - 1);
+
+        long now = System.currentTimeMillis();
+        PieceTableDocument.TextEdit textEdit = edit instanceof PieceTableDocument.TextEdit ?
+                (PieceTableDocument.TextEdit) edit : null;
+
+        Step last = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+        boolean merge = compound ? last != null && last == compoundStep :
+                last != null && textEdit != null && last.canMerge(textEdit, now);
+        if(merge){
+            memoryUsage -= last.memoryUsage();
+            last.add(edit, textEdit, now);
+            memoryUsage += last.memoryUsage();
+        }else{
+            Step step = new Step();
+            step.add(edit, textEdit, now);
+            steps.add(step);
+            memoryUsage += step.memoryUsage();
+            nextAdd = steps.size();
+            if(compound) compoundStep = step;
+        }
+
+        if(memoryUsage > memoryLimit) spillOldSteps();
+    }
+
+    // edits made until endCompoundEdit is called are undone and redone together
+    public void beginCompoundEdit(){
+        compound = true;
+        compoundStep = null;
+    }
+
+    public void endCompoundEdit(){
+        // nothing typed afterwards is merged into the step
+        if(compoundStep != null) compoundStep.closed = true;
+        compound = false;
+        compoundStep = null;
+
+        if(memoryUsage > memoryLimit) spillOldSteps();
+    }
+
+    public boolean canUndo(){
+        return nextAdd > 0;
+    }
+
+    public boolean canRedo(){
+        return nextAdd < steps.size();
+    }
+
+    public void undo() throws CannotUndoException {
+        if(!canUndo()) throw new CannotUndoException();
+
+        Step step = steps.get(nextAdd - 1);
+        if(!step.hasEdits()){
+            // replaying leaves the document in a state that the edits of the steps after it were not made for,
+            // so they have to be replayed from now on as well
+            for(int i = nextAdd; i < steps.size(); i++){
+                if(!steps.get(i).dropEdits()){
+                    while(steps.size() > i) removeStep(steps.size() - 1);
+                    break;
+                }
+            }
+        }
+
+        step.undo();
+        nextAdd--;
+    }
+
+    public void redo() throws CannotRedoException {
+        if(!canRedo()) throw new CannotRedoException();
+
+        steps.get(nextAdd).redo();
+        nextAdd++;
+    }
+
+    public void discardAllEdits(){
+        steps.clear();
+        nextAdd = 0;
+        memoryUsage = 0;
+
+        if(journal != null){
+            UndoJournal oldJournal = journal;
+            journal = null;
+            journalWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    oldJournal.close();
+                }
+            });
+        }
+    }
+
+    private void removeStep(int index){
+        memoryUsage -= steps.remove(index).memoryUsage();
+    }
+
+    // moves the text of the oldest steps to the journal until the history is well below its limit again
+    private void spillOldSteps(){
+        if(journal == null){
+            try{
+                journal = new UndoJournal();
+            }catch(IOException e){
+                // without a journal the oldest steps are simply forgotten
+                e.printStackTrace();
+            }
+        }
+
+        long target = memoryLimit * 3 / 4;
+        long pending = memoryUsage;
+        for(int i = 0; i < nextAdd && pending > target; i++){
+            Step step = steps.get(i);
+            // the step that a compound edit is still adding to stays in memory until it is done
+            if(step.spilling || step.isSpilled() || step == compoundStep) continue;
+
+            pending -= step.memoryUsage();
+            if(journal != null && step.canSpill()){
+                step.spill(journal);
+                continue;
+            }
+
+            // a step that can not be written down is forgotten along with every step before it
+            for(int j = 0; j <= i; j++) removeStep(0);
+            nextAdd -= i + 1;
+            i = -1;
+        }
+
+        // the journal can not grow forever either, the oldest steps are forgotten once it is full
+        while(journal != null && journal.size() > MAX_JOURNAL_SIZE && nextAdd > 0 && steps.get(0).isSpilled()){
+            removeStep(0);
+            nextAdd--;
+        }
+    }
+
+    // one undo step, made of one or more edits of the document
+    private class Step {
+        // the document's own edits, these put the document back exactly the way it was including its positions.
+        // they are let go once the step has been spilled
+        private List<UndoableEdit> edits = new ArrayList<>();
+
+        // the same changes as plain inserts and removes of text, these can be replayed on the document at any time
+        private final List<Change> changes = new ArrayList<>();
+        private boolean replayable = true;
+        private boolean spilling;
+        private boolean closed;
+        private long lastTime;
+
+        private void add(UndoableEdit edit, PieceTableDocument.TextEdit textEdit, long time){
+            edits.add(edit);
+            if(edit instanceof PieceTableDocument.BatchEdit){
+                changes.add(new Change((PieceTableDocument.BatchEdit) edit));
+            }else if(textEdit == null){
+                replayable = false;
+            }else{
+                changes.add(new Change(textEdit));
+            }
+            lastTime = time;
+        }
+
+        private boolean canMerge(PieceTableDocument.TextEdit edit, long time){
+            if(edits == null || closed || !replayable || changes.isEmpty()) return false;
+
+            long pause = time - lastTime;
+            if(pause <= SAME_ACTION_TIME) return true;
+            if(pause > TYPING_PAUSE_TIME || edit.getLength() != 1) return false;
+
+            Change last = changes.get(changes.size() - 1);
+            if(last.batch || last.length != 1 || last.insert != edit.isInsert() || last.document != edit.getDocument()) return false;
+
+            if(edit.isInsert()){
+                // typing goes on where the last character was typed, a space after a word starts the next step
+                if(edit.getOffset() != last.offset + 1) return false;
+                return !(isWhitespace(edit.getText()) && !isWhitespace(last.text));
+            }
+
+            // backspace removes the character before the last one, delete removes the one at the same offset
+            return edit.getOffset() == last.offset - 1 || edit.getOffset() == last.offset;
+        }
+
+        private boolean hasEdits(){
+            return edits != null;
+        }
+
+        private boolean isSpilled(){
+            for(Change change : changes){
+                if(change.text != null) return false;
+            }
+            return !changes.isEmpty();
+        }
+
+        private boolean canSpill(){
+            return replayable && !changes.isEmpty();
+        }
+
+        // switches the step over to replaying its changes, returns false if it can not be replayed
+        private boolean dropEdits(){
+            if(!replayable) return false;
+
+            memoryUsage -= memoryUsage();
+            edits = null;
+            memoryUsage += memoryUsage();
+            return true;
+        }
+
+        private long memoryUsage(){
+            long usage = (long) changes.size() * EDIT_OVERHEAD;
+            if(edits != null && !replayable) usage += (long) edits.size() * EDIT_OVERHEAD;
+            for(Change change : changes){
+                if(change.text != null) usage += 2L * change.length;
+            }
+            return usage;
+        }
+
+        private void undo(){
+            if(edits != null){
+                for(int i = edits.size() - 1; i >= 0; i--) edits.get(i).undo();
+                return;
+            }
+
+            replaying = true;
+            try{
+                for(int i = changes.size() - 1; i >= 0; i--) changes.get(i).apply(!changes.get(i).insert);
+            }finally{
+                replaying = false;
+            }
+        }
+
+        private void redo(){
+            if(edits != null){
+                for(UndoableEdit edit : edits) edit.redo();
+                return;
+            }
+
+            replaying = true;
+            try{
+                for(Change change : changes) change.apply(change.insert);
+            }finally{
+                replaying = false;
+            }
+        }
+
+        // writes the text of the changes to the journal in the background. the document's edits are let go right
+        // away (they hold on to the same text) and the text itself once it is safely in the journal
+        private void spill(UndoJournal journal){
+            memoryUsage -= memoryUsage();
+            edits = null;
+            spilling = true;
+            memoryUsage += memoryUsage();
+
+            List<TextSnapshot> texts = new ArrayList<>();
+            for(Change change : changes) texts.add(change.text);
+
+            Step step = this;
+            journalWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long[] positions;
+                    try{
+                        positions = journal.write(texts);
+                    }catch(IOException e){
+                        // the text just stays in memory
+                        e.printStackTrace();
+                        positions = null;
+                    }
+
+                    long[] journalPositions = positions;
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            spilling = false;
+
+                            // the history may have been cleared in the meantime
+                            if(journalPositions == null || UndoHistory.this.journal != journal ||
+                                    !steps.contains(step)) return;
+
+                            memoryUsage -= memoryUsage();
+                            for(int i = 0; i < changes.size(); i++){
+                                changes.get(i).spilled(journal, journalPositions[i]);
+                            }
+                            memoryUsage += memoryUsage();
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    // an insert or remove of text that can be applied again through the document, or a batch of them. a batch keeps
+    // its replacements and the text they replaced as its text, written down the way PieceTableDocument.BatchEdit does
+    private static class Change {
+        private final PieceTableDocument document;
+        private final boolean insert;
+        private final boolean batch;
+        private final int offset;
+        private final int length;
+
+        // the inserted or removed text, null once it has been moved to the journal
+        private TextSnapshot text;
+        private UndoJournal journal;
+        private long journalPosition;
+
+        private Change(PieceTableDocument.TextEdit edit){
+            document = edit.getDocument();
+            insert = edit.isInsert();
+            offset = edit.getOffset();
+            length = edit.getLength();
+            text = edit.getText();
+            batch = false;
+        }
+
+        private Change(PieceTableDocument.BatchEdit edit){
+            document = edit.getDocument();
+            insert = true;
+            batch = true;
+            offset = 0;
+            text = edit.getChanges();
+            length = text.getLength();
+        }
+
+        private void spilled(UndoJournal journal, long position){
+            this.journal = journal;
+            this.journalPosition = position;
+            text = null;
+        }
+
+        // inserts the text if insert is true, otherwise removes it. a batch is applied again if insert is true and
+        // undone otherwise
+        private void apply(boolean insert){
+            try{
+                if(batch){
+                    String changes = text != null ? text.getString() : journal.read(journalPosition, length);
+                    document.apply(PieceTableDocument.BatchEdit.read(changes, !insert));
+                }else if(insert){
+                    String string = text != null ? text.getString() : journal.read(journalPosition, length);
+                    document.insertString(offset, string, null);
+                }else{
+                    document.remove(offset, length);
+                }
+            }catch(BadLocationException | IOException e){
+                throw new CannotUndoException();
+            }
+        }
+    }
+
+    private static boolean isWhitespace(TextSnapshot text){
+        if(text == null || text.getLength() == 0) return false;
+        return Character.isWhitespace(text.getString().charAt(0));
+    }
+
+    // temporary file that holds the compressed text of old undo steps, every text is compressed on its own so that
+    // it can be read back without reading the rest of the file
+    private static class UndoJournal {
+        private final Path path;
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private long size;
+
+        private UndoJournal() throws IOException {
+            path = Files.createTempFile("notepad-undo", ".journal");
+            path.toFile().deleteOnExit();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private synchronized long size(){
+            return size;
+        }
+
+        // appends the texts and returns where each of them starts
+        private synchronized long[] write(List<TextSnapshot> texts) throws IOException {
+            long[] positions = new long[texts.size()];
+            for(int i = 0; i < texts.size(); i++){
+                positions[i] = size;
+                size += writeText(texts.get(i));
+            }
+            return positions;
+        }
+
+        private long writeText(TextSnapshot text) throws IOException {
+            // chars are stored as utf-16 and then compressed
+            ByteBuffer chars = ByteBuffer.allocate(text.getLength() * 2);
+            CharBuffer view = chars.asCharBuffer();
+            Segment segment = new Segment();
+            int offset = 0;
+            try{
+                while(offset < text.getLength()){
+                    text.getText(offset, text.getLength() - offset, segment);
+                    view.put(segment.array, segment.offset, segment.count);
+                    offset += segment.count;
+                }
+            }catch(BadLocationException e){
+                throw new IOException(e);
+            }
+
+            deflater.reset();
+            deflater.setInput(chars.array());
+            deflater.finish();
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            while(!deflater.finished()){
+                int count = deflater.deflate(buffer);
+                compressed.write(buffer, 0, count);
+            }
+
+            // every entry starts with its compressed length
+            ByteBuffer entry = ByteBuffer.allocate(4 + compressed.size());
+            entry.putInt(compressed.size());
+            entry.put(compressed.toByteArray());
+            entry.flip();
+            while(entry.hasRemaining()){
+                channel.write(entry, size + entry.position());
+            }
+            return entry.limit();
+        }
+
+        private synchronized String read(long position, int length) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            readFully(header, position);
+            int compressedLength = header.getInt(0);
+            if(compressedLength < 0) throw new IOException("corrupt undo journal entry at " + position);
+            ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+            readFully(compressed, position + 4);
+
+            Inflater inflater = new Inflater();
+            try{
+                inflater.setInput(compressed.array());
+                byte[] bytes = new byte[length * 2];
+                int count = 0;
+                while(count < bytes.length && !inflater.finished()){
+                    int inflated = inflater.inflate(bytes, count, bytes.length - count);
+
+                    // a cut off or damaged entry stops giving output, it would otherwise be asked for more forever
+                    if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                        throw new EOFException("undo journal entry at " + position + " is cut off");
+                    }
+                    count += inflated;
+                }
+                if(count < bytes.length) throw new EOFException("undo journal entry at " + position + " is too short");
+                return ByteBuffer.wrap(bytes).asCharBuffer().toString();
+            }catch(DataFormatException e){
+                throw new IOException(e);
+            }finally{
+                inflater.end();
+            }
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while(buffer.hasRemaining()){
+                if(channel.read(buffer, position + buffer.position()) == -1) throw new EOFException();
+            }
+        }
+
+        private void close(){
+            try{
+                channel.close();
+                Files.deleteIfExists(path);
+            }catch(IOException e){
+                e.printStackTrace();
+            }
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,743 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// view for a text area with word wrap turned on. swing's WrappedPlainView works out the rows of every line of the
+// document on the edt, which hangs on big files. this view only works out the rows of the lines that are painted or
+// that the caret is in, the rest of the document is done on a background thread. until a line has been worked out it
+// takes up the number of rows that its length suggests
+public class WrappedTextView extends View implements TabExpander {
+    // lines up to this length are worked out completely when they are needed, longer ones only as far as needed
+    private static final int SYNC_LINE_LENGTH = 64 * 1024;
+
+    // how long after the last edit the background thread works out the changed lines
+    private static final int PASS_DELAY = 200;
+
+    // how often the background thread hands over the lines it has worked out
+    private static final long RESULT_INTERVAL = 50;
+
+    // how long one event on the edt may spend putting handed over lines into the view, or estimating the rows of lines
+    // after the width changed, in nanoseconds. the rest of the lines are done by the next event. it is kept well below
+    // the time an event may take, on a single cpu the edt shares it with the background thread and the collector
+    private static final long SLICE_TIME = 8_000_000;
+
+    private static final ExecutorService wrapper = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "word-wrap");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private final boolean wordWrap;
+    private final Segment segment = new Segment();
+    private final Timer passTimer;
+
+    // the width that rows are wrapped at, and how the text is measured
+    private int width;
+    private FontMetrics metrics;
+    private int tabWidth;
+    private int charWidth;
+
+    // the number of rows of each line, 0 while it has not been completely worked out
+    private int[] lineRows;
+
+    // the rows each line takes up on the screen, exact or estimated, and a tree to add them up quickly
+    private int[] shownRows;
+    private RowTree rowTree;
+
+    // where the rows start in lines that wrap or have only been worked out partly
+    private final Map<Element, LineLayout> layouts = new WeakHashMap<>();
+
+    // the edit after which each changed line was last edited, rows worked out from older text are no good for it
+    private final Map<Element, Integer> lineEdits = new WeakHashMap<>();
+    private int editCount;
+
+    // the last edit that added or removed lines
+    private int lineCountEdit;
+
+    // changes whenever all the rows have to be worked out again, or a new background pass replaces the last one
+    private volatile int generation;
+    private volatile int pass;
+
+    public WrappedTextView(Element element, boolean wordWrap){
+        super(element);
+        this.wordWrap = wordWrap;
+
+        passTimer = new Timer(PASS_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startPass();
+            }
+        });
+        passTimer.setRepeats(false);
+
+        // every line is one row until the view gets its width. the rows are only made then, a file with millions of
+        // lines has arrays of many megabytes for them
+    }
+
+    // the rows for a view that is painted or asked about positions before it got its width
+    private void ensureRows(){
+        if(rowTree == null) resetRows();
+    }
+
+    // the rows of one line, as far as they have been worked out
+    private static class LineLayout {
+        // the start of every known row relative to the line, followed by the start of the next row
+        private int[] starts = new int[4];
+        private int count;
+        private boolean complete;
+
+        private void addRow(int end){
+            if(count + 2 > starts.length){
+                int[] grown = new int[starts.length * 2];
+                System.arraycopy(starts, 0, grown, 0, count + 1);
+                starts = grown;
+            }
+            starts[++count] = end;
+        }
+
+        // the known row that contains the offset
+        private int rowOf(int offset){
+            int low = 0, high = count - 1;
+            while(low < high){
+                int middle = (low + high + 1) >>> 1;
+                if(starts[middle] <= offset){
+                    low = middle;
+                }else{
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        // forgets the rows from the one before the changed offset on, the ones before it stay the same
+        private void truncate(int offset){
+            if(count == 0) return;
+            if(!complete && offset > starts[count]) return;
+
+            count = Math.max(0, rowOf(offset) - 1);
+            complete = false;
+        }
+    }
+
+    // adds up the rows of the lines in o(log n), and finds the line that a row belongs to
+    private static class RowTree {
+        private final int[] tree;
+
+        private RowTree(int lines){
+            tree = new int[lines + 1];
+        }
+
+        // adds up the rows, in the old tree if it has the same number of lines
+        private static RowTree of(int[] rows, RowTree old){
+            RowTree rowTree = reuse(rows.length, old);
+            rowTree.build(rows);
+            return rowTree;
+        }
+
+        // the tree of lines that are one row each, every entry holds as many lines as its lowest bit says
+        private static RowTree ofSingleRows(int lines, RowTree old){
+            RowTree rowTree = reuse(lines, old);
+            for(int i = 1; i < rowTree.tree.length; i++) rowTree.tree[i] = i & -i;
+            return rowTree;
+        }
+
+        private static RowTree reuse(int lines, RowTree old){
+            if(old == null || old.tree.length != lines + 1) return new RowTree(lines);
+            Arrays.fill(old.tree, 0);
+            return old;
+        }
+
+        private void build(int[] rows){
+            for(int i = 1; i <= rows.length; i++){
+                tree[i] += rows[i - 1];
+                int parent = i + (i & -i);
+                if(parent <= rows.length) tree[parent] += tree[i];
+            }
+        }
+
+        private void add(int line, int delta){
+            for(int i = line + 1; i < tree.length; i += i & -i) tree[i] += delta;
+        }
+
+        // the rows of the lines before the given line
+        private int rowsBefore(int line){
+            int rows = 0;
+            for(int i = line; i > 0; i -= i & -i) rows += tree[i];
+            return rows;
+        }
+
+        // the line that the row is in, the last line for rows past the end
+        private int lineOf(int row){
+            int line = 0;
+            for(int step = Integer.highestOneBit(Math.max(1, tree.length - 1)); step > 0; step >>= 1){
+                if(line + step < tree.length && tree[line + step] <= row){
+                    line += step;
+                    row -= tree[line];
+                }
+            }
+            return Math.min(line, tree.length - 2);
+        }
+    }
+
+    // works out where the row that starts at start ends, words are kept together if they fit on a row
+    private static int rowEnd(CharSequence text, int start, int width, FontMetrics metrics, int tabWidth,
+                              boolean wordWrap){
+        int x = 0;
+        int lastSpace = -1;
+        for(int i = start; i < text.length(); i++){
+            char c = text.charAt(i);
+            int charWidth = c == '\t' && tabWidth > 0 ? tabWidth - x % tabWidth : metrics.charWidth(c);
+            if(x + charWidth > width && i > start){
+                if(!wordWrap) return i;
+
+                // like in swing's wrapped view, whitespace that does not fit any more stays at the end of the row
+                if(Character.isWhitespace(c)) return i + 1;
+                return lastSpace >= start ? lastSpace + 1 : i;
+            }
+            x += charWidth;
+            if(Character.isWhitespace(c)) lastSpace = i;
+        }
+        return text.length();
+    }
+
+    // works out more rows of the line until the row or the offset is reached
+    private static void extend(LineLayout layout, CharSequence text, int toRow, int toOffset, int width,
+                               FontMetrics metrics, int tabWidth, boolean wordWrap){
+        while(!layout.complete && (layout.count <= toRow || layout.starts[layout.count] <= toOffset)){
+            int end = rowEnd(text, layout.starts[layout.count], width, metrics, tabWidth, wordWrap);
+            layout.addRow(end);
+            if(end >= text.length()) layout.complete = true;
+        }
+    }
+
+    private void updateMetrics(){
+        Container host = getContainer();
+        if(host == null) return;
+
+        metrics = host.getFontMetrics(host.getFont());
+        Object tabSize = getDocument().getProperty(PlainDocument.tabSizeAttribute);
+        tabWidth = (tabSize instanceof Integer ? (Integer) tabSize : 8) * metrics.charWidth('m');
+        charWidth = metrics.charWidth('n');
+    }
+
+    private int getLineHeight(){
+        return metrics.getHeight();
+    }
+
+    private int estimateRows(int length){
+        if(width <= 0 || length == 0) return 1;
+        return (int) Math.max(1, ((long) length * charWidth + width - 1) / width);
+    }
+
+    private static int getLength(Element line){
+        return line.getEndOffset() - line.getStartOffset() - 1;
+    }
+
+    private int computeShownRows(int line){
+        if(lineRows[line] > 0) return lineRows[line];
+
+        Element element = getElement().getElement(line);
+        LineLayout layout = layouts.get(element);
+        if(layout == null) return estimateRows(getLength(element));
+        return layout.count + estimateRows(getLength(element) - layout.starts[layout.count]);
+    }
+
+    private void setShownRows(int line){
+        int rows = computeShownRows(line);
+        rowTree.add(line, rows - shownRows[line]);
+        shownRows[line] = rows;
+    }
+
+    // forgets all the rows, after the width or the font changed. every line starts out as one row and then gets the
+    // rows its length suggests
+    private void resetRows(){
+        generation++;
+        layouts.clear();
+
+        int lines = getElement().getElementCount();
+        if(lineRows == null || lineRows.length != lines){
+            lineRows = new int[lines];
+            shownRows = new int[lines];
+        }else{
+            Arrays.fill(lineRows, 0);
+        }
+        Arrays.fill(shownRows, 1);
+        rowTree = RowTree.ofSingleRows(lines, rowTree);
+        if(width > 0) estimateRows(generation, 0);
+
+        passTimer.restart();
+    }
+
+    // gives the lines from the given one on the rows that their length suggests. the lengths come from the document's
+    // LineIndex, and a file with millions of lines is gone through in slices of SLICE_TIME so that turning on word wrap
+    // does not block the edt. like the lines that are handed over, the text on the screen stays where it is
+    private void estimateRows(int estimateGeneration, int from){
+        if(generation != estimateGeneration || getContainer() == null) return;
+        long start = System.nanoTime();
+
+        Container host = getContainer();
+        int firstVisibleRow = host instanceof JComponent ? ((JComponent) host).getVisibleRect().y / getLineHeight() : 0;
+        int rowsAddedAbove = 0;
+        boolean changed = false;
+
+        LineIndex index = LineIndex.of(getDocument());
+        boolean indexed = index.getLineCount() == lineRows.length;
+        // most lines fit on one row, they need no division
+        int oneRow = width / Math.max(1, charWidth);
+        int line = from;
+        for(; line < lineRows.length; line++){
+            if(line % 1024 == 0 && System.nanoTime() - start > SLICE_TIME) break;
+            if(lineRows[line] > 0) continue;
+
+            int length = indexed ? index.getLineLength(line) : getLength(getElement().getElement(line));
+            if(length <= oneRow) continue;
+
+            // lines that were only partly worked out have a layout, the others are all estimated
+            int rows = layouts.isEmpty() ? estimateRows(length) : computeShownRows(line);
+            if(rows == shownRows[line]) continue;
+
+            if(rowTree.rowsBefore(line + 1) <= firstVisibleRow) rowsAddedAbove += rows - shownRows[line];
+            rowTree.add(line, rows - shownRows[line]);
+            shownRows[line] = rows;
+            changed = true;
+        }
+        if(changed) preferenceChanged(null, false, true);
+        keepVisibleText(rowsAddedAbove);
+
+        if(line < lineRows.length){
+            int next = line;
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    estimateRows(estimateGeneration, next);
+                }
+            });
+        }
+    }
+
+    // scrolls down by the rows that were added above the text on the screen, so that it does not move
+    private void keepVisibleText(int rowsAddedAbove){
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, getContainer());
+        if(rowsAddedAbove == 0 || viewport == null) return;
+
+        int shift = rowsAddedAbove * getLineHeight();
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                Point position = viewport.getViewPosition();
+                viewport.setViewPosition(new Point(position.x, Math.max(0, position.y + shift)));
+            }
+        });
+    }
+
+    // the rows of the line, worked out at least until the row or the offset
+    private LineLayout getLayout(int line, int toRow, int toOffset){
+        Element element = getElement().getElement(line);
+        int length = getLength(element);
+
+        LineLayout layout = layouts.get(element);
+        if(layout == null){
+            layout = new LineLayout();
+            if(lineRows[line] == 1){
+                layout.addRow(length);
+                layout.complete = true;
+                return layout;
+            }
+        }
+        if(layout.complete || (layout.count > toRow && layout.starts[layout.count] > toOffset)) return layout;
+
+        try{
+            CharSequence text = TextSnapshot.of(getDocument(), element.getStartOffset(), length).chars();
+            if(length <= SYNC_LINE_LENGTH){
+                toRow = Integer.MAX_VALUE;
+                toOffset = Integer.MAX_VALUE;
+            }
+            extend(layout, text, toRow, toOffset, width, metrics, tabWidth, wordWrap);
+        }catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+
+        if(storeLayout(line, element, layout)) preferenceChanged(null, false, true);
+        return layout;
+    }
+
+    // keeps what was worked out for the line, returns whether the rows it takes up changed
+    private boolean storeLayout(int line, Element element, LineLayout layout){
+        if(layout.complete){
+            lineRows[line] = layout.count;
+            if(layout.count > 1){
+                layouts.put(element, layout);
+            }else{
+                layouts.remove(element);
+            }
+        }else{
+            lineRows[line] = 0;
+            layouts.put(element, layout);
+        }
+
+        int oldRows = shownRows[line];
+        setShownRows(line);
+        return shownRows[line] != oldRows;
+    }
+
+    // works out the lines that are not known yet on the background thread, from a snapshot of the text. only the start
+    // of each run of unknown lines is looked up here, the background thread finds the lines of a run in the text
+    private void startPass(){
+        if(width <= 0 || metrics == null || getContainer() == null) return;
+
+        // the first line, the line count and the start offset of every run
+        Element root = getElement();
+        List<int[]> runs = new ArrayList<>();
+        for(int i = 0; i < lineRows.length; i++){
+            if(lineRows[i] > 0) continue;
+
+            int first = i;
+            while(i + 1 < lineRows.length && lineRows[i + 1] == 0) i++;
+            runs.add(new int[]{first, i - first + 1, root.getElement(first).getStartOffset()});
+        }
+        if(runs.isEmpty()) return;
+
+        TextSnapshot text;
+        try{
+            text = TextSnapshot.of(getDocument());
+        }catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+
+        int passGeneration = generation;
+        int passNumber = ++pass;
+        int passEdit = editCount;
+        int passWidth = width;
+        FontMetrics passMetrics = metrics;
+        int passTabWidth = tabWidth;
+        wrapper.execute(new Runnable() {
+            @Override
+            public void run() {
+                CharSequence chars = text.chars();
+                List<Integer> doneLines = new ArrayList<>();
+                List<LineLayout> doneLayouts = new ArrayList<>();
+                long lastResult = System.currentTimeMillis();
+
+                for(int r = 0; r < runs.size(); r++){
+                    int[] run = runs.get(r);
+                    int start = run[2];
+                    for(int i = 0; i < run[1]; i++){
+                        if(generation != passGeneration || pass != passNumber) return;
+
+                        int end = start;
+                        while(end < chars.length() && chars.charAt(end) != '\n') end++;
+                        LineLayout layout = new LineLayout();
+                        extend(layout, chars.subSequence(start, end), Integer.MAX_VALUE, Integer.MAX_VALUE, passWidth,
+                                passMetrics, passTabWidth, wordWrap);
+                        doneLines.add(run[0] + i);
+                        doneLayouts.add(layout);
+                        start = end + 1;
+
+                        boolean last = r == runs.size() - 1 && i == run[1] - 1;
+                        if(System.currentTimeMillis() - lastResult > RESULT_INTERVAL || last){
+                            handOver(doneLines, doneLayouts, passGeneration, passEdit);
+                            doneLines = new ArrayList<>();
+                            doneLayouts = new ArrayList<>();
+                            lastResult = System.currentTimeMillis();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    // puts the lines worked out in the background into the view, unless they were edited in the meantime. the lines
+    // are only known by their index, once lines were added or removed none of them can be trusted any more
+    private void handOver(List<Integer> lines, List<LineLayout> lineLayouts, int passGeneration, int passEdit){
+        SwingUtilities.invokeLater(new Runnable() {
+            private int next;
+
+            @Override
+            public void run() {
+                if(generation != passGeneration || lineCountEdit > passEdit || getContainer() == null) return;
+                long start = System.nanoTime();
+
+                // the text that is on the screen should not move when lines above it get their real height
+                Container host = getContainer();
+                int firstVisibleRow = host instanceof JComponent ?
+                        ((JComponent) host).getVisibleRect().y / getLineHeight() : 0;
+                int rowsAddedAbove = 0;
+                boolean changed = false;
+
+                Element root = getElement();
+                for(; next < lines.size(); next++){
+                    if(next % 64 == 0 && System.nanoTime() - start > SLICE_TIME){
+                        SwingUtilities.invokeLater(this);
+                        break;
+                    }
+
+                    int index = lines.get(next);
+                    if(lineRows[index] > 0) continue;
+
+                    Element line = root.getElement(index);
+                    Integer edited = lineEdits.get(line);
+                    if(edited != null && edited > passEdit) continue;
+
+                    int oldRows = shownRows[index];
+                    boolean above = rowTree.rowsBefore(index + 1) <= firstVisibleRow;
+                    changed |= storeLayout(index, line, lineLayouts.get(next));
+                    if(above) rowsAddedAbove += shownRows[index] - oldRows;
+                }
+                if(changed) preferenceChanged(null, false, true);
+                keepVisibleText(rowsAddedAbove);
+            }
+        });
+    }
+
+    @Override
+    public void setParent(View parent) {
+        super.setParent(parent);
+
+        // a view that is taken off stops its background work
+        if(parent == null){
+            generation++;
+            passTimer.stop();
+        }
+    }
+
+    @Override
+    public void setSize(float width, float height) {
+        if(metrics == null) updateMetrics();
+        if(metrics == null || (int) width == this.width) return;
+
+        this.width = (int) width;
+        resetRows();
+        preferenceChanged(null, false, true);
+    }
+
+    @Override
+    public float getPreferredSpan(int axis) {
+        if(metrics == null) updateMetrics();
+        if(axis == X_AXIS) return width;
+        if(metrics == null) return 0;
+        long rows = rowTree != null ? rowTree.rowsBefore(shownRows.length) : getElement().getElementCount();
+        return (float) Math.min(Integer.MAX_VALUE / 2, rows * getLineHeight());
+    }
+
+    @Override
+    public void paint(Graphics g, Shape allocation) {
+        if(metrics == null) return;
+        ensureRows();
+
+        Rectangle alloc = allocation.getBounds();
+        Rectangle clip = g.getClipBounds();
+        if(clip == null) clip = alloc;
+
+        int lineHeight = getLineHeight();
+        int firstRow = Math.max(0, (clip.y - alloc.y) / lineHeight);
+        int lastRow = (clip.y + clip.height - alloc.y) / lineHeight;
+
+        Container host = getContainer();
+        g.setFont(host.getFont());
+        g.setColor(host.isEnabled() || !(host instanceof JTextComponent) ?
+                host.getForeground() : ((JTextComponent) host).getDisabledTextColor());
+
+        // highlighted text is drawn in the colors of its tokens
+        SyntaxHighlighter highlighter = host.isEnabled() ? SyntaxHighlighter.of(getDocument()) : null;
+
+        // like PlainView the selected text is drawn in the selection's own color while the caret shows the selection
+        int selectionStart = 0;
+        int selectionEnd = 0;
+        Color selectedColor = null;
+        if(host instanceof JTextComponent){
+            JTextComponent text = (JTextComponent) host;
+            Caret caret = text.getCaret();
+            if(caret != null && caret.isSelectionVisible()){
+                selectionStart = text.getSelectionStart();
+                selectionEnd = text.getSelectionEnd();
+                selectedColor = text.getSelectedTextColor();
+            }
+        }
+
+        Element root = getElement();
+        try{
+            int line = rowTree.lineOf(firstRow);
+            int lineRow = rowTree.rowsBefore(line);
+            for(; line < root.getElementCount() && lineRow <= lastRow; line++){
+                LineLayout layout = getLayout(line, lastRow - lineRow, -1);
+                int start = root.getElement(line).getStartOffset();
+
+                for(int row = Math.max(0, firstRow - lineRow); row < layout.count && lineRow + row <= lastRow; row++){
+                    int rowStart = start + layout.starts[row];
+                    int rowEnd = start + layout.starts[row + 1];
+                    float y = alloc.y + (lineRow + row) * lineHeight + metrics.getAscent();
+                    if(selectedColor == null || rowEnd <= selectionStart || rowStart >= selectionEnd){
+                        drawText((Graphics2D) g, highlighter, alloc.x, y, rowStart, rowEnd);
+                        continue;
+                    }
+
+                    // the row is split at the ends of the selection
+                    int selectedStart = Math.max(rowStart, selectionStart);
+                    int selectedEnd = Math.min(rowEnd, selectionEnd);
+                    float x = drawText((Graphics2D) g, highlighter, alloc.x, y, rowStart, selectedStart);
+
+                    Color color = g.getColor();
+                    g.setColor(selectedColor);
+                    x = drawText((Graphics2D) g, null, x, y, selectedStart, selectedEnd);
+                    g.setColor(color);
+
+                    drawText((Graphics2D) g, highlighter, x, y, selectedEnd, rowEnd);
+                }
+                lineRow += shownRows[line];
+            }
+        }catch(BadLocationException e){
+            e.printStackTrace();
+        }
+    }
+
+    // draws the text in [p0, p1) of a row, in the colors of the highlighter's tokens if there is one
+    private float drawText(Graphics2D g, SyntaxHighlighter highlighter, float x, float y, int p0, int p1)
+            throws BadLocationException {
+        if(p0 >= p1) return x;
+        if(highlighter != null) return highlighter.drawText(getContainer(), g, x, y, p0, p1, this);
+
+        getDocument().getText(p0, p1 - p0, segment);
+        return Utilities.drawTabbedText(segment, x, y, g, this, p0);
+    }
+
+    @Override
+    public Shape modelToView(int pos, Shape a, Position.Bias b) throws BadLocationException {
+        if(metrics == null) updateMetrics();
+        if(pos < 0 || pos > getDocument().getLength() + 1) throw new BadLocationException("invalid position", pos);
+        ensureRows();
+
+        Rectangle alloc = a.getBounds();
+        Element root = getElement();
+        int line = root.getElementIndex(pos);
+        int start = root.getElement(line).getStartOffset();
+
+        LineLayout layout = getLayout(line, -1, pos - start);
+        int row = layout.rowOf(pos - start);
+        int rowStart = start + layout.starts[row];
+        getDocument().getText(rowStart, Math.min(pos, getDocument().getLength()) - rowStart, segment);
+        int x = alloc.x + (int) Utilities.getTabbedTextWidth(segment, metrics, (float) alloc.x, this, rowStart);
+
+        int y = alloc.y + (rowTree.rowsBefore(line) + row) * getLineHeight();
+        return new Rectangle(x, y, 1, getLineHeight());
+    }
+
+    @Override
+    public int viewToModel(float x, float y, Shape a, Position.Bias[] biasReturn) {
+        biasReturn[0] = Position.Bias.Forward;
+        if(metrics == null) updateMetrics();
+        ensureRows();
+
+        Rectangle alloc = a.getBounds();
+        int row = Math.max(0, (int) (y - alloc.y) / getLineHeight());
+        int line = rowTree.lineOf(row);
+        Element element = getElement().getElement(line);
+        int start = element.getStartOffset();
+
+        LineLayout layout = getLayout(line, row - rowTree.rowsBefore(line), -1);
+        int rowInLine = Math.min(row - rowTree.rowsBefore(line), layout.count - 1);
+        int rowStart = start + layout.starts[rowInLine];
+        int rowEnd = start + layout.starts[rowInLine + 1];
+
+        try{
+            getDocument().getText(rowStart, rowEnd - rowStart, segment);
+            int offset = rowStart + Utilities.getTabbedTextOffset(segment, metrics, (float) alloc.x, x, this,
+                    rowStart, false);
+
+            // clicking right of a row that wraps puts the caret at its end, not at the start of the next row
+            return rowInLine < layout.count - 1 ? Math.min(offset, rowEnd - 1) : offset;
+        }catch(BadLocationException e){
+            return rowStart;
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        documentChanged(e);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        documentChanged(e);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        documentChanged(e);
+    }
+
+    // forgets the rows of the lines that were changed, the rest of the lines keep theirs
+    private void documentChanged(DocumentEvent e){
+        editCount++;
+        if(rowTree == null){
+            preferenceChanged(null, false, true);
+            return;
+        }
+
+        Element root = getElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        if(change != null){
+            // lines were added or removed, they get estimated rows until they are worked out
+            int index = change.getIndex();
+            int removed = change.getChildrenRemoved().length;
+            int added = change.getChildrenAdded().length;
+            lineCountEdit = editCount;
+            for(Element line : change.getChildrenRemoved()) layouts.remove(line);
+
+            int[] rows = new int[lineRows.length - removed + added];
+            System.arraycopy(lineRows, 0, rows, 0, index);
+            System.arraycopy(lineRows, index + removed, rows, index + added, lineRows.length - index - removed);
+            lineRows = rows;
+
+            int[] shown = new int[rows.length];
+            System.arraycopy(shownRows, 0, shown, 0, index);
+            System.arraycopy(shownRows, index + removed, shown, index + added, shownRows.length - index - removed);
+            shownRows = shown;
+            for(int i = index; i < index + added; i++) shownRows[i] = computeShownRows(i);
+            rowTree = RowTree.of(shownRows, rowTree);
+        }else if(e.getType() != DocumentEvent.EventType.CHANGE){
+            // text changed inside of lines, a batch can change many of them at once
+            int first = root.getElementIndex(e.getOffset());
+            int last = e.getType() == DocumentEvent.EventType.INSERT ?
+                    root.getElementIndex(e.getOffset() + e.getLength()) : first;
+            for(int index = first; index <= last; index++){
+                Element line = root.getElement(index);
+                lineEdits.put(line, editCount);
+
+                LineLayout layout = layouts.get(line);
+                if(layout != null) layout.truncate(Math.max(0, e.getOffset() - line.getStartOffset()));
+                lineRows[index] = 0;
+                setShownRows(index);
+            }
+        }
+
+        passTimer.restart();
+        preferenceChanged(null, false, true);
+    }
+
+    @Override
+    public float nextTabStop(float x, int tabOffset) {
+        if(tabWidth == 0) return x;
+
+        Container host = getContainer();
+        int tabBase = host instanceof JTextComponent ? ((JTextComponent) host).getInsets().left : 0;
+        int position = (int) x - tabBase;
+        return tabBase + ((position / tabWidth) + 1) * tabWidth;
+    }
+}
@@ -0,0 +1,108 @@
+package notepad;
+
+// xml (and html that is written like it): tags with their attributes, comments, cdata sections and entities. tags,
+// comments, cdata sections and attribute values can all go on over several lines, the state says which one the line
+// starts in
+public class XmlLexer extends Lexer {
+    private static final int TEXT = 0;
+    private static final int IN_COMMENT = 1;
+    private static final int IN_CDATA = 2;
+    private static final int IN_TAG = 3;
+    private static final int IN_DOUBLE_QUOTES = 4;
+    private static final int IN_SINGLE_QUOTES = 5;
+
+    @Override
+    public int lex(char[] text, int start, int end, int state, Tokens tokens){
+        int i = start;
+        while(i < end){
+            switch(state){
+                case IN_COMMENT:
+                case IN_CDATA: {
+                    int close = indexOf(text, i, end, state == IN_COMMENT ? "-->" : "]]>");
+                    int sectionEnd = close < 0 ? end : close + 3;
+                    tokens.add(i - start, sectionEnd - i, state == IN_COMMENT ? TokenType.COMMENT : TokenType.STRING);
+                    if(close >= 0) state = TEXT;
+                    i = sectionEnd;
+                    break;
+                }
+                case IN_DOUBLE_QUOTES:
+                case IN_SINGLE_QUOTES: {
+                    int close = indexOf(text, i, end, state == IN_DOUBLE_QUOTES ? "\"" : "'");
+                    int valueEnd = close < 0 ? end : close + 1;
+                    tokens.add(i - start, valueEnd - i, TokenType.STRING);
+                    if(close >= 0) state = IN_TAG;
+                    i = valueEnd;
+                    break;
+                }
+                case IN_TAG: {
+                    char c = text[i];
+                    if(c == '>' || (c == '/' || c == '?') && i + 1 < end && text[i + 1] == '>'){
+                        int length = c == '>' ? 1 : 2;
+                        tokens.add(i - start, length, TokenType.TAG);
+                        state = TEXT;
+                        i += length;
+                    }else if(c == '"' || c == '\''){
+                        // the quote itself is lexed as part of the value
+                        tokens.add(i - start, 1, TokenType.STRING);
+                        state = c == '"' ? IN_DOUBLE_QUOTES : IN_SINGLE_QUOTES;
+                        i++;
+                    }else if(c == '='){
+                        tokens.add(i - start, 1, TokenType.PUNCTUATION);
+                        i++;
+                    }else if(isNameChar(c)){
+                        int nameEnd = nameEnd(text, i, end);
+                        tokens.add(i - start, nameEnd - i, TokenType.ATTRIBUTE);
+                        i = nameEnd;
+                    }else{
+                        i++;
+                    }
+                    break;
+                }
+                default: {
+                    char c = text[i];
+                    if(c == '<'){
+                        if(startsWith(text, i, end, "<!--")){
+                            tokens.add(i - start, 4, TokenType.COMMENT);
+                            state = IN_COMMENT;
+                            i += 4;
+                        }else if(startsWith(text, i, end, "<![CDATA[")){
+                            tokens.add(i - start, 9, TokenType.STRING);
+                            state = IN_CDATA;
+                            i += 9;
+                        }else{
+                            // "<", "</", "<?" or "<!" and the name of the tag
+                            int nameStart = i + 1;
+                            if(nameStart < end && "/?!".indexOf(text[nameStart]) >= 0) nameStart++;
+                            int nameEnd = nameEnd(text, nameStart, end);
+                            tokens.add(i - start, nameEnd - i, TokenType.TAG);
+                            state = IN_TAG;
+                            i = nameEnd;
+                        }
+                    }else if(c == '&'){
+                        int entityEnd = i + 1;
+                        while(entityEnd < end && (isNameChar(text[entityEnd]) || text[entityEnd] == '#')) entityEnd++;
+                        if(entityEnd < end && text[entityEnd] == ';'){
+                            tokens.add(i - start, entityEnd + 1 - i, TokenType.KEYWORD);
+                            i = entityEnd + 1;
+                        }else{
+                            i++;
+                        }
+                    }else{
+                        i++;
+                    }
+                }
+            }
+        }
+        return state;
+    }
+
+    private static boolean isNameChar(char c){
+        return Character.isLetterOrDigit(c) || c == '_' || c == ':' || c == '-' || c == '.';
+    }
+
+    private static int nameEnd(char[] text, int from, int end){
+        int i = from;
+        while(i < end && isNameChar(text[i])) i++;
+        return i;
+    }
+}
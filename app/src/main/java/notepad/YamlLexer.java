@@ -0,0 +1,161 @@
+package notepad;
+
+// yaml, line by line the way it is mostly written: keys, quoted strings, comments, anchors and tags, and the plain
+// values that are numbers or keywords. the lines of a block scalar (after a "|" or ">") are strings, the state of a
+// line inside of one is the indentation of the line that started it plus one, the block ends at the first line that
+// is not indented further than that
+public class YamlLexer extends Lexer {
+    @Override
+    public int lex(char[] text, int start, int end, int state, Tokens tokens){
+        int i = skipSpaces(text, start, end);
+        int indent = i - start;
+
+        if(state > 0){
+            // empty lines do not end a block scalar
+            if(i == end) return state;
+            if(indent >= state){
+                tokens.add(indent, end - i, TokenType.STRING);
+                return state;
+            }
+        }
+
+        if(i < end && text[i] == '#'){
+            tokens.add(indent, end - i, TokenType.COMMENT);
+            return 0;
+        }
+
+        if(i == start && (startsWith(text, i, end, "---") || startsWith(text, i, end, "..."))){
+            tokens.add(0, 3, TokenType.PUNCTUATION);
+            i = skipSpaces(text, i + 3, end);
+        }
+
+        // the dashes of list items, there can be several on one line
+        while(i < end && text[i] == '-' && (i + 1 == end || text[i + 1] == ' ')){
+            tokens.add(i - start, 1, TokenType.PUNCTUATION);
+            i = skipSpaces(text, i + 1, end);
+        }
+
+        int colon = keyEnd(text, i, end);
+        if(colon >= 0){
+            tokens.add(i - start, colon - i, TokenType.KEY);
+            tokens.add(colon - start, 1, TokenType.PUNCTUATION);
+            i = colon + 1;
+        }
+
+        return value(text, start, i, end, indent, tokens);
+    }
+
+    // the colon after the key that the line starts with at from, or -1 if there is no key
+    private static int keyEnd(char[] text, int from, int end){
+        if(from == end) return -1;
+
+        if(text[from] == '"' || text[from] == '\''){
+            int colon = skipSpaces(text, stringEnd(text, from, end, text[from] == '"'), end);
+            return isColon(text, colon, end) ? colon : -1;
+        }
+
+        // flow collections and the like cannot be keys here
+        if("[{&*!|>%@`#".indexOf(text[from]) >= 0) return -1;
+
+        for(int i = from; i < end; i++){
+            if(text[i] == '#' && text[i - 1] == ' ') return -1;
+            if(isColon(text, i, end)) return i;
+        }
+        return -1;
+    }
+
+    // a colon that ends a key has to be followed by a space or the end of the line
+    private static boolean isColon(char[] text, int i, int end){
+        return i < end && text[i] == ':' && (i + 1 == end || text[i + 1] == ' ' || text[i + 1] == '\t');
+    }
+
+    private static int value(char[] text, int start, int from, int end, int indent, Tokens tokens){
+        // inside of [ ] or { } commas end the plain values
+        int flow = 0;
+
+        int i = from;
+        while(i < end){
+            char c = text[i];
+            if(c == ' ' || c == '\t'){
+                i++;
+            }else if(c == '#' && (i == start || text[i - 1] == ' ' || text[i - 1] == '\t')){
+                tokens.add(i - start, end - i, TokenType.COMMENT);
+                break;
+            }else if(c == '"' || c == '\''){
+                int stringEnd = stringEnd(text, i, end, c == '"');
+                tokens.add(i - start, stringEnd - i, TokenType.STRING);
+                i = stringEnd;
+            }else if(c == '&' || c == '*' || c == '!'){
+                int wordEnd = i + 1;
+                while(wordEnd < end && text[wordEnd] != ' ' && text[wordEnd] != ',' && text[wordEnd] != ']'
+                        && text[wordEnd] != '}') wordEnd++;
+                tokens.add(i - start, wordEnd - i, c == '!' ? TokenType.TAG : TokenType.ATTRIBUTE);
+                i = wordEnd;
+            }else if(c == '[' || c == '{' || c == ']' || c == '}' || c == ',' && flow > 0){
+                if(c == '[' || c == '{') flow++;
+                if((c == ']' || c == '}') && flow > 0) flow--;
+                tokens.add(i - start, 1, TokenType.PUNCTUATION);
+                i++;
+            }else if((c == '|' || c == '>') && flow == 0 && isBlockHeader(text, i + 1, end)){
+                tokens.add(i - start, 1, TokenType.PUNCTUATION);
+                int comment = indexOf(text, i + 1, end, "#");
+                if(comment >= 0) tokens.add(comment - start, end - comment, TokenType.COMMENT);
+                return indent + 1;
+            }else{
+                int plainEnd = plainEnd(text, i, end, flow > 0);
+                int wordEnd = plainEnd;
+                while(wordEnd > i && (text[wordEnd - 1] == ' ' || text[wordEnd - 1] == '\t')) wordEnd--;
+                if(isKeyword(text, i, wordEnd)){
+                    tokens.add(i - start, wordEnd - i, TokenType.KEYWORD);
+                }else if(isNumber(text, i, wordEnd)){
+                    tokens.add(i - start, wordEnd - i, TokenType.NUMBER);
+                }
+                i = plainEnd;
+            }
+        }
+        return 0;
+    }
+
+    // what may follow the "|" or ">" of a block scalar: chomping and indentation indicators and a comment
+    private static boolean isBlockHeader(char[] text, int from, int end){
+        for(int i = from; i < end; i++){
+            char c = text[i];
+            if(c == '#' && i > from && text[i - 1] == ' ') return true;
+            if(c != '-' && c != '+' && c != ' ' && c != '\t' && !Character.isDigit(c)) return false;
+        }
+        return true;
+    }
+
+    // a plain value goes on up to a comment, or up to the end of its item in a flow collection
+    private static int plainEnd(char[] text, int from, int end, boolean flow){
+        for(int i = from + 1; i < end; i++){
+            char c = text[i];
+            if(c == '#' && (text[i - 1] == ' ' || text[i - 1] == '\t')) return i;
+            if(flow && (c == ',' || c == ']' || c == '}')) return i;
+        }
+        return end;
+    }
+
+    private static boolean isKeyword(char[] text, int from, int end){
+        if(end - from > 5) return false;
+        switch(new String(text, from, end - from)){
+            case "true":
+            case "false":
+            case "True":
+            case "False":
+            case "TRUE":
+            case "FALSE":
+            case "yes":
+            case "no":
+            case "on":
+            case "off":
+            case "null":
+            case "Null":
+            case "NULL":
+            case "~":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
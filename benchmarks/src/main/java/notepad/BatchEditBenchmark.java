@@ -0,0 +1,83 @@
+package notepad;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.text.BadLocationException;
+import java.util.concurrent.TimeUnit;
+
+// commenting out every line of a file and taking the comments out again, the way typing at a caret on every line
+// does it. as one EditBatch per keystroke, and as one insert or remove per line for comparison. the edits go into an
+// undo history like the ones of the notepad, one step per keystroke
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+public class BatchEditBenchmark {
+    @Param({"batch", "separate"})
+    public String edits;
+
+    @Param({"10000", "100000"})
+    public int lines;
+
+    private PieceTableDocument document;
+    private UndoHistory undoHistory;
+    private int[] lineStarts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BadLocationException {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < lines; i++) text.append("key.").append(i).append(" = value ").append(i % 977).append('\n');
+        document = new PieceTableDocument();
+        document.insertString(0, text.toString(), null);
+
+        undoHistory = new UndoHistory();
+        document.addUndoableEditListener(new UndoableEditListener() {
+            @Override
+            public void undoableEditHappened(UndoableEditEvent e) {
+                undoHistory.addEdit(e.getEdit());
+            }
+        });
+
+        lineStarts = new int[lines];
+        LineIndex index = LineIndex.of(document);
+        for(int i = 0; i < lines; i++) lineStarts[i] = index.getLineStartOffset(i);
+    }
+
+    // the history would otherwise hold on to the text of every invocation
+    @Setup(Level.Invocation)
+    public void clearHistory(){
+        undoHistory.discardAllEdits();
+    }
+
+    // leaves the document the way it was, so every invocation does the same work
+    @Benchmark
+    public int commentAndUncomment() throws BadLocationException {
+        if(edits.equals("batch")){
+            EditBatch comment = new EditBatch();
+            for(int i = 0; i < lines; i++) comment.replace(lineStarts[i], 0, "# ");
+            undoHistory.beginCompoundEdit();
+            document.apply(comment);
+            undoHistory.endCompoundEdit();
+
+            // the lines start two characters further down for every line above them
+            EditBatch uncomment = new EditBatch();
+            for(int i = 0; i < lines; i++) uncomment.replace(lineStarts[i] + 2 * i, 2, "");
+            undoHistory.beginCompoundEdit();
+            document.apply(uncomment);
+            undoHistory.endCompoundEdit();
+        }else{
+            // from the bottom up, so that the offsets of the lines above stay the same
+            undoHistory.beginCompoundEdit();
+            for(int i = lines - 1; i >= 0; i--) document.insertString(lineStarts[i], "# ", null);
+            undoHistory.endCompoundEdit();
+            undoHistory.beginCompoundEdit();
+            for(int i = lines - 1; i >= 0; i--) document.remove(lineStarts[i], 2);
+            undoHistory.endCompoundEdit();
+        }
+        return document.getLength();
+    }
+}
@@ -0,0 +1,39 @@
+package notepad;
+
+import java.util.Random;
+
+// generates text that looks like what the notepad is used for: lines of words of different lengths. the same seed
+// always gives the same text so that the results of different runs can be compared
+public class BenchmarkText {
+    private static final String[] WORDS = {
+            "the", "notepad", "swing", "document", "of", "a", "text", "and", "line", "to", "editor", "in", "file",
+            "buffer", "is", "undo", "search", "for", "caret", "with", "piece", "table", "redo", "on", "snapshot"
+    };
+
+    public static String generate(int length, long seed){
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 16);
+        int lineLength = 0;
+        while(text.length() < length){
+            if(lineLength > 0 && random.nextInt(12) == 0){
+                text.append('\n');
+                lineLength = 0;
+                continue;
+            }
+            if(lineLength > 0) text.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            text.append(word);
+            lineLength += word.length() + 1;
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    // offsets to edit at, as random numbers that are taken modulo the length of the document when they are used
+    public static int[] offsets(int count, long seed){
+        Random random = new Random(seed);
+        int[] offsets = new int[count];
+        for(int i = 0; i < count; i++) offsets[i] = random.nextInt(Integer.MAX_VALUE);
+        return offsets;
+    }
+}
@@ -0,0 +1,62 @@
+package notepad;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.BadLocationException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// comparing two versions of a config file with a million lines, like compare files does once both have been read
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+public class DiffBenchmark {
+    private static final int LINE_COUNT = 1000000;
+
+    // a few thousand lines inserted, every third line changed, or nothing in common at all
+    @Param({"few", "many", "unrelated"})
+    public String changes;
+
+    private TextSnapshot left, right;
+
+    @Setup
+    public void setUp() throws BadLocationException {
+        Random random = new Random(1);
+        StringBuilder leftText = new StringBuilder(), rightText = new StringBuilder();
+        for(int i = 0; i < LINE_COUNT; i++){
+            String line = "key." + i + " = value " + (i % 977) + "\n";
+            leftText.append(line);
+            switch(changes){
+                case "few":
+                    if(random.nextInt(500) == 0) rightText.append("inserted ").append(i).append('\n');
+                    rightText.append(line);
+                    break;
+                case "many":
+                    rightText.append(i % 3 == 0 ? "changed " + i + "\n" : line);
+                    break;
+                default:
+                    rightText.append("other ").append(i * 7).append('\n');
+                    break;
+            }
+        }
+
+        left = snapshotOf(leftText.toString());
+        right = snapshotOf(rightText.toString());
+    }
+
+    private static TextSnapshot snapshotOf(String text) throws BadLocationException {
+        PieceTableDocument document = new PieceTableDocument();
+        document.insertString(0, text, null);
+        return document.snapshot();
+    }
+
+    @Benchmark
+    public int diff(){
+        int[] changeCount = new int[1];
+        new LineDiff(left, right, found -> changeCount[0] += found.size()).run();
+        return changeCount[0];
+    }
+}
@@ -0,0 +1,64 @@
+package notepad;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import java.util.concurrent.TimeUnit;
+
+// inserting and removing text at random offsets, in the piece table document of the notepad and in swing's gap buffer
+// document for comparison. the documents are made again for every iteration so that they do not keep growing
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DocumentEditBenchmark {
+    private static final int OFFSET_COUNT = 1 << 16;
+
+    @Param({"piece-table", "gap-buffer"})
+    public String document;
+
+    @Param({"1", "32"})
+    public int megabytes;
+
+    private String text;
+    private int[] offsets;
+    private int next;
+    private AbstractDocument edited;
+
+    @Setup(Level.Trial)
+    public void setUpText(){
+        text = BenchmarkText.generate(megabytes * 1024 * 1024, 1);
+        offsets = BenchmarkText.offsets(OFFSET_COUNT, 2);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpDocument() throws BadLocationException {
+        edited = document.equals("piece-table") ? new PieceTableDocument() : new PlainDocument();
+        edited.insertString(0, text, null);
+        next = 0;
+    }
+
+    private int nextOffset(int bound){
+        int offset = offsets[next] % bound;
+        next = (next + 1) & (OFFSET_COUNT - 1);
+        return offset;
+    }
+
+    @Benchmark
+    public int insert() throws BadLocationException {
+        edited.insertString(nextOffset(edited.getLength() + 1), "typed", null);
+        return edited.getLength();
+    }
+
+    // removes as much as it inserts so that the document keeps its size
+    @Benchmark
+    public int insertAndRemove() throws BadLocationException {
+        edited.insertString(nextOffset(edited.getLength() + 1), "typed", null);
+        edited.remove(nextOffset(edited.getLength() - 4), 5);
+        return edited.getLength();
+    }
+}
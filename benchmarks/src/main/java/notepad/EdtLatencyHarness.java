@@ -0,0 +1,602 @@
+package notepad;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+import java.awt.*;
+import java.awt.event.InvocationEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+// measures how long the actions of the notepad block the edt on generated files of 1 MB, 100 MB and 1 GB, and fails
+// when one of them blocks it for longer than its threshold. the actions are done to a text area set up like the one
+// of NotepadGUI (the notepad's text area ui, the zoom layer and a scroll pane) the same way its menu items do them, so
+// that everything except the font menu runs headless. painting is emulated by painting the scroll pane into an image
+// whenever swing asks for a repaint, like the repaint manager does for a window on the screen.
+//
+// every event the edt dispatches from the start of an action until the action is finished and the edt has been idle
+// for a while is timed, an action passes if none of them took longer than its threshold.
+//
+//   mvn -Pedt-latency verify
+//   xvfb-run mvn -Pedt-latency verify -Dedt.headless=false     (with the font menu)
+//   java -Xmx3g -XX:+UseZGC -Djava.awt.headless=true -cp benchmarks/target/benchmarks.jar notepad.EdtLatencyHarness
+//
+// -Dedt.sizes=1,100 sets the sizes of the files in megabytes, -Dedt.maxStall.<action>=<ms> the threshold of an action
+// (like -Dedt.maxStall.open=100) and -Dedt.results=<file> where the results are written as json. maven passes the
+// sizes on from -Dedt.sizes and the other options from -Dedt.args="...".
+public class EdtLatencyHarness {
+    // files this big are opened read-only in large file mode, like NotepadGUI does
+    private static final long LARGE_FILE_THRESHOLD = 256L * 1024 * 1024;
+
+    // an action is finished once the edt did nothing for this long after it, background work hands its results to
+    // the edt more often than this
+    private static final long QUIET_TIME = 500;
+
+    private static final long ACTION_TIMEOUT = 10 * 60 * 1000;
+
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final TextEncoding ENCODING = new TextEncoding(CHARSET, false, "\n");
+
+    // the longest that one event of an action may block the edt, in milliseconds, for files up to the given size in
+    // megabytes. they are set above what the notepad takes now on a slow machine so that the suite catches actions that
+    // get slower, lower them when an action gets faster. every size has the same budget, a big file that blocks the
+    // edt for longer is a bug to fix here and not a reason to raise its threshold
+    private static final List<Threshold> THRESHOLDS = List.of(
+            new Threshold("open", Integer.MAX_VALUE, 200),
+            new Threshold("save", Integer.MAX_VALUE, 100),
+            new Threshold("zoom in", Integer.MAX_VALUE, 150),
+            new Threshold("zoom out", Integer.MAX_VALUE, 150),
+            new Threshold("word wrap", Integer.MAX_VALUE, 150),
+            new Threshold("unwrap", Integer.MAX_VALUE, 150),
+            new Threshold("font menu", Integer.MAX_VALUE, 300)
+    );
+
+    // actions that are known to go over their threshold for files between the given sizes in megabytes, with the
+    // reason. they are still measured and reported but do not fail the suite, take them out once they are fixed
+    private static final List<KnownFailure> KNOWN_FAILURES = List.of(
+            // the LineIndex doubles its arrays on the edt while the text streams in, at about 4 million lines that is
+            // one copy of 100 MB. bigger files are opened in large file mode, which has no index
+            new KnownFailure("open", 200, 256, "the line index grows its arrays in one event"),
+            // with one cpu the edt shares it with the background wrap pass and the collector, which go through the
+            // whole text. the slices of the edt stay short but it gets the cpu back late
+            new KnownFailure("word wrap", 200, 256, "one cpu is shared with the wrap pass and the collector")
+    );
+
+    private final TimingEventQueue monitor = new TimingEventQueue();
+    private final List<Result> results = new ArrayList<>();
+
+    private JTextArea textArea;
+    private TextZoom textZoom;
+    private JScrollPane scrollPane;
+
+    public static void main(String[] args) throws Exception {
+        String sizes = System.getProperty("edt.sizes", "1,100,1024");
+        String resultFile = System.getProperty("edt.results");
+
+        EdtLatencyHarness harness = new EdtLatencyHarness();
+        harness.setUp();
+        for(String size : sizes.split(",")){
+            harness.runFileActions(Integer.parseInt(size.trim()));
+        }
+        harness.runFontMenu();
+
+        boolean passed = harness.report(System.out);
+        if(resultFile != null) harness.writeJson(new File(resultFile));
+        System.exit(passed ? 0 : 1);
+    }
+
+    private void setUp() throws InterruptedException, InvocationTargetException {
+        // the notepad registers its jfr events when it starts, not on the edt in the middle of an action
+        EdtMonitor.registerEvents();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor);
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                textArea = new JTextArea();
+                textZoom = new TextZoom(textArea);
+                scrollPane = new JScrollPane(textZoom.getLayer());
+                scrollPane.setSize(800, 600);
+                RepaintManager.setCurrentManager(new ImageRepaintManager(scrollPane));
+
+                // the notepad shows its window before a file is opened, the first paint loads the fonts of the jvm
+                ImageRepaintManager.layOut(scrollPane);
+                Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+                try{
+                    scrollPane.paint(g);
+                }finally{
+                    g.dispose();
+                }
+            }
+        });
+    }
+
+    private void runFileActions(int megabytes) throws Exception {
+        File file = File.createTempFile("notepad-latency", ".txt");
+        File saved = File.createTempFile("notepad-latency", ".txt");
+        try{
+            System.out.println("generating " + megabytes + " MB...");
+            generate(file, megabytes);
+            boolean largeFile = file.length() > LARGE_FILE_THRESHOLD;
+
+            measure("open", megabytes, new Action() {
+                @Override
+                public AtomicBoolean start() {
+                    return largeFile ? openLargeFile(file) : openFile(file);
+                }
+            });
+            if(!largeFile){
+                measure("save", megabytes, new Action() {
+                    @Override
+                    public AtomicBoolean start() throws BadLocationException {
+                        return saveFile(saved);
+                    }
+                });
+            }
+            measure("zoom in", megabytes, new Action() {
+                @Override
+                public AtomicBoolean start() {
+                    textZoom.zoomBy(1);
+                    return finished();
+                }
+            });
+            measure("zoom out", megabytes, new Action() {
+                @Override
+                public AtomicBoolean start() {
+                    textZoom.zoomBy(-1);
+                    return finished();
+                }
+            });
+            measure("word wrap", megabytes, new Action() {
+                @Override
+                public AtomicBoolean start() {
+                    // the ui goes on first, like the word wrap menu item does it
+                    installTextAreaUI(true);
+                    textArea.setLineWrap(true);
+                    textArea.setWrapStyleWord(true);
+                    return finished();
+                }
+            });
+            measure("unwrap", megabytes, new Action() {
+                @Override
+                public AtomicBoolean start() {
+                    textArea.setLineWrap(false);
+                    textArea.setWrapStyleWord(false);
+                    updateTextAreaUI();
+                    return finished();
+                }
+            });
+        }finally{
+            // lets go of the document before the next (bigger) one is opened
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    Document document = textArea.getDocument();
+                    setDocument(new PieceTableDocument());
+                    if(document instanceof LargeFileDocument) ((LargeFileDocument) document).close();
+                }
+            });
+            file.delete();
+            saved.delete();
+        }
+    }
+
+    // the font menu is a dialog, it can only be made when there is a screen (like under xvfb)
+    private void runFontMenu() throws Exception {
+        if(GraphicsEnvironment.isHeadless()){
+            System.out.println("font menu skipped, it needs a display (run under xvfb-run)");
+            return;
+        }
+
+        NotepadGUI[] notepad = new NotepadGUI[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                notepad[0] = new NotepadGUI();
+            }
+        });
+        measure("font menu", 0, new Action() {
+            @Override
+            public AtomicBoolean start() {
+                new FontMenu(notepad[0]).dispose();
+                return finished();
+            }
+        });
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                notepad[0].dispose();
+            }
+        });
+    }
+
+    private static AtomicBoolean finished(){
+        return new AtomicBoolean(true);
+    }
+
+    // opens the file the way NotepadGUI.openFile does, streamed into a new document by a FileLoader
+    private AtomicBoolean openFile(File file){
+        AtomicBoolean finished = new AtomicBoolean();
+        PieceTableDocument document = new PieceTableDocument();
+        // the status bar of the notepad keeps the lines of the document indexed while it loads
+        LineIndex.of(document);
+        setDocument(document);
+        ((DefaultCaret) textArea.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        textArea.setEditable(false);
+
+        new FileLoader(file, document){
+            @Override
+            protected void done() {
+                updateTextAreaUI();
+                textArea.setEditable(true);
+                textArea.setCaretPosition(0);
+                finished.set(true);
+            }
+        }.execute();
+        return finished;
+    }
+
+    // opens the file the way NotepadGUI.openLargeFile does, indexed in the background and then shown read-only
+    private AtomicBoolean openLargeFile(File file){
+        AtomicBoolean finished = new AtomicBoolean();
+        setDocument(new PieceTableDocument());
+        textArea.setEditable(false);
+
+        new SwingWorker<LargeFileDocument, Void>(){
+            @Override
+            protected LargeFileDocument doInBackground() throws Exception {
+                return new LargeFileDocument(file, new IntConsumer() {
+                    @Override
+                    public void accept(int progress) {
+                    }
+                });
+            }
+
+            @Override
+            protected void done() {
+                try{
+                    setDocument(get());
+                }catch(InterruptedException | ExecutionException e){
+                    throw new IllegalStateException("could not open " + file, e);
+                }finally{
+                    finished.set(true);
+                }
+            }
+        }.execute();
+        return finished;
+    }
+
+    // saves the way NotepadGUI.saveFile does, from a snapshot of the text on a FileSaver
+    private AtomicBoolean saveFile(File file) throws BadLocationException {
+        AtomicBoolean finished = new AtomicBoolean();
+        new FileSaver(TextSnapshot.of(textArea.getDocument()), file, ENCODING, Compression.NONE){
+            @Override
+            protected void done() {
+                finished.set(true);
+            }
+        }.execute();
+        return finished;
+    }
+
+    // same as NotepadGUI.setDocument, updateTextAreaUI and installTextAreaUI
+    private void setDocument(Document document){
+        boolean largeFile = document instanceof LargeFileDocument;
+        if(largeFile) installTextAreaUI(true);
+        textArea.setDocument(document);
+        if(!largeFile) updateTextAreaUI();
+        textArea.setEditable(!largeFile);
+    }
+
+    private void updateTextAreaUI(){
+        Document document = textArea.getDocument();
+        installTextAreaUI(textArea.getLineWrap() || document instanceof LargeFileDocument
+                || NotepadTextAreaUI.hasManyLines(document));
+    }
+
+    private void installTextAreaUI(boolean install){
+        boolean installed = textArea.getUI() instanceof NotepadTextAreaUI;
+        if(install && !installed) textArea.setUI(new NotepadTextAreaUI());
+        if(!install && installed) textArea.updateUI();
+    }
+
+    private interface Action {
+        // starts the action on the edt, the returned flag is set once the work it started in the background is done
+        AtomicBoolean start() throws Exception;
+    }
+
+    private void measure(String name, int megabytes, Action action) throws Exception {
+        System.out.println(name + (megabytes > 0 ? " (" + megabytes + " MB)" : "") + "...");
+        monitor.reset();
+
+        AtomicBoolean[] finished = new AtomicBoolean[1];
+        Exception[] failure = new Exception[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    finished[0] = action.start();
+                }catch(Exception e){
+                    failure[0] = e;
+                }
+            }
+
+            // shown as the longest event when the action itself blocked the edt the longest
+            @Override
+            public String toString() {
+                return name;
+            }
+        });
+        if(failure[0] != null) throw failure[0];
+
+        long deadline = System.currentTimeMillis() + ACTION_TIMEOUT;
+        while(!finished[0].get() || !monitor.isQuiet(QUIET_TIME)){
+            if(System.currentTimeMillis() > deadline) throw new TimeoutException(name + " did not finish");
+            Thread.sleep(50);
+        }
+
+        results.add(monitor.result(name, megabytes, threshold(name, megabytes), knownFailure(name, megabytes)));
+    }
+
+    private static long threshold(String action, int megabytes){
+        Long override = Long.getLong("edt.maxStall." + action.replace(' ', '-'));
+        if(override != null) return override;
+
+        for(Threshold threshold : THRESHOLDS){
+            if(threshold.action.equals(action) && megabytes <= threshold.maxMegabytes) return threshold.maxStall;
+        }
+        throw new IllegalArgumentException("no threshold for " + action);
+    }
+
+    private static String knownFailure(String action, int megabytes){
+        for(KnownFailure knownFailure : KNOWN_FAILURES){
+            if(knownFailure.action.equals(action) && megabytes >= knownFailure.minMegabytes &&
+                    megabytes <= knownFailure.maxMegabytes){
+                return knownFailure.reason;
+            }
+        }
+        return null;
+    }
+
+    // writes lines of words, a megabyte of generated text at a time
+    private static void generate(File file, int megabytes) throws IOException {
+        byte[][] chunks = new byte[8][];
+        for(int i = 0; i < chunks.length; i++){
+            chunks[i] = BenchmarkText.generate(1024 * 1024 - 1, i).concat("\n").getBytes(CHARSET);
+        }
+
+        try(OutputStream out = new FileOutputStream(file)){
+            for(int i = 0; i < megabytes; i++) out.write(chunks[i % chunks.length]);
+        }
+    }
+
+    private boolean report(PrintStream out){
+        boolean passed = true;
+        List<Result> knownFailures = new ArrayList<>();
+        out.println();
+        out.printf("%-10s %8s %10s %10s %8s %10s  %s%n", "action", "size", "max stall", "threshold", "events",
+                "edt busy", "longest event");
+        for(Result result : results){
+            out.printf("%-10s %8s %7d ms %7d ms %8d %7d ms  %s%s%n", result.action,
+                    result.megabytes > 0 ? result.megabytes + " MB" : "", result.maxStall, result.threshold,
+                    result.events, result.busy, result.passed() ? "" : result.knownFailure != null ? "KNOWN " : "FAILED ",
+                    result.longestEvent);
+            if(!result.passed() && result.knownFailure != null) knownFailures.add(result);
+            else passed &= result.passed();
+        }
+        out.println();
+        for(Result result : knownFailures){
+            out.printf("known failure: %s (%d MB), %s%n", result.action, result.megabytes, result.knownFailure);
+        }
+        out.println(passed ? "all actions are within their thresholds" : "some actions blocked the edt for too long");
+        return passed;
+    }
+
+    private void writeJson(File file) throws IOException {
+        File folder = file.getAbsoluteFile().getParentFile();
+        if(folder != null) folder.mkdirs();
+
+        try(PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)){
+            out.println("[");
+            for(int i = 0; i < results.size(); i++){
+                Result result = results.get(i);
+                out.printf("  {\"action\": \"%s\", \"megabytes\": %d, \"maxStallMs\": %d, \"thresholdMs\": %d, " +
+                                "\"events\": %d, \"busyMs\": %d, \"passed\": %b, \"knownFailure\": %s, " +
+                                "\"longestEvent\": \"%s\"}%s%n",
+                        result.action, result.megabytes, result.maxStall, result.threshold, result.events, result.busy,
+                        result.passed(), result.knownFailure != null ? "\"" + escape(result.knownFailure) + "\"" : "null",
+                        escape(result.longestEvent), i < results.size() - 1 ? "," : "");
+            }
+            out.println("]");
+        }
+    }
+
+    private static String escape(String text){
+        StringBuilder escaped = new StringBuilder();
+        for(char c : text.toCharArray()){
+            if(c == '"' || c == '\\') escaped.append('\\').append(c);
+            else if(c < ' ') escaped.append(String.format("\\u%04x", (int) c));
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static class Threshold {
+        final String action;
+        final int maxMegabytes;
+        final long maxStall;
+
+        Threshold(String action, int maxMegabytes, long maxStall){
+            this.action = action;
+            this.maxMegabytes = maxMegabytes;
+            this.maxStall = maxStall;
+        }
+    }
+
+    private static class KnownFailure {
+        final String action;
+        final int minMegabytes;
+        final int maxMegabytes;
+        final String reason;
+
+        KnownFailure(String action, int minMegabytes, int maxMegabytes, String reason){
+            this.action = action;
+            this.minMegabytes = minMegabytes;
+            this.maxMegabytes = maxMegabytes;
+            this.reason = reason;
+        }
+    }
+
+    private static class Result {
+        final String action;
+        final int megabytes;
+        final long maxStall;
+        final String longestEvent;
+        final long busy;
+        final int events;
+        final long threshold;
+        final String knownFailure;
+
+        Result(String action, int megabytes, long maxStall, String longestEvent, long busy, int events, long threshold,
+               String knownFailure){
+            this.action = action;
+            this.megabytes = megabytes;
+            this.maxStall = maxStall;
+            this.longestEvent = longestEvent;
+            this.busy = busy;
+            this.events = events;
+            this.threshold = threshold;
+            this.knownFailure = knownFailure;
+        }
+
+        boolean passed(){return maxStall <= threshold;}
+    }
+
+    // times every event that the edt dispatches
+    private static class TimingEventQueue extends EventQueue {
+        private long maxStall;
+        private String longestEvent = "";
+        private long busy;
+        private int events;
+        private boolean dispatching;
+        private long lastEventEnd;
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            synchronized(this){
+                dispatching = true;
+            }
+            long start = System.nanoTime();
+            try{
+                super.dispatchEvent(event);
+            }finally{
+                long duration = (System.nanoTime() - start) / 1_000_000;
+                synchronized(this){
+                    dispatching = false;
+                    lastEventEnd = System.currentTimeMillis();
+                    events++;
+                    busy += duration;
+                    if(duration > maxStall){
+                        maxStall = duration;
+                        longestEvent = describe(event);
+                    }
+                }
+            }
+        }
+
+        // the runnable of an invocation event tells more than the event itself
+        private static String describe(AWTEvent event){
+            String description = event.paramString();
+            int runnable = description.indexOf("runnable=");
+            if(event instanceof InvocationEvent && runnable >= 0){
+                int end = description.indexOf(',', runnable);
+                return description.substring(runnable + "runnable=".length(), end < 0 ? description.length() : end);
+            }
+            return event.getClass().getSimpleName() + " " + description;
+        }
+
+        synchronized void reset(){
+            maxStall = 0;
+            longestEvent = "";
+            busy = 0;
+            events = 0;
+            lastEventEnd = System.currentTimeMillis();
+        }
+
+        synchronized boolean isQuiet(long time){
+            return !dispatching && System.currentTimeMillis() - lastEventEnd >= time;
+        }
+
+        synchronized Result result(String action, int megabytes, long threshold, String knownFailure){
+            return new Result(action, megabytes, maxStall, longestEvent, busy, events, threshold, knownFailure);
+        }
+    }
+
+    // swing does not paint components that are not on the screen, this paints the scroll pane into an image instead
+    // whenever something in it asks to be repainted or laid out again, in one later event like the real repaint
+    // manager does
+    private static class ImageRepaintManager extends RepaintManager {
+        private final JComponent root;
+        private final BufferedImage image;
+        private final AtomicBoolean paintPending = new AtomicBoolean();
+
+        ImageRepaintManager(JComponent root){
+            this.root = root;
+            this.image = new BufferedImage(root.getWidth(), root.getHeight(), BufferedImage.TYPE_INT_RGB);
+        }
+
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            schedulePaint();
+        }
+
+        @Override
+        public void addInvalidComponent(JComponent invalidComponent) {
+            schedulePaint();
+        }
+
+        // lays out the components like validate does for a window on the screen. validate does nothing for components
+        // without a peer, so the text area would never get a size and its text would never be painted
+        static void layOut(Component component){
+            if(!(component instanceof Container)) return;
+            Container container = (Container) component;
+            container.doLayout();
+            for(Component child : container.getComponents()) layOut(child);
+        }
+
+        private void schedulePaint(){
+            if(paintPending.getAndSet(true)) return;
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    paintPending.set(false);
+                    layOut(root);
+                    Graphics2D g = image.createGraphics();
+                    try{
+                        root.paint(g);
+                    }finally{
+                        g.dispose();
+                    }
+                }
+
+                @Override
+                public String toString() {
+                    return "paint";
+                }
+            });
+        }
+    }
+}
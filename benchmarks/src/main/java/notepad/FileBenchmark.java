@@ -0,0 +1,81 @@
+package notepad;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.BadLocationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// opening and saving a file the way the notepad does: FileLoader streams the file into a document in chunks that are
+// inserted on the edt, FileSaver encodes a snapshot of the document into a temporary file and moves it over the target.
+// with gzip the file is decompressed while it is loaded and compressed while it is saved
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FileBenchmark {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final TextEncoding ENCODING = new TextEncoding(CHARSET, false, "\n");
+
+    @Param({"1", "32"})
+    public int megabytes;
+
+    @Param({"none", "gzip"})
+    public String compression;
+
+    private File source;
+    private File target;
+    private PieceTableDocument loaded;
+    private Compression saveCompression;
+
+    @Setup
+    public void setUp() throws IOException, BadLocationException {
+        String text = BenchmarkText.generate(megabytes * 1024 * 1024, 1);
+        source = File.createTempFile("notepad-benchmark", ".txt");
+        target = File.createTempFile("notepad-benchmark", ".txt");
+        saveCompression = compression.equals("gzip") ? Compression.gzip(Compression.DEFAULT_LEVEL) : Compression.NONE;
+        try(OutputStream out = Files.newOutputStream(source.toPath())){
+            if(saveCompression.isCompressed()){
+                OutputStream compressed = saveCompression.compress(out);
+                compressed.write(text.getBytes(CHARSET));
+                compressed.close();
+            }else{
+                out.write(text.getBytes(CHARSET));
+            }
+        }
+
+        loaded = new PieceTableDocument();
+        loaded.insertString(0, text, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source.toPath());
+        Files.deleteIfExists(target.toPath());
+    }
+
+    @Benchmark
+    public int open() throws InterruptedException, ExecutionException {
+        PieceTableDocument document = new PieceTableDocument();
+        FileLoader loader = new FileLoader(source, document);
+        loader.execute();
+
+        // the loader is done once the edt has inserted all of the text
+        loader.get();
+        return document.getLength();
+    }
+
+    @Benchmark
+    public long save() throws Exception {
+        new FileSaver(loaded.snapshot(), target, ENCODING, saveCompression).doInBackground();
+        return target.length();
+    }
+}
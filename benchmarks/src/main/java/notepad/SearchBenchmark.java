@@ -0,0 +1,54 @@
+package notepad;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.BadLocationException;
+import java.util.concurrent.TimeUnit;
+
+// finding every match in a document through a snapshot of its text, like find and replace all do
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SearchBenchmark {
+    private static final int TEXT_LENGTH = 16 * 1024 * 1024;
+
+    @Param({"plain", "ignore-case", "regex"})
+    public String search;
+
+    private CharSequence chars;
+    private TextSearch textSearch;
+
+    @Setup
+    public void setUp() throws BadLocationException {
+        PieceTableDocument document = new PieceTableDocument();
+        document.insertString(0, BenchmarkText.generate(TEXT_LENGTH, 1), null);
+        chars = document.snapshot().chars();
+
+        switch(search){
+            case "plain":
+                textSearch = new TextSearch("snapshot", true, false);
+                break;
+            case "ignore-case":
+                textSearch = new TextSearch("Snapshot", false, false);
+                break;
+            default:
+                textSearch = new TextSearch("sna\\w+ot", true, true);
+                break;
+        }
+    }
+
+    @Benchmark
+    public int findAll(){
+        TextSearch.Finder finder = textSearch.finder(chars);
+        int matches = 0;
+        if(finder.find(0, chars.length())){
+            do{
+                matches++;
+            }while(finder.findNext());
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,64 @@
+package notepad;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.text.BadLocationException;
+import java.util.concurrent.TimeUnit;
+
+// undoing and redoing a history of edits at random offsets, with the default memory limit where the whole history
+// stays in memory and with a small limit where most of it has been moved to the journal on disk
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class UndoBenchmark {
+    private static final int EDITS = 10_000;
+    private static final int TEXT_LENGTH = 1024 * 1024;
+    private static final String INSERTED = BenchmarkText.generate(200, 3);
+
+    @Param({"memory", "journal"})
+    public String history;
+
+    private PieceTableDocument document;
+    private UndoHistory undoHistory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BadLocationException {
+        document = new PieceTableDocument();
+        document.insertString(0, BenchmarkText.generate(TEXT_LENGTH, 1), null);
+
+        undoHistory = history.equals("memory") ? new UndoHistory() : new UndoHistory(64 * 1024);
+        document.addUndoableEditListener(new UndoableEditListener() {
+            @Override
+            public void undoableEditHappened(UndoableEditEvent e) {
+                undoHistory.addEdit(e.getEdit());
+            }
+        });
+
+        // every edit is a step of its own, edits made this fast one after another would be merged otherwise
+        int[] offsets = BenchmarkText.offsets(EDITS, 2);
+        for(int i = 0; i < EDITS; i++){
+            undoHistory.beginCompoundEdit();
+            if(i % 4 == 3){
+                int offset = offsets[i] % (document.getLength() - INSERTED.length());
+                document.remove(offset, INSERTED.length());
+            }else{
+                document.insertString(offsets[i] % (document.getLength() + 1), INSERTED, null);
+            }
+            undoHistory.endCompoundEdit();
+        }
+    }
+
+    // undoes the whole history and redoes it again, which leaves the document as it was
+    @Benchmark
+    @OperationsPerInvocation(2 * EDITS)
+    public int undoAndRedo(){
+        while(undoHistory.canUndo()) undoHistory.undo();
+        while(undoHistory.canRedo()) undoHistory.redo();
+        return document.getLength();
+    }
+}
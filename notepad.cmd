@@ -0,0 +1,41 @@
+@echo off
+rem starts the notepad with class data sharing, see notepad.sh. the jar is only built when build\notepad.jar is missing,
+rem delete the build folder to rebuild it after changing the sources. like notepad.sh it runs the notepad with zgc.
+rem
+rem   notepad                  start the notepad
+rem   notepad --benchmark [n]  measure the time until the first paint, see StartupBenchmark
+
+setlocal
+cd /d "%~dp0"
+
+set JAVA=java
+set JAVAC=javac
+set JAR_TOOL=jar
+if defined JAVA_HOME (
+    set "JAVA=%JAVA_HOME%\bin\java"
+    set "JAVAC=%JAVA_HOME%\bin\javac"
+    set "JAR_TOOL=%JAVA_HOME%\bin\jar"
+)
+
+set JAR=build\notepad.jar
+set ARCHIVE=build\notepad.jsa
+set CLASS_PATH=%JAR%;lib\JTattoo-1.6.13.jar
+
+if not exist %JAR% (
+    if exist %ARCHIVE% del %ARCHIVE%
+    if not exist build\classes mkdir build\classes
+    dir /s /b app\src\main\java\*.java > build\sources.txt
+    "%JAVAC%" -encoding UTF-8 -cp lib\JTattoo-1.6.13.jar -d build\classes @build\sources.txt || exit /b 1
+    "%JAR_TOOL%" --create --file %JAR% --main-class notepad.App -C build\classes . || exit /b 1
+)
+
+if "%~1"=="--benchmark" (
+    "%JAVA%" -cp %CLASS_PATH% notepad.StartupBenchmark %2
+    exit /b
+)
+
+if exist %ARCHIVE% (
+    start "" "%JAVA%w" -XX:+UseZGC -XX:SharedArchiveFile=%ARCHIVE% -Xlog:cds=off -Xlog:cds+dynamic=off -cp %CLASS_PATH% notepad.App %*
+) else (
+    start "" "%JAVA%w" -XX:+UseZGC -XX:ArchiveClassesAtExit=%ARCHIVE% -Xlog:cds=off -Xlog:cds+dynamic=off -cp %CLASS_PATH% notepad.App %*
+)
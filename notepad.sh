@@ -0,0 +1,37 @@
+#!/bin/sh
+# starts the notepad with class data sharing. the classes are packed into build/notepad.jar, which is rebuilt when a
+# source file changed. the first run after a build dumps the classes it loaded into build/notepad.jsa when it exits,
+# the runs after that map them from the archive instead of loading and verifying them again, which makes the window
+# show up sooner. the archive only fits the jdk it was made with, remove it after updating java. the notepad runs with
+# zgc, which does its work next to the edt instead of stopping it while the text of a large file fills the heap.
+#
+#   ./notepad.sh                 start the notepad
+#   ./notepad.sh --benchmark [n] measure the time until the first paint, see StartupBenchmark
+
+cd "$(dirname "$0")" || exit 1
+
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+JAVAC="${JAVA_HOME:+$JAVA_HOME/bin/}javac"
+JAR_TOOL="${JAVA_HOME:+$JAVA_HOME/bin/}jar"
+
+JAR=build/notepad.jar
+ARCHIVE=build/notepad.jsa
+CLASS_PATH="$JAR:lib/JTattoo-1.6.13.jar"
+
+if [ ! -f "$JAR" ] || [ -n "$(find app/src/main/java -newer "$JAR" -print -quit)" ]; then
+    rm -rf build/classes "$ARCHIVE"
+    mkdir -p build/classes
+    "$JAVAC" -encoding UTF-8 -cp lib/JTattoo-1.6.13.jar -d build/classes $(find app/src/main/java -name '*.java') || exit 1
+    "$JAR_TOOL" --create --file "$JAR" --main-class notepad.App -C build/classes . || exit 1
+fi
+
+if [ "$1" = "--benchmark" ]; then
+    shift
+    exec "$JAVA" -cp "$CLASS_PATH" notepad.StartupBenchmark "$@"
+fi
+
+if [ -f "$ARCHIVE" ]; then
+    exec "$JAVA" -XX:+UseZGC -XX:SharedArchiveFile="$ARCHIVE" -Xlog:cds=off -Xlog:cds+dynamic=off -cp "$CLASS_PATH" notepad.App "$@"
+else
+    exec "$JAVA" -XX:+UseZGC -XX:ArchiveClassesAtExit="$ARCHIVE" -Xlog:cds=off -Xlog:cds+dynamic=off -cp "$CLASS_PATH" notepad.App "$@"
+fi
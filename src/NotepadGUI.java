@@ -1,375 +0,0 @@
-import javax.swing.*;
-import javax.swing.event.UndoableEditEvent;
-import javax.swing.event.UndoableEditListener;
-import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.swing.undo.UndoManager;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.io.*;
-
-public class NotepadGUI extends JFrame {
-    // file explorer
-    private JFileChooser fileChooser;
-
-    private JTextArea textArea;
-    public JTextArea getTextArea(){return textArea;}
-
-    private File currentFile;
-
-    // swing's built in library to manage undo and redo functionalities
-    private UndoManager undoManager;
-
-    public NotepadGUI(){
-        super("Notepad");
-        setSize(400, 500);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-
-        // file chooser setup
-        fileChooser = new JFileChooser();
-        fileChooser.setCurrentDirectory(new File("src/assets"));
-        fileChooser.setFileFilter(new FileNameExtensionFilter("Text Files", "txt"));
-
-        undoManager = new UndoManager();
-
-        addGuiComponents();
-    }
-
-    private void addGuiComponents(){
-        addToolbar();
-
-        // area to type text into
-        textArea = new JTextArea();
-        textArea.getDocument().addUndoableEditListener(new UndoableEditListener() {
-            @Override
-            public void undoableEditHappened(UndoableEditEvent e) {
-                // adds each edit that we do in the text area (either adding or removing text)
-                undoManager.addEdit(e.getEdit());
-            }
-        });
-
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        add(scrollPane, BorderLayout.CENTER);
-    }
-
-    private void addToolbar(){
-        JToolBar toolBar = new JToolBar();
-        toolBar.setFloatable(false);
-
-        // menu bar
-        JMenuBar menuBar = new JMenuBar();
-        toolBar.add(menuBar);
-
-        // add menus
-        menuBar.add(addFileMenu());
-        menuBar.add(addEditMenu());
-        menuBar.add(addFormatMenu());
-        menuBar.add(addViewMenu());
-
-        add(toolBar, BorderLayout.NORTH);
-    }
-
-    private JMenu addFileMenu(){
-        JMenu fileMenu = new JMenu("File");
-
-        // "new" functionality - resets everything
-        JMenuItem newMenuItem = new JMenuItem("New");
-        newMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // reset title header
-                setTitle("Notepad");
-
-                // reset text area
-                textArea.setText("");
-
-                // reset current file
-                currentFile = null;
-            }
-        });
-        fileMenu.add(newMenuItem);
-
-        // "open" functionality - open a text file
-        JMenuItem openMenuItem = new JMenuItem("Open");
-        openMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // open file explorer
-                int result = fileChooser.showOpenDialog(NotepadGUI.this);
-
-                if(result != JFileChooser.APPROVE_OPTION) return;
-                try{
-                    // reset notepad
-                    newMenuItem.doClick();
-
-                    // get the selected file
-                    File selectedFile = fileChooser.getSelectedFile();
-
-                    // update current file
-                    currentFile = selectedFile;
-
-                    // update title header
-                    setTitle(selectedFile.getName());
-
-                    // read the file
-                    FileReader fileReader = new FileReader(selectedFile);
-                    BufferedReader bufferedReader = new BufferedReader(fileReader);
-
-                    // store the text
-                    StringBuilder fileText = new StringBuilder();
-                    String readText;
-                    while((readText = bufferedReader.readLine()) != null){
-                        fileText.append(readText + "\n");
-                    }
-
-                    // update text area gui
-                    textArea.setText(fileText.toString());
-
-                }catch(Exception e1){
-
-                }
-            }
-        });
-        fileMenu.add(openMenuItem);
-
-        // "save as" functionality - creates a new text file and saves user text
-        JMenuItem saveAsMenuItem = new JMenuItem("Save As");
-        saveAsMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // open save dialog
-                int result = fileChooser.showSaveDialog(NotepadGUI.this);
-
-                // continue to execute code only if the user pressed the save button
-                if(result != JFileChooser.APPROVE_OPTION) return;
-                try{
-                    File selectedFile = fileChooser.getSelectedFile();
-
-                    // we will need to append .txt to the file if it does not have the txt extension yet
-                    String fileName = selectedFile.getName();
-                    if(!fileName.substring(fileName.length() - 4).equalsIgnoreCase(".txt")){
-                        selectedFile = new File(selectedFile.getAbsoluteFile() + ".txt");
-                    }
-
-                    // create new file
-                    selectedFile.createNewFile();
-
-                    // now we will write the user's text into the file that we just created
-                    FileWriter fileWriter = new FileWriter(selectedFile);
-                    BufferedWriter bufferedWriter = new BufferedWriter(fileWriter);
-                    bufferedWriter.write(textArea.getText());
-                    bufferedWriter.close();
-                    fileWriter.close();
-
-                    // update the title header of gui to the save text file
-                    setTitle(fileName);
-
-                    // update current file
-                    currentFile = selectedFile;
-
-                    // show display dialog
-                    JOptionPane.showMessageDialog(NotepadGUI.this, "Saved File!");
-
-                }catch(Exception e1){
-                    e1.printStackTrace();
-                }
-            }
-        });
-        fileMenu.add(saveAsMenuItem);
-
-        // "save" functionalty - saves text into current text file
-        JMenuItem saveMenuItem = new JMenuItem("Save");
-        saveMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // if the current file is null then we have to perform save as functionality
-                if(currentFile == null) saveAsMenuItem.doClick();
-
-                // if the user chooses to cancel saving the file this means that current file will still
-                // be null, then we want to prevent executing the rest of the code
-                if(currentFile == null) return;
-
-                try{
-                    // write to current file
-                    FileWriter fileWriter = new FileWriter(currentFile);
-                    BufferedWriter bufferedWriter = new BufferedWriter(fileWriter);
-                    bufferedWriter.write(textArea.getText());
-                    bufferedWriter.close();
-                    fileWriter.close();
-                }catch(Exception e1){
-                    e1.printStackTrace();
-                }
-            }
-        });
-        fileMenu.add(saveMenuItem);
-
-        // "exit" functionality - ends program process
-        JMenuItem exitMenuItem = new JMenuItem("Exit");
-        exitMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // dispose of this gui
-                NotepadGUI.this.dispose();
-            }
-        });
-        fileMenu.add(exitMenuItem);
-
-        return fileMenu;
-    }
-
-    private JMenu addEditMenu(){
-        JMenu editMenu = new JMenu("Edit");
-
-        JMenuItem undoMenuItem = new JMenuItem("Undo");
-        undoMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // means that if there are any edits that we can undo, then we undo them
-                if(undoManager.canUndo()){
-                    undoManager.undo();
-                }
-            }
-        });
-        editMenu.add(undoMenuItem);
-
-        JMenuItem redoMenuItem = new JMenuItem("Redo");
-        redoMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // means if there is an edit that we can redo then we redo it
-                if(undoManager.canRedo()) {
-                    undoManager.redo();
-                }
-            }
-        });
-        editMenu.add(redoMenuItem);
-
-        return editMenu;
-    }
-
-    private JMenu addFormatMenu(){
-        JMenu formatMenu = new JMenu("Format");
-
-        // wrap word functionality
-        JCheckBoxMenuItem wordWrapMenuItem = new JCheckBoxMenuItem("Word Wrap");
-        wordWrapMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                boolean isChecked = wordWrapMenuItem.getState();
-                if(isChecked){
-                    // wrap words
-                    textArea.setLineWrap(true);
-                    textArea.setWrapStyleWord(true);
-                }else{
-                    // unwrap words
-                    textArea.setLineWrap(false);
-                    textArea.setWrapStyleWord(false);
-                }
-            }
-        });
-        formatMenu.add(wordWrapMenuItem);
-
-        // aligning text
-        JMenu alignTextMenu = new JMenu("Align Text");
-
-        // align text to the left
-        JMenuItem alignTextLeftMenuItem = new JMenuItem("Left");
-        alignTextLeftMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                 textArea.setComponentOrientation(ComponentOrientation.LEFT_TO_RIGHT);
-            }
-        });
-        alignTextMenu.add(alignTextLeftMenuItem);
-
-        // align text to the right
-        JMenuItem alignTextRightMenuItem = new JMenuItem("Right");
-        alignTextRightMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                textArea.setComponentOrientation(ComponentOrientation.RIGHT_TO_LEFT);
-            }
-        });
-        alignTextMenu.add(alignTextRightMenuItem);
-
-        formatMenu.add(alignTextMenu);
-
-        // font format
-        JMenuItem fontMenuItem = new JMenuItem("Font...");
-        fontMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                // launch font menu
-                new FontMenu(NotepadGUI.this).setVisible(true);
-            }
-        });
-        formatMenu.add(fontMenuItem);
-
-        return formatMenu;
-    }
-
-    private JMenu addViewMenu(){
-        JMenu viewMenu = new JMenu("View");
-
-        JMenu zoomMenu = new JMenu("Zoom");
-
-        // zoom in functionality
-        JMenuItem zoomInMenuItem = new JMenuItem("Zoom in");
-        zoomInMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                Font currentFont = textArea.getFont();
-                textArea.setFont(new Font(
-                   currentFont.getName(),
-                   currentFont.getStyle(),
-                   currentFont.getSize() + 1
-                ));
-            }
-        });
-        zoomMenu.add(zoomInMenuItem);
-
-        // zoom out functionality
-        JMenuItem zoomOutMenuItem = new JMenuItem("Zoom out");
-        zoomOutMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                Font currentFont = textArea.getFont();
-                textArea.setFont(new Font(
-                        currentFont.getName(),
-                        currentFont.getStyle(),
-                        currentFont.getSize() - 1
-                ));
-            }
-        });
-        zoomMenu.add(zoomOutMenuItem);
-
-        // restore default zoom
-        JMenuItem zoomRestoreMenuItem = new JMenuItem("Restore Default Zoom");
-        zoomRestoreMenuItem.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                Font currentFont = textArea.getFont();
-                textArea.setFont(new Font(
-                        currentFont.getName(),
-                        currentFont.getStyle(),
-                        12
-                ));
-            }
-        });
-        zoomMenu.add(zoomRestoreMenuItem);
-
-        viewMenu.add(zoomMenu);
-
-        return viewMenu;
-    }
-}
-
-
-
-
-
-
-
-
-